@@ -0,0 +1,187 @@
+package me.saser.libinftom.benchmarks;
+
+import me.saser.libinftom.dfa.CachingDFA;
+import me.saser.libinftom.dfa.CharDFA;
+import me.saser.libinftom.dfa.CompiledDFA;
+import me.saser.libinftom.dfa.CompiledDFARunner;
+import me.saser.libinftom.dfa.DFA;
+import me.saser.libinftom.dfa.DFARunner;
+import me.saser.libinftom.dfa.ImmutableDFA;
+import me.saser.libinftom.dfa.InstrumentedDFA;
+import me.saser.libinftom.dfa.MappedDFA;
+import me.saser.libinftom.dfa.SimpleDFARunner;
+import me.saser.libinftom.dfa.SparseDFA;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures checking whether whole words are accepted, in the different representations offered by the library. Every
+ * invocation checks one word, taken in turn from a fixed set of words of which a fraction of
+ * <code>rejectionRate</code> are rejected.
+ * <p>
+ * Run with <code>-prof gc</code> to also see how much is allocated per word.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AcceptanceBenchmark {
+
+    // The number of words to check. Must be a power of two.
+    private static final int WORDS = 1 << 10;
+
+    @Param({"16", "1024", "65536"})
+    public int states;
+
+    @Param({"2", "16"})
+    public int symbols;
+
+    @Param({"8", "64", "512"})
+    public int wordLength;
+
+    @Param({"0.1", "0.5", "0.9"})
+    public double rejectionRate;
+
+    private DFA dfa;
+    private CompiledDFA compiled;
+    private CharDFA charDFA;
+    private DFARunner simpleRunner;
+    private CompiledDFARunner compiledRunner;
+    private CachingDFA caching;
+    private InstrumentedDFA instrumented;
+    private InstrumentedDFA instrumentedDisabled;
+    private MappedDFA mapped;
+    private SparseDFA sparse;
+
+    private String[] plainWords;
+    private String[] separatedWords;
+    private String[][] symbolWords;
+    private int[][] encodedWords;
+    private int index;
+
+    @Setup
+    public void setUp() {
+        this.dfa = ImmutableDFA.fromJSON(RandomDFAs.json(this.states, this.symbols));
+        this.compiled = CompiledDFA.compile(this.dfa);
+        this.charDFA = CharDFA.compile(this.dfa);
+        this.simpleRunner = new SimpleDFARunner(this.dfa);
+        this.compiledRunner = this.compiled.runner();
+        // The cache is split into segments that evict separately, so leave room for the words to spread unevenly.
+        this.caching = new CachingDFA(this.compiled, 2 * WORDS);
+        this.instrumented = new InstrumentedDFA(this.compiled);
+        this.instrumentedDisabled = new InstrumentedDFA(this.compiled);
+        this.instrumentedDisabled.setEnabled(false);
+        this.mapped = MappedDFA.copyOf(this.compiled);
+        this.sparse = SparseDFA.compile(this.compiled);
+
+        this.plainWords = RandomDFAs.plainWords(this.dfa, WORDS, this.wordLength, this.rejectionRate);
+        this.separatedWords = new String[WORDS];
+        this.symbolWords = new String[WORDS][];
+        this.encodedWords = new int[WORDS][];
+        for (int i = 0; i < WORDS; i++) {
+            this.separatedWords[i] = RandomDFAs.separated(this.plainWords[i]);
+            this.symbolWords[i] = this.separatedWords[i].split(",");
+            this.encodedWords[i] = this.compiled.getAlphabet().encodeWord(this.separatedWords[i]);
+        }
+    }
+
+    private int next() {
+        this.index = (this.index + 1) & (WORDS - 1);
+        return this.index;
+    }
+
+    @Benchmark
+    public boolean accepts() {
+        return this.dfa.accepts(this.separatedWords[this.next()]);
+    }
+
+    @Benchmark
+    public boolean compiledAccepts() {
+        return this.compiled.accepts(this.separatedWords[this.next()]);
+    }
+
+    @Benchmark
+    public boolean compiledAcceptsEncoded() {
+        return this.compiled.accepts(this.encodedWords[this.next()]);
+    }
+
+    @Benchmark
+    public boolean cachingAccepts() {
+        return this.caching.accepts(this.separatedWords[this.next()]);
+    }
+
+    @Benchmark
+    public boolean instrumentedAccepts() {
+        return this.instrumented.accepts(this.separatedWords[this.next()]);
+    }
+
+    @Benchmark
+    public boolean instrumentedDisabledAccepts() {
+        return this.instrumentedDisabled.accepts(this.separatedWords[this.next()]);
+    }
+
+    @Benchmark
+    public boolean mappedAccepts() {
+        return this.mapped.accepts(this.separatedWords[this.next()]);
+    }
+
+    @Benchmark
+    public boolean mappedAcceptsEncoded() {
+        return this.mapped.accepts(this.encodedWords[this.next()]);
+    }
+
+    @Benchmark
+    public boolean sparseAccepts() {
+        return this.sparse.accepts(this.separatedWords[this.next()]);
+    }
+
+    @Benchmark
+    public boolean charDFAAccepts() {
+        return this.charDFA.acceptsText(this.plainWords[this.next()]);
+    }
+
+    /**
+     * Checks a word by consuming its symbols one by one with a {@link SimpleDFARunner}, which is how words had to be
+     * checked before <code>accepts</code> existed.
+     */
+    @Benchmark
+    public boolean simpleRunnerConsume() {
+        this.simpleRunner.reset();
+        for (String symbol : this.symbolWords[this.next()]) {
+            if (this.simpleRunner.consume(symbol) == null) {
+                return false;
+            }
+        }
+        return this.simpleRunner.isInFinalState();
+    }
+
+    /**
+     * Checks a word by resetting a reused {@link CompiledDFARunner} and consuming the whole word at once.
+     */
+    @Benchmark
+    public boolean compiledRunnerConsumeAll() {
+        this.compiledRunner.reset();
+        this.compiledRunner.consumeAll(this.separatedWords[this.next()]);
+        return this.compiledRunner.isInFinalState();
+    }
+
+    @Benchmark
+    public boolean compiledRunnerConsumeAllEncoded() {
+        this.compiledRunner.reset();
+        this.compiledRunner.consumeAll(this.encodedWords[this.next()]);
+        return this.compiledRunner.isInFinalState();
+    }
+}
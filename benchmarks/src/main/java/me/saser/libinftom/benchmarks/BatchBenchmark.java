@@ -0,0 +1,99 @@
+package me.saser.libinftom.benchmarks;
+
+import me.saser.libinftom.dfa.BatchAcceptor;
+import me.saser.libinftom.dfa.ImmutableDFA;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures checking a whole batch of words with {@link BatchAcceptor}, with and without sharing prefixes. Every word
+ * starts with one of a small number of random prefixes of <code>prefixLength</code> symbols, followed by
+ * <code>suffixLength</code> random symbols, like paths below a few common directories.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BatchBenchmark {
+
+    private static final int WORDS = 1 << 16;
+    private static final int PREFIXES = 64;
+
+    @Param({"1024"})
+    public int states;
+
+    @Param({"16"})
+    public int symbols;
+
+    @Param({"0", "32", "256"})
+    public int prefixLength;
+
+    @Param({"8"})
+    public int suffixLength;
+
+    @Param({"1", "4"})
+    public int threads;
+
+    private ForkJoinPool pool;
+    private BatchAcceptor acceptor;
+    private List<String> words;
+
+    @Setup
+    public void setUp() {
+        this.pool = new ForkJoinPool(this.threads);
+        this.acceptor = new BatchAcceptor(ImmutableDFA.fromJSON(RandomDFAs.json(this.states, this.symbols)), this.pool);
+
+        Random random = new Random(this.states);
+        String[] prefixes = new String[PREFIXES];
+        for (int i = 0; i < PREFIXES; i++) {
+            prefixes[i] = this.randomPlainWord(random, this.prefixLength);
+        }
+        this.words = new ArrayList<>(WORDS);
+        for (int i = 0; i < WORDS; i++) {
+            String plain = prefixes[random.nextInt(PREFIXES)] + this.randomPlainWord(random, this.suffixLength);
+            this.words.add(RandomDFAs.separated(plain));
+        }
+    }
+
+    private String randomPlainWord(Random random, int length) {
+        StringBuilder word = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            word.append(RandomDFAs.SYMBOLS.charAt(random.nextInt(this.symbols)));
+        }
+        return word.toString();
+    }
+
+    @TearDown
+    public void tearDown() {
+        this.pool.shutdown();
+    }
+
+    @Benchmark
+    public BitSet acceptsAll() {
+        return this.acceptor.acceptsAll(this.words);
+    }
+
+    @Benchmark
+    public BitSet acceptsAllSharingPrefixes() {
+        return this.acceptor.acceptsAllSharingPrefixes(this.words);
+    }
+}
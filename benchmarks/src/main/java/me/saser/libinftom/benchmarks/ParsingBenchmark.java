@@ -0,0 +1,73 @@
+package me.saser.libinftom.benchmarks;
+
+import me.saser.libinftom.dfa.BinaryDFAFormat;
+import me.saser.libinftom.dfa.CompiledDFA;
+import me.saser.libinftom.dfa.DFA;
+import me.saser.libinftom.dfa.ImmutableDFA;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how long it takes to parse a DFA from JSON with {@link ImmutableDFA#fromJSON(String)} until it can check
+ * words, including the validation done while constructing it and the compilation it only does when it is first used.
+ * This is compared to streaming the same JSON with {@link CompiledDFA#fromJSON(java.io.Reader)}, which compiles while
+ * parsing, and to reading the same DFA from the binary format of {@link BinaryDFAFormat}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParsingBenchmark {
+
+    @Param({"16", "1024", "65536"})
+    public int states;
+
+    @Param({"2", "16"})
+    public int symbols;
+
+    private String json;
+    private byte[] binary;
+
+    @Setup
+    public void setUp() throws IOException {
+        this.json = RandomDFAs.json(this.states, this.symbols);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BinaryDFAFormat.write(ImmutableDFA.fromJSON(this.json), out);
+        this.binary = out.toByteArray();
+    }
+
+    @Benchmark
+    public DFA fromJSON() {
+        DFA dfa = ImmutableDFA.fromJSON(this.json);
+        // Checking a word compiles the DFA, so that it ends up as ready to use as the streamed one.
+        dfa.accepts("");
+        return dfa;
+    }
+
+    @Benchmark
+    public DFA fromJSONStreaming() throws IOException {
+        return CompiledDFA.fromJSON(new StringReader(this.json));
+    }
+
+    @Benchmark
+    public DFA readBinary() throws IOException {
+        return BinaryDFAFormat.read(ByteBuffer.wrap(this.binary));
+    }
+}
@@ -0,0 +1,208 @@
+package me.saser.libinftom.benchmarks;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import me.saser.libinftom.dfa.DFA;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates the random DFAs and words that the benchmarks run on. Everything is generated from fixed seeds, so that
+ * results can be compared between runs and versions.
+ */
+final class RandomDFAs {
+
+    /**
+     * The symbols used by the generated DFAs, in order. Every symbol is a single character, so that the same DFAs can
+     * be used with {@link me.saser.libinftom.dfa.CharDFA}.
+     */
+    static final String SYMBOLS = "0123456789abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ";
+
+    private static final long SEED = 4711;
+
+    private RandomDFAs() {
+    }
+
+    /**
+     * Creates the JSON representation of a random DFA with the given number of states and symbols. Every state has a
+     * transition on every symbol to a uniformly chosen state, and every state is final with probability 1/2.
+     */
+    static String json(int stateCount, int symbolCount) {
+        if (symbolCount < 1 || symbolCount > SYMBOLS.length()) {
+            throw new IllegalArgumentException("The number of symbols must be between 1 and " + SYMBOLS.length());
+        }
+
+        Random random = new Random(SEED);
+        JsonObject dfa = new JsonObject();
+        JsonArray alphabet = new JsonArray();
+        for (int i = 0; i < symbolCount; i++) {
+            alphabet.add(String.valueOf(SYMBOLS.charAt(i)));
+        }
+        dfa.add("alphabet", alphabet);
+
+        JsonArray states = new JsonArray();
+        JsonObject delta = new JsonObject();
+        JsonArray finalStates = new JsonArray();
+        for (int state = 0; state < stateCount; state++) {
+            states.add("q" + state);
+            JsonObject row = new JsonObject();
+            for (int i = 0; i < symbolCount; i++) {
+                row.addProperty(String.valueOf(SYMBOLS.charAt(i)), "q" + random.nextInt(stateCount));
+            }
+            delta.add("q" + state, row);
+            if (random.nextBoolean()) {
+                finalStates.add("q" + state);
+            }
+        }
+        dfa.add("states", states);
+        dfa.add("delta", delta);
+        dfa.addProperty("initialState", "q0");
+        dfa.add("finalStates", finalStates);
+        return dfa.toString();
+    }
+
+    /**
+     * Creates the JSON representation of a random DFA with locality, whose states are listed in random order. The
+     * states have a hidden order, in which a transition on symbol <code>s</code> usually goes <code>s + 1</code>
+     * states ahead, and otherwise to a random state among the first sixteenth of the states, so that words mostly
+     * move through runs of nearby states and keep coming back to the same region. Listing the states in random order
+     * hides this, like a DFA whose states happen to be given in an unrelated order.
+     */
+    static String shuffledLocalJson(int stateCount, int symbolCount) {
+        if (symbolCount < 1 || symbolCount > SYMBOLS.length()) {
+            throw new IllegalArgumentException("The number of symbols must be between 1 and " + SYMBOLS.length());
+        }
+
+        Random random = new Random(SEED);
+        List<Integer> listed = new ArrayList<>();
+        for (int state = 0; state < stateCount; state++) {
+            listed.add(state);
+        }
+        // Keep the initial state q0 first, so that only the order of the other states is random.
+        Collections.shuffle(listed.subList(1, stateCount), random);
+
+        StringBuilder json = new StringBuilder("{\"alphabet\":[");
+        for (int i = 0; i < symbolCount; i++) {
+            json.append(i == 0 ? "" : ",").append('"').append(SYMBOLS.charAt(i)).append('"');
+        }
+        json.append("],\"states\":[");
+        for (int i = 0; i < stateCount; i++) {
+            json.append(i == 0 ? "" : ",").append("\"q").append(listed.get(i)).append('"');
+        }
+        json.append("],\"delta\":{");
+        for (int i = 0; i < stateCount; i++) {
+            int state = listed.get(i);
+            json.append(i == 0 ? "" : ",").append("\"q").append(state).append("\":{");
+            for (int symbol = 0; symbol < symbolCount; symbol++) {
+                int target = random.nextInt(10) == 0 ? random.nextInt(Math.max(1, stateCount / 16)) : (state + symbol + 1) % stateCount;
+                json.append(symbol == 0 ? "" : ",").append('"').append(SYMBOLS.charAt(symbol)).append("\":\"q").append(target).append('"');
+            }
+            json.append('}');
+        }
+        json.append("},\"initialState\":\"q0\",\"finalStates\":[");
+        for (int state = 0; state < stateCount; state += 2) {
+            json.append(state == 0 ? "" : ",").append("\"q").append(state).append('"');
+        }
+        return json.append("]}").toString();
+    }
+
+    /**
+     * Creates the JSON representation of a random DFA with the given number of states and symbols, where the symbols
+     * fall into <code>classCount</code> classes that every state treats the same, symbol <code>i</code> being in class
+     * <code>i % classCount</code>. Otherwise it is like the DFAs of <code>json</code>. The given seed lets several
+     * different DFAs be created with the same parameters.
+     */
+    static String classedJson(int stateCount, int symbolCount, int classCount, long seed) {
+        if (symbolCount < 1 || symbolCount > SYMBOLS.length()) {
+            throw new IllegalArgumentException("The number of symbols must be between 1 and " + SYMBOLS.length());
+        }
+
+        Random random = new Random(SEED + seed);
+        StringBuilder json = new StringBuilder("{\"alphabet\":[");
+        for (int i = 0; i < symbolCount; i++) {
+            json.append(i == 0 ? "" : ",").append('"').append(SYMBOLS.charAt(i)).append('"');
+        }
+        json.append("],\"states\":[");
+        for (int state = 0; state < stateCount; state++) {
+            json.append(state == 0 ? "" : ",").append("\"q").append(state).append('"');
+        }
+        json.append("],\"delta\":{");
+        int[] targets = new int[classCount];
+        for (int state = 0; state < stateCount; state++) {
+            for (int c = 0; c < classCount; c++) {
+                targets[c] = random.nextInt(stateCount);
+            }
+            json.append(state == 0 ? "" : ",").append("\"q").append(state).append("\":{");
+            for (int symbol = 0; symbol < symbolCount; symbol++) {
+                json.append(symbol == 0 ? "" : ",").append('"').append(SYMBOLS.charAt(symbol)).append("\":\"q").append(targets[symbol % classCount]).append('"');
+            }
+            json.append('}');
+        }
+        json.append("},\"initialState\":\"q0\",\"finalStates\":[");
+        boolean first = true;
+        for (int state = 0; state < stateCount; state++) {
+            if (random.nextBoolean()) {
+                json.append(first ? "" : ",").append("\"q").append(state).append('"');
+                first = false;
+            }
+        }
+        return json.append("]}").toString();
+    }
+
+    /**
+     * Creates <code>count</code> random plain words of exactly <code>length</code> symbols, of which a fraction of
+     * <code>rejectionRate</code> are rejected by the given DFA, in random order.
+     *
+     * @throws IllegalStateException if the DFA accepts or rejects too few words to reach the rejection rate
+     */
+    static String[] plainWords(DFA dfa, int count, int length, double rejectionRate) {
+        int rejectedCount = (int) Math.round(count * rejectionRate);
+        List<String> accepted = new ArrayList<>();
+        List<String> rejected = new ArrayList<>();
+        Random random = new Random(SEED);
+        int symbolCount = dfa.getAlphabet().size();
+        char[] word = new char[length];
+        for (int attempt = 0; attempt < count * 1000; attempt++) {
+            if (accepted.size() == count - rejectedCount && rejected.size() == rejectedCount) {
+                break;
+            }
+            for (int i = 0; i < length; i++) {
+                word[i] = SYMBOLS.charAt(random.nextInt(symbolCount));
+            }
+            String plain = new String(word);
+            if (dfa.accepts(separated(plain))) {
+                if (accepted.size() < count - rejectedCount) {
+                    accepted.add(plain);
+                }
+            } else if (rejected.size() < rejectedCount) {
+                rejected.add(plain);
+            }
+        }
+        if (accepted.size() != count - rejectedCount || rejected.size() != rejectedCount) {
+            throw new IllegalStateException("Could not generate words with a rejection rate of " + rejectionRate);
+        }
+
+        List<String> words = new ArrayList<>(accepted);
+        words.addAll(rejected);
+        Collections.shuffle(words, random);
+        return words.toArray(new String[count]);
+    }
+
+    /**
+     * Turns a plain word into a word where every symbol is separated by a comma, as expected by
+     * {@link DFA#accepts(CharSequence)} for the DFAs returned by <code>fromJSON</code>.
+     */
+    static String separated(String plain) {
+        StringBuilder builder = new StringBuilder(Math.max(0, plain.length() * 2 - 1));
+        for (int i = 0; i < plain.length(); i++) {
+            if (i > 0) {
+                builder.append(',');
+            }
+            builder.append(plain.charAt(i));
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,100 @@
+package me.saser.libinftom.benchmarks;
+
+import me.saser.libinftom.dfa.CompiledDFA;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures checking encoded words against a DFA with locality whose states are listed in random order, before and
+ * after renumbering its states in breadth first order and by the visits of a sample workload. The transition tables
+ * are larger than the caches of most processors, so the differences come from cache misses, which can be counted
+ * with <code>-prof perfnorm</code> on Linux.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RenumberingBenchmark {
+
+    // The number of words to check. Must be a power of two.
+    private static final int WORDS = 1 << 10;
+    private static final int WORD_LENGTH = 256;
+
+    @Param({"65536", "1048576"})
+    public int states;
+
+    @Param({"4"})
+    public int symbols;
+
+    private CompiledDFA original;
+    private CompiledDFA breadthFirst;
+    private CompiledDFA byWorkload;
+
+    private int[][] encodedWords;
+    private int index;
+
+    @Setup
+    public void setUp() throws IOException {
+        this.original = CompiledDFA.fromJSON(new StringReader(RandomDFAs.shuffledLocalJson(this.states, this.symbols)));
+        this.breadthFirst = this.original.renumberBreadthFirst();
+
+        // Renumber by a separate sample, so that the measured words are not exactly the ones that were profiled.
+        Random random = new Random(this.states);
+        List<String> sample = new ArrayList<>();
+        for (int i = 0; i < WORDS; i++) {
+            sample.add(RandomDFAs.separated(this.randomPlainWord(random)));
+        }
+        this.byWorkload = this.original.renumberByWorkload(sample);
+
+        this.encodedWords = new int[WORDS][];
+        for (int i = 0; i < WORDS; i++) {
+            this.encodedWords[i] = this.original.getAlphabet().encodeWord(RandomDFAs.separated(this.randomPlainWord(random)));
+        }
+    }
+
+    private String randomPlainWord(Random random) {
+        StringBuilder word = new StringBuilder(WORD_LENGTH);
+        for (int i = 0; i < WORD_LENGTH; i++) {
+            word.append(RandomDFAs.SYMBOLS.charAt(random.nextInt(this.symbols)));
+        }
+        return word.toString();
+    }
+
+    private int next() {
+        this.index = (this.index + 1) & (WORDS - 1);
+        return this.index;
+    }
+
+    @Benchmark
+    public boolean original() {
+        return this.original.accepts(this.encodedWords[this.next()]);
+    }
+
+    @Benchmark
+    public boolean breadthFirst() {
+        return this.breadthFirst.accepts(this.encodedWords[this.next()]);
+    }
+
+    @Benchmark
+    public boolean byWorkload() {
+        return this.byWorkload.accepts(this.encodedWords[this.next()]);
+    }
+}
@@ -0,0 +1,54 @@
+package me.saser.libinftom.benchmarks;
+
+import me.saser.libinftom.dfa.CompiledDFA;
+import me.saser.libinftom.dfa.ImmutableDFA;
+import me.saser.libinftom.dfa.ProductDFA;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures materializing the intersection of two DFAs over 62 symbols that only tell <code>classes</code> classes of
+ * symbols apart, where the product only has to follow one symbol per class. With as many classes as symbols, every
+ * symbol has to be followed.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SymbolClassBenchmark {
+
+    private static final int SYMBOLS = 62;
+
+    @Param({"64"})
+    public int states;
+
+    @Param({"4", "62"})
+    public int classes;
+
+    private CompiledDFA first;
+    private CompiledDFA second;
+
+    @Setup
+    public void setUp() {
+        this.first = CompiledDFA.compile(ImmutableDFA.fromJSON(RandomDFAs.classedJson(this.states, SYMBOLS, this.classes, 1)));
+        this.second = CompiledDFA.compile(ImmutableDFA.fromJSON(RandomDFAs.classedJson(this.states, SYMBOLS, this.classes, 2)));
+    }
+
+    @Benchmark
+    public CompiledDFA materializeIntersection() {
+        return ProductDFA.intersection(this.first, this.second).materialize();
+    }
+}
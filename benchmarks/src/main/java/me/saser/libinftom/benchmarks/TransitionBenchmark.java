@@ -0,0 +1,113 @@
+package me.saser.libinftom.benchmarks;
+
+import me.saser.libinftom.dfa.CompiledDFA;
+import me.saser.libinftom.dfa.DFA;
+import me.saser.libinftom.dfa.DFARunner;
+import me.saser.libinftom.dfa.ImmutableDFA;
+import me.saser.libinftom.dfa.SimpleDFARunner;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures single transitions, both through {@link DFA#nextState(String, String)} and through runners. Every
+ * invocation makes one transition, using a precomputed sequence of random states and symbols so that the transition
+ * table is accessed in an unpredictable order.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TransitionBenchmark {
+
+    // The number of precomputed transitions. Must be a power of two.
+    private static final int TRANSITIONS = 1 << 12;
+
+    @Param({"16", "1024", "65536"})
+    public int states;
+
+    @Param({"2", "16"})
+    public int symbols;
+
+    private DFA dfa;
+    private CompiledDFA compiled;
+    private DFARunner simpleRunner;
+    private DFARunner compiledRunner;
+
+    private String[] stateNames;
+    private int[] stateIndices;
+    private String[] symbolNames;
+    private int[] symbolCodes;
+    private int index;
+
+    @Setup
+    public void setUp() {
+        this.dfa = ImmutableDFA.fromJSON(RandomDFAs.json(this.states, this.symbols));
+        this.compiled = CompiledDFA.compile(this.dfa);
+        this.simpleRunner = new SimpleDFARunner(this.dfa);
+        this.compiledRunner = this.compiled.runner();
+
+        Random random = new Random(this.states);
+        this.stateNames = new String[TRANSITIONS];
+        this.stateIndices = new int[TRANSITIONS];
+        this.symbolNames = new String[TRANSITIONS];
+        this.symbolCodes = new int[TRANSITIONS];
+        for (int i = 0; i < TRANSITIONS; i++) {
+            this.stateIndices[i] = random.nextInt(this.states);
+            this.stateNames[i] = this.compiled.stateAt(this.stateIndices[i]);
+            this.symbolCodes[i] = random.nextInt(this.symbols);
+            this.symbolNames[i] = this.compiled.getAlphabet().decode(this.symbolCodes[i]);
+        }
+    }
+
+    private int next() {
+        this.index = (this.index + 1) & (TRANSITIONS - 1);
+        return this.index;
+    }
+
+    @Benchmark
+    public String nextState() {
+        int i = this.next();
+        return this.dfa.nextState(this.stateNames[i], this.symbolNames[i]);
+    }
+
+    @Benchmark
+    public String compiledNextState() {
+        int i = this.next();
+        return this.compiled.nextState(this.stateNames[i], this.symbolNames[i]);
+    }
+
+    @Benchmark
+    public int compiledTransition() {
+        int i = this.next();
+        return this.compiled.transition(this.stateIndices[i], this.symbolCodes[i]);
+    }
+
+    @Benchmark
+    public String simpleRunnerConsume() {
+        return this.simpleRunner.consume(this.symbolNames[this.next()]);
+    }
+
+    @Benchmark
+    public String compiledRunnerConsume() {
+        return this.compiledRunner.consume(this.symbolNames[this.next()]);
+    }
+
+    @Benchmark
+    public String compiledRunnerConsumeCode() {
+        return this.compiledRunner.consume(this.symbolCodes[this.next()]);
+    }
+}
@@ -1,5 +1,9 @@
 package me.saser.libinftom;
 
+import com.google.common.collect.Ordering;
+
+import java.util.Collections;
+import java.util.List;
 import java.util.Set;
 
 public interface Alphabet {
@@ -27,4 +31,74 @@ public interface Alphabet {
      * @return true if all symbols are valid
      */
     boolean isValidWord(String word);
+
+    /**
+     * Gets the number of symbols in this alphabet. The codes returned by <code>encode(String)</code> are in the range
+     * <code>[0, size())</code>.
+     *
+     * @return the number of symbols
+     */
+    default int size() {
+        return this.getSymbols().size();
+    }
+
+    /**
+     * Gets the integer code of the given symbol. Every symbol has a unique code in the range <code>[0, size())</code>,
+     * which never changes for a given alphabet. Alphabets that are equal give their symbols the same codes.
+     * <p>
+     * The default implementation gives symbols their codes in sorted order, like {@link StringAlphabet} does, and
+     * sorts the symbols on every call. Implementations should override it, together with <code>decode(int)</code>,
+     * with a lookup of precomputed codes.
+     *
+     * @param symbol a String for a single symbol
+     * @return the code of the symbol, or -1 if it is not a symbol in this alphabet
+     */
+    default int encode(String symbol) {
+        if (symbol == null || this.isValidSymbol(symbol) == false) {
+            return -1;
+        }
+        return Collections.binarySearch(Ordering.natural().sortedCopy(this.getSymbols()), symbol);
+    }
+
+    /**
+     * Gets the symbol with the given integer code. This is the inverse of <code>encode(String)</code>.
+     * <p>
+     * The default implementation sorts the symbols on every call, like <code>encode(String)</code>.
+     *
+     * @param code the code of a symbol
+     * @return the symbol as a String
+     * @throws IllegalArgumentException if there is no symbol with the given code
+     */
+    default String decode(int code) {
+        if (code < 0 || code >= this.size()) {
+            throw new IllegalArgumentException("Trying to decode an invalid symbol code");
+        }
+        List<String> symbols = Ordering.natural().sortedCopy(this.getSymbols());
+        return symbols.get(code);
+    }
+
+    /**
+     * Encodes a <b>comma separated String</b> of symbols into an array of symbol codes, that can be given to methods
+     * that work with already encoded words.
+     *
+     * @param word a comma separated list of symbols in this alphabet
+     * @return an array with the code of each symbol in the word, in order
+     * @throws IllegalArgumentException if the word contains invalid or empty symbols
+     */
+    default int[] encodeWord(String word) {
+        // The empty word has no symbols.
+        if (word.equals("")) {
+            return new int[0];
+        }
+
+        String[] symbols = word.split(",", -1);
+        int[] codes = new int[symbols.length];
+        for (int i = 0; i < symbols.length; i++) {
+            codes[i] = this.encode(symbols[i]);
+            if (codes[i] == -1) {
+                throw new IllegalArgumentException("Word contains at least one invalid or empty symbol");
+            }
+        }
+        return codes;
+    }
 }
@@ -0,0 +1,209 @@
+package me.saser.libinftom;
+
+import com.google.common.collect.ImmutableSet;
+
+import java.util.Arrays;
+import java.util.Set;
+
+/**
+ * An alphabet where every symbol is a single character. Words taken by the {@link Alphabet} methods are <b>comma
+ * separated</b> like for any other alphabet, so <code>"0,1,0,1"</code> consists of the four symbols <code>"0"</code>,
+ * <code>"1"</code>, <code>"0"</code> and <code>"1"</code>. Since every symbol is exactly one character, symbols and
+ * separators simply alternate, and a comma can itself be a symbol.
+ * <p>
+ * Because the separators carry no information here, this alphabet can also check and encode <b>plain text</b>, where
+ * every character is one symbol, through <code>isValidText(CharSequence)</code> and <code>encodeText(CharSequence)</code>.
+ * The same plain text is taken by <code>CharDFA.acceptsText(CharSequence)</code>.
+ * <p>
+ * Symbols are given codes in the order of their characters. This is the same order as {@link StringAlphabet} uses, so
+ * a <code>CharAlphabet</code> and a <code>StringAlphabet</code> with the same symbols give them the same codes.
+ */
+public class CharAlphabet implements Alphabet {
+
+    private final char[] symbolChars;
+    private final Set<String> symbolSet;
+    // The code of every character up to the largest symbol, or -1 for characters that are not symbols.
+    private final int[] codes;
+
+    /**
+     * Create an alphabet where every character in the given String is a symbol. Any duplicates will be removed.
+     *
+     * @param symbols a String containing all symbols
+     * @throws IllegalArgumentException if the String is empty
+     */
+    public CharAlphabet(String symbols) {
+        if (symbols.equals("")) {
+            throw new IllegalArgumentException("Having an empty alphabet is disallowed");
+        }
+
+        char[] sorted = symbols.toCharArray();
+        Arrays.sort(sorted);
+        int distinct = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (i == 0 || sorted[i] != sorted[i - 1]) {
+                sorted[distinct++] = sorted[i];
+            }
+        }
+        this.symbolChars = Arrays.copyOf(sorted, distinct);
+
+        ImmutableSet.Builder<String> symbolSet = ImmutableSet.builder();
+        this.codes = new int[this.symbolChars[distinct - 1] + 1];
+        Arrays.fill(this.codes, -1);
+        for (int code = 0; code < distinct; code++) {
+            symbolSet.add(String.valueOf(this.symbolChars[code]));
+            this.codes[this.symbolChars[code]] = code;
+        }
+        this.symbolSet = symbolSet.build();
+    }
+
+    /**
+     * Create an alphabet from the symbols of another alphabet, which must all be single characters.
+     *
+     * @param alphabet the alphabet to copy the symbols of
+     * @return a CharAlphabet with the same symbols as <code>alphabet</code>
+     * @throws IllegalArgumentException if any symbol is not exactly one character long
+     */
+    public static CharAlphabet of(Alphabet alphabet) {
+        StringBuilder symbols = new StringBuilder();
+        for (String symbol : alphabet.getSymbols()) {
+            if (symbol.length() != 1) {
+                throw new IllegalArgumentException("Alphabet contains a symbol that is not a single character");
+            }
+            symbols.append(symbol);
+        }
+        return new CharAlphabet(symbols.toString());
+    }
+
+    /**
+     * Gets the code of the given character.
+     *
+     * @param c a character
+     * @return the code of the character, or -1 if it is not a symbol in this alphabet
+     */
+    public int encode(char c) {
+        return c < this.codes.length ? this.codes[c] : -1;
+    }
+
+    /**
+     * Gets the largest character that is a symbol in this alphabet.
+     *
+     * @return the largest symbol
+     */
+    public char getMaxSymbol() {
+        return this.symbolChars[this.symbolChars.length - 1];
+    }
+
+    @Override
+    public Set<String> getSymbols() {
+        return this.symbolSet;
+    }
+
+    @Override
+    public boolean isValidSymbol(String symbol) {
+        return symbol.length() == 1 && this.encode(symbol.charAt(0)) != -1;
+    }
+
+    /**
+     * Determines whether the given comma separated word is a word in this alphabet.
+     *
+     * @param word a String of comma separated symbols in this alphabet
+     * @return true if every other character is a valid symbol, separated by commas
+     */
+    @Override
+    public boolean isValidWord(String word) {
+        // The empty word has no symbols, any other word has one more symbol than it has commas.
+        if (word.length() == 0) {
+            return true;
+        }
+        if (word.length() % 2 == 0) {
+            return false;
+        }
+        for (int i = 0; i < word.length(); i += 2) {
+            if (this.encode(word.charAt(i)) == -1 || (i > 0 && word.charAt(i - 1) != ',')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Determines whether the given text is a word in this alphabet. The text is a <b>plain String</b> without
+     * separators, where every character is a symbol.
+     *
+     * @param text a String of symbols in this alphabet
+     * @return true if all characters are valid symbols
+     */
+    public boolean isValidText(CharSequence text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (this.encode(text.charAt(i)) == -1) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int size() {
+        return this.symbolChars.length;
+    }
+
+    @Override
+    public int encode(String symbol) {
+        return symbol.length() == 1 ? this.encode(symbol.charAt(0)) : -1;
+    }
+
+    @Override
+    public String decode(int code) {
+        if (code < 0 || code >= this.symbolChars.length) {
+            throw new IllegalArgumentException("Trying to decode an invalid symbol code");
+        }
+        return String.valueOf(this.symbolChars[code]);
+    }
+
+    @Override
+    public int[] encodeWord(String word) {
+        if (this.isValidWord(word) == false) {
+            throw new IllegalArgumentException("Word contains at least one invalid or empty symbol");
+        }
+
+        int[] codes = new int[(word.length() + 1) / 2];
+        for (int i = 0; i < codes.length; i++) {
+            codes[i] = this.encode(word.charAt(2 * i));
+        }
+        return codes;
+    }
+
+    /**
+     * Encodes a <b>plain String</b> of symbols into an array of symbol codes.
+     *
+     * @param text a String of symbols in this alphabet
+     * @return an array with the code of each character in the text, in order
+     * @throws IllegalArgumentException if the text contains invalid symbols
+     */
+    public int[] encodeText(CharSequence text) {
+        int[] codes = new int[text.length()];
+        for (int i = 0; i < codes.length; i++) {
+            codes[i] = this.encode(text.charAt(i));
+            if (codes[i] == -1) {
+                throw new IllegalArgumentException("Word contains at least one invalid symbol");
+            }
+        }
+        return codes;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        CharAlphabet that = (CharAlphabet) o;
+
+        return Arrays.equals(symbolChars, that.symbolChars);
+
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(symbolChars);
+    }
+}
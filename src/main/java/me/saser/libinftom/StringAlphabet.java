@@ -1,13 +1,17 @@
 package me.saser.libinftom;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Ordering;
 
 import java.util.Set;
 
 public class StringAlphabet implements Alphabet {
 
     private final Set<String> symbolSet;
+    private final ImmutableList<String> codeToSymbol;
+    private final ImmutableMap<String, Integer> symbolToCode;
 
     /**
      * Create a alphabet from the given <b>comma separated string</b> of symbols. Be sure to not include commas in the
@@ -29,6 +33,8 @@ public class StringAlphabet implements Alphabet {
         }
 
         this.symbolSet = ImmutableSet.copyOf(symbols.split(","));
+        this.codeToSymbol = assignCodes(this.symbolSet);
+        this.symbolToCode = invertCodes(this.codeToSymbol);
     }
 
     /**
@@ -44,6 +50,21 @@ public class StringAlphabet implements Alphabet {
         }
 
         this.symbolSet = ImmutableSet.copyOf(symbols);
+        this.codeToSymbol = assignCodes(this.symbolSet);
+        this.symbolToCode = invertCodes(this.codeToSymbol);
+    }
+
+    // Codes are assigned in sorted order, so that equal alphabets always give their symbols the same codes.
+    private static ImmutableList<String> assignCodes(Set<String> symbols) {
+        return Ordering.natural().immutableSortedCopy(symbols);
+    }
+
+    private static ImmutableMap<String, Integer> invertCodes(ImmutableList<String> codeToSymbol) {
+        ImmutableMap.Builder<String, Integer> builder = ImmutableMap.builder();
+        for (int code = 0; code < codeToSymbol.size(); code++) {
+            builder.put(codeToSymbol.get(code), code);
+        }
+        return builder.build();
     }
 
     private boolean noEmptySymbols(Iterable<String> symbols) {
@@ -82,6 +103,25 @@ public class StringAlphabet implements Alphabet {
         return this.symbolSet.containsAll(ImmutableSet.copyOf(word.split(",")));
     }
 
+    @Override
+    public int size() {
+        return this.codeToSymbol.size();
+    }
+
+    @Override
+    public int encode(String symbol) {
+        Integer code = this.symbolToCode.get(symbol);
+        return code == null ? -1 : code;
+    }
+
+    @Override
+    public String decode(int code) {
+        if (code < 0 || code >= this.codeToSymbol.size()) {
+            throw new IllegalArgumentException("Trying to decode an invalid symbol code");
+        }
+        return this.codeToSymbol.get(code);
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -0,0 +1,339 @@
+package me.saser.libinftom.dfa;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.stream.Stream;
+
+/**
+ * Checks large batches of words against a single DFA, spreading the work over the threads of a {@link ForkJoinPool}.
+ * <p>
+ * The DFA is compiled once when the <code>BatchAcceptor</code> is created, and all threads share the compiled copy.
+ * Since checking a word against a {@link CompiledDFA} does not need a runner or allocate anything, the only per-batch
+ * allocations are the tasks themselves and the result. Instances of this class are safe to share between threads.
+ * <p>
+ * Batches where many words share long prefixes, such as paths or hierarchical identifiers, can instead be checked
+ * with <code>acceptsAllSharingPrefixes</code>. It groups the words by three-way radix quicksort, which walks the
+ * ternary search trie of the words without building it, and moves the DFA along while doing so. Every distinct prefix
+ * is then only run once, no matter how many words share it.
+ */
+public class BatchAcceptor {
+
+    // The number of words a single task checks before it stops splitting. Kept a multiple of 64, so that every task
+    // writes whole words of the result bit set.
+    private static final int THRESHOLD = 64 * 64;
+
+    private final CompiledDFA dfa;
+    private final ForkJoinPool pool;
+
+    /**
+     * Creates a <code>BatchAcceptor</code> for the given DFA that runs in the common {@link ForkJoinPool}.
+     *
+     * @param dfa the DFA to check words against
+     */
+    public BatchAcceptor(DFA dfa) {
+        this(dfa, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Creates a <code>BatchAcceptor</code> for the given DFA that runs in the given {@link ForkJoinPool}.
+     *
+     * @param dfa  the DFA to check words against
+     * @param pool the pool to run the checks in
+     */
+    public BatchAcceptor(DFA dfa, ForkJoinPool pool) {
+        this.dfa = CompiledDFA.compile(dfa);
+        this.pool = pool;
+    }
+
+    /**
+     * Checks every word in the given list. Bit <code>i</code> in the returned BitSet is set if and only if the word at
+     * index <code>i</code> is accepted.
+     *
+     * @param words a list of comma separated words
+     * @return a BitSet with the indices of all accepted words set
+     * @throws IllegalArgumentException if any of the words contains invalid symbols
+     */
+    public BitSet acceptsAll(List<? extends CharSequence> words) {
+        // Splitting relies on cheap indexing, so make a copy of lists that do not support it.
+        List<? extends CharSequence> indexable = words instanceof RandomAccess ? words : new ArrayList<>(words);
+
+        long[] bits = new long[(indexable.size() + 63) / 64];
+        this.pool.invoke(new AcceptTask(this.dfa, indexable, bits, 0, indexable.size()));
+        return BitSet.valueOf(bits);
+    }
+
+    /**
+     * Checks every word in the given list, running every distinct prefix of the words only once. The result is the
+     * same as for <code>acceptsAll</code>, but grouping the words costs more than it saves unless many of them share
+     * long prefixes.
+     *
+     * @param words a list of comma separated words
+     * @return a BitSet with the indices of all accepted words set
+     * @throws IllegalArgumentException if any of the words contains invalid symbols
+     */
+    public BitSet acceptsAllSharingPrefixes(List<? extends CharSequence> words) {
+        CharSequence[] array = words.toArray(new CharSequence[words.size()]);
+        int[] order = new int[array.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+
+        boolean[] accepted = new boolean[array.length];
+        if (array.length > 0) {
+            this.pool.invoke(new PrefixTask(this.dfa, array, order, accepted, 0, order.length, 0,
+                                            this.dfa.getInitialStateIndex(), 0, 0));
+        }
+
+        BitSet result = new BitSet(accepted.length);
+        for (int i = 0; i < accepted.length; i++) {
+            if (accepted[i]) {
+                result.set(i);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns a parallel stream of the accepted words in the given stream. The returned stream is lazy, just like
+     * any other intermediate stream operation, and runs in whichever pool its terminal operation runs in.
+     *
+     * @param words a stream of comma separated words
+     * @param <T>   the type of the words
+     * @return a stream of the accepted words
+     */
+    public <T extends CharSequence> Stream<T> filterAccepted(Stream<T> words) {
+        return words.parallel().filter(this.dfa::accepts);
+    }
+
+    /**
+     * Counts the accepted words in the given stream, running in the pool of this <code>BatchAcceptor</code>.
+     *
+     * @param words a stream of comma separated words
+     * @return the number of accepted words
+     * @throws IllegalArgumentException if any of the words contains invalid symbols
+     */
+    public long countAccepted(Stream<? extends CharSequence> words) {
+        return this.pool.submit(() -> words.parallel().filter(this.dfa::accepts).count()).join();
+    }
+
+    private static class AcceptTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final CompiledDFA dfa;
+        private final List<? extends CharSequence> words;
+        private final long[] bits;
+        private final int from;
+        private final int to;
+
+        private AcceptTask(CompiledDFA dfa, List<? extends CharSequence> words, long[] bits, int from, int to) {
+            this.dfa = dfa;
+            this.words = words;
+            this.bits = bits;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (this.to - this.from > THRESHOLD) {
+                // Split on a multiple of 64, so that the two halves never write to the same element of bits.
+                int middle = (this.from + (this.to - this.from) / 2) & ~63;
+                invokeAll(new AcceptTask(this.dfa, this.words, this.bits, this.from, middle),
+                          new AcceptTask(this.dfa, this.words, this.bits, middle, this.to));
+                return;
+            }
+
+            for (int i = this.from; i < this.to; i++) {
+                if (this.dfa.accepts(this.words.get(i))) {
+                    this.bits[i >>> 6] |= 1L << i;
+                }
+            }
+        }
+    }
+
+    /**
+     * Checks a range of words that all share their first <code>depth</code> characters. The words are first read
+     * together for as long as they all agree, and then partitioned on the first character where they do not, moving
+     * on with the words having the pivot character there. The DFA is in <code>state</code> after reading the complete
+     * symbols of the shared prefix, and the last, incomplete symbol starts at <code>start</code> and has the hash
+     * <code>hash</code> so far.
+     */
+    private static class PrefixTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        // Marks the end of a word, which sorts before all characters.
+        private static final int END = -1;
+
+        private final CompiledDFA dfa;
+        private final CharSequence[] words;
+        private final int[] order;
+        private final boolean[] accepted;
+        private int from;
+        private int to;
+        private int depth;
+        private int state;
+        private int start;
+        private int hash;
+
+        private PrefixTask(CompiledDFA dfa, CharSequence[] words, int[] order, boolean[] accepted, int from, int to,
+                           int depth, int state, int start, int hash) {
+            this.dfa = dfa;
+            this.words = words;
+            this.order = order;
+            this.accepted = accepted;
+            this.from = from;
+            this.to = to;
+            this.depth = depth;
+            this.state = state;
+            this.start = start;
+            this.hash = hash;
+        }
+
+        @Override
+        protected void compute() {
+            List<PrefixTask> forked = new ArrayList<>();
+            while (this.to - this.from > 1) {
+                CharSequence first = this.words[this.order[this.from]];
+                int common = first.length();
+                for (int i = this.from + 1; i < this.to && common > this.depth; i++) {
+                    common = commonPrefix(first, this.words[this.order[i]], this.depth, common);
+                }
+                if (this.advance(first, common) == false) {
+                    // Like accepts, words are not read any further once no final state can be reached.
+                    this.from = this.to;
+                    break;
+                }
+
+                // Three-way partitioning into [from, less) before, [less, greater) equal to, and [greater, to) after
+                // the pivot.
+                int pivot = this.key(this.from + (this.to - this.from) / 2);
+                int less = this.from;
+                int greater = this.to;
+                for (int i = this.from; i < greater; ) {
+                    int key = this.key(i);
+                    if (key < pivot) {
+                        this.swap(less++, i++);
+                    } else if (key > pivot) {
+                        this.swap(i, --greater);
+                    } else {
+                        i++;
+                    }
+                }
+                this.split(forked, this.from, less);
+                this.split(forked, greater, this.to);
+                this.from = less;
+                this.to = greater;
+
+                if (pivot == END) {
+                    // All remaining words are the same word.
+                    boolean accepted = this.acceptsRest(this.words[this.order[this.from]]);
+                    for (int i = this.from; i < this.to; i++) {
+                        this.accepted[this.order[i]] = accepted;
+                    }
+                    this.from = this.to;
+                }
+            }
+            if (this.to - this.from == 1) {
+                this.accepted[this.order[this.from]] = this.acceptsRest(this.words[this.order[this.from]]);
+            }
+
+            for (PrefixTask task : forked) {
+                task.join();
+            }
+        }
+
+        /**
+         * Gets the length of the common prefix of two words, which are known to agree before <code>from</code>, and
+         * to not be compared past <code>limit</code>.
+         */
+        private static int commonPrefix(CharSequence first, CharSequence second, int from, int limit) {
+            int end = Math.min(limit, second.length());
+            int i = from;
+            while (i < end && first.charAt(i) == second.charAt(i)) {
+                i++;
+            }
+            return i;
+        }
+
+        /**
+         * Checks a part of the range, forking a new task for it if it is large enough to be worth it.
+         */
+        private void split(List<PrefixTask> forked, int from, int to) {
+            if (from == to) {
+                return;
+            }
+            PrefixTask task = new PrefixTask(this.dfa, this.words, this.order, this.accepted, from, to, this.depth,
+                                             this.state, this.start, this.hash);
+            if (to - from > THRESHOLD) {
+                task.fork();
+                forked.add(task);
+            } else {
+                task.compute();
+            }
+        }
+
+        private int key(int index) {
+            CharSequence word = this.words[this.order[index]];
+            return this.depth < word.length() ? word.charAt(this.depth) : END;
+        }
+
+        private void swap(int i, int j) {
+            int tmp = this.order[i];
+            this.order[i] = this.order[j];
+            this.order[j] = tmp;
+        }
+
+        /**
+         * Reads the characters of <code>word</code> from <code>depth</code> to <code>end</code>, running the DFA on
+         * every symbol completed by a comma.
+         *
+         * @return false if a state was reached from which no final state can be reached; true otherwise
+         */
+        private boolean advance(CharSequence word, int end) {
+            for (; this.depth < end; this.depth++) {
+                char c = word.charAt(this.depth);
+                if (c == ',') {
+                    if (this.dfa.isLiveState(this.state) == false) {
+                        return false;
+                    }
+                    this.state = step(this.dfa, this.state, word, this.start, this.depth, this.hash);
+                    if (this.dfa.isLiveState(this.state) == false) {
+                        return false;
+                    }
+                    this.start = this.depth + 1;
+                    this.hash = 0;
+                } else {
+                    this.hash = 31 * this.hash + c;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Checks the rest of a single word from <code>depth</code>, like <code>accepts</code> does.
+         */
+        private boolean acceptsRest(CharSequence word) {
+            if (word.length() == 0) {
+                return this.dfa.isFinalState(this.state);
+            }
+            if (this.advance(word, word.length()) == false || this.dfa.isLiveState(this.state) == false) {
+                return false;
+            }
+            return this.dfa.isFinalState(step(this.dfa, this.state, word, this.start, word.length(), this.hash));
+        }
+
+        private static int step(CompiledDFA dfa, int state, CharSequence word, int start, int end, int hash) {
+            int symbol = dfa.lookupSymbol(word, start, end, hash);
+            if (symbol < 0) {
+                throw new IllegalArgumentException("Word contains at least one invalid or empty symbol");
+            }
+            return dfa.transition(state, symbol);
+        }
+    }
+}
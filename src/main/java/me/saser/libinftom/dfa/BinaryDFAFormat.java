@@ -0,0 +1,460 @@
+package me.saser.libinftom.dfa;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.ByteStreams;
+import me.saser.libinftom.Alphabet;
+import me.saser.libinftom.StringAlphabet;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Reads and writes DFAs in a compact, versioned binary format, which loads much faster than JSON since it maps
+ * directly onto the representation of a {@link CompiledDFA}.
+ * <p>
+ * All numbers are big endian. A file consists of, in order:
+ * <ul>
+ *     <li>the magic number <code>0x494E4654</code> (<code>"INFT"</code>) and the format version, as two ints;</li>
+ *     <li>the number of states, the number of symbols and the index of the initial state, as ints;</li>
+ *     <li>the string table: the number of distinct strings as an int, the byte offset at which every string ends as
+ *     one int per string, and the UTF-8 encoded strings themselves. A string used both as a state and as a symbol is
+ *     stored once;</li>
+ *     <li>the index of the name of every state, and of every symbol ordered by code, in the string table, as
+ *     ints;</li>
+ *     <li>the width of the entries in the transition table as a byte, which is 1, 2 or 4;</li>
+ *     <li>the transition table, with one row per state and one entry per symbol. Every entry is an unsigned number of
+ *     the above width, which is the index of the target state plus one, or 0 for the dead state;</li>
+ *     <li>the final state bitmap as longs, where bit <code>i % 64</code> of long <code>i / 64</code> is set if state
+ *     <code>i</code> is final;</li>
+ *     <li>since version 2, the live state bitmap in the same way, where the bit of a state is set if some final state
+ *     can be reached from it. This lets {@link MappedDFA} reject words early without first searching the whole
+ *     transition table.</li>
+ * </ul>
+ * Files of version 1, which lack the live state bitmap, can still be read with <code>read</code>.
+ */
+public final class BinaryDFAFormat {
+
+    /**
+     * The magic number every file starts with.
+     */
+    public static final int MAGIC = 0x494E4654;
+
+    /**
+     * The version of the format written by this class.
+     */
+    public static final int VERSION = 2;
+
+    private BinaryDFAFormat() {
+    }
+
+    /**
+     * Writes the given DFA to the given stream. The stream is buffered internally, and flushed but not closed.
+     *
+     * @param dfa the DFA to write
+     * @param out the stream to write to
+     * @throws IOException if writing fails
+     */
+    public static void write(DFA dfa, OutputStream out) throws IOException {
+        CompiledDFA compiled = CompiledDFA.compile(dfa);
+        int stateCount = compiled.getStateCount();
+        int symbolCount = compiled.getSymbolCount();
+
+        // Intern all names, so that every distinct string is stored only once.
+        Map<String, Integer> strings = new LinkedHashMap<>();
+        int[] stateStrings = new int[stateCount];
+        for (int state = 0; state < stateCount; state++) {
+            stateStrings[state] = intern(strings, compiled.stateAt(state));
+        }
+        int[] symbolStrings = new int[symbolCount];
+        for (int symbol = 0; symbol < symbolCount; symbol++) {
+            symbolStrings[symbol] = intern(strings, compiled.getAlphabet().decode(symbol));
+        }
+
+        DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out));
+        data.writeInt(MAGIC);
+        data.writeInt(VERSION);
+        data.writeInt(stateCount);
+        data.writeInt(symbolCount);
+        data.writeInt(compiled.getInitialStateIndex());
+
+        data.writeInt(strings.size());
+        byte[][] encoded = new byte[strings.size()][];
+        int end = 0;
+        int i = 0;
+        for (String string : strings.keySet()) {
+            encoded[i] = string.getBytes(StandardCharsets.UTF_8);
+            end += encoded[i].length;
+            data.writeInt(end);
+            i++;
+        }
+        for (byte[] bytes : encoded) {
+            data.write(bytes);
+        }
+        for (int index : stateStrings) {
+            data.writeInt(index);
+        }
+        for (int index : symbolStrings) {
+            data.writeInt(index);
+        }
+
+        int width = width(stateCount);
+        data.writeByte(width);
+        for (int state = 0; state < stateCount; state++) {
+            for (int symbol = 0; symbol < symbolCount; symbol++) {
+                int entry = compiled.transition(state, symbol) + 1;
+                if (width == 1) {
+                    data.writeByte(entry);
+                } else if (width == 2) {
+                    data.writeShort(entry);
+                } else {
+                    data.writeInt(entry);
+                }
+            }
+        }
+
+        long[] finalBitmap = new long[(stateCount + 63) / 64];
+        long[] liveBitmap = new long[finalBitmap.length];
+        for (int state = 0; state < stateCount; state++) {
+            if (compiled.isFinalState(state)) {
+                finalBitmap[state / 64] |= 1L << (state % 64);
+            }
+            if (compiled.isLiveState(state)) {
+                liveBitmap[state / 64] |= 1L << (state % 64);
+            }
+        }
+        for (long bits : finalBitmap) {
+            data.writeLong(bits);
+        }
+        for (long bits : liveBitmap) {
+            data.writeLong(bits);
+        }
+        data.flush();
+    }
+
+    /**
+     * Writes the given DFA to the given file, replacing it if it exists.
+     *
+     * @param dfa  the DFA to write
+     * @param file the file to write to
+     * @throws IOException if writing fails
+     */
+    public static void write(DFA dfa, Path file) throws IOException {
+        try (OutputStream out = Files.newOutputStream(file)) {
+            write(dfa, out);
+        }
+    }
+
+    /**
+     * Reads a DFA from the given stream, which is read until its end in one go. The stream is not closed.
+     *
+     * @param in the stream to read from
+     * @return the DFA that was read
+     * @throws IOException if reading fails, or if the stream does not contain a valid DFA
+     */
+    public static CompiledDFA read(InputStream in) throws IOException {
+        return read(ByteBuffer.wrap(ByteStreams.toByteArray(in)));
+    }
+
+    /**
+     * Reads a DFA from the given file, by memory mapping it. Files larger than 2 GiB are mapped in several segments,
+     * but the transition table must still fit into a single <code>int[]</code> on the heap.
+     *
+     * @param file the file to read from
+     * @return the DFA that was read
+     * @throws IOException if reading fails, or if the file does not contain a valid DFA
+     */
+    public static CompiledDFA read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return readFrom(Layout.parse(SegmentedBuffer.map(channel, SegmentedBuffer.DEFAULT_SEGMENT_BITS)));
+        }
+    }
+
+    /**
+     * Reads a DFA from the remaining bytes of the given buffer.
+     *
+     * @param buffer the buffer to read from
+     * @return the DFA that was read
+     * @throws IOException if the buffer does not contain a valid DFA
+     */
+    public static CompiledDFA read(ByteBuffer buffer) throws IOException {
+        return readFrom(Layout.parse(SegmentedBuffer.of(buffer)));
+    }
+
+    /**
+     * Copies the DFA described by the given layout onto the heap.
+     *
+     * @throws IOException if the DFA is too large for a <code>CompiledDFA</code>, or is invalid
+     */
+    static CompiledDFA readFrom(Layout layout) throws IOException {
+        if ((long) layout.stateCount * layout.symbolCount > Integer.MAX_VALUE) {
+            throw new IOException("Binary DFA file is too large to be read onto the heap");
+        }
+
+        ImmutableList.Builder<String> stateNames = ImmutableList.builder();
+        for (int state = 0; state < layout.stateCount; state++) {
+            stateNames.add(layout.stateName(state));
+        }
+
+        int[] delta = new int[layout.stateCount * layout.symbolCount];
+        for (int i = 0; i < delta.length; i++) {
+            delta[i] = layout.entry(i) - 1;
+        }
+
+        boolean[] finalStates = new boolean[layout.stateCount];
+        for (int state = 0; state < layout.stateCount; state++) {
+            finalStates[state] = layout.isFinal(state);
+        }
+
+        try {
+            return new CompiledDFA(stateNames.build(), layout.alphabet, delta, layout.initialState, finalStates);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Binary DFA file contains an invalid DFA: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * The positions of the parts of a file in a buffer, found by reading only the header, the string table offsets
+     * and the symbols. Everything else is read directly from the buffer when needed, so that a {@link MappedDFA} never
+     * has to copy the transition table or the state names. Positions are longs, so that transition tables larger than
+     * 2 GiB can be used from a {@link SegmentedBuffer}.
+     */
+    static final class Layout {
+
+        final SegmentedBuffer buffer;
+        final int version;
+        final int stateCount;
+        final int symbolCount;
+        final int initialState;
+        final Alphabet alphabet;
+        final int width;
+
+        private final int stringCount;
+        private final long stringEndsOffset;
+        private final long stringBytesOffset;
+        private final long stateNamesOffset;
+        private final long deltaOffset;
+        private final long finalsOffset;
+        private final long liveOffset;
+
+        private Layout(SegmentedBuffer buffer) throws IOException {
+            this.buffer = buffer;
+            Cursor cursor = new Cursor(buffer);
+            if (cursor.nextInt() != MAGIC) {
+                throw new IOException("Not a binary DFA file");
+            }
+            this.version = cursor.nextInt();
+            if (this.version != 1 && this.version != VERSION) {
+                throw new IOException("Unsupported binary DFA format version " + this.version);
+            }
+
+            this.stateCount = cursor.nextInt();
+            this.symbolCount = cursor.nextInt();
+            this.initialState = cursor.nextInt();
+            if (this.stateCount <= 0 || this.symbolCount <= 0) {
+                throw new IOException("Binary DFA file contains invalid sizes");
+            }
+
+            this.stringCount = cursor.nextInt();
+            if (this.stringCount < 0 || this.stringCount > cursor.remaining() / 4) {
+                throw new IOException("Binary DFA file contains an invalid string table");
+            }
+            this.stringEndsOffset = cursor.position;
+            int previous = 0;
+            for (int i = 0; i < this.stringCount; i++) {
+                int end = cursor.nextInt();
+                if (end < previous) {
+                    throw new IOException("Binary DFA file contains an invalid string table");
+                }
+                previous = end;
+            }
+            this.stringBytesOffset = cursor.position;
+            cursor.skip(previous);
+
+            this.stateNamesOffset = cursor.position;
+            cursor.skip(4L * this.stateCount);
+            ImmutableList.Builder<String> symbols = ImmutableList.builder();
+            for (int symbol = 0; symbol < this.symbolCount; symbol++) {
+                symbols.add(this.string(cursor.nextInt()));
+            }
+            ImmutableList<String> symbolNames = symbols.build();
+
+            // Symbols are stored by code, and codes are given in sorted order, so they must come back in the same
+            // order.
+            this.alphabet = new StringAlphabet(symbolNames);
+            if (this.alphabet.size() != this.symbolCount) {
+                throw new IOException("Binary DFA file contains duplicate symbols");
+            }
+            for (int symbol = 0; symbol < this.symbolCount; symbol++) {
+                if (this.alphabet.decode(symbol).equals(symbolNames.get(symbol)) == false) {
+                    throw new IOException("Binary DFA file contains symbols out of order");
+                }
+            }
+
+            this.width = cursor.nextByte();
+            if (this.width != width(this.stateCount)) {
+                throw new IOException("Binary DFA file contains an invalid transition table width");
+            }
+            this.deltaOffset = cursor.position;
+            cursor.skip((long) this.width * this.stateCount * this.symbolCount);
+
+            int bitmapBytes = 8 * ((this.stateCount + 63) / 64);
+            this.finalsOffset = cursor.position;
+            cursor.skip(bitmapBytes);
+            this.liveOffset = this.version == 1 ? -1 : cursor.position;
+            if (this.version != 1) {
+                cursor.skip(bitmapBytes);
+            }
+
+            if (this.initialState < 0 || this.initialState >= this.stateCount) {
+                throw new IOException("Binary DFA file contains an invalid DFA: invalid initial state");
+            }
+        }
+
+        /**
+         * Finds the parts of the file in the given buffer.
+         *
+         * @throws IOException if the buffer does not start with a valid header, or is too short
+         */
+        static Layout parse(SegmentedBuffer buffer) throws IOException {
+            try {
+                return new Layout(buffer);
+            } catch (BufferUnderflowException e) {
+                throw new IOException("Binary DFA file is truncated", e);
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Binary DFA file contains an invalid DFA: " + e.getMessage(), e);
+            }
+        }
+
+        String string(int index) throws IOException {
+            if (index < 0 || index >= this.stringCount) {
+                throw new IOException("Binary DFA file refers to a string that does not exist");
+            }
+            int start = index == 0 ? 0 : this.buffer.getInt(this.stringEndsOffset + 4L * (index - 1));
+            int end = this.buffer.getInt(this.stringEndsOffset + 4L * index);
+            byte[] bytes = new byte[end - start];
+            this.buffer.get(this.stringBytesOffset + start, bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        String stateName(int state) throws IOException {
+            return this.string(this.buffer.getInt(this.stateNamesOffset + 4L * state));
+        }
+
+        /**
+         * Gets entry <code>i</code> of the transition table, which is the index of the target state plus one, or 0
+         * for the dead state.
+         */
+        int entry(long i) {
+            if (this.width == 1) {
+                return this.buffer.get(this.deltaOffset + i) & 0xff;
+            } else if (this.width == 2) {
+                return this.buffer.getShort(this.deltaOffset + 2 * i) & 0xffff;
+            }
+            return this.buffer.getInt(this.deltaOffset + 4 * i);
+        }
+
+        boolean isFinal(int state) {
+            return bit(this.finalsOffset, state);
+        }
+
+        /**
+         * Tells whether the file has a live state bitmap, which files of version 1 do not.
+         */
+        boolean hasLiveStates() {
+            return this.liveOffset != -1;
+        }
+
+        boolean isLive(int state) {
+            return bit(this.liveOffset, state);
+        }
+
+        private boolean bit(long offset, int state) {
+            return (this.buffer.getLong(offset + 8L * (state >>> 6)) & (1L << state)) != 0;
+        }
+    }
+
+    /**
+     * Reads the parts of a file in order while finding the layout, throwing {@link BufferUnderflowException} when
+     * reading past the end.
+     */
+    private static final class Cursor {
+
+        private final SegmentedBuffer buffer;
+        private long position;
+
+        private Cursor(SegmentedBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        private long remaining() {
+            return this.buffer.size() - this.position;
+        }
+
+        private void skip(long bytes) {
+            if (bytes > this.remaining()) {
+                throw new BufferUnderflowException();
+            }
+            this.position += bytes;
+        }
+
+        private int nextInt() {
+            this.skip(4);
+            return this.buffer.getInt(this.position - 4);
+        }
+
+        private byte nextByte() {
+            this.skip(1);
+            return this.buffer.get(this.position - 1);
+        }
+    }
+
+    private static int intern(Map<String, Integer> strings, String string) {
+        Integer index = strings.get(string);
+        if (index == null) {
+            index = strings.size();
+            strings.put(string, index);
+        }
+        return index;
+    }
+
+    /**
+     * Gets the number of bytes needed for every entry in a transition table with the given number of states, where
+     * every entry also has to be able to represent the dead state.
+     */
+    private static int width(int stateCount) {
+        if (stateCount < 0xff) {
+            return 1;
+        } else if (stateCount < 0xffff) {
+            return 2;
+        }
+        return 4;
+    }
+
+    /**
+     * Converts a JSON representation of a DFA, as accepted by {@link ImmutableDFA#fromJSON(String)}, into the binary
+     * format. The JSON file is streamed with {@link CompiledDFA#fromJSON(Reader)}.
+     *
+     * @param json   the JSON file to read
+     * @param binary the file to write the binary representation to
+     * @throws IOException              if reading or writing fails
+     * @throws IllegalArgumentException if the JSON file does not contain a valid DFA
+     */
+    public static void convertJSON(Path json, Path binary) throws IOException {
+        try (Reader reader = Files.newBufferedReader(json, StandardCharsets.UTF_8)) {
+            write(CompiledDFA.fromJSON(reader), binary);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package me.saser.libinftom.dfa;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Like {@link SymbolTable}, but looks up symbols directly from their UTF-8 encoded bytes in a ByteBuffer, so that
+ * input that is never decoded into characters can be matched.
+ * <p>
+ * The hash of a range is computed as <code>hash = 31 * hash + (b &amp; 0xff)</code> over its bytes.
+ */
+final class ByteSymbolTable {
+
+    private final byte[][] keys;
+    private final int[] hashes;
+    private final int[] values;
+    private final int mask;
+
+    ByteSymbolTable(CompiledDFA dfa) {
+        int symbolCount = dfa.getSymbolCount();
+        int capacity = Integer.highestOneBit(Math.max(2, symbolCount * 2 - 1)) << 1;
+        this.keys = new byte[capacity][];
+        this.hashes = new int[capacity];
+        this.values = new int[capacity];
+        this.mask = capacity - 1;
+
+        for (int code = 0; code < symbolCount; code++) {
+            byte[] key = dfa.getAlphabet().decode(code).getBytes(StandardCharsets.UTF_8);
+            int hash = hash(key);
+            int slot = spread(hash) & this.mask;
+            while (this.keys[slot] != null) {
+                slot = (slot + 1) & this.mask;
+            }
+            this.keys[slot] = key;
+            this.hashes[slot] = hash;
+            this.values[slot] = code;
+        }
+    }
+
+    private static int hash(byte[] bytes) {
+        int hash = 0;
+        for (byte b : bytes) {
+            hash = 31 * hash + (b & 0xff);
+        }
+        return hash;
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * Looks up the symbol made up of the bytes in <code>[start, end)</code> of the given buffer, using absolute
+     * indexing.
+     *
+     * @return the code of the symbol, or -1 if the range is not a symbol
+     */
+    int lookup(ByteBuffer buffer, int start, int end, int hash) {
+        int slot = spread(hash) & this.mask;
+        byte[] key;
+        while ((key = this.keys[slot]) != null) {
+            if (this.hashes[slot] == hash && matches(key, buffer, start, end)) {
+                return this.values[slot];
+            }
+            slot = (slot + 1) & this.mask;
+        }
+        return -1;
+    }
+
+    private static boolean matches(byte[] key, ByteBuffer buffer, int start, int end) {
+        if (key.length != end - start) {
+            return false;
+        }
+        for (int i = 0; i < key.length; i++) {
+            if (key[i] != buffer.get(start + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,136 @@
+package me.saser.libinftom.dfa;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import me.saser.libinftom.Alphabet;
+
+import java.util.Set;
+
+/**
+ * A DFA that remembers the results of <code>accepts(CharSequence)</code> for recently checked words, and otherwise
+ * behaves exactly like the DFA it wraps.
+ * <p>
+ * Results are kept in a bounded, concurrent Guava {@link Cache}, which evicts words that have not been checked
+ * recently once it is full. When the same words are checked over and over, a repeated word then costs a hash lookup
+ * instead of a run through the DFA. Words are cached as Strings, so checking a word that is not a String, or that is
+ * not in the cache, copies it. Words that are not valid are never cached, and words given as symbol codes to
+ * <code>accepts(int[])</code> are not cached at all, since they are cheap to check.
+ * <p>
+ * Instances of this class are safe to share between threads, as long as the wrapped DFA is.
+ */
+public final class CachingDFA implements DFA {
+
+    private final DFA dfa;
+    private final Cache<String, Boolean> results;
+
+    /**
+     * Creates a <code>CachingDFA</code> that remembers the results of at most <code>maximumSize</code> words.
+     *
+     * @param dfa         the DFA to check words against
+     * @param maximumSize the maximum number of words to remember
+     * @throws IllegalArgumentException if <code>maximumSize</code> is negative
+     */
+    public CachingDFA(DFA dfa, long maximumSize) {
+        this.dfa = dfa;
+        this.results = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * @return the DFA that words are checked against on cache misses
+     */
+    public DFA getDFA() {
+        return this.dfa;
+    }
+
+    /**
+     * Gets statistics on the use of the cache, such as the number of hits and misses and the hit rate.
+     *
+     * @return a snapshot of the statistics
+     */
+    public CacheStats getStats() {
+        return this.results.stats();
+    }
+
+    /**
+     * @return the approximate number of words in the cache
+     */
+    public long getCacheSize() {
+        return this.results.size();
+    }
+
+    /**
+     * Removes all words from the cache. The statistics are kept.
+     */
+    public void invalidateAll() {
+        this.results.invalidateAll();
+    }
+
+    @Override
+    public Set<String> getStates() {
+        return this.dfa.getStates();
+    }
+
+    @Override
+    public Alphabet getAlphabet() {
+        return this.dfa.getAlphabet();
+    }
+
+    @Override
+    public String getInitialState() {
+        return this.dfa.getInitialState();
+    }
+
+    @Override
+    public Set<String> getFinalStates() {
+        return this.dfa.getFinalStates();
+    }
+
+    @Override
+    public boolean canReachFinalState(String state) {
+        return this.dfa.canReachFinalState(state);
+    }
+
+    @Override
+    public DFARunner runner() {
+        return this.dfa.runner();
+    }
+
+    @Override
+    public String nextState(String state, String symbol) {
+        return this.dfa.nextState(state, symbol);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The result is looked up in the cache first. On a miss, the word is checked by the wrapped DFA, and the result
+     * is cached unless the word turned out to be invalid. Two threads missing on the same word at once may both
+     * check it.
+     */
+    @Override
+    public boolean accepts(CharSequence word) {
+        String key = word.toString();
+        Boolean cached = this.results.getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        boolean accepted = this.dfa.accepts(key);
+        this.results.put(key, accepted);
+        return accepted;
+    }
+
+    @Override
+    public boolean accepts(int[] word) {
+        return this.dfa.accepts(word);
+    }
+
+    @Override
+    public Minimization minimize() {
+        return this.dfa.minimize();
+    }
+}
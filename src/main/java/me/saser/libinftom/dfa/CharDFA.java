@@ -0,0 +1,193 @@
+package me.saser.libinftom.dfa;
+
+import me.saser.libinftom.Alphabet;
+import me.saser.libinftom.CharAlphabet;
+
+import java.util.Set;
+
+/**
+ * A DFA whose symbols are all single characters, which can check <b>plain Strings</b> (or byte arrays) where every
+ * character is a symbol, through <code>acceptsText(CharSequence)</code> and <code>acceptsText(byte[])</code>.
+ * <p>
+ * The transition table used for plain text has one row per state, indexed directly by character, so that every step
+ * of <code>acceptsText</code> is a single array load without any symbol lookup. Characters that are not symbols, and
+ * transitions into states from which no final state can be reached, are folded into the table as well. Rows are as
+ * wide as the largest symbol, so this representation is meant for alphabets of small characters such as
+ * <code>0</code>/<code>1</code> or ASCII; for alphabets containing characters above 255, every character is first
+ * mapped to its symbol code instead.
+ * <p>
+ * All {@link DFA} methods, including <code>accepts(CharSequence)</code> with its comma separated words, behave like
+ * they do for the {@link CompiledDFA} of the original DFA.
+ */
+public final class CharDFA implements DFA {
+
+    // The largest character for which rows are indexed directly by character.
+    private static final int MAX_DIRECT_CHAR = 255;
+
+    // Table entries for rejecting a word, either because of an invalid character or a dead or non-live state.
+    private static final int INVALID = -2;
+    private static final int REJECT = -1;
+
+    private final CompiledDFA compiled;
+    private final CharAlphabet alphabet;
+    private final boolean direct;
+    private final int width;
+    private final int[] table;
+    private final boolean[] finalStates;
+
+    private CharDFA(CompiledDFA compiled) {
+        this.compiled = compiled;
+        this.alphabet = CharAlphabet.of(compiled.getAlphabet());
+
+        // Columns are either characters, or symbol codes for alphabets with large characters.
+        this.direct = this.alphabet.getMaxSymbol() <= MAX_DIRECT_CHAR;
+        this.width = this.direct ? this.alphabet.getMaxSymbol() + 1 : this.alphabet.size();
+        this.table = new int[compiled.getStateCount() * this.width];
+        this.finalStates = new boolean[compiled.getStateCount()];
+        for (int state = 0; state < compiled.getStateCount(); state++) {
+            for (int column = 0; column < this.width; column++) {
+                int code = this.direct ? this.alphabet.encode((char) column) : column;
+                int next = code == -1 ? INVALID : compiled.transition(state, code);
+                if (next >= 0 && compiled.isLiveState(next) == false) {
+                    next = REJECT;
+                }
+                this.table[state * this.width + column] = next;
+            }
+            this.finalStates[state] = compiled.isFinalState(state);
+        }
+    }
+
+    /**
+     * Compiles the given DFA into a new <code>CharDFA</code>. All symbols of the DFA must be single characters.
+     *
+     * @param dfa the DFA to compile
+     * @return a <code>CharDFA</code> accepting exactly the same language as <code>dfa</code>
+     * @throws IllegalArgumentException if any symbol of the DFA is not exactly one character long
+     */
+    public static CharDFA compile(DFA dfa) {
+        if (dfa instanceof CharDFA) {
+            return (CharDFA) dfa;
+        }
+        return new CharDFA(CompiledDFA.compile(dfa));
+    }
+
+    private int column(int c) {
+        if (this.direct) {
+            return c < this.width ? c : -1;
+        }
+        return this.alphabet.encode((char) c);
+    }
+
+    private boolean accepted(int state) {
+        if (state == INVALID) {
+            throw new IllegalArgumentException("Word contains at least one invalid symbol");
+        }
+        return state != REJECT && this.finalStates[state];
+    }
+
+    /**
+     * Gets the alphabet of this DFA as a {@link CharAlphabet}, whose <code>isValidText</code> and <code>encodeText</code>
+     * take the same plain Strings as <code>acceptsText(CharSequence)</code>. It gives every symbol the same code as
+     * <code>getAlphabet()</code>.
+     *
+     * @return a CharAlphabet containing the alphabet
+     */
+    public CharAlphabet getCharAlphabet() {
+        return this.alphabet;
+    }
+
+    /**
+     * Tells whether the given word is accepted by this DFA. The word is a <b>plain String</b> where every character
+     * is a symbol, as described by {@link CharAlphabet}.
+     *
+     * @param word a String of symbols
+     * @return true if consuming the characters in order leaves the DFA in a final state; false otherwise
+     * @throws IllegalArgumentException if the word contains invalid symbols
+     */
+    public boolean acceptsText(CharSequence word) {
+        int state = this.compiled.getInitialStateIndex();
+        if (this.compiled.isLiveState(state) == false) {
+            return false;
+        }
+
+        int length = word.length();
+        for (int i = 0; i < length && state >= 0; i++) {
+            int column = this.column(word.charAt(i));
+            state = column == -1 ? INVALID : this.table[state * this.width + column];
+        }
+
+        return this.accepted(state);
+    }
+
+    /**
+     * Tells whether the given word is accepted by this DFA. Every byte of the word is one symbol, interpreted as an
+     * unsigned character in the range 0 to 255.
+     *
+     * @param word an array of symbols
+     * @return true if consuming the bytes in order leaves the DFA in a final state; false otherwise
+     * @throws IllegalArgumentException if the word contains invalid symbols
+     */
+    public boolean acceptsText(byte[] word) {
+        int state = this.compiled.getInitialStateIndex();
+        if (this.compiled.isLiveState(state) == false) {
+            return false;
+        }
+
+        for (int i = 0; i < word.length && state >= 0; i++) {
+            int column = this.column(word[i] & 0xff);
+            state = column == -1 ? INVALID : this.table[state * this.width + column];
+        }
+
+        return this.accepted(state);
+    }
+
+    @Override
+    public boolean accepts(CharSequence word) {
+        return this.compiled.accepts(word);
+    }
+
+    @Override
+    public boolean accepts(int[] word) {
+        return this.compiled.accepts(word);
+    }
+
+    @Override
+    public Set<String> getStates() {
+        return this.compiled.getStates();
+    }
+
+    @Override
+    public Alphabet getAlphabet() {
+        return this.compiled.getAlphabet();
+    }
+
+    @Override
+    public String getInitialState() {
+        return this.compiled.getInitialState();
+    }
+
+    @Override
+    public Set<String> getFinalStates() {
+        return this.compiled.getFinalStates();
+    }
+
+    @Override
+    public boolean canReachFinalState(String state) {
+        return this.compiled.canReachFinalState(state);
+    }
+
+    @Override
+    public DFARunner runner() {
+        return this.compiled.runner();
+    }
+
+    @Override
+    public String nextState(String state, String symbol) {
+        return this.compiled.nextState(state, symbol);
+    }
+
+    @Override
+    public Minimization minimize() {
+        return this.compiled.minimize();
+    }
+}
@@ -0,0 +1,377 @@
+package me.saser.libinftom.dfa;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import me.saser.libinftom.Alphabet;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A DFA that has been compiled into a compact, integer indexed representation, suitable for running large amounts of
+ * words through.
+ * <p>
+ * When compiling, every state is given an index, starting at 0, and every symbol is identified by its code in the
+ * {@link Alphabet} of the DFA. The transition function is then stored as a single flat <code>int[]</code> table with
+ * one row per state and one column per symbol, so that making a transition is a single array lookup. The dead state
+ * is represented by the index {@link #DEAD_STATE}.
+ * <p>
+ * Symbols that lead to the same state from every state share a column of the table, as given by the
+ * {@link SymbolClasses} of the DFA, so the table is only as wide as the number of symbols the DFA can tell apart.
+ * Symbol codes are mapped to their classes by every method taking them, so this is invisible to callers apart from
+ * the memory saved.
+ * <p>
+ * Instances of this class are created by calling <code>compile(DFA)</code>. All String based methods in the {@link DFA}
+ * interface behave exactly like they do for the DFA that was compiled.
+ */
+public final class CompiledDFA extends IndexedDFA {
+
+    /**
+     * The index used to represent the dead state. Any transition from the dead state ends up in the dead state itself.
+     */
+    public static final int DEAD_STATE = -1;
+
+    private final ImmutableList<String> stateNames;
+    private final ImmutableMap<String, Integer> stateIndices;
+    private final SymbolClasses symbolClasses;
+    // The class of every symbol, and the number of classes, which is the width of the transition table.
+    private final int[] classOf;
+    private final int classCount;
+    private final int[] delta;
+    private final boolean[] finalStates;
+    private final Set<String> finalStateNames;
+    private final boolean[] liveStates;
+
+    /**
+     * Creates a <code>CompiledDFA</code> directly from its parts. The transition table has one row of
+     * <code>alphabet.size()</code> entries per state, and is not copied unless some symbols can share a column.
+     *
+     * @throws IllegalArgumentException if the state names are not distinct and non-empty, or if the table, the
+     *                                  initial state or any transition refers to states that do not exist
+     */
+    CompiledDFA(ImmutableList<String> stateNames, Alphabet alphabet, int[] delta, int initialState, boolean[] finalStates) {
+        this(stateNames, alphabet, SymbolClasses.identity(alphabet.size()), delta, initialState, finalStates);
+    }
+
+    /**
+     * Creates a <code>CompiledDFA</code> from a transition table with one row of
+     * <code>symbolClasses.getClassCount()</code> entries per state, where every symbol is mapped to its column by the
+     * given classes. Columns that are still identical are merged further.
+     *
+     * @throws IllegalArgumentException if the state names are not distinct and non-empty, or if the table, the
+     *                                  initial state or any transition refers to states that do not exist
+     */
+    CompiledDFA(ImmutableList<String> stateNames, Alphabet alphabet, SymbolClasses symbolClasses, int[] delta,
+                int initialState, boolean[] finalStates) {
+        super(stateNames.size(), alphabet, initialState);
+        for (String state : stateNames) {
+            if (state.equals("")) {
+                throw new IllegalArgumentException("Having empty state disallowed");
+            }
+        }
+        this.stateNames = stateNames;
+        this.stateIndices = indexOf(this.stateNames);
+
+        if (symbolClasses.getSymbolCount() != this.symbolCount ||
+            delta.length != this.stateNames.size() * symbolClasses.getClassCount() ||
+            finalStates.length != this.stateNames.size()) {
+            throw new IllegalArgumentException("Transition table does not match the number of states and symbols");
+        }
+        for (int target : delta) {
+            if (target < DEAD_STATE || target >= this.stateNames.size()) {
+                throw new IllegalArgumentException("invalid target state");
+            }
+        }
+
+        SymbolClasses columns = SymbolClasses.of(delta, this.stateNames.size(), symbolClasses.getClassCount());
+        if (columns.getClassCount() < symbolClasses.getClassCount()) {
+            this.symbolClasses = symbolClasses.merge(columns);
+            this.delta = columns.narrow(delta, this.stateNames.size());
+        } else {
+            this.symbolClasses = symbolClasses;
+            this.delta = delta;
+        }
+        this.classOf = this.symbolClasses.classes();
+        this.classCount = this.symbolClasses.getClassCount();
+
+        if (initialState < 0 || initialState >= this.stateNames.size()) {
+            throw new IllegalArgumentException("invalid initial state");
+        }
+
+        this.finalStates = finalStates;
+        ImmutableSet.Builder<String> finalStateNames = ImmutableSet.builder();
+        for (int state = 0; state < this.stateNames.size(); state++) {
+            if (finalStates[state]) {
+                finalStateNames.add(this.stateNames.get(state));
+            }
+        }
+        this.finalStateNames = finalStateNames.build();
+
+        // Every state has one transition per class, which is enough to find the live states.
+        int[] rowStart = new int[this.stateNames.size() + 1];
+        for (int state = 0; state <= this.stateNames.size(); state++) {
+            rowStart[state] = state * this.classCount;
+        }
+        this.liveStates = findLiveStates(this.finalStates, rowStart, this.delta);
+    }
+
+    private static CompiledDFA compileFrom(DFA dfa) {
+        ImmutableList<String> stateNames = ImmutableList.copyOf(dfa.getStates());
+        ImmutableMap<String, Integer> stateIndices = indexOf(stateNames);
+
+        // Symbols are indexed by their codes in the alphabet, so that encoded words can be used directly.
+        Alphabet alphabet = dfa.getAlphabet();
+        int symbolCount = alphabet.size();
+
+        // Fill the transition table row by row, asking the original DFA for every transition exactly once.
+        int[] delta = new int[stateNames.size() * symbolCount];
+        for (int state = 0; state < stateNames.size(); state++) {
+            for (int symbol = 0; symbol < symbolCount; symbol++) {
+                String next = dfa.nextState(stateNames.get(state), alphabet.decode(symbol));
+                delta[state * symbolCount + symbol] = next == null ? DEAD_STATE : stateIndices.get(next);
+            }
+        }
+
+        boolean[] finalStates = new boolean[stateNames.size()];
+        for (String finalState : dfa.getFinalStates()) {
+            finalStates[stateIndices.get(finalState)] = true;
+        }
+
+        return new CompiledDFA(stateNames, alphabet, delta, stateIndices.get(dfa.getInitialState()), finalStates);
+    }
+
+    private static ImmutableMap<String, Integer> indexOf(ImmutableList<String> elements) {
+        ImmutableMap.Builder<String, Integer> builder = ImmutableMap.builder();
+        for (int i = 0; i < elements.size(); i++) {
+            builder.put(elements.get(i), i);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Compiles the given DFA into a new <code>CompiledDFA</code>. The given DFA is only read during compilation, and
+     * is not referenced by the returned instance.
+     *
+     * @param dfa the DFA to compile
+     * @return a <code>CompiledDFA</code> accepting exactly the same language as <code>dfa</code>
+     */
+    public static CompiledDFA compile(DFA dfa) {
+        if (dfa instanceof CompiledDFA) {
+            return (CompiledDFA) dfa;
+        }
+        if (dfa instanceof ProductDFA) {
+            return ((ProductDFA) dfa).materialize();
+        }
+        if (dfa instanceof MappedDFA) {
+            return ((MappedDFA) dfa).toCompiledDFA();
+        }
+        return compileFrom(dfa);
+    }
+
+    /**
+     * Reads a JSON representation of a DFA from the given reader, in the same format as accepted by
+     * {@link ImmutableDFA#fromJSON(String)}, and compiles it.
+     * <p>
+     * The document is streamed directly into the transition table rather than deserialized into collections first,
+     * so that DFAs with millions of transitions can be loaded without holding several copies of them in memory. This
+     * works best when <code>states</code> and <code>alphabet</code> come before <code>delta</code>; otherwise the
+     * transitions are kept in a compact buffer until the states and the alphabet have been read. The reader is not
+     * closed.
+     *
+     * @param json a reader containing a JSON representation of the DFA
+     * @return a <code>CompiledDFA</code> with the states of the JSON representation, indexed in the order they appear
+     * @throws IOException              if reading fails
+     * @throws IllegalArgumentException if the parsing fails in any way or not enough information is provided
+     */
+    public static CompiledDFA fromJSON(Reader json) throws IOException {
+        return StreamingJSONLoader.load(json);
+    }
+
+    /**
+     * Gets the classes of symbols that this DFA cannot tell apart, which share a column of the transition table.
+     *
+     * @return the symbol classes of this DFA
+     */
+    public SymbolClasses getSymbolClasses() {
+        return this.symbolClasses;
+    }
+
+    @Override
+    String stateName(int index) {
+        return this.stateNames.get(index);
+    }
+
+    @Override
+    Map<String, Integer> stateIndices() {
+        return this.stateIndices;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * This is a single lookup in the transition table, after mapping the symbol to its class.
+     */
+    @Override
+    public int transition(int state, int symbol) {
+        return state == DEAD_STATE ? DEAD_STATE : this.delta[state * this.classCount + this.classOf[symbol]];
+    }
+
+    @Override
+    public boolean isFinalState(int state) {
+        return state != DEAD_STATE && this.finalStates[state];
+    }
+
+    @Override
+    public boolean isLiveState(int state) {
+        return state != DEAD_STATE && this.liveStates[state];
+    }
+
+    @Override
+    public Set<String> getFinalStates() {
+        return this.finalStateNames;
+    }
+
+    @Override
+    public CompiledDFARunner runner() {
+        return new CompiledDFARunner(this);
+    }
+
+    /**
+     * Creates a copy of this DFA with its states renumbered in breadth first order from the initial state, following
+     * symbols in the order of their codes. The successors of a state then get indices close to each other, so that
+     * walks through the transition table touch fewer cache lines than with the order the states happened to be given
+     * in. States that cannot be reached from the initial state come last, in their current order. State names, and
+     * the language of the DFA, are unchanged.
+     *
+     * @return a renumbered copy of this DFA
+     */
+    public CompiledDFA renumberBreadthFirst() {
+        return this.renumber(this.breadthFirstOrder());
+    }
+
+    /**
+     * Creates a copy of this DFA with its states renumbered by how often they were visited, most visited first, so
+     * that the rows of the transition table used by a workload are packed together at its start. Visit counts can be
+     * taken from the {@link DFAMetrics} of an {@link InstrumentedDFA} running in production, for example. States with
+     * equal counts, including all states that were never visited, are kept in breadth first order.
+     *
+     * @param visits a Map from String representations of states to the number of times they were visited; states that
+     *               are not in the Map count as never visited
+     * @return a renumbered copy of this DFA
+     * @throws IllegalArgumentException if the Map contains invalid states, or null keys or counts
+     */
+    public CompiledDFA renumberByVisits(Map<String, Long> visits) {
+        long[] counts = new long[this.stateNames.size()];
+        for (Map.Entry<String, Long> visit : visits.entrySet()) {
+            // The dead state has no index to move, so it cannot be given a count.
+            if (visit.getKey() == null) {
+                throw new IllegalArgumentException("Cannot count visits to the dead state");
+            }
+            if (visit.getValue() == null) {
+                throw new IllegalArgumentException("Visit count of state " + visit.getKey() + " is null");
+            }
+            counts[this.indexOfState(visit.getKey())] = visit.getValue();
+        }
+        return this.renumberByVisits(counts);
+    }
+
+    /**
+     * Creates a copy of this DFA with its states renumbered by how often they are visited when checking the given
+     * sample of words, like <code>renumberByVisits(Map)</code>.
+     *
+     * @param sample comma separated words representative of the words that will be checked
+     * @return a renumbered copy of this DFA
+     * @throws IllegalArgumentException if any of the words contains invalid symbols
+     */
+    public CompiledDFA renumberByWorkload(Iterable<? extends CharSequence> sample) {
+        long[] counts = new long[this.stateNames.size()];
+        for (CharSequence word : sample) {
+            // Words are run like in accepts, so the states skipped by rejecting early are not counted.
+            int state = this.initialState;
+            counts[state]++;
+            if (word.length() == 0) {
+                continue;
+            }
+            for (int start = 0; start <= word.length() && this.isLiveState(state); ) {
+                long next = this.nextSymbol(word, start);
+                state = this.transition(state, (int) next);
+                if (state != DEAD_STATE) {
+                    counts[state]++;
+                }
+                start = (int) (next >>> 32) + 1;
+            }
+        }
+        return this.renumberByVisits(counts);
+    }
+
+    private CompiledDFA renumberByVisits(long[] counts) {
+        int[] breadthFirst = this.breadthFirstOrder();
+        Integer[] order = new Integer[breadthFirst.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = breadthFirst[i];
+        }
+        // Sorting objects is stable, which keeps the breadth first order among states with equal counts.
+        Arrays.sort(order, (first, second) -> Long.compare(counts[second], counts[first]));
+
+        for (int i = 0; i < order.length; i++) {
+            breadthFirst[i] = order[i];
+        }
+        return this.renumber(breadthFirst);
+    }
+
+    /**
+     * Gets the indices of all states in breadth first order from the initial state, followed by the unreachable ones.
+     */
+    private int[] breadthFirstOrder() {
+        int stateCount = this.stateNames.size();
+        int[] order = new int[stateCount];
+        boolean[] seen = new boolean[stateCount];
+        int count = 0;
+        order[count++] = this.initialState;
+        seen[this.initialState] = true;
+        for (int i = 0; i < count; i++) {
+            // Every class is followed once, which visits targets in the same order as following every symbol.
+            for (int c = 0; c < this.classCount; c++) {
+                int target = this.delta[order[i] * this.classCount + c];
+                if (target != DEAD_STATE && seen[target] == false) {
+                    seen[target] = true;
+                    order[count++] = target;
+                }
+            }
+        }
+        for (int state = 0; state < stateCount; state++) {
+            if (seen[state] == false) {
+                order[count++] = state;
+            }
+        }
+        return order;
+    }
+
+    /**
+     * Creates a copy of this DFA where the state with index <code>order[i]</code> gets index <code>i</code>.
+     */
+    private CompiledDFA renumber(int[] order) {
+        int[] newIndices = new int[order.length];
+        for (int i = 0; i < order.length; i++) {
+            newIndices[order[i]] = i;
+        }
+
+        ImmutableList.Builder<String> stateNames = ImmutableList.builder();
+        int[] delta = new int[this.delta.length];
+        boolean[] finalStates = new boolean[order.length];
+        for (int i = 0; i < order.length; i++) {
+            stateNames.add(this.stateNames.get(order[i]));
+            for (int c = 0; c < this.classCount; c++) {
+                int target = this.delta[order[i] * this.classCount + c];
+                delta[i * this.classCount + c] = target == DEAD_STATE ? DEAD_STATE : newIndices[target];
+            }
+            finalStates[i] = this.finalStates[order[i]];
+        }
+        return new CompiledDFA(stateNames.build(), this.alphabet, this.symbolClasses, delta, newIndices[this.initialState],
+                               finalStates);
+    }
+}
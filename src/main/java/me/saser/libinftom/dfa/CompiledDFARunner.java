@@ -0,0 +1,103 @@
+package me.saser.libinftom.dfa;
+
+/**
+ * A {@link DFARunner} for a {@link CompiledDFA}. The current state is kept as a state index, so consuming an encoded
+ * symbol with <code>consume(int)</code> is a single lookup in the transition table.
+ * <p>
+ * Runners are meant to be reset and reused rather than created per word. The current state can be saved as an
+ * <code>int</code> token with <code>snapshot()</code> and returned to with <code>restore(int)</code>, which lets
+ * backtracking tokenizers and speculative parsers try a continuation and undo it in constant time. Whole sequences of
+ * symbols are consumed with <code>consumeAll</code>, without going through the <code>DFARunner</code> interface or
+ * creating state names for every symbol.
+ */
+public class CompiledDFARunner extends IndexedDFARunner {
+
+    private final CompiledDFA dfa;
+
+    public CompiledDFARunner(CompiledDFA dfa) {
+        super(dfa);
+        this.dfa = dfa;
+    }
+
+    /**
+     * Gets the index of the current state in the {@link CompiledDFA} this runner was created for.
+     *
+     * @return the index of the current state, or {@link CompiledDFA#DEAD_STATE} if in a dead state
+     */
+    public int getStateIndex() {
+        return this.currentState;
+    }
+
+    /**
+     * Saves the current state as a token, which can later be given to <code>restore(int)</code> to return to it.
+     *
+     * @return a token for the current state, valid for runners of the same {@link CompiledDFA}
+     */
+    public int snapshot() {
+        return this.currentState;
+    }
+
+    /**
+     * Returns to a state previously saved with <code>snapshot()</code>, in a runner of the same {@link CompiledDFA}.
+     *
+     * @param token a token given by <code>snapshot()</code>
+     * @throws IllegalArgumentException if the token is not a state of the DFA
+     */
+    public void restore(int token) {
+        if (token < CompiledDFA.DEAD_STATE || token >= this.dfa.getStateCount()) {
+            throw new IllegalArgumentException("Token is not a state of this DFA");
+        }
+        this.currentState = token;
+    }
+
+    /**
+     * Consumes every symbol of a comma separated String of symbols, like the words given to
+     * <code>accepts(CharSequence)</code>. An empty sequence consumes no symbols. Once the dead state is entered, the
+     * rest of the sequence is skipped without being checked, since the runner cannot leave it.
+     *
+     * @param symbols a comma separated String of symbols
+     * @return the index of the new current state, or {@link CompiledDFA#DEAD_STATE} if in the dead state
+     * @throws IllegalArgumentException if the sequence contains invalid or empty symbols, in which case the current
+     *                                  state is not changed
+     */
+    public int consumeAll(CharSequence symbols) {
+        int length = symbols.length();
+        if (length == 0) {
+            return this.currentState;
+        }
+
+        int state = this.currentState;
+        for (int start = 0; start <= length && state != CompiledDFA.DEAD_STATE; ) {
+            long next = this.dfa.nextSymbol(symbols, start);
+            state = this.dfa.transition(state, (int) next);
+            start = (int) (next >>> 32) + 1;
+        }
+
+        this.currentState = state;
+        return state;
+    }
+
+    /**
+     * Consumes every symbol in an array of symbol codes. Once the dead state is entered, the rest of the array is
+     * skipped without being checked, since the runner cannot leave it.
+     *
+     * @param symbols an array of symbol codes
+     * @return the index of the new current state, or {@link CompiledDFA#DEAD_STATE} if in the dead state
+     * @throws IllegalArgumentException if the array contains invalid symbol codes, in which case the current state is
+     *                                  not changed
+     */
+    public int consumeAll(int[] symbols) {
+        int symbolCount = this.dfa.getSymbolCount();
+        int state = this.currentState;
+        for (int i = 0; i < symbols.length && state != CompiledDFA.DEAD_STATE; i++) {
+            int symbol = symbols[i];
+            if (symbol < 0 || symbol >= symbolCount) {
+                throw new IllegalArgumentException("Word contains at least one invalid symbol code");
+            }
+            state = this.dfa.transition(state, symbol);
+        }
+
+        this.currentState = state;
+        return state;
+    }
+}
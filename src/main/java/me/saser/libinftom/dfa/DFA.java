@@ -2,6 +2,9 @@ package me.saser.libinftom.dfa;
 
 import me.saser.libinftom.Alphabet;
 
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
 import java.util.Set;
 
 /**
@@ -52,6 +55,48 @@ public interface DFA {
      */
     Set<String> getFinalStates();
 
+    /**
+     * Tells whether any final state can be reached from the given state, that is, whether there is any word that is
+     * accepted when starting in <code>state</code>. If not, the DFA is effectively in the dead state.
+     * <p>
+     * The default implementation searches the states reachable from <code>state</code> through
+     * <code>nextState(String, String)</code>, which takes time proportional to the number of transitions. The
+     * implementations in this package override it, mostly with a lookup of precomputed results.
+     *
+     * @param state the state to check, should be an element in the set returned by <code>getStates()</code>, or null
+     *              for the dead state
+     * @return true if a final state can be reached from <code>state</code>; false otherwise
+     * @throws IllegalArgumentException if the state is invalid
+     */
+    default boolean canReachFinalState(String state) {
+        if (state == null) {
+            return false;
+        }
+        if (this.getStates().contains(state) == false) {
+            throw new IllegalArgumentException("Trying to look up an invalid state");
+        }
+
+        Set<String> finalStates = this.getFinalStates();
+        Set<String> symbols = this.getAlphabet().getSymbols();
+        Set<String> visited = new HashSet<>();
+        Deque<String> queue = new ArrayDeque<>();
+        visited.add(state);
+        queue.add(state);
+        while (queue.isEmpty() == false) {
+            String current = queue.remove();
+            if (finalStates.contains(current)) {
+                return true;
+            }
+            for (String symbol : symbols) {
+                String next = this.nextState(current, symbol);
+                if (next != null && visited.add(next)) {
+                    queue.add(next);
+                }
+            }
+        }
+        return false;
+    }
+
     /**
      * Returns an instance of {@link DFARunner} that can simulate traversals through this DFA.
      *
@@ -72,10 +117,55 @@ public interface DFA {
     /**
      * Tells whether the given word is accepted by this DFA. The word should be given as a comma separated string of
      * symbols in the alphabet this DFA is defined for.
+     * <p>
+     * Implementations may stop reading the word as soon as it is certain that it cannot be accepted, in which case any
+     * invalid symbols in the rest of the word are not reported.
      *
      * @param word a comma separated string of symbol
      * @return true if consuming the symbols in order leaves the DFA in a final state; false otherwise
      * @throws IllegalArgumentException if the word contains invalid symbols
      */
-    boolean accepts(String word);
+    boolean accepts(CharSequence word);
+
+    /**
+     * Like <code>accepts(CharSequence)</code>, but takes a word that has already been encoded into symbol codes, as
+     * given by <code>encode(String)</code> of the {@link Alphabet} returned by <code>getAlphabet()</code>.
+     * <p>
+     * The default implementation decodes every symbol and follows <code>nextState(String, String)</code> from the
+     * initial state. All implementations in this package override it with a walk over their transition tables.
+     *
+     * @param word an array of symbol codes
+     * @return true if consuming the symbols in order leaves the DFA in a final state; false otherwise
+     * @throws IllegalArgumentException if the word contains invalid symbol codes
+     */
+    default boolean accepts(int[] word) {
+        Alphabet alphabet = this.getAlphabet();
+        int symbolCount = alphabet.size();
+        String state = this.getInitialState();
+        for (int symbol : word) {
+            // Nothing can be accepted from the dead state.
+            if (state == null) {
+                return false;
+            }
+            if (symbol < 0 || symbol >= symbolCount) {
+                throw new IllegalArgumentException("Word contains at least one invalid symbol code");
+            }
+            state = this.nextState(state, alphabet.decode(symbol));
+        }
+
+        return state != null && this.getFinalStates().contains(state);
+    }
+
+    /**
+     * Computes the minimal DFA accepting the same language as this DFA, using Hopcroft's algorithm. States that are
+     * unreachable, or that can never lead to a final state, are removed, and all remaining states that accept exactly
+     * the same words are merged into one.
+     * <p>
+     * The default implementation compiles this DFA into a {@link CompiledDFA} first.
+     *
+     * @return a {@link Minimization} containing the minimal DFA and the mapping from the states of this DFA to it
+     */
+    default Minimization minimize() {
+        return Hopcroft.minimize(CompiledDFA.compile(this));
+    }
 }
@@ -0,0 +1,174 @@
+package me.saser.libinftom.dfa;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A snapshot of the metrics recorded by an {@link InstrumentedDFA} and its runners. Snapshots are immutable, and since
+ * the counters are read one at a time while other threads may be updating them, the numbers of a snapshot taken while
+ * words are being checked may be off by the words in flight.
+ */
+public final class DFAMetrics {
+
+    private final long elapsedNanos;
+    private final long words;
+    private final long acceptedWords;
+    private final long invalidWords;
+    private final long symbols;
+    private final long rejectedSymbols;
+    private final long deadStateEntries;
+    private final long[] latencyHistogram;
+    private final ImmutableMap<String, Long> stateVisits;
+
+    DFAMetrics(long elapsedNanos, long words, long acceptedWords, long invalidWords, long symbols,
+               long rejectedSymbols, long deadStateEntries, long[] latencyHistogram,
+               ImmutableMap<String, Long> stateVisits) {
+        this.elapsedNanos = elapsedNanos;
+        this.words = words;
+        this.acceptedWords = acceptedWords;
+        this.invalidWords = invalidWords;
+        this.symbols = symbols;
+        this.rejectedSymbols = rejectedSymbols;
+        this.deadStateEntries = deadStateEntries;
+        this.latencyHistogram = latencyHistogram;
+        this.stateVisits = stateVisits;
+    }
+
+    /**
+     * @return the number of nanoseconds from when recording started, or was last reset, to the snapshot
+     */
+    public long getElapsedNanos() {
+        return this.elapsedNanos;
+    }
+
+    /**
+     * @return the number of words checked with <code>accepts</code>, including invalid ones
+     */
+    public long getWords() {
+        return this.words;
+    }
+
+    /**
+     * @return the number of words that were accepted
+     */
+    public long getAcceptedWords() {
+        return this.acceptedWords;
+    }
+
+    /**
+     * @return the number of valid words that were rejected
+     */
+    public long getRejectedWords() {
+        return this.words - this.acceptedWords - this.invalidWords;
+    }
+
+    /**
+     * @return the number of words that contained invalid symbols
+     */
+    public long getInvalidWords() {
+        return this.invalidWords;
+    }
+
+    /**
+     * @return the average number of words checked per second, over the elapsed time
+     */
+    public double getWordsPerSecond() {
+        return this.elapsedNanos == 0 ? 0 : this.words * 1e9 / this.elapsedNanos;
+    }
+
+    /**
+     * Gets the number of symbols consumed, both by <code>accepts</code> and by runners. Words that are rejected early
+     * only count the symbols read before rejection was certain.
+     *
+     * @return the number of symbols consumed
+     */
+    public long getSymbols() {
+        return this.symbols;
+    }
+
+    /**
+     * @return the average number of symbols read from rejected words before rejection was certain
+     */
+    public double getAverageSymbolsBeforeRejection() {
+        long rejected = this.getRejectedWords();
+        return rejected == 0 ? 0 : (double) this.rejectedSymbols / rejected;
+    }
+
+    /**
+     * @return the number of times the dead state was entered, by <code>accepts</code> or by runners
+     */
+    public long getDeadStateEntries() {
+        return this.deadStateEntries;
+    }
+
+    /**
+     * Gets the latencies of <code>accepts</code> as a histogram with power of two buckets. Element <code>i</code> is
+     * the number of words that took at least <code>2^i</code> and less than <code>2^(i+1)</code> nanoseconds to check,
+     * except element 0, which also counts words that took no measurable time.
+     *
+     * @return an array of 64 bucket counts
+     */
+    public long[] getLatencyHistogram() {
+        return this.latencyHistogram.clone();
+    }
+
+    /**
+     * Gets an upper bound of the given percentile of the latencies of <code>accepts</code>, which is exact up to the
+     * power of two buckets of the histogram.
+     *
+     * @param percentile a percentile between 0 and 100
+     * @return the upper end of the bucket containing the percentile, in nanoseconds, or 0 if no words were checked
+     * @throws IllegalArgumentException if the percentile is out of range
+     */
+    public long getLatencyPercentile(double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("The percentile must be between 0 and 100");
+        }
+
+        long total = Arrays.stream(this.latencyHistogram).sum();
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(total * percentile / 100));
+        long seen = 0;
+        for (int bucket = 0; bucket < this.latencyHistogram.length; bucket++) {
+            seen += this.latencyHistogram[bucket];
+            if (seen >= rank) {
+                return bucket == 62 ? Long.MAX_VALUE : (1L << (bucket + 1)) - 1;
+            }
+        }
+        return Long.MAX_VALUE;
+    }
+
+    /**
+     * Gets the number of times every state was entered, by <code>accepts</code> or by runners. States that were never
+     * entered are left out.
+     *
+     * @return an immutable Map from String representations of states to their visit counts
+     */
+    public Map<String, Long> getStateVisits() {
+        return this.stateVisits;
+    }
+
+    /**
+     * Gets the most visited states, most visited first.
+     *
+     * @param count the maximum number of states to return
+     * @return an immutable List of String representations of states
+     */
+    public List<String> getHottestStates(int count) {
+        List<Map.Entry<String, Long>> entries = new ArrayList<>(this.stateVisits.entrySet());
+        entries.sort(Map.Entry.<String, Long>comparingByValue().reversed());
+
+        ImmutableList.Builder<String> hottest = ImmutableList.builder();
+        for (int i = 0; i < Math.min(count, entries.size()); i++) {
+            hottest.add(entries.get(i).getKey());
+        }
+        return hottest.build();
+    }
+}
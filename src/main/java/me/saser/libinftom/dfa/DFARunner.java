@@ -31,11 +31,43 @@ public interface DFARunner {
      */
     String consume(String symbol);
 
+    /**
+     * Like <code>consume(String)</code>, but takes a symbol that has already been encoded into its symbol code, as
+     * given by <code>encode(String)</code> of the DFAs {@link me.saser.libinftom.Alphabet}.
+     * <p>
+     * A runner does not know the alphabet of its DFA, so the default implementation cannot decode the symbol and
+     * throws {@link UnsupportedOperationException}. All runners in this package override it.
+     *
+     * @param symbol the code of a symbol from this DFAs language
+     * @return a String representation of the new current state, or <code>null</code> if this DFA would end up in a dead
+     * state
+     * @throws IllegalArgumentException      if <code>symbol</code> is not a valid symbol code in the language of this
+     *                                       DFA
+     * @throws UnsupportedOperationException if the runner does not support encoded symbols
+     */
+    default String consume(int symbol) {
+        throw new UnsupportedOperationException("This runner does not support encoded symbols");
+    }
+
     /**
      * Resets the runner so that it behaves exactly like it was just created.
      */
     void reset();
 
+    /**
+     * Returns true if some final state can still be reached from the runners current state. Once this returns false,
+     * no sequence of further symbols will put the runner in a final state, so callers can stop consuming symbols.
+     * <p>
+     * The default implementation only knows that nothing can be accepted from the dead state, and returns true for
+     * every other state. This is always safe, but lets callers stop early only once the dead state is entered. All
+     * runners in this package override it with the answer of their DFA.
+     *
+     * @return true if a final state can still be reached; false otherwise
+     */
+    default boolean canAccept() {
+        return this.getState() != null;
+    }
+
     /**
      * Returns true if the runners current state is a final state.
      * @return true if in final state; false otherwise
@@ -0,0 +1,213 @@
+package me.saser.libinftom.dfa;
+
+import com.google.common.base.Joiner;
+import com.google.common.collect.ImmutableList;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The result of checking whether two DFAs accept the same language, together with a shortest word telling them apart
+ * if they do not.
+ * <p>
+ * Equivalence is decided with the algorithm of Hopcroft and Karp, which merges the states of the two DFAs that have to
+ * be equivalent with a union-find structure, and runs in nearly linear time in the number of states times the number
+ * of symbols. The states of the two DFAs are matched through their symbols, so only the alphabets have to be equal,
+ * and state names do not matter. Only when the DFAs differ, a breadth first search over the pairs of states finds a
+ * shortest word accepted by exactly one of them.
+ */
+public class Equivalence {
+
+    private final boolean equivalent;
+    private final List<String> counterexample;
+
+    private Equivalence(boolean equivalent, List<String> counterexample) {
+        this.equivalent = equivalent;
+        this.counterexample = counterexample;
+    }
+
+    /**
+     * Checks whether the given DFAs accept the same language.
+     *
+     * @param first  the first DFA
+     * @param second the second DFA
+     * @return the result of the check
+     * @throws IllegalArgumentException if the DFAs do not have the same alphabet
+     */
+    public static Equivalence check(DFA first, DFA second) {
+        if (first.getAlphabet().getSymbols().equals(second.getAlphabet().getSymbols()) == false) {
+            throw new IllegalArgumentException("The DFAs must have the same alphabet");
+        }
+
+        // Equal alphabets give equal symbols the same codes, so the compiled DFAs can be stepped with the same codes.
+        CompiledDFA a = CompiledDFA.compile(first);
+        CompiledDFA b = CompiledDFA.compile(second);
+        if (hopcroftKarp(a, b)) {
+            return new Equivalence(true, null);
+        }
+        return new Equivalence(false, shortestCounterexample(a, b));
+    }
+
+    /**
+     * Tells whether the given DFAs accept the same language.
+     *
+     * @param first  the first DFA
+     * @param second the second DFA
+     * @return true if the DFAs accept exactly the same words; false otherwise
+     * @throws IllegalArgumentException if the DFAs do not have the same alphabet
+     */
+    public static boolean equivalent(DFA first, DFA second) {
+        return check(first, second).isEquivalent();
+    }
+
+    /**
+     * @return true if the DFAs accept exactly the same words; false otherwise
+     */
+    public boolean isEquivalent() {
+        return this.equivalent;
+    }
+
+    /**
+     * Gets a shortest word accepted by exactly one of the DFAs, as a list of symbols. Among the shortest words, the one
+     * coming first when comparing symbol codes is returned.
+     *
+     * @return an immutable List of symbols, or <code>null</code> if the DFAs are equivalent
+     */
+    public List<String> getCounterexampleSymbols() {
+        return this.counterexample;
+    }
+
+    /**
+     * Gets a shortest word accepted by exactly one of the DFAs, as a comma separated String of symbols like the words
+     * given to <code>accepts(CharSequence)</code>. The empty String is the empty word.
+     *
+     * @return a comma separated String of symbols, or <code>null</code> if the DFAs are equivalent
+     */
+    public String getCounterexample() {
+        return this.counterexample == null ? null : Joiner.on(',').join(this.counterexample);
+    }
+
+    /**
+     * Runs the algorithm of Hopcroft and Karp. States of <code>a</code> are numbered from 0, then its dead state, and
+     * then the states of <code>b</code> followed by its dead state.
+     */
+    private static boolean hopcroftKarp(CompiledDFA a, CompiledDFA b) {
+        int deadA = a.getStateCount();
+        int offsetB = deadA + 1;
+        int deadB = offsetB + b.getStateCount();
+        int[] parents = new int[deadB + 1];
+        for (int i = 0; i < parents.length; i++) {
+            parents[i] = i;
+        }
+
+        int initialA = a.getInitialStateIndex();
+        int initialB = b.getInitialStateIndex();
+        if (a.isFinalState(initialA) != b.isFinalState(initialB)) {
+            return false;
+        }
+        union(parents, initialA, offsetB + initialB);
+
+        // Every union adds one pair to the stack, and there can be at most as many unions as states.
+        int[] stack = new int[2 * parents.length];
+        int stackSize = 0;
+        stack[stackSize++] = initialA;
+        stack[stackSize++] = initialB;
+        while (stackSize > 0) {
+            int q = stack[--stackSize];
+            int p = stack[--stackSize];
+            for (int symbol = 0; symbol < a.getSymbolCount(); symbol++) {
+                int nextA = a.transition(p, symbol);
+                int nextB = b.transition(q, symbol);
+                int rootA = find(parents, nextA == CompiledDFA.DEAD_STATE ? deadA : nextA);
+                int rootB = find(parents, nextB == CompiledDFA.DEAD_STATE ? deadB : offsetB + nextB);
+                if (rootA != rootB) {
+                    if (a.isFinalState(nextA) != b.isFinalState(nextB)) {
+                        return false;
+                    }
+                    union(parents, rootA, rootB);
+                    stack[stackSize++] = nextA;
+                    stack[stackSize++] = nextB;
+                }
+            }
+        }
+        return true;
+    }
+
+    private static int find(int[] parents, int x) {
+        while (parents[x] != x) {
+            // Path halving.
+            parents[x] = parents[parents[x]];
+            x = parents[x];
+        }
+        return x;
+    }
+
+    private static void union(int[] parents, int x, int y) {
+        parents[find(parents, x)] = find(parents, y);
+    }
+
+    /**
+     * Finds a shortest word accepted by exactly one of the DFAs, which must not be equivalent, by searching breadth
+     * first over the pairs of states reachable from the initial pair. Pairs where neither DFA can accept any more are
+     * not followed, since they cannot tell the DFAs apart.
+     */
+    private static List<String> shortestCounterexample(CompiledDFA a, CompiledDFA b) {
+        Map<Long, Integer> visited = new HashMap<>();
+        int[] statesA = new int[16];
+        int[] statesB = new int[16];
+        int[] parents = new int[16];
+        int[] symbols = new int[16];
+        int count = 0;
+
+        statesA[0] = a.getInitialStateIndex();
+        statesB[0] = b.getInitialStateIndex();
+        parents[0] = -1;
+        visited.put(pack(statesA[0], statesB[0]), 0);
+        count++;
+
+        for (int pair = 0; pair < count; pair++) {
+            if (a.isFinalState(statesA[pair]) != b.isFinalState(statesB[pair])) {
+                return wordTo(pair, parents, symbols, a);
+            }
+            if (a.isLiveState(statesA[pair]) == false && b.isLiveState(statesB[pair]) == false) {
+                continue;
+            }
+
+            for (int symbol = 0; symbol < a.getSymbolCount(); symbol++) {
+                int nextA = a.transition(statesA[pair], symbol);
+                int nextB = b.transition(statesB[pair], symbol);
+                if (visited.containsKey(pack(nextA, nextB))) {
+                    continue;
+                }
+                if (count == statesA.length) {
+                    statesA = Arrays.copyOf(statesA, count * 2);
+                    statesB = Arrays.copyOf(statesB, count * 2);
+                    parents = Arrays.copyOf(parents, count * 2);
+                    symbols = Arrays.copyOf(symbols, count * 2);
+                }
+                statesA[count] = nextA;
+                statesB[count] = nextB;
+                parents[count] = pair;
+                symbols[count] = symbol;
+                visited.put(pack(nextA, nextB), count);
+                count++;
+            }
+        }
+        throw new IllegalStateException("The DFAs were found to be different, but no word tells them apart");
+    }
+
+    private static long pack(int first, int second) {
+        return ((long) first << 32) | (second & 0xffffffffL);
+    }
+
+    private static List<String> wordTo(int pair, int[] parents, int[] symbols, CompiledDFA dfa) {
+        List<String> word = new ArrayList<>();
+        for (int i = pair; parents[i] != -1; i = parents[i]) {
+            word.add(dfa.getAlphabet().decode(symbols[i]));
+        }
+        return ImmutableList.copyOf(word).reverse();
+    }
+}
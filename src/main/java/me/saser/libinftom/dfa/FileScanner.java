@@ -0,0 +1,291 @@
+package me.saser.libinftom.dfa;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Scans files containing one word per line, by memory mapping them and running their bytes directly through a
+ * {@link CompiledDFA}.
+ * <p>
+ * Lines are separated by <code>'\n'</code>, and the symbols of every line by <code>','</code>. Symbols are matched
+ * against the UTF-8 encoding of the alphabet, so the file is never decoded into Strings. A file ending with a newline
+ * does not end with an empty line. Lines containing invalid or empty symbols are counted as rejected, and also counted
+ * separately as invalid.
+ * <p>
+ * Large files are split into chunks at line boundaries, which are mapped and scanned in parallel in a
+ * {@link ForkJoinPool}.
+ */
+public class FileScanner {
+
+    private static final long DEFAULT_CHUNK_SIZE = 32L << 20;
+
+    private final CompiledDFA dfa;
+    private final ByteSymbolTable symbols;
+    private final ForkJoinPool pool;
+    private final long chunkSize;
+
+    /**
+     * Creates a <code>FileScanner</code> for the given DFA that runs in the common {@link ForkJoinPool}.
+     *
+     * @param dfa the DFA to check lines against
+     */
+    public FileScanner(DFA dfa) {
+        this(dfa, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Creates a <code>FileScanner</code> for the given DFA that runs in the given {@link ForkJoinPool}.
+     *
+     * @param dfa  the DFA to check lines against
+     * @param pool the pool to scan chunks in
+     */
+    public FileScanner(DFA dfa, ForkJoinPool pool) {
+        this(dfa, pool, DEFAULT_CHUNK_SIZE);
+    }
+
+    FileScanner(DFA dfa, ForkJoinPool pool, long chunkSize) {
+        for (String symbol : dfa.getAlphabet().getSymbols()) {
+            if (symbol.indexOf('\n') != -1) {
+                throw new IllegalArgumentException("Alphabet contains a symbol with a newline in it");
+            }
+        }
+
+        this.dfa = CompiledDFA.compile(dfa);
+        this.symbols = new ByteSymbolTable(this.dfa);
+        this.pool = pool;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Scans the given file and counts its accepted and rejected lines.
+     *
+     * @param file the file to scan
+     * @return the counts of the file
+     * @throws IOException if the file cannot be read
+     */
+    public Result scan(Path file) throws IOException {
+        return this.scan(file, false);
+    }
+
+    /**
+     * Scans the given file and counts its accepted and rejected lines, optionally collecting the byte offsets at which
+     * all accepted lines start.
+     *
+     * @param file           the file to scan
+     * @param collectOffsets true if the offsets of the accepted lines should be collected
+     * @return the counts, and possibly offsets, of the file
+     * @throws IOException if the file cannot be read
+     */
+    public Result scan(Path file, boolean collectOffsets) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            List<ChunkTask> tasks = new ArrayList<>();
+            long size = channel.size();
+            long start = 0;
+            while (start < size) {
+                long end = start + this.chunkSize < size ? nextLineStart(channel, start + this.chunkSize - 1) : size;
+                tasks.add(new ChunkTask(channel, start, end, collectOffsets));
+                start = end;
+            }
+
+            try {
+                return this.pool.submit(() -> {
+                    ChunkTask.invokeAll(tasks);
+                    Result result = new Result(0, 0, 0, new long[0]);
+                    for (ChunkTask task : tasks) {
+                        result = result.append(task.join());
+                    }
+                    return result;
+                }).join();
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+    /**
+     * Finds the position after the first newline at or after <code>position</code>, or the end of the file if there
+     * is none.
+     */
+    private static long nextLineStart(FileChannel channel, long position) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(4096);
+        while (true) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read == -1) {
+                return channel.size();
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+    }
+
+    /**
+     * The counts, and possibly offsets, of a scanned file.
+     */
+    public static class Result {
+
+        private final long lines;
+        private final long accepted;
+        private final long invalid;
+        private final long[] acceptedOffsets;
+
+        Result(long lines, long accepted, long invalid, long[] acceptedOffsets) {
+            this.lines = lines;
+            this.accepted = accepted;
+            this.invalid = invalid;
+            this.acceptedOffsets = acceptedOffsets;
+        }
+
+        private Result append(Result other) {
+            long[] offsets = Arrays.copyOf(this.acceptedOffsets, this.acceptedOffsets.length + other.acceptedOffsets.length);
+            System.arraycopy(other.acceptedOffsets, 0, offsets, this.acceptedOffsets.length, other.acceptedOffsets.length);
+            return new Result(this.lines + other.lines, this.accepted + other.accepted, this.invalid + other.invalid, offsets);
+        }
+
+        /**
+         * @return the total number of lines in the file
+         */
+        public long getLines() {
+            return this.lines;
+        }
+
+        /**
+         * @return the number of accepted lines
+         */
+        public long getAccepted() {
+            return this.accepted;
+        }
+
+        /**
+         * @return the number of lines that were not accepted, including the invalid ones
+         */
+        public long getRejected() {
+            return this.lines - this.accepted;
+        }
+
+        /**
+         * @return the number of lines containing invalid or empty symbols
+         */
+        public long getInvalid() {
+            return this.invalid;
+        }
+
+        /**
+         * Gets the byte offsets at which the accepted lines start, in increasing order. This is empty unless offsets
+         * were asked for when scanning.
+         *
+         * @return an array of byte offsets into the file
+         */
+        public long[] getAcceptedOffsets() {
+            return this.acceptedOffsets.clone();
+        }
+    }
+
+    private class ChunkTask extends RecursiveTask<Result> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final FileChannel channel;
+        private final long start;
+        private final long end;
+        private final boolean collectOffsets;
+
+        private ChunkTask(FileChannel channel, long start, long end, boolean collectOffsets) {
+            this.channel = channel;
+            this.start = start;
+            this.end = end;
+            this.collectOffsets = collectOffsets;
+        }
+
+        @Override
+        protected Result compute() {
+            if (this.end - this.start > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("File contains a line that is too long to be mapped");
+            }
+
+            ByteBuffer buffer;
+            try {
+                buffer = this.channel.map(FileChannel.MapMode.READ_ONLY, this.start, this.end - this.start);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return this.scan(buffer, (int) (this.end - this.start));
+        }
+
+        private Result scan(ByteBuffer buffer, int length) {
+            long lines = 0;
+            long accepted = 0;
+            long invalid = 0;
+            long[] offsets = new long[this.collectOffsets ? 16 : 0];
+
+            int position = 0;
+            while (position < length) {
+                int lineStart = position;
+                int state = dfa.getInitialStateIndex();
+                boolean isInvalid = false;
+
+                // An empty line is the empty word, which has no symbols at all.
+                if (buffer.get(position) != '\n') {
+                    int symbolStart = position;
+                    int hash = 0;
+
+                    // Read symbols until the end of the line, or until the line can no longer be accepted. The end of
+                    // the chunk is treated like a newline, since the last line of the file may not end with one.
+                    while (dfa.isLiveState(state)) {
+                        byte b = position < length ? buffer.get(position) : (byte) '\n';
+                        if (b == '\n' || b == ',') {
+                            int symbol = symbols.lookup(buffer, symbolStart, position, hash);
+                            if (symbol == -1) {
+                                isInvalid = true;
+                                break;
+                            }
+                            state = dfa.transition(state, symbol);
+                            if (b == '\n') {
+                                break;
+                            }
+                            symbolStart = position + 1;
+                            hash = 0;
+                        } else {
+                            hash = 31 * hash + (b & 0xff);
+                        }
+                        position++;
+                    }
+                }
+
+                // Skip the rest of the line, including the newline.
+                while (position < length && buffer.get(position) != '\n') {
+                    position++;
+                }
+                position++;
+
+                lines++;
+                if (isInvalid) {
+                    invalid++;
+                } else if (dfa.isFinalState(state)) {
+                    if (this.collectOffsets) {
+                        if (accepted == offsets.length) {
+                            offsets = Arrays.copyOf(offsets, offsets.length * 2);
+                        }
+                        offsets[(int) accepted] = this.start + lineStart;
+                    }
+                    accepted++;
+                }
+            }
+
+            return new Result(lines, accepted, invalid, Arrays.copyOf(offsets, this.collectOffsets ? (int) accepted : 0));
+        }
+    }
+}
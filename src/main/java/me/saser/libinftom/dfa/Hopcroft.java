@@ -0,0 +1,236 @@
+package me.saser.libinftom.dfa;
+
+import com.google.common.collect.ImmutableMap;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.IntPredicate;
+
+/**
+ * Minimizes DFAs using Hopcroft's partition refinement algorithm, which runs in O(n * k * log n) time for a DFA with
+ * n states over an alphabet with k symbols.
+ * <p>
+ * Only states that are reachable from the initial state take part in the refinement. The dead state is added as an
+ * ordinary state, so that all states from which no final state can be reached end up in the same block as it.
+ */
+final class Hopcroft {
+
+    private Hopcroft() {
+    }
+
+    static Minimization minimize(CompiledDFA dfa) {
+        int symbolCount = dfa.getSymbolCount();
+
+        // Number the reachable states in breadth first order, and give the dead state the last number.
+        int[] reachable = new int[dfa.getStateCount()];
+        int[] number = new int[dfa.getStateCount()];
+        Arrays.fill(number, -1);
+        int count = 0;
+        reachable[count] = dfa.getInitialStateIndex();
+        number[dfa.getInitialStateIndex()] = count++;
+        for (int i = 0; i < count; i++) {
+            for (int symbol = 0; symbol < symbolCount; symbol++) {
+                int next = dfa.transition(reachable[i], symbol);
+                if (next != CompiledDFA.DEAD_STATE && number[next] == -1) {
+                    reachable[count] = next;
+                    number[next] = count++;
+                }
+            }
+        }
+        int dead = count;
+        int n = count + 1;
+
+        // Renumbered transition table, including the dead state which loops to itself.
+        int[] delta = new int[n * symbolCount];
+        for (int state = 0; state < n; state++) {
+            for (int symbol = 0; symbol < symbolCount; symbol++) {
+                int next = state == dead ? CompiledDFA.DEAD_STATE : dfa.transition(reachable[state], symbol);
+                delta[state * symbolCount + symbol] = next == CompiledDFA.DEAD_STATE ? dead : number[next];
+            }
+        }
+
+        int[] blockOf = refine(delta, n, symbolCount, state -> state != dead && dfa.isFinalState(reachable[state]));
+
+        return build(dfa, reachable, delta, blockOf, dead);
+    }
+
+    /**
+     * Refines the partition {final, non-final} of the states <code>[0, n)</code> until it is stable, and returns the
+     * block of every state.
+     */
+    private static int[] refine(int[] delta, int n, int symbolCount, IntPredicate isFinal) {
+        // Inverse transitions, stored compactly: the sources of (target, symbol) are
+        // sources[inverseStart[target * symbolCount + symbol] .. inverseStart[target * symbolCount + symbol + 1]).
+        int[] inverseStart = new int[n * symbolCount + 1];
+        for (int state = 0; state < n; state++) {
+            for (int symbol = 0; symbol < symbolCount; symbol++) {
+                inverseStart[delta[state * symbolCount + symbol] * symbolCount + symbol + 1]++;
+            }
+        }
+        for (int i = 0; i < n * symbolCount; i++) {
+            inverseStart[i + 1] += inverseStart[i];
+        }
+        int[] sources = new int[n * symbolCount];
+        int[] fill = Arrays.copyOf(inverseStart, n * symbolCount);
+        for (int state = 0; state < n; state++) {
+            for (int symbol = 0; symbol < symbolCount; symbol++) {
+                sources[fill[delta[state * symbolCount + symbol] * symbolCount + symbol]++] = state;
+            }
+        }
+
+        // The partition is kept as a permutation of the states, where every block is a contiguous range
+        // [blockStart[b], blockEnd[b]). States being moved out of a block are gathered at the start of its range.
+        int[] elements = new int[n];
+        int[] location = new int[n];
+        int[] blockOf = new int[n];
+        int[] blockStart = new int[n];
+        int[] blockEnd = new int[n];
+        int[] marked = new int[n];
+
+        int finals = 0;
+        for (int state = 0; state < n; state++) {
+            if (isFinal.test(state)) {
+                finals++;
+            }
+        }
+        int blocks = 0;
+        int nextFinal = 0;
+        int nextNonFinal = finals;
+        for (int state = 0; state < n; state++) {
+            int position = isFinal.test(state) ? nextFinal++ : nextNonFinal++;
+            elements[position] = state;
+            location[state] = position;
+        }
+        if (finals > 0) {
+            blockStart[blocks] = 0;
+            blockEnd[blocks] = finals;
+            blocks++;
+        }
+        if (finals < n) {
+            blockStart[blocks] = finals;
+            blockEnd[blocks] = n;
+            blocks++;
+        }
+        for (int b = 0; b < blocks; b++) {
+            for (int i = blockStart[b]; i < blockEnd[b]; i++) {
+                blockOf[elements[i]] = b;
+            }
+        }
+
+        // Work list of splitter blocks. Starting with all blocks is always correct, and there are at most two.
+        int[] work = new int[n];
+        int workSize = 0;
+        for (int b = 0; b < blocks; b++) {
+            work[workSize++] = b;
+        }
+
+        int[] splitter = new int[n];
+        int[] touched = new int[n];
+        while (workSize > 0) {
+            int b = work[--workSize];
+
+            // Take a copy of the splitter, since it may itself be split while it is being used.
+            int splitterSize = blockEnd[b] - blockStart[b];
+            System.arraycopy(elements, blockStart[b], splitter, 0, splitterSize);
+
+            for (int symbol = 0; symbol < symbolCount; symbol++) {
+                int touchedCount = 0;
+
+                // Mark every state that moves into the splitter on this symbol.
+                for (int i = 0; i < splitterSize; i++) {
+                    int key = splitter[i] * symbolCount + symbol;
+                    for (int j = inverseStart[key]; j < inverseStart[key + 1]; j++) {
+                        int state = sources[j];
+                        int block = blockOf[state];
+                        int target = blockStart[block] + marked[block];
+                        int other = elements[target];
+                        elements[target] = state;
+                        elements[location[state]] = other;
+                        location[other] = location[state];
+                        location[state] = target;
+                        if (marked[block]++ == 0) {
+                            touched[touchedCount++] = block;
+                        }
+                    }
+                }
+
+                // Split every touched block into its marked and unmarked parts, making the smaller part a new block.
+                for (int i = 0; i < touchedCount; i++) {
+                    int block = touched[i];
+                    int split = blockStart[block] + marked[block];
+                    marked[block] = 0;
+                    if (split == blockEnd[block]) {
+                        continue;
+                    }
+
+                    int created = blocks++;
+                    if (split - blockStart[block] <= blockEnd[block] - split) {
+                        blockStart[created] = blockStart[block];
+                        blockEnd[created] = split;
+                        blockStart[block] = split;
+                    } else {
+                        blockStart[created] = split;
+                        blockEnd[created] = blockEnd[block];
+                        blockEnd[block] = split;
+                    }
+                    for (int j = blockStart[created]; j < blockEnd[created]; j++) {
+                        blockOf[elements[j]] = created;
+                    }
+
+                    // If the old block is still waiting, it covers the larger part, so only the smaller part has to
+                    // be added. Otherwise, it is enough to split by the smaller part as well.
+                    work[workSize++] = created;
+                }
+            }
+        }
+
+        return blockOf;
+    }
+
+    private static Minimization build(CompiledDFA dfa, int[] reachable, int[] delta, int[] blockOf, int dead) {
+        int symbolCount = dfa.getSymbolCount();
+        int deadBlock = blockOf[dead];
+
+        // Name every block after its first state, in breadth first order.
+        Map<Integer, String> blockNames = new LinkedHashMap<>();
+        Map<Integer, Integer> representatives = new HashMap<>();
+        ImmutableMap.Builder<String, String> mapping = ImmutableMap.builder();
+        for (int state = 0; state < dead; state++) {
+            int block = blockOf[state];
+            if (block == deadBlock && state != 0) {
+                continue;
+            }
+            if (blockNames.containsKey(block) == false) {
+                blockNames.put(block, dfa.stateAt(reachable[state]));
+                representatives.put(block, state);
+            }
+            mapping.put(dfa.stateAt(reachable[state]), blockNames.get(block));
+        }
+
+        Set<String> states = new LinkedHashSet<>(blockNames.values());
+        Set<String> finalStates = new LinkedHashSet<>();
+        Map<String, Map<String, String>> transitions = new HashMap<>();
+        for (Map.Entry<Integer, String> block : blockNames.entrySet()) {
+            int representative = representatives.get(block.getKey());
+            if (block.getKey() != deadBlock && dfa.isFinalState(reachable[representative])) {
+                finalStates.add(block.getValue());
+            }
+
+            Map<String, String> row = new HashMap<>();
+            for (int symbol = 0; symbol < symbolCount; symbol++) {
+                int next = blockOf[delta[representative * symbolCount + symbol]];
+                // The dead block may only be in the result if it contains the initial state, in which case every
+                // transition from it leads back to it, which is the same as going to the dead state.
+                row.put(dfa.getAlphabet().decode(symbol), next == deadBlock ? null : blockNames.get(next));
+            }
+            transitions.put(block.getValue(), row);
+        }
+
+        DFA minimal = ImmutableDFA.of(states, dfa.getAlphabet().getSymbols(), transitions, blockNames.get(blockOf[0]), finalStates);
+        return new Minimization(minimal, mapping.build());
+    }
+}
@@ -23,6 +23,7 @@ public class ImmutableDFA implements DFA {
     private final Map<String, Map<String, String>> delta;
     private final String initialState;
     private final Set<String> finalStates;
+    private volatile CompiledDFA compiled;
 
     private ImmutableDFA(Set<String> states, Set<String> alphabet, Map<String, Map<String, String>> delta, String initialState, Set<String> finalStates) {
         // Disallow empty states in set of states.
@@ -141,6 +142,29 @@ public class ImmutableDFA implements DFA {
         return new ImmutableDFA(data.states, data.alphabet, data.delta, data.initialState, data.finalStates);
     }
 
+    /**
+     * Creates a new <code>ImmutableDFA</code> directly from its parts, validating them exactly like
+     * <code>fromJSON(String)</code> does. The transition maps may contain null values for transitions to the dead
+     * state.
+     */
+    static ImmutableDFA of(Set<String> states, Set<String> alphabet, Map<String, Map<String, String>> delta, String initialState, Set<String> finalStates) {
+        return new ImmutableDFA(states, alphabet, delta, initialState, finalStates);
+    }
+
+    /**
+     * Gets a compiled copy of this DFA, so that words can be checked without going through the maps above. The copy is
+     * only made once it is first needed, since many DFAs are only ever inspected through their maps. Threads racing to
+     * make it may each compile their own, but they are all equivalent and the last one written is kept.
+     */
+    private CompiledDFA compiled() {
+        CompiledDFA compiled = this.compiled;
+        if (compiled == null) {
+            compiled = CompiledDFA.compile(this);
+            this.compiled = compiled;
+        }
+        return compiled;
+    }
+
     @Override
     public Set<String> getStates() {
         return this.states;
@@ -161,9 +185,14 @@ public class ImmutableDFA implements DFA {
         return this.finalStates;
     }
 
+    @Override
+    public boolean canReachFinalState(String state) {
+        return this.compiled().canReachFinalState(state);
+    }
+
     @Override
     public DFARunner runner() {
-        return new SimpleDFARunner(this);
+        return this.compiled().runner();
     }
 
     @Override
@@ -196,17 +225,18 @@ public class ImmutableDFA implements DFA {
     }
 
     @Override
-    public boolean accepts(String word) {
-        if (this.alphabet.isValidWord(word) == false) {
-            throw new IllegalArgumentException("Word contains at least one invalid or empty symbol");
-        }
+    public boolean accepts(CharSequence word) {
+        return this.compiled().accepts(word);
+    }
 
-        DFARunner runner = this.runner();
-        for (String symbol : word.split(",")) {
-            runner.consume(symbol);
-        }
+    @Override
+    public boolean accepts(int[] word) {
+        return this.compiled().accepts(word);
+    }
 
-        return runner.isInFinalState();
+    @Override
+    public Minimization minimize() {
+        return this.compiled().minimize();
     }
 
     private static class DFAData {
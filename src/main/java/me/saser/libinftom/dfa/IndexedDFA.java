@@ -0,0 +1,351 @@
+package me.saser.libinftom.dfa;
+
+import com.google.common.collect.ImmutableList;
+import me.saser.libinftom.Alphabet;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The parts shared by the DFAs that number their states from 0 and identify symbols by their code in the
+ * {@link Alphabet}, with {@link CompiledDFA#DEAD_STATE} for the dead state. Subclasses only decide how transitions,
+ * final states, live states and state names are stored; the String based methods of the {@link DFA} interface, the
+ * scanning of comma separated words and the runner are implemented once here on top of them.
+ */
+abstract class IndexedDFA implements DFA {
+
+    final Alphabet alphabet;
+    final int symbolCount;
+    final int stateCount;
+    final int initialState;
+    private final SymbolTable symbolTable;
+
+    IndexedDFA(int stateCount, Alphabet alphabet, int initialState) {
+        this.stateCount = stateCount;
+        this.alphabet = alphabet;
+        this.symbolCount = alphabet.size();
+        this.initialState = initialState;
+
+        ImmutableList.Builder<String> symbols = ImmutableList.builder();
+        for (int code = 0; code < this.symbolCount; code++) {
+            symbols.add(alphabet.decode(code));
+        }
+        this.symbolTable = new SymbolTable(symbols.build());
+    }
+
+    /**
+     * Finds all states from which some final state can be reached, by searching backwards from the final states. The
+     * transitions of state <code>s</code> go to <code>targets[start[s]]</code> up to, but not including,
+     * <code>targets[start[s + 1]]</code>, so a target shared by many symbols only needs to be given once.
+     */
+    static boolean[] findLiveStates(boolean[] finalStates, int[] start, int[] targets) {
+        int stateCount = finalStates.length;
+
+        // Group the sources of all transitions by their target, so that they can be followed backwards.
+        int[] predecessorStart = new int[stateCount + 1];
+        for (int i = 0; i < start[stateCount]; i++) {
+            if (targets[i] != CompiledDFA.DEAD_STATE) {
+                predecessorStart[targets[i] + 1]++;
+            }
+        }
+        for (int state = 0; state < stateCount; state++) {
+            predecessorStart[state + 1] += predecessorStart[state];
+        }
+        int[] predecessors = new int[predecessorStart[stateCount]];
+        int[] fill = predecessorStart.clone();
+        for (int state = 0; state < stateCount; state++) {
+            for (int i = start[state]; i < start[state + 1]; i++) {
+                if (targets[i] != CompiledDFA.DEAD_STATE) {
+                    predecessors[fill[targets[i]]++] = state;
+                }
+            }
+        }
+
+        boolean[] live = finalStates.clone();
+        int[] queue = new int[stateCount];
+        int queueSize = 0;
+        for (int state = 0; state < stateCount; state++) {
+            if (live[state]) {
+                queue[queueSize++] = state;
+            }
+        }
+        for (int i = 0; i < queueSize; i++) {
+            for (int j = predecessorStart[queue[i]]; j < predecessorStart[queue[i] + 1]; j++) {
+                if (live[predecessors[j]] == false) {
+                    live[predecessors[j]] = true;
+                    queue[queueSize++] = predecessors[j];
+                }
+            }
+        }
+        return live;
+    }
+
+    /**
+     * Gets the name of the state with the given index, which is not the dead state.
+     *
+     * @throws IndexOutOfBoundsException if there is no state with the given index
+     */
+    abstract String stateName(int index);
+
+    /**
+     * Gets the index of every state by its name.
+     */
+    abstract Map<String, Integer> stateIndices();
+
+    /**
+     * Gets the number of states in this DFA, not counting the dead state. Valid state indices are in the range
+     * <code>[0, getStateCount())</code>.
+     *
+     * @return the number of states
+     */
+    public int getStateCount() {
+        return this.stateCount;
+    }
+
+    /**
+     * Gets the number of symbols in the alphabet of this DFA. Valid symbol codes are in the range
+     * <code>[0, getSymbolCount())</code>.
+     *
+     * @return the number of symbols
+     */
+    public int getSymbolCount() {
+        return this.symbolCount;
+    }
+
+    /**
+     * Gets the index of the given state.
+     *
+     * @param state a String representation of a state, or <code>null</code> for the dead state
+     * @return the index of the state, or {@link CompiledDFA#DEAD_STATE} if <code>state</code> is null
+     * @throws IllegalArgumentException if the state is invalid
+     */
+    public int indexOfState(String state) {
+        if (state == null) {
+            return CompiledDFA.DEAD_STATE;
+        }
+
+        Integer index = this.stateIndices().get(state);
+        if (index == null) {
+            throw new IllegalArgumentException("Trying to look up an invalid state");
+        }
+        return index;
+    }
+
+    /**
+     * Gets the String representation of the state with the given index.
+     *
+     * @param index the index of a state, or {@link CompiledDFA#DEAD_STATE}
+     * @return the String representation of the state, or <code>null</code> if <code>index</code> is the dead state
+     * @throws IndexOutOfBoundsException if there is no state with the given index
+     */
+    public String stateAt(int index) {
+        return index == CompiledDFA.DEAD_STATE ? null : this.stateName(index);
+    }
+
+    /**
+     * Gets the index of the initial state.
+     *
+     * @return the index of the initial state
+     */
+    public int getInitialStateIndex() {
+        return this.initialState;
+    }
+
+    /**
+     * Returns the index of the state the DFA would transition to if currently in <code>state</code> and reading
+     * <code>symbol</code>. No validation of the arguments is done, apart from what indexing the table implies.
+     *
+     * @param state  the index of the state to transition from, or {@link CompiledDFA#DEAD_STATE}
+     * @param symbol the code of the symbol to read
+     * @return the index of the next state, or {@link CompiledDFA#DEAD_STATE}
+     */
+    public abstract int transition(int state, int symbol);
+
+    /**
+     * Tells whether the state with the given index is a final state.
+     *
+     * @param state the index of a state, or {@link CompiledDFA#DEAD_STATE}
+     * @return true if the state is a final state; false otherwise
+     */
+    public abstract boolean isFinalState(int state);
+
+    /**
+     * Tells whether some final state can be reached from the state with the given index. Once a DFA is in a state
+     * that is not live, no continuation of the word read so far can be accepted.
+     *
+     * @param state the index of a state, or {@link CompiledDFA#DEAD_STATE}
+     * @return true if a final state can be reached; false otherwise, and always for the dead state
+     */
+    public abstract boolean isLiveState(int state);
+
+    @Override
+    public Set<String> getStates() {
+        return this.stateIndices().keySet();
+    }
+
+    @Override
+    public Alphabet getAlphabet() {
+        return this.alphabet;
+    }
+
+    @Override
+    public String getInitialState() {
+        return this.stateName(this.initialState);
+    }
+
+    @Override
+    public boolean canReachFinalState(String state) {
+        return this.isLiveState(this.indexOfState(state));
+    }
+
+    @Override
+    public DFARunner runner() {
+        return new IndexedDFARunner(this);
+    }
+
+    @Override
+    public String nextState(String state, String symbol) {
+        int symbolCode = this.checkSymbol(symbol);
+
+        // Any transition from the dead state ends up in the dead state itself.
+        if (state == null) {
+            return null;
+        }
+
+        Integer stateIndex = this.stateIndices().get(state);
+        if (stateIndex == null) {
+            throw new IllegalArgumentException("Trying to transition from invalid starting state");
+        }
+
+        return this.stateAt(this.transition(stateIndex, symbolCode));
+    }
+
+    /**
+     * Validates the given symbol the same way <code>nextState(String, String)</code> does, and returns its code.
+     */
+    int checkSymbol(String symbol) {
+        // Special case for null symbol.
+        if (symbol == null) {
+            throw new IllegalArgumentException("Cannot transition, null is an invalid symbol");
+        }
+
+        // The empty symbol is invalid.
+        if (symbol.equals("")) {
+            throw new IllegalArgumentException("Cannot transition using the empty symbol");
+        }
+
+        int code = this.alphabet.encode(symbol);
+        if (code == -1) {
+            throw new IllegalArgumentException("Trying to transition using an invalid symbol");
+        }
+        return code;
+    }
+
+    /**
+     * Validates the given symbol code, and returns it.
+     */
+    int checkSymbol(int symbol) {
+        if (symbol < 0 || symbol >= this.symbolCount) {
+            throw new IllegalArgumentException("Trying to transition using an invalid symbol code");
+        }
+        return symbol;
+    }
+
+    /**
+     * Looks up the symbol made up of the characters in <code>[start, end)</code> of <code>seq</code>, whose hash,
+     * computed like <code>String.hashCode()</code>, is <code>hash</code>.
+     *
+     * @return the code of the symbol, or -1 if it is not a symbol
+     */
+    int lookupSymbol(CharSequence seq, int start, int end, int hash) {
+        return this.symbolTable.lookup(seq, start, end, hash);
+    }
+
+    /**
+     * Gets the length of the longest symbol in the alphabet of this DFA.
+     */
+    int getMaxSymbolLength() {
+        return this.symbolTable.getMaxLength();
+    }
+
+    /**
+     * Reads the symbol starting at <code>start</code> of a comma separated word, which ends at the next comma or at
+     * the end of the word. The symbol is resolved while looking for its end, without creating a substring. This is
+     * the only place words are split into symbols, so every method checking words agrees on what a valid symbol is.
+     *
+     * @return the code of the symbol in the low 32 bits, and the index where it ends in the high 32 bits, which is the
+     * index of the comma after it or the length of the word
+     * @throws IllegalArgumentException if the symbol is not in the alphabet, or is empty
+     */
+    long nextSymbol(CharSequence word, int start) {
+        int length = word.length();
+        int end = start;
+        int hash = 0;
+        char c;
+        while (end < length && (c = word.charAt(end)) != ',') {
+            hash = 31 * hash + c;
+            end++;
+        }
+
+        // Empty symbols are never in the table, so they are caught here as well.
+        int symbol = this.symbolTable.lookup(word, start, end, hash);
+        if (symbol < 0) {
+            throw new IllegalArgumentException("Word contains at least one invalid or empty symbol");
+        }
+        return (long) end << 32 | symbol;
+    }
+
+    /**
+     * Reads the non-empty comma separated word from the given state, and returns the state it ends in. As soon as a
+     * state that is not live is entered the rest of the word is skipped, and that state is returned, since the word
+     * cannot be accepted anymore.
+     *
+     * @throws IllegalArgumentException if the word contains invalid or empty symbols before that
+     */
+    final int run(int state, CharSequence word) {
+        int length = word.length();
+        int start = 0;
+        while (this.isLiveState(state)) {
+            long next = this.nextSymbol(word, start);
+            state = this.transition(state, (int) next);
+            start = (int) (next >>> 32) + 1;
+            if (start > length) {
+                break;
+            }
+        }
+        return state;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The word is scanned exactly once: every symbol is resolved directly from the characters of the word while
+     * looking for the next comma, and the transition is made immediately. No objects are allocated unless the word is
+     * invalid. As soon as a state from which no final state can be reached is entered, the rest of the word is
+     * skipped.
+     */
+    @Override
+    public boolean accepts(CharSequence word) {
+        // The empty word leaves the DFA in its initial state.
+        if (word.length() == 0) {
+            return this.isFinalState(this.initialState);
+        }
+        return this.isFinalState(this.run(this.initialState, word));
+    }
+
+    @Override
+    public boolean accepts(int[] word) {
+        int state = this.initialState;
+        for (int symbol : word) {
+            if (this.isLiveState(state) == false) {
+                return false;
+            }
+            if (symbol < 0 || symbol >= this.symbolCount) {
+                throw new IllegalArgumentException("Word contains at least one invalid symbol code");
+            }
+            state = this.transition(state, symbol);
+        }
+
+        return this.isFinalState(state);
+    }
+}
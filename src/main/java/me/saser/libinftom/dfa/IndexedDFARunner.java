@@ -0,0 +1,53 @@
+package me.saser.libinftom.dfa;
+
+/**
+ * A {@link DFARunner} for an {@link IndexedDFA}, which keeps its current state as a state index, and only looks up
+ * state names when asked for them.
+ */
+class IndexedDFARunner implements DFARunner {
+
+    private final IndexedDFA dfa;
+    int currentState;
+
+    IndexedDFARunner(IndexedDFA dfa) {
+        this.dfa = dfa;
+        this.currentState = dfa.getInitialStateIndex();
+    }
+
+    @Override
+    public String getState() {
+        return this.dfa.stateAt(this.currentState);
+    }
+
+    @Override
+    public String peek(String symbol) {
+        return this.dfa.stateAt(this.dfa.transition(this.currentState, this.dfa.checkSymbol(symbol)));
+    }
+
+    @Override
+    public String consume(String symbol) {
+        this.currentState = this.dfa.transition(this.currentState, this.dfa.checkSymbol(symbol));
+        return this.dfa.stateAt(this.currentState);
+    }
+
+    @Override
+    public String consume(int symbol) {
+        this.currentState = this.dfa.transition(this.currentState, this.dfa.checkSymbol(symbol));
+        return this.dfa.stateAt(this.currentState);
+    }
+
+    @Override
+    public void reset() {
+        this.currentState = this.dfa.getInitialStateIndex();
+    }
+
+    @Override
+    public boolean canAccept() {
+        return this.dfa.isLiveState(this.currentState);
+    }
+
+    @Override
+    public boolean isInFinalState() {
+        return this.dfa.isFinalState(this.currentState);
+    }
+}
@@ -0,0 +1,356 @@
+package me.saser.libinftom.dfa;
+
+import com.google.common.collect.ImmutableMap;
+import me.saser.libinftom.Alphabet;
+
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+/**
+ * A DFA that records metrics on how it is used, and otherwise behaves exactly like the DFA it wraps.
+ * <p>
+ * Words are always checked on a compiled copy of the wrapped DFA, so turning recording on or off never changes the
+ * result of <code>accepts</code>. While recording is enabled, <code>accepts</code> counts checked, accepted and
+ * invalid words, consumed symbols, entries into the dead state and visits to every state, as
+ * well as a histogram of how long every check took. Runners created with <code>runner()</code> count their symbols,
+ * state visits and dead state entries as well. All counters are {@link LongAdder}s, so threads checking words at the
+ * same time rarely contend on them, and a {@link DFAMetrics} snapshot of them can be taken at any time with
+ * <code>getMetrics()</code>.
+ * <p>
+ * Recording can be turned on and off at any time. While it is off, <code>accepts</code> only reads a single volatile
+ * flag before calling the compiled copy, and runners only read it once per symbol. Instances of this class are safe to
+ * share between threads, as long as the wrapped DFA is.
+ */
+public final class InstrumentedDFA implements DFA {
+
+    private final DFA dfa;
+    private final CompiledDFA compiled;
+    private volatile boolean enabled;
+    private volatile long startNanos;
+
+    private final LongAdder words = new LongAdder();
+    private final LongAdder acceptedWords = new LongAdder();
+    private final LongAdder invalidWords = new LongAdder();
+    private final LongAdder symbols = new LongAdder();
+    private final LongAdder rejectedSymbols = new LongAdder();
+    private final LongAdder deadStateEntries = new LongAdder();
+    private final LongAdder[] latencies = newAdders(Long.SIZE);
+    private final LongAdder[] stateVisits;
+
+    private final Predicate<CharSequence> recordWord = this::record;
+    private final Predicate<int[]> recordEncodedWord = this::record;
+
+    /**
+     * Creates an <code>InstrumentedDFA</code> for the given DFA, with recording enabled.
+     *
+     * @param dfa the DFA to record metrics for
+     */
+    public InstrumentedDFA(DFA dfa) {
+        this.dfa = dfa;
+        this.compiled = CompiledDFA.compile(dfa);
+        this.stateVisits = newAdders(this.compiled.getStateCount());
+        this.startNanos = System.nanoTime();
+        this.enabled = true;
+    }
+
+    private static LongAdder[] newAdders(int count) {
+        LongAdder[] adders = new LongAdder[count];
+        for (int i = 0; i < count; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+
+    /**
+     * @return the DFA that metrics are recorded for
+     */
+    public DFA getDFA() {
+        return this.dfa;
+    }
+
+    /**
+     * @return true if metrics are being recorded; false otherwise
+     */
+    public boolean isEnabled() {
+        return this.enabled;
+    }
+
+    /**
+     * Turns recording of metrics on or off. The metrics recorded so far are kept.
+     *
+     * @param enabled true to record metrics; false to stop recording them
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Takes a snapshot of the metrics recorded since this DFA was created or last reset.
+     *
+     * @return the metrics recorded so far
+     */
+    public DFAMetrics getMetrics() {
+        long[] histogram = new long[this.latencies.length];
+        for (int i = 0; i < histogram.length; i++) {
+            histogram[i] = this.latencies[i].sum();
+        }
+
+        ImmutableMap.Builder<String, Long> visits = ImmutableMap.builder();
+        for (int state = 0; state < this.stateVisits.length; state++) {
+            long count = this.stateVisits[state].sum();
+            if (count > 0) {
+                visits.put(this.compiled.stateAt(state), count);
+            }
+        }
+
+        return new DFAMetrics(System.nanoTime() - this.startNanos, this.words.sum(), this.acceptedWords.sum(),
+                              this.invalidWords.sum(), this.symbols.sum(), this.rejectedSymbols.sum(),
+                              this.deadStateEntries.sum(), histogram, visits.build());
+    }
+
+    /**
+     * Resets all metrics to zero, and restarts the clock for the elapsed time. Words being checked while resetting
+     * may be partly counted.
+     */
+    public void reset() {
+        for (LongAdder adder : new LongAdder[]{this.words, this.acceptedWords, this.invalidWords, this.symbols,
+                                               this.rejectedSymbols, this.deadStateEntries}) {
+            adder.reset();
+        }
+        for (LongAdder adder : this.latencies) {
+            adder.reset();
+        }
+        for (LongAdder adder : this.stateVisits) {
+            adder.reset();
+        }
+        this.startNanos = System.nanoTime();
+    }
+
+    @Override
+    public Set<String> getStates() {
+        return this.dfa.getStates();
+    }
+
+    @Override
+    public Alphabet getAlphabet() {
+        return this.dfa.getAlphabet();
+    }
+
+    @Override
+    public String getInitialState() {
+        return this.dfa.getInitialState();
+    }
+
+    @Override
+    public Set<String> getFinalStates() {
+        return this.dfa.getFinalStates();
+    }
+
+    @Override
+    public boolean canReachFinalState(String state) {
+        return this.dfa.canReachFinalState(state);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The returned runner records consumed symbols, state visits and dead state entries while recording is enabled.
+     */
+    @Override
+    public DFARunner runner() {
+        return new InstrumentedRunner(this.compiled.runner());
+    }
+
+    @Override
+    public String nextState(String state, String symbol) {
+        return this.dfa.nextState(state, symbol);
+    }
+
+    @Override
+    public boolean accepts(CharSequence word) {
+        if (this.enabled == false) {
+            return this.compiled.accepts(word);
+        }
+        return this.measure(word, this.recordWord);
+    }
+
+    @Override
+    public boolean accepts(int[] word) {
+        if (this.enabled == false) {
+            return this.compiled.accepts(word);
+        }
+        return this.measure(word, this.recordEncodedWord);
+    }
+
+    /**
+     * Checks a word with the given recording check, and counts it along with how long the check took.
+     */
+    private <W> boolean measure(W word, Predicate<W> check) {
+        long start = System.nanoTime();
+        boolean accepted;
+        try {
+            accepted = check.test(word);
+        } catch (IllegalArgumentException e) {
+            this.invalidWords.increment();
+            throw e;
+        } finally {
+            this.recordLatency(start);
+        }
+        if (accepted) {
+            this.acceptedWords.increment();
+        }
+        return accepted;
+    }
+
+    private void recordLatency(long start) {
+        long nanos = Math.max(1, System.nanoTime() - start);
+        this.latencies[63 - Long.numberOfLeadingZeros(nanos)].increment();
+        this.words.increment();
+    }
+
+    /**
+     * Checks a word like {@link CompiledDFA#accepts(CharSequence)}, counting symbols and state visits on the way.
+     */
+    private boolean record(CharSequence word) {
+        int length = word.length();
+        int state = this.compiled.getInitialStateIndex();
+        this.stateVisits[state].increment();
+        if (length == 0) {
+            return this.compiled.isFinalState(state);
+        }
+        if (this.compiled.isLiveState(state) == false) {
+            return false;
+        }
+
+        int consumed = 0;
+        for (int start = 0; start <= length; ) {
+            long next;
+            try {
+                next = this.compiled.nextSymbol(word, start);
+            } catch (IllegalArgumentException e) {
+                this.symbols.add(consumed);
+                throw e;
+            }
+            state = this.compiled.transition(state, (int) next);
+            consumed++;
+            this.visit(state);
+            if (this.compiled.isLiveState(state) == false) {
+                break;
+            }
+            start = (int) (next >>> 32) + 1;
+        }
+
+        this.symbols.add(consumed);
+        boolean accepted = this.compiled.isFinalState(state);
+        if (accepted == false) {
+            this.rejectedSymbols.add(consumed);
+        }
+        return accepted;
+    }
+
+    /**
+     * Checks a word like {@link CompiledDFA#accepts(int[])}, counting symbols and state visits on the way.
+     */
+    private boolean record(int[] word) {
+        int state = this.compiled.getInitialStateIndex();
+        this.stateVisits[state].increment();
+
+        int consumed = 0;
+        for (int symbol : word) {
+            if (this.compiled.isLiveState(state) == false) {
+                break;
+            }
+            if (symbol < 0 || symbol >= this.compiled.getSymbolCount()) {
+                this.symbols.add(consumed);
+                throw new IllegalArgumentException("Word contains at least one invalid symbol code");
+            }
+            state = this.compiled.transition(state, symbol);
+            consumed++;
+            this.visit(state);
+        }
+
+        this.symbols.add(consumed);
+        boolean accepted = this.compiled.isFinalState(state);
+        if (accepted == false) {
+            this.rejectedSymbols.add(consumed);
+        }
+        return accepted;
+    }
+
+    private void visit(int state) {
+        if (state == CompiledDFA.DEAD_STATE) {
+            this.deadStateEntries.increment();
+        } else {
+            this.stateVisits[state].increment();
+        }
+    }
+
+    @Override
+    public Minimization minimize() {
+        return this.dfa.minimize();
+    }
+
+    /**
+     * A runner that records the symbols it consumes and the states it enters while recording is enabled.
+     */
+    private final class InstrumentedRunner implements DFARunner {
+
+        private final CompiledDFARunner runner;
+
+        private InstrumentedRunner(CompiledDFARunner runner) {
+            this.runner = runner;
+        }
+
+        @Override
+        public String getState() {
+            return this.runner.getState();
+        }
+
+        @Override
+        public String peek(String symbol) {
+            return this.runner.peek(symbol);
+        }
+
+        @Override
+        public String consume(String symbol) {
+            int previous = this.runner.getStateIndex();
+            String state = this.runner.consume(symbol);
+            this.record(previous);
+            return state;
+        }
+
+        @Override
+        public String consume(int symbol) {
+            int previous = this.runner.getStateIndex();
+            String state = this.runner.consume(symbol);
+            this.record(previous);
+            return state;
+        }
+
+        private void record(int previous) {
+            // Staying in the dead state is not entering it again.
+            if (InstrumentedDFA.this.enabled) {
+                InstrumentedDFA.this.symbols.increment();
+                if (previous != CompiledDFA.DEAD_STATE) {
+                    InstrumentedDFA.this.visit(this.runner.getStateIndex());
+                }
+            }
+        }
+
+        @Override
+        public void reset() {
+            this.runner.reset();
+        }
+
+        @Override
+        public boolean canAccept() {
+            return this.runner.canAccept();
+        }
+
+        @Override
+        public boolean isInFinalState() {
+            return this.runner.isInFinalState();
+        }
+    }
+}
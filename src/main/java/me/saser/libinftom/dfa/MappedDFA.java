@@ -0,0 +1,205 @@
+package me.saser.libinftom.dfa;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A DFA that runs directly on a file in the binary format of {@link BinaryDFAFormat}, usually memory mapped, without
+ * copying its transition table onto the heap.
+ * <p>
+ * Opening a file only reads its header, the offsets of its string table and its symbols, so even DFAs with millions
+ * of states open almost instantly, and take next to no heap. Transitions, final states and live states are read from
+ * the buffer when needed, with entries of 1, 2 or 4 bytes depending on the number of states. Processes mapping the
+ * same file share its pages through the page cache of the operating system. Only files of version 2 or later can be
+ * mapped, since early rejection of words needs the live state bitmap.
+ * <p>
+ * Files are mapped in segments of 1 GiB and addressed with long offsets, so transition tables larger than the 2 GiB a
+ * single {@link ByteBuffer} can hold are supported, up to <code>2^31 - 1</code> states and symbols each. Such DFAs
+ * cannot be copied onto the heap with {@link #toCompiledDFA()}, since a {@link CompiledDFA} keeps its table in a
+ * single array.
+ * <p>
+ * State names are decoded from the buffer every time they are asked for, and the String based methods that look up
+ * states by name build a map of all state names the first time they are called. Callers working with millions of
+ * states should stick to the index based methods, like they would for a {@link CompiledDFA}.
+ * <p>
+ * Instances of this class are safe to share between threads, as long as the buffer is not modified.
+ */
+public final class MappedDFA extends IndexedDFA {
+
+    private final BinaryDFAFormat.Layout layout;
+    private volatile ImmutableMap<String, Integer> stateIndices;
+
+    private MappedDFA(BinaryDFAFormat.Layout layout) throws IOException {
+        super(layout.stateCount, layout.alphabet, layout.initialState);
+        if (layout.hasLiveStates() == false) {
+            throw new IOException("Binary DFA files of version 1 cannot be mapped, since they lack live states");
+        }
+        this.layout = layout;
+    }
+
+    /**
+     * Memory maps the given file read only, and runs on it. The file can be closed and mapped by other processes
+     * while the returned DFA is in use, but must not be modified.
+     *
+     * @param file a file written by {@link BinaryDFAFormat}
+     * @return a DFA reading its transitions from the mapped file
+     * @throws IOException if mapping fails, or if the file does not contain a valid DFA
+     */
+    public static MappedDFA open(Path file) throws IOException {
+        return open(file, SegmentedBuffer.DEFAULT_SEGMENT_BITS);
+    }
+
+    /**
+     * Memory maps the given file in segments of <code>2^segmentBits</code> bytes, so that tests can cross segment
+     * boundaries with small files.
+     */
+    static MappedDFA open(Path file, int segmentBits) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return new MappedDFA(BinaryDFAFormat.Layout.parse(SegmentedBuffer.map(channel, segmentBits)));
+        }
+    }
+
+    /**
+     * Runs on the remaining bytes of the given buffer, which must not be modified while the returned DFA is in use.
+     * The position of the buffer is not changed.
+     *
+     * @param buffer a buffer containing a DFA in the format of {@link BinaryDFAFormat}
+     * @return a DFA reading its transitions from the buffer
+     * @throws IOException if the buffer does not contain a valid DFA
+     */
+    public static MappedDFA of(ByteBuffer buffer) throws IOException {
+        return new MappedDFA(BinaryDFAFormat.Layout.parse(SegmentedBuffer.of(buffer)));
+    }
+
+    /**
+     * Writes the given DFA into a new direct buffer, outside of the heap, and runs on it.
+     *
+     * @param dfa the DFA to copy
+     * @return a DFA accepting exactly the same language as <code>dfa</code>
+     */
+    public static MappedDFA copyOf(DFA dfa) {
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            BinaryDFAFormat.write(dfa, out);
+            ByteBuffer buffer = ByteBuffer.allocateDirect(out.size());
+            buffer.put(out.toByteArray());
+            buffer.flip();
+            return of(buffer);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Gets the number of bytes used by every entry of the transition table, which is 1, 2 or 4.
+     *
+     * @return the width of the entries in the transition table
+     */
+    public int getEntryWidth() {
+        return this.layout.width;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The state name is decoded from the buffer.
+     */
+    @Override
+    String stateName(int index) {
+        if (index < 0 || index >= this.layout.stateCount) {
+            throw new IndexOutOfBoundsException("Invalid state index " + index);
+        }
+        try {
+            return this.layout.stateName(index);
+        } catch (IOException e) {
+            throw new IllegalStateException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The map is built from the buffer the first time it is needed.
+     */
+    @Override
+    Map<String, Integer> stateIndices() {
+        ImmutableMap<String, Integer> indices = this.stateIndices;
+        if (indices == null) {
+            ImmutableMap.Builder<String, Integer> builder = ImmutableMap.builder();
+            for (int state = 0; state < this.layout.stateCount; state++) {
+                builder.put(this.stateName(state), state);
+            }
+            indices = builder.build();
+            this.stateIndices = indices;
+        }
+        return indices;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws IllegalStateException if the buffer contains a transition to a state that does not exist
+     */
+    @Override
+    public int transition(int state, int symbol) {
+        if (state == CompiledDFA.DEAD_STATE) {
+            return CompiledDFA.DEAD_STATE;
+        }
+        int target = this.layout.entry((long) state * this.layout.symbolCount + symbol) - 1;
+        // Transitions are not validated when opening, since that would mean reading the whole table.
+        if (target < CompiledDFA.DEAD_STATE || target >= this.layout.stateCount) {
+            throw new IllegalStateException("Binary DFA file contains an invalid transition");
+        }
+        return target;
+    }
+
+    @Override
+    public boolean isFinalState(int state) {
+        return state != CompiledDFA.DEAD_STATE && this.layout.isFinal(state);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * This is read from the live state bitmap of the buffer.
+     */
+    @Override
+    public boolean isLiveState(int state) {
+        return state != CompiledDFA.DEAD_STATE && this.layout.isLive(state);
+    }
+
+    /**
+     * Copies this DFA onto the heap, which is the same as reading the buffer with {@link BinaryDFAFormat}.
+     *
+     * @return a <code>CompiledDFA</code> accepting exactly the same language as this DFA
+     * @throws IllegalStateException if the transition table has more than <code>2^31 - 1</code> entries
+     */
+    public CompiledDFA toCompiledDFA() {
+        try {
+            return BinaryDFAFormat.readFrom(this.layout);
+        } catch (IOException e) {
+            throw new IllegalStateException(e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public Set<String> getFinalStates() {
+        ImmutableSet.Builder<String> finalStates = ImmutableSet.builder();
+        for (int state = 0; state < this.layout.stateCount; state++) {
+            if (this.layout.isFinal(state)) {
+                finalStates.add(this.stateAt(state));
+            }
+        }
+        return finalStates.build();
+    }
+}
@@ -0,0 +1,43 @@
+package me.saser.libinftom.dfa;
+
+import com.google.common.collect.ImmutableMap;
+
+import java.util.Map;
+
+/**
+ * The result of minimizing a DFA: the minimal DFA itself, together with a mapping from the states of the original DFA
+ * to the states of the minimal one.
+ * <p>
+ * Every state of the minimal DFA is named after one of the original states it replaces. Original states that are
+ * unreachable from the initial state, or from which no final state can be reached, have no counterpart in the minimal
+ * DFA (the latter behave exactly like the dead state), and are therefore not in the mapping. The only exception is
+ * the initial state, which is always mapped, even when the DFA accepts no words at all.
+ */
+public class Minimization {
+
+    private final DFA dfa;
+    private final Map<String, String> stateMapping;
+
+    Minimization(DFA dfa, ImmutableMap<String, String> stateMapping) {
+        this.dfa = dfa;
+        this.stateMapping = stateMapping;
+    }
+
+    /**
+     * Gets the minimal DFA, which is an instance of {@link ImmutableDFA} accepting the same language as the original.
+     *
+     * @return the minimal DFA
+     */
+    public DFA getDFA() {
+        return this.dfa;
+    }
+
+    /**
+     * Gets the mapping from states of the original DFA to the states of the minimal DFA that replace them.
+     *
+     * @return an immutable Map from original state to minimal state
+     */
+    public Map<String, String> getStateMapping() {
+        return this.stateMapping;
+    }
+}
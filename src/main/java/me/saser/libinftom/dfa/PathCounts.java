@@ -0,0 +1,103 @@
+package me.saser.libinftom.dfa;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+
+/**
+ * Counts the paths from every state of a {@link CompiledDFA} to its final states, by dynamic programming over the
+ * transition table.
+ * <p>
+ * Layer <code>k</code> holds, for every state, the number of words of length <code>k</code> that lead from the state
+ * to a final state. Layer 0 is 1 for final states and 0 for all others, and every following layer is computed from
+ * the previous one in <code>O(states * symbols)</code>. The number of accepted words of length <code>k</code> is then
+ * the entry of the initial state in layer <code>k</code>.
+ * <p>
+ * Layers can be computed with <code>BigInteger</code>s, which never overflow, or with <code>long</code>s, which only
+ * follow one symbol of every class of the {@link SymbolClasses} of the DFA, weighted by the size of the class, so that
+ * every following layer takes <code>O(states * classes)</code>.
+ */
+final class PathCounts {
+
+    private PathCounts() {
+    }
+
+    /**
+     * Gets layer 0, where final states have one path of length 0, the empty word.
+     */
+    static BigInteger[] first(CompiledDFA dfa) {
+        BigInteger[] layer = new BigInteger[dfa.getStateCount()];
+        for (int state = 0; state < layer.length; state++) {
+            layer[state] = dfa.isFinalState(state) ? BigInteger.ONE : BigInteger.ZERO;
+        }
+        return layer;
+    }
+
+    /**
+     * Computes layer <code>k + 1</code> from layer <code>k</code>. States from which no final state can be reached
+     * always have zero paths, and are skipped.
+     */
+    static BigInteger[] next(CompiledDFA dfa, BigInteger[] layer) {
+        BigInteger[] next = new BigInteger[layer.length];
+        Arrays.fill(next, BigInteger.ZERO);
+        for (int state = 0; state < layer.length; state++) {
+            if (dfa.isLiveState(state) == false) {
+                continue;
+            }
+            BigInteger sum = BigInteger.ZERO;
+            for (int symbol = 0; symbol < dfa.getSymbolCount(); symbol++) {
+                int target = dfa.transition(state, symbol);
+                if (target != CompiledDFA.DEAD_STATE) {
+                    sum = sum.add(layer[target]);
+                }
+            }
+            next[state] = sum;
+        }
+        return next;
+    }
+
+    /**
+     * Computes layers 0 to <code>n</code>, inclusive.
+     */
+    static BigInteger[][] layers(CompiledDFA dfa, int n) {
+        BigInteger[][] layers = new BigInteger[n + 1][];
+        layers[0] = first(dfa);
+        for (int k = 1; k <= n; k++) {
+            layers[k] = next(dfa, layers[k - 1]);
+        }
+        return layers;
+    }
+
+    /**
+     * Computes layers 0 to <code>n</code>, inclusive, as <code>long</code>s.
+     *
+     * @return the layers, or <code>null</code> if any of the counts does not fit in a <code>long</code>
+     */
+    static long[][] longLayers(CompiledDFA dfa, int n) {
+        SymbolClasses classes = dfa.getSymbolClasses();
+        long[][] layers = new long[n + 1][dfa.getStateCount()];
+        for (int state = 0; state < dfa.getStateCount(); state++) {
+            layers[0][state] = dfa.isFinalState(state) ? 1 : 0;
+        }
+
+        try {
+            for (int k = 1; k <= n; k++) {
+                for (int state = 0; state < dfa.getStateCount(); state++) {
+                    if (dfa.isLiveState(state) == false) {
+                        continue;
+                    }
+                    long sum = 0;
+                    for (int c = 0; c < classes.getClassCount(); c++) {
+                        int target = dfa.transition(state, classes.getRepresentative(c));
+                        if (target != CompiledDFA.DEAD_STATE) {
+                            sum = Math.addExact(sum, Math.multiplyExact(layers[k - 1][target], classes.getClassSize(c)));
+                        }
+                    }
+                    layers[k][state] = sum;
+                }
+            }
+        } catch (ArithmeticException e) {
+            return null;
+        }
+        return layers;
+    }
+}
@@ -0,0 +1,645 @@
+package me.saser.libinftom.dfa;
+
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.ImmutableList;
+import me.saser.libinftom.Alphabet;
+
+import java.util.AbstractSet;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The product of two DFAs over the same alphabet, accepting the intersection, union or difference of their languages.
+ * <p>
+ * The product is lazy: creating it only compiles the two DFAs, and words are checked by running both of them side by
+ * side in a single pass, so the up to <code>|A| * |B|</code> pair states are never built just to check words. Pairs
+ * that can be seen to never accept any word from the liveness of their two states alone, such as pairs where either
+ * state is dead for an intersection, are treated as the dead state. Other pairs that cannot accept any word, which
+ * depend on both DFAs at once, are kept, and are only removed by <code>minimize()</code>.
+ * <p>
+ * States of the product are named <code>"(a,b)"</code> after the states of the two DFAs, with <code>"∅"</code> for
+ * the dead state. Backslashes and commas in the names of the two DFAs, and names that are <code>"∅"</code>
+ * themselves, are escaped with a backslash, so every name stands for exactly one pair. Names are decoded whenever
+ * they are given back, without keeping track of the names handed out.
+ * <p>
+ * The states of the product are the initial pair and every pair that is not treated as the dead state, whether or not
+ * it can be reached from the initial pair. All methods taking a state name, which are <code>nextState</code>,
+ * <code>canReachFinalState</code> and <code>contains</code> of <code>getStates()</code> and
+ * <code>getFinalStates()</code>, accept exactly the names of these pairs, and decode them in time linear in the length
+ * of the name. The costs of the other methods are:
+ * <ul>
+ * <li><code>getStates()</code> and <code>getFinalStates()</code> return views that are never stored, and iterating over
+ * them or taking their size goes over all <code>(|A| + 1) * (|B| + 1)</code> pairs.</li>
+ * <li><code>canReachFinalState(String)</code> searches forward from the given pair until a final pair is found, so it
+ * takes time proportional to the number of pairs reachable from the given one.</li>
+ * <li><code>minimize()</code> builds the product once with <code>materialize()</code>, which only creates the pairs
+ * that are reachable from the initial pair.</li>
+ * </ul>
+ * Searches over pairs only follow one symbol of every class of symbols that neither DFA can tell apart, as given by the
+ * common refinement of their {@link SymbolClasses}.
+ * <p>
+ * Instances of this class are safe to share between threads.
+ */
+public final class ProductDFA implements DFA {
+
+    private static final String DEAD_NAME = "∅";
+
+    // Returned when decoding a name that is not a state of the product, which is the pair of two dead states.
+    private static final long NO_PAIR = -1L;
+    // Returned when decoding a name that is not a state of one of the DFAs.
+    private static final int NO_STATE = -2;
+
+    /**
+     * The ways of combining the languages of two DFAs.
+     */
+    public enum Operation {
+        /**
+         * Words accepted by both DFAs.
+         */
+        INTERSECTION {
+            @Override
+            boolean isFinal(boolean first, boolean second) {
+                return first && second;
+            }
+
+            @Override
+            boolean canAccept(boolean firstLive, boolean secondLive) {
+                return firstLive && secondLive;
+            }
+        },
+        /**
+         * Words accepted by at least one of the DFAs.
+         */
+        UNION {
+            @Override
+            boolean isFinal(boolean first, boolean second) {
+                return first || second;
+            }
+
+            @Override
+            boolean canAccept(boolean firstLive, boolean secondLive) {
+                return firstLive || secondLive;
+            }
+        },
+        /**
+         * Words accepted by the first DFA but not by the second.
+         */
+        DIFFERENCE {
+            @Override
+            boolean isFinal(boolean first, boolean second) {
+                return first && second == false;
+            }
+
+            @Override
+            boolean canAccept(boolean firstLive, boolean secondLive) {
+                return firstLive;
+            }
+        };
+
+        abstract boolean isFinal(boolean first, boolean second);
+
+        /**
+         * Returns false if a pair whose states have the given liveness can never reach a final pair.
+         */
+        abstract boolean canAccept(boolean firstLive, boolean secondLive);
+    }
+
+    private final CompiledDFA first;
+    private final CompiledDFA second;
+    private final Operation operation;
+    private final SymbolClasses classes;
+
+    private volatile CompiledDFA materialized;
+
+    private ProductDFA(DFA first, DFA second, Operation operation) {
+        if (first.getAlphabet().getSymbols().equals(second.getAlphabet().getSymbols()) == false) {
+            throw new IllegalArgumentException("The DFAs must have the same alphabet");
+        }
+
+        this.first = CompiledDFA.compile(first);
+        this.second = CompiledDFA.compile(second);
+        this.operation = operation;
+        this.classes = this.first.getSymbolClasses().refine(this.second.getSymbolClasses());
+    }
+
+    /**
+     * Creates the product of the given DFAs, using the given operation.
+     *
+     * @param first     the first DFA
+     * @param second    the second DFA
+     * @param operation how to combine the languages of the DFAs
+     * @return a lazy product DFA
+     * @throws IllegalArgumentException if the DFAs do not have the same alphabet
+     */
+    public static ProductDFA of(DFA first, DFA second, Operation operation) {
+        return new ProductDFA(first, second, operation);
+    }
+
+    /**
+     * Creates a DFA accepting the words accepted by both <code>first</code> and <code>second</code>.
+     *
+     * @throws IllegalArgumentException if the DFAs do not have the same alphabet
+     */
+    public static ProductDFA intersection(DFA first, DFA second) {
+        return of(first, second, Operation.INTERSECTION);
+    }
+
+    /**
+     * Creates a DFA accepting the words accepted by <code>first</code>, <code>second</code> or both.
+     *
+     * @throws IllegalArgumentException if the DFAs do not have the same alphabet
+     */
+    public static ProductDFA union(DFA first, DFA second) {
+        return of(first, second, Operation.UNION);
+    }
+
+    /**
+     * Creates a DFA accepting the words accepted by <code>first</code> but not by <code>second</code>.
+     *
+     * @throws IllegalArgumentException if the DFAs do not have the same alphabet
+     */
+    public static ProductDFA difference(DFA first, DFA second) {
+        return of(first, second, Operation.DIFFERENCE);
+    }
+
+    /**
+     * Gets the operation this product was created with.
+     *
+     * @return the operation combining the languages of the two DFAs
+     */
+    public Operation getOperation() {
+        return this.operation;
+    }
+
+    private static long pack(int first, int second) {
+        return ((long) first << 32) | (second & 0xffffffffL);
+    }
+
+    private boolean canAccept(int first, int second) {
+        return this.operation.canAccept(this.first.isLiveState(first), this.second.isLiveState(second));
+    }
+
+    private boolean isState(int first, int second) {
+        boolean initial = first == this.first.getInitialStateIndex() && second == this.second.getInitialStateIndex();
+        return initial || this.canAccept(first, second);
+    }
+
+    private boolean isFinal(int first, int second) {
+        return this.operation.isFinal(this.first.isFinalState(first), this.second.isFinalState(second));
+    }
+
+    private String nameOf(int first, int second) {
+        StringBuilder name = new StringBuilder("(");
+        appendName(name, first == CompiledDFA.DEAD_STATE ? null : this.first.stateAt(first));
+        name.append(',');
+        appendName(name, second == CompiledDFA.DEAD_STATE ? null : this.second.stateAt(second));
+        return name.append(')').toString();
+    }
+
+    private static void appendName(StringBuilder name, String state) {
+        if (state == null) {
+            name.append(DEAD_NAME);
+            return;
+        }
+        if (state.equals(DEAD_NAME)) {
+            name.append('\\');
+        }
+        for (int i = 0; i < state.length(); i++) {
+            char c = state.charAt(i);
+            if (c == '\\' || c == ',') {
+                name.append('\\');
+            }
+            name.append(c);
+        }
+    }
+
+    /**
+     * Decodes the pair behind a state name, and checks that it is a state of the product.
+     *
+     * @throws IllegalArgumentException with the given message if it is not
+     */
+    private long pairOf(String state, String message) {
+        long pair = this.decode(state);
+        if (pair == NO_PAIR) {
+            throw new IllegalArgumentException(message);
+        }
+        return pair;
+    }
+
+    /**
+     * Decodes the pair behind a state name, or returns {@link #NO_PAIR} if it is not a state of the product.
+     */
+    private long decode(String state) {
+        int end = state.length() - 1;
+        if (end < 1 || state.charAt(0) != '(' || state.charAt(end) != ')') {
+            return NO_PAIR;
+        }
+
+        // The two names are separated by the only comma that is not escaped.
+        int comma = -1;
+        for (int i = 1; i < end && comma == -1; i++) {
+            char c = state.charAt(i);
+            if (c == '\\') {
+                i++;
+            } else if (c == ',') {
+                comma = i;
+            }
+        }
+        if (comma == -1) {
+            return NO_PAIR;
+        }
+
+        int first = indexOf(this.first, state, 1, comma);
+        int second = indexOf(this.second, state, comma + 1, end);
+        if (first == NO_STATE || second == NO_STATE || this.isState(first, second) == false) {
+            return NO_PAIR;
+        }
+        return pack(first, second);
+    }
+
+    private static int indexOf(CompiledDFA dfa, String name, int start, int end) {
+        if (end - start == DEAD_NAME.length() && name.startsWith(DEAD_NAME, start)) {
+            return CompiledDFA.DEAD_STATE;
+        }
+
+        StringBuilder state = new StringBuilder(end - start);
+        for (int i = start; i < end; i++) {
+            char c = name.charAt(i);
+            if (c == '\\') {
+                if (++i == end) {
+                    return NO_STATE;
+                }
+                c = name.charAt(i);
+            }
+            state.append(c);
+        }
+        Integer index = dfa.stateIndices().get(state.toString());
+        return index == null ? NO_STATE : index;
+    }
+
+    /**
+     * Builds the product eagerly, creating only the pair states that are reachable from the initial pair. Pairs that
+     * are treated as the dead state are pruned as well, except for the initial pair. The result is built once, and
+     * then reused.
+     *
+     * @return a <code>CompiledDFA</code> accepting the same language as this product
+     */
+    public CompiledDFA materialize() {
+        CompiledDFA result = this.materialized;
+        if (result == null) {
+            synchronized (this) {
+                result = this.materialized;
+                if (result == null) {
+                    result = this.build();
+                    this.materialized = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    private CompiledDFA build() {
+        // Symbols that neither DFA can tell apart lead to the same pair, so only one symbol per class is followed.
+        SymbolClasses classes = this.classes;
+        int classCount = classes.getClassCount();
+        Map<Long, Integer> indices = new HashMap<>();
+        ImmutableList.Builder<String> names = ImmutableList.builder();
+        int[] firsts = new int[16];
+        int[] seconds = new int[16];
+        int[] delta = new int[16 * classCount];
+        int count = 0;
+
+        int initialFirst = this.first.getInitialStateIndex();
+        int initialSecond = this.second.getInitialStateIndex();
+        indices.put(pack(initialFirst, initialSecond), 0);
+        names.add(this.nameOf(initialFirst, initialSecond));
+        firsts[0] = initialFirst;
+        seconds[0] = initialSecond;
+        count++;
+
+        // Breadth first search over the pairs, where the states are numbered in the order they are found.
+        for (int state = 0; state < count; state++) {
+            if (delta.length < count * classCount) {
+                delta = Arrays.copyOf(delta, Math.max(delta.length * 2, count * classCount));
+            }
+            for (int c = 0; c < classCount; c++) {
+                int symbol = classes.getRepresentative(c);
+                int nextFirst = this.first.transition(firsts[state], symbol);
+                int nextSecond = this.second.transition(seconds[state], symbol);
+                int target = CompiledDFA.DEAD_STATE;
+                if (this.canAccept(nextFirst, nextSecond)) {
+                    Integer index = indices.get(pack(nextFirst, nextSecond));
+                    if (index == null) {
+                        index = count++;
+                        indices.put(pack(nextFirst, nextSecond), index);
+                        names.add(this.nameOf(nextFirst, nextSecond));
+                        if (index == firsts.length) {
+                            firsts = Arrays.copyOf(firsts, firsts.length * 2);
+                            seconds = Arrays.copyOf(seconds, seconds.length * 2);
+                        }
+                        firsts[index] = nextFirst;
+                        seconds[index] = nextSecond;
+                    }
+                    target = index;
+                }
+                delta[state * classCount + c] = target;
+            }
+        }
+
+        boolean[] finalStates = new boolean[count];
+        for (int state = 0; state < count; state++) {
+            finalStates[state] = this.isFinal(firsts[state], seconds[state]);
+        }
+        return new CompiledDFA(names.build(), this.first.getAlphabet(), classes, Arrays.copyOf(delta, count * classCount), 0,
+                               finalStates);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The set is a view of all pairs that are states of the product, including the ones that cannot be reached from
+     * the initial pair. Checking whether it contains a name is cheap, but iterating over it or taking its size goes
+     * over all pairs.
+     */
+    @Override
+    public Set<String> getStates() {
+        return new PairSet(false);
+    }
+
+    @Override
+    public Alphabet getAlphabet() {
+        return this.first.getAlphabet();
+    }
+
+    @Override
+    public String getInitialState() {
+        return this.nameOf(this.first.getInitialStateIndex(), this.second.getInitialStateIndex());
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Like <code>getStates()</code>, the set is a view of all final pairs, including the ones that cannot be reached
+     * from the initial pair.
+     */
+    @Override
+    public Set<String> getFinalStates() {
+        return new PairSet(true);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The pairs reachable from <code>state</code> are searched until a final pair is found, without materializing the
+     * product.
+     */
+    @Override
+    public boolean canReachFinalState(String state) {
+        if (state == null) {
+            return false;
+        }
+
+        long start = this.pairOf(state, "Trying to look up an invalid state");
+        Set<Long> visited = new HashSet<>();
+        Deque<Long> queue = new ArrayDeque<>();
+        visited.add(start);
+        queue.add(start);
+        while (queue.isEmpty() == false) {
+            long pair = queue.remove();
+            int first = (int) (pair >> 32);
+            int second = (int) pair;
+            if (this.isFinal(first, second)) {
+                return true;
+            }
+            // Pairs that cannot accept any word are not searched, which also covers the initial pair if it is one.
+            if (this.canAccept(first, second) == false) {
+                continue;
+            }
+            for (int c = 0; c < this.classes.getClassCount(); c++) {
+                int symbol = this.classes.getRepresentative(c);
+                int nextFirst = this.first.transition(first, symbol);
+                int nextSecond = this.second.transition(second, symbol);
+                if (this.canAccept(nextFirst, nextSecond) && visited.add(pack(nextFirst, nextSecond))) {
+                    queue.add(pack(nextFirst, nextSecond));
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns a runner that keeps track of the states of both DFAs, without materializing the product.
+     */
+    @Override
+    public DFARunner runner() {
+        return new Runner();
+    }
+
+    @Override
+    public String nextState(String state, String symbol) {
+        int code = this.first.checkSymbol(symbol);
+
+        // Any transition from the dead state ends up in the dead state itself.
+        if (state == null) {
+            return null;
+        }
+
+        long pair = this.pairOf(state, "Trying to transition from invalid starting state");
+        return this.step((int) (pair >> 32), (int) pair, code);
+    }
+
+    private String step(int first, int second, int symbol) {
+        int nextFirst = this.first.transition(first, symbol);
+        int nextSecond = this.second.transition(second, symbol);
+        return this.canAccept(nextFirst, nextSecond) ? this.nameOf(nextFirst, nextSecond) : null;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The word is scanned once, making the transitions of both DFAs for every symbol, and the rest of the word is
+     * skipped as soon as the product can no longer accept it.
+     */
+    @Override
+    public boolean accepts(CharSequence word) {
+        int length = word.length();
+        int first = this.first.getInitialStateIndex();
+        int second = this.second.getInitialStateIndex();
+
+        // The empty word leaves both DFAs in their initial states.
+        if (length == 0) {
+            return this.isFinal(first, second);
+        }
+        if (this.canAccept(first, second) == false) {
+            return false;
+        }
+
+        for (int start = 0; start <= length; ) {
+            // Both DFAs have the same alphabet, and therefore the same symbol codes.
+            long next = this.first.nextSymbol(word, start);
+            first = this.first.transition(first, (int) next);
+            second = this.second.transition(second, (int) next);
+            start = (int) (next >>> 32) + 1;
+            if (start <= length && this.canAccept(first, second) == false) {
+                return false;
+            }
+        }
+
+        return this.isFinal(first, second);
+    }
+
+    @Override
+    public boolean accepts(int[] word) {
+        int first = this.first.getInitialStateIndex();
+        int second = this.second.getInitialStateIndex();
+        for (int symbol : word) {
+            if (this.canAccept(first, second) == false) {
+                return false;
+            }
+            if (symbol < 0 || symbol >= this.first.getSymbolCount()) {
+                throw new IllegalArgumentException("Word contains at least one invalid symbol code");
+            }
+            first = this.first.transition(first, symbol);
+            second = this.second.transition(second, symbol);
+        }
+
+        return this.isFinal(first, second);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * This materializes the product.
+     */
+    @Override
+    public Minimization minimize() {
+        return this.materialize().minimize();
+    }
+
+    /**
+     * A view of the names of all pairs that are states of the product, or only of the final ones.
+     */
+    private final class PairSet extends AbstractSet<String> {
+
+        private final boolean finalOnly;
+
+        private PairSet(boolean finalOnly) {
+            this.finalOnly = finalOnly;
+        }
+
+        private boolean includes(int first, int second) {
+            if (ProductDFA.this.isState(first, second) == false) {
+                return false;
+            }
+            return this.finalOnly == false || ProductDFA.this.isFinal(first, second);
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            if (o instanceof String == false) {
+                return false;
+            }
+            long pair = ProductDFA.this.decode((String) o);
+            return pair != NO_PAIR && this.includes((int) (pair >> 32), (int) pair);
+        }
+
+        @Override
+        public Iterator<String> iterator() {
+            // Pairs are numbered row by row, where the dead state of either DFA comes before its other states.
+            int width = ProductDFA.this.second.getStateCount() + 1;
+            long count = (long) (ProductDFA.this.first.getStateCount() + 1) * width;
+            return new AbstractIterator<String>() {
+                private long next = 0;
+
+                @Override
+                protected String computeNext() {
+                    while (this.next < count) {
+                        int first = (int) (this.next / width) - 1;
+                        int second = (int) (this.next % width) - 1;
+                        this.next++;
+                        if (PairSet.this.includes(first, second)) {
+                            return ProductDFA.this.nameOf(first, second);
+                        }
+                    }
+                    return this.endOfData();
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            long size = 0;
+            for (int first = CompiledDFA.DEAD_STATE; first < ProductDFA.this.first.getStateCount(); first++) {
+                for (int second = CompiledDFA.DEAD_STATE; second < ProductDFA.this.second.getStateCount(); second++) {
+                    if (this.includes(first, second)) {
+                        size++;
+                    }
+                }
+            }
+            return (int) Math.min(size, Integer.MAX_VALUE);
+        }
+    }
+
+    /**
+     * A runner keeping track of the current state of both DFAs.
+     */
+    private class Runner implements DFARunner {
+
+        private int first;
+        private int second;
+        // Whether a pair that can no longer accept any word has been entered, which is the dead state of the product.
+        private boolean dead;
+
+        private Runner() {
+            this.reset();
+        }
+
+        @Override
+        public String getState() {
+            return this.dead ? null : ProductDFA.this.nameOf(this.first, this.second);
+        }
+
+        @Override
+        public String peek(String symbol) {
+            int code = ProductDFA.this.first.checkSymbol(symbol);
+            return this.dead ? null : ProductDFA.this.step(this.first, this.second, code);
+        }
+
+        @Override
+        public String consume(String symbol) {
+            return this.consume(ProductDFA.this.first.checkSymbol(symbol));
+        }
+
+        @Override
+        public String consume(int symbol) {
+            ProductDFA.this.first.checkSymbol(symbol);
+            this.first = ProductDFA.this.first.transition(this.first, symbol);
+            this.second = ProductDFA.this.second.transition(this.second, symbol);
+            this.dead |= ProductDFA.this.canAccept(this.first, this.second) == false;
+            return this.getState();
+        }
+
+        @Override
+        public void reset() {
+            this.first = ProductDFA.this.first.getInitialStateIndex();
+            this.second = ProductDFA.this.second.getInitialStateIndex();
+            this.dead = false;
+        }
+
+        @Override
+        public boolean canAccept() {
+            return ProductDFA.this.canAccept(this.first, this.second);
+        }
+
+        @Override
+        public boolean isInFinalState() {
+            return ProductDFA.this.isFinal(this.first, this.second);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package me.saser.libinftom.dfa;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ * A read only sequence of big endian bytes addressed by long offsets, which may be larger than the 2 GiB a single
+ * {@link ByteBuffer} can hold. The bytes are split into segments of <code>2^segmentBits</code> bytes, and every
+ * segment holds the first bytes of the next one as well, so that a number always lies in the segment it starts in and
+ * is read with a single buffer access.
+ */
+final class SegmentedBuffer {
+
+    /**
+     * The number of bits of the offset within a segment used for files, which makes segments 1 GiB large.
+     */
+    static final int DEFAULT_SEGMENT_BITS = 30;
+
+    // Every segment overlaps the next one by the size of the largest number read.
+    private static final int OVERLAP = Long.BYTES;
+
+    private final ByteBuffer[] segments;
+    private final int segmentBits;
+    private final long mask;
+    private final long size;
+
+    private SegmentedBuffer(ByteBuffer[] segments, int segmentBits, long size) {
+        this.segments = segments;
+        this.segmentBits = segmentBits;
+        this.mask = (1L << segmentBits) - 1;
+        this.size = size;
+    }
+
+    /**
+     * Wraps the remaining bytes of the given buffer as a single segment, without changing its position.
+     */
+    static SegmentedBuffer of(ByteBuffer buffer) {
+        ByteBuffer view = buffer.slice().order(ByteOrder.BIG_ENDIAN);
+        // A buffer holds less than 2^31 bytes, so every offset into it is within the first segment.
+        return new SegmentedBuffer(new ByteBuffer[]{view}, Integer.SIZE - 1, view.remaining());
+    }
+
+    /**
+     * Memory maps the whole file of the given channel read only, in segments of <code>2^segmentBits</code> bytes.
+     *
+     * @throws IllegalArgumentException if the segments would be too small to hold a number, or too large to be mapped
+     */
+    static SegmentedBuffer map(FileChannel channel, int segmentBits) throws IOException {
+        if (segmentBits < 3 || segmentBits > DEFAULT_SEGMENT_BITS) {
+            throw new IllegalArgumentException("Segments must be between 8 bytes and 1 GiB large");
+        }
+
+        long size = channel.size();
+        long segmentSize = 1L << segmentBits;
+        int count = (int) Math.max(1, (size + segmentSize - 1) >>> segmentBits);
+        ByteBuffer[] segments = new ByteBuffer[count];
+        for (int i = 0; i < count; i++) {
+            long start = (long) i << segmentBits;
+            long length = Math.min(segmentSize + OVERLAP, size - start);
+            segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, length).order(ByteOrder.BIG_ENDIAN);
+        }
+        return new SegmentedBuffer(segments, segmentBits, size);
+    }
+
+    /**
+     * @return the number of bytes
+     */
+    long size() {
+        return this.size;
+    }
+
+    private ByteBuffer segment(long offset) {
+        return this.segments[(int) (offset >>> this.segmentBits)];
+    }
+
+    private int index(long offset) {
+        return (int) (offset & this.mask);
+    }
+
+    byte get(long offset) {
+        return this.segment(offset).get(this.index(offset));
+    }
+
+    short getShort(long offset) {
+        return this.segment(offset).getShort(this.index(offset));
+    }
+
+    int getInt(long offset) {
+        return this.segment(offset).getInt(this.index(offset));
+    }
+
+    long getLong(long offset) {
+        return this.segment(offset).getLong(this.index(offset));
+    }
+
+    /**
+     * Copies bytes starting at the given offset into the given array, which may span several segments.
+     */
+    void get(long offset, byte[] bytes) {
+        int copied = 0;
+        while (copied < bytes.length) {
+            long position = offset + copied;
+            ByteBuffer view = this.segment(position).duplicate();
+            view.position(this.index(position));
+            int length = Math.min(bytes.length - copied, view.remaining());
+            if (length == 0) {
+                throw new IndexOutOfBoundsException("Trying to read past the end of the buffer");
+            }
+            view.get(bytes, copied, length);
+            copied += length;
+        }
+    }
+}
@@ -27,11 +27,21 @@ public class SimpleDFARunner implements DFARunner {
         return state;
     }
 
+    @Override
+    public String consume(int symbol) {
+        return this.consume(this.dfa.getAlphabet().decode(symbol));
+    }
+
     @Override
     public void reset() {
         this.currentState = this.dfa.getInitialState();
     }
 
+    @Override
+    public boolean canAccept() {
+        return this.dfa.canReachFinalState(this.currentState);
+    }
+
     @Override
     public boolean isInFinalState() {
         return this.dfa.getFinalStates().contains(this.currentState);
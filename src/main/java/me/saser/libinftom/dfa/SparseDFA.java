@@ -0,0 +1,301 @@
+package me.saser.libinftom.dfa;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A DFA whose transition table is compressed for DFAs where most transitions of a state go to the same target, which
+ * is usually the dead state.
+ * <p>
+ * Every state gets a default target, which is the most common target of its transitions. Only the transitions that do
+ * not go to the default target, the exceptions, are stored, by packing the rows of all states into a single shared
+ * array (row displacement, or comb vector packing). The row of a state starts at its base offset in the array, and
+ * every slot records which state owns it, so that the target of a transition is found in <code>O(1)</code>:
+ * <pre>
+ *     i = base[state] + symbol
+ *     next = owner[i] == state ? target[i] : default[state]
+ * </pre>
+ * Rows with many exceptions are placed first, and every row is placed at the lowest offset where it does not collide
+ * with the rows already placed, so that rows with few exceptions fill the gaps between them. Only a limited number of
+ * offsets are tried for every row before it is placed after all others, to keep compilation fast for large DFAs.
+ * How well this pays off is given by <code>getCompressionRatio()</code>; for DFAs where most transitions are distinct,
+ * the packed table can be larger than a plain one, and a {@link CompiledDFA} is the better choice.
+ * <p>
+ * Instances of this class are created by calling <code>compile(DFA)</code>, which asks the given DFA for one row of
+ * transitions at a time, so that a plain table of all transitions never has to be built. The String based methods of
+ * the {@link DFA} interface behave exactly like they do for the DFA that was compiled.
+ */
+public final class SparseDFA extends IndexedDFA {
+
+    // The number of offsets a row is tried at before it is placed after all other rows. Without a limit, rows that fit
+    // nowhere would be tried against every gap left so far, making compilation quadratic in the number of states.
+    private static final int MAX_PLACEMENT_ATTEMPTS = 64;
+
+    private final ImmutableList<String> stateNames;
+    private final ImmutableMap<String, Integer> stateIndices;
+    private final boolean[] finalStates;
+    private final Set<String> finalStateNames;
+    private final boolean[] liveStates;
+
+    private final int[] defaults;
+    private final int[] bases;
+    private final int[] owners;
+    private final int[] targets;
+    private final int exceptionCount;
+
+    private SparseDFA(DFA dfa, ImmutableList<String> stateNames, int initialState) {
+        super(stateNames.size(), dfa.getAlphabet(), initialState);
+        CompiledDFA compiled = dfa instanceof CompiledDFA ? (CompiledDFA) dfa : null;
+        this.stateNames = stateNames;
+        ImmutableMap.Builder<String, Integer> indices = ImmutableMap.builder();
+        for (int state = 0; state < this.stateNames.size(); state++) {
+            indices.put(this.stateNames.get(state), state);
+        }
+        this.stateIndices = indices.build();
+
+        // Find the default target and the exceptions of every row, storing the exceptions of state s at
+        // [exceptionStart[s], exceptionStart[s + 1]) of the exception arrays.
+        int stateCount = this.stateNames.size();
+        this.defaults = new int[stateCount];
+        int[] exceptionStart = new int[stateCount + 1];
+        int[] exceptionSymbols = new int[16];
+        int[] exceptionTargets = new int[16];
+        int[] row = new int[this.symbolCount];
+        int[] sorted = new int[this.symbolCount];
+        int exceptions = 0;
+        for (int state = 0; state < stateCount; state++) {
+            for (int symbol = 0; symbol < this.symbolCount; symbol++) {
+                if (compiled != null) {
+                    row[symbol] = compiled.transition(state, symbol);
+                } else {
+                    String next = dfa.nextState(this.stateNames.get(state), this.alphabet.decode(symbol));
+                    row[symbol] = next == null ? CompiledDFA.DEAD_STATE : this.stateIndices.get(next);
+                }
+            }
+            this.defaults[state] = mostCommon(row, sorted);
+
+            for (int symbol = 0; symbol < this.symbolCount; symbol++) {
+                if (row[symbol] != this.defaults[state]) {
+                    if (exceptions == exceptionSymbols.length) {
+                        exceptionSymbols = Arrays.copyOf(exceptionSymbols, 2 * exceptions);
+                        exceptionTargets = Arrays.copyOf(exceptionTargets, 2 * exceptions);
+                    }
+                    exceptionSymbols[exceptions] = symbol;
+                    exceptionTargets[exceptions] = row[symbol];
+                    exceptions++;
+                }
+            }
+            exceptionStart[state + 1] = exceptions;
+        }
+        this.exceptionCount = exceptions;
+
+        this.bases = new int[stateCount];
+        int length = this.place(exceptionStart, exceptionSymbols);
+        this.owners = new int[length];
+        this.targets = new int[length];
+        Arrays.fill(this.owners, -1);
+        for (int state = 0; state < stateCount; state++) {
+            for (int i = exceptionStart[state]; i < exceptionStart[state + 1]; i++) {
+                this.owners[this.bases[state] + exceptionSymbols[i]] = state;
+                this.targets[this.bases[state] + exceptionSymbols[i]] = exceptionTargets[i];
+            }
+        }
+
+        this.finalStates = new boolean[stateCount];
+        if (compiled != null) {
+            for (int state = 0; state < stateCount; state++) {
+                this.finalStates[state] = compiled.isFinalState(state);
+            }
+        } else {
+            for (String finalState : dfa.getFinalStates()) {
+                this.finalStates[this.stateIndices.get(finalState)] = true;
+            }
+        }
+        this.finalStateNames = ImmutableSet.copyOf(dfa.getFinalStates());
+
+        // The default target of a state counts as a single transition, however many symbols lead to it.
+        int[] transitionStart = new int[stateCount + 1];
+        int[] transitionTargets = new int[stateCount + exceptions];
+        for (int state = 0; state < stateCount; state++) {
+            int start = exceptionStart[state] + state;
+            transitionTargets[start] = this.defaults[state];
+            System.arraycopy(exceptionTargets, exceptionStart[state], transitionTargets, start + 1,
+                             exceptionStart[state + 1] - exceptionStart[state]);
+            transitionStart[state + 1] = exceptionStart[state + 1] + state + 1;
+        }
+        this.liveStates = findLiveStates(this.finalStates, transitionStart, transitionTargets);
+    }
+
+    /**
+     * Finds the most common element of the given row, using <code>sorted</code> as scratch space.
+     */
+    private static int mostCommon(int[] row, int[] sorted) {
+        System.arraycopy(row, 0, sorted, 0, row.length);
+        Arrays.sort(sorted);
+        int best = CompiledDFA.DEAD_STATE;
+        int bestCount = 0;
+        int run = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            run = i > 0 && sorted[i] == sorted[i - 1] ? run + 1 : 1;
+            if (run > bestCount) {
+                best = sorted[i];
+                bestCount = run;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Chooses the base offset of every row, placing the rows with the most exceptions first, each at the lowest offset
+     * where none of its exceptions collide with a slot that is already taken, among the offsets tried.
+     *
+     * @return the length of the packed arrays, which is large enough for every base offset plus every symbol code
+     */
+    private int place(int[] exceptionStart, int[] exceptionSymbols) {
+        int stateCount = this.bases.length;
+
+        // Counting sort of the states by descending number of exceptions.
+        int[] countStart = new int[this.symbolCount + 2];
+        for (int state = 0; state < stateCount; state++) {
+            countStart[this.symbolCount - (exceptionStart[state + 1] - exceptionStart[state]) + 1]++;
+        }
+        for (int i = 0; i <= this.symbolCount; i++) {
+            countStart[i + 1] += countStart[i];
+        }
+        int[] order = new int[stateCount];
+        for (int state = 0; state < stateCount; state++) {
+            order[countStart[this.symbolCount - (exceptionStart[state + 1] - exceptionStart[state])]++] = state;
+        }
+
+        BitSet taken = new BitSet();
+        int maxBase = 0;
+        for (int state : order) {
+            int start = exceptionStart[state];
+            int end = exceptionStart[state + 1];
+            // Rows without exceptions never match an owner, so they can all share offset 0.
+            if (start == end) {
+                continue;
+            }
+
+            int first = exceptionSymbols[start];
+            int base = Math.max(0, taken.nextClearBit(first) - first);
+            for (int attempt = 0; collides(taken, base, exceptionSymbols, start, end); attempt++) {
+                if (attempt == MAX_PLACEMENT_ATTEMPTS) {
+                    // Past every slot taken so far, nothing can collide.
+                    base = taken.length();
+                    break;
+                }
+                // Move the first exception to the next free slot.
+                base = taken.nextClearBit(base + first + 1) - first;
+            }
+
+            for (int i = start; i < end; i++) {
+                taken.set(base + exceptionSymbols[i]);
+            }
+            this.bases[state] = base;
+            maxBase = Math.max(maxBase, base);
+        }
+        return maxBase + this.symbolCount;
+    }
+
+    private static boolean collides(BitSet taken, int base, int[] exceptionSymbols, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (taken.get(base + exceptionSymbols[i])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Compiles the given DFA into a new <code>SparseDFA</code>. The given DFA is only read during compilation, and is
+     * not referenced by the returned instance.
+     *
+     * @param dfa the DFA to compile
+     * @return a <code>SparseDFA</code> accepting exactly the same language as <code>dfa</code>, with the same state
+     * indices as <code>dfa</code> if it is a {@link CompiledDFA}
+     */
+    public static SparseDFA compile(DFA dfa) {
+        if (dfa instanceof SparseDFA) {
+            return (SparseDFA) dfa;
+        }
+        if (dfa instanceof CompiledDFA) {
+            CompiledDFA compiled = (CompiledDFA) dfa;
+            ImmutableList.Builder<String> names = ImmutableList.builder();
+            for (int state = 0; state < compiled.getStateCount(); state++) {
+                names.add(compiled.stateAt(state));
+            }
+            return new SparseDFA(compiled, names.build(), compiled.getInitialStateIndex());
+        }
+        ImmutableList<String> names = ImmutableList.copyOf(dfa.getStates());
+        return new SparseDFA(dfa, names, names.indexOf(dfa.getInitialState()));
+    }
+
+    /**
+     * Gets the number of transitions that do not go to the default target of their state, and so are stored in the
+     * packed table.
+     *
+     * @return the number of stored transitions
+     */
+    public int getExceptionCount() {
+        return this.exceptionCount;
+    }
+
+    /**
+     * Gets the size of a plain transition table, with one <code>int</code> per transition, divided by the size of the
+     * compressed one, including the default targets and base offsets of all states. Values above 1 mean that the
+     * compressed table is smaller.
+     *
+     * @return the compression ratio of the transition table
+     */
+    public double getCompressionRatio() {
+        long plain = (long) this.stateNames.size() * this.symbolCount;
+        long compressed = (long) this.defaults.length + this.bases.length + this.owners.length + this.targets.length;
+        return (double) plain / compressed;
+    }
+
+    @Override
+    String stateName(int index) {
+        return this.stateNames.get(index);
+    }
+
+    @Override
+    Map<String, Integer> stateIndices() {
+        return this.stateIndices;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * This is a lookup of the owner of a slot in the packed table, and of the target or the default target.
+     */
+    @Override
+    public int transition(int state, int symbol) {
+        if (state == CompiledDFA.DEAD_STATE) {
+            return CompiledDFA.DEAD_STATE;
+        }
+        int i = this.bases[state] + symbol;
+        return this.owners[i] == state ? this.targets[i] : this.defaults[state];
+    }
+
+    @Override
+    public boolean isFinalState(int state) {
+        return state != CompiledDFA.DEAD_STATE && this.finalStates[state];
+    }
+
+    @Override
+    public boolean isLiveState(int state) {
+        return state != CompiledDFA.DEAD_STATE && this.liveStates[state];
+    }
+
+    @Override
+    public Set<String> getFinalStates() {
+        return this.finalStateNames;
+    }
+}
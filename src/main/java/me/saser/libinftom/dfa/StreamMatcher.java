@@ -0,0 +1,258 @@
+package me.saser.libinftom.dfa;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+
+/**
+ * Matches a stream of records against a DFA, without ever holding more than a fixed amount of the stream in memory.
+ * <p>
+ * The stream is read as a sequence of records separated by a record delimiter (a newline by default), where every
+ * record is a word made up of symbols separated by a symbol delimiter (a comma by default). Each record is fed symbol
+ * by symbol into a {@link DFARunner} while it is being read, and its acceptance is reported as soon as its record
+ * delimiter, or the end of the stream, is reached. An empty record is the empty word, but a stream ending with a
+ * record delimiter does not end with an empty record.
+ * <p>
+ * Records containing invalid or empty symbols are reported as not accepted, and are counted separately in the
+ * returned {@link Result}. Once a record can no longer be accepted, no more transitions are made for it, but the rest
+ * of its symbols are still looked up, so that every invalid record is counted. The streams given to the
+ * <code>match</code> methods are read until their end, but not closed.
+ */
+public class StreamMatcher {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final CompiledDFA dfa;
+    private final char recordDelimiter;
+    private final char symbolDelimiter;
+
+    /**
+     * Listens to the records matched by a {@link StreamMatcher}.
+     */
+    public interface RecordListener {
+
+        /**
+         * Called once for every record, in the order they appear in the stream.
+         *
+         * @param record   the index of the record, starting at 0
+         * @param accepted true if the record is accepted by the DFA; false otherwise
+         */
+        void onRecord(long record, boolean accepted);
+    }
+
+    /**
+     * Creates a <code>StreamMatcher</code> for newline separated records of comma separated symbols.
+     *
+     * @param dfa the DFA to match records against
+     */
+    public StreamMatcher(DFA dfa) {
+        this(dfa, '\n', ',');
+    }
+
+    /**
+     * Creates a <code>StreamMatcher</code> with the given delimiters.
+     *
+     * @param dfa             the DFA to match records against
+     * @param recordDelimiter the character separating records
+     * @param symbolDelimiter the character separating the symbols of a record
+     * @throws IllegalArgumentException if the delimiters are equal, or if any symbol contains one of them
+     */
+    public StreamMatcher(DFA dfa, char recordDelimiter, char symbolDelimiter) {
+        if (recordDelimiter == symbolDelimiter) {
+            throw new IllegalArgumentException("Record and symbol delimiters must be different");
+        }
+        for (String symbol : dfa.getAlphabet().getSymbols()) {
+            if (symbol.indexOf(recordDelimiter) != -1 || symbol.indexOf(symbolDelimiter) != -1) {
+                throw new IllegalArgumentException("Alphabet contains a symbol with a delimiter in it");
+            }
+        }
+
+        this.dfa = CompiledDFA.compile(dfa);
+        this.recordDelimiter = recordDelimiter;
+        this.symbolDelimiter = symbolDelimiter;
+    }
+
+    /**
+     * Matches every record in the given Reader.
+     *
+     * @param in       the Reader to read records from
+     * @param listener a listener to report every record to, or null
+     * @return a summary of the matched records
+     * @throws IOException if reading fails
+     */
+    public Result match(Reader in, RecordListener listener) throws IOException {
+        return new Matching(listener).run(in);
+    }
+
+    /**
+     * Matches every record in the given InputStream, decoding it using the given Charset.
+     *
+     * @param in       the InputStream to read records from
+     * @param charset  the Charset of the stream
+     * @param listener a listener to report every record to, or null
+     * @return a summary of the matched records
+     * @throws IOException if reading fails
+     */
+    public Result match(InputStream in, Charset charset, RecordListener listener) throws IOException {
+        return this.match(new InputStreamReader(in, charset), listener);
+    }
+
+    /**
+     * Matches every record in the given channel, decoding it using the given Charset.
+     *
+     * @param in       the channel to read records from
+     * @param charset  the Charset of the channel
+     * @param listener a listener to report every record to, or null
+     * @return a summary of the matched records
+     * @throws IOException if reading fails
+     */
+    public Result match(ReadableByteChannel in, Charset charset, RecordListener listener) throws IOException {
+        return this.match(Channels.newReader(in, charset.newDecoder(), -1), listener);
+    }
+
+    /**
+     * A summary of the records read by one call to <code>match</code>.
+     */
+    public static class Result {
+
+        private final long records;
+        private final long accepted;
+        private final long invalid;
+
+        Result(long records, long accepted, long invalid) {
+            this.records = records;
+            this.accepted = accepted;
+            this.invalid = invalid;
+        }
+
+        /**
+         * @return the total number of records read
+         */
+        public long getRecords() {
+            return this.records;
+        }
+
+        /**
+         * @return the number of accepted records
+         */
+        public long getAccepted() {
+            return this.accepted;
+        }
+
+        /**
+         * @return the number of records that were not accepted, including the invalid ones
+         */
+        public long getRejected() {
+            return this.records - this.accepted;
+        }
+
+        /**
+         * @return the number of records containing invalid or empty symbols
+         */
+        public long getInvalid() {
+            return this.invalid;
+        }
+    }
+
+    /**
+     * The state of a single call to <code>match</code>.
+     */
+    private class Matching {
+
+        private final RecordListener listener;
+        private final CompiledDFARunner runner = dfa.runner();
+
+        // The symbol currently being read. Symbols longer than the longest symbol in the alphabet are never stored.
+        private final char[] symbol = new char[dfa.getMaxSymbolLength()];
+        private final CharBuffer symbolView = CharBuffer.wrap(this.symbol);
+        private int symbolLength;
+        private int symbolHash;
+        private boolean symbolTooLong;
+
+        private boolean recordStarted;
+        private boolean recordInvalid;
+
+        private long records;
+        private long accepted;
+        private long invalid;
+
+        private Matching(RecordListener listener) {
+            this.listener = listener;
+        }
+
+        private Result run(Reader in) throws IOException {
+            char[] buffer = new char[BUFFER_SIZE];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                for (int i = 0; i < read; i++) {
+                    this.feed(buffer[i]);
+                }
+            }
+            if (this.recordStarted) {
+                this.endRecord();
+            }
+            return new Result(this.records, this.accepted, this.invalid);
+        }
+
+        private void feed(char c) {
+            if (c == recordDelimiter) {
+                this.endRecord();
+                return;
+            }
+
+            this.recordStarted = true;
+            if (c == symbolDelimiter) {
+                this.endSymbol();
+            } else if (this.symbolLength < this.symbol.length) {
+                this.symbol[this.symbolLength++] = c;
+                this.symbolHash = 31 * this.symbolHash + c;
+            } else {
+                this.symbolTooLong = true;
+            }
+        }
+
+        private void endSymbol() {
+            // Symbols are checked until the record is known to be invalid, but only followed while it can be accepted.
+            if (this.recordInvalid == false) {
+                int code = this.symbolTooLong ? -1 : dfa.lookupSymbol(this.symbolView, 0, this.symbolLength, this.symbolHash);
+                if (code == -1) {
+                    this.recordInvalid = true;
+                } else if (this.runner.canAccept()) {
+                    this.runner.consume(code);
+                }
+            }
+
+            this.symbolLength = 0;
+            this.symbolHash = 0;
+            this.symbolTooLong = false;
+        }
+
+        private void endRecord() {
+            // A record without any characters is the empty word, which has no symbols at all.
+            if (this.recordStarted) {
+                this.endSymbol();
+            }
+
+            boolean isAccepted = this.recordInvalid == false && this.runner.isInFinalState();
+            if (this.listener != null) {
+                this.listener.onRecord(this.records, isAccepted);
+            }
+            this.records++;
+            if (isAccepted) {
+                this.accepted++;
+            }
+            if (this.recordInvalid) {
+                this.invalid++;
+            }
+
+            this.runner.reset();
+            this.recordStarted = false;
+            this.recordInvalid = false;
+        }
+    }
+}
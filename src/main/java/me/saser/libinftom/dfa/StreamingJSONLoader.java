@@ -0,0 +1,315 @@
+package me.saser.libinftom.dfa;
+
+import com.google.common.collect.ImmutableList;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.MalformedJsonException;
+import me.saser.libinftom.Alphabet;
+import me.saser.libinftom.StringAlphabet;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Loads a {@link CompiledDFA} from the JSON format accepted by {@link ImmutableDFA#fromJSON(String)}, by streaming
+ * through the document with a {@link JsonReader} instead of deserializing it into collections first.
+ * <p>
+ * If <code>states</code> and <code>alphabet</code> come before <code>delta</code>, which is the usual order, every
+ * transition is validated and written directly into the transition table as it is read. Otherwise the transitions are
+ * buffered as triples of interned name ids until the states and the alphabet are known.
+ */
+final class StreamingJSONLoader {
+
+    // Marks the entries of the transition table that have not been defined yet.
+    private static final int UNSET = -2;
+
+    private final JsonReader reader;
+
+    private ImmutableList<String> stateNames;
+    private Map<String, Integer> stateIndices;
+    private Alphabet alphabet;
+    private boolean hasInitialState;
+    private String initialState;
+    private List<String> finalStates;
+    private boolean hasDelta;
+
+    // The transition table, and which of its rows have been defined.
+    private int[] delta;
+    private boolean[] definedRows;
+
+    // Transitions read before the states and the alphabet, as name ids.
+    private Map<String, Integer> nameIds;
+    private List<String> names;
+    private int[] bufferedRows;
+    private int bufferedRowCount;
+    private int[] bufferedTransitions;
+    private int bufferedTransitionCount;
+
+    private StreamingJSONLoader(Reader json) {
+        this.reader = new JsonReader(json);
+        // Be as forgiving as Gson is when deserializing.
+        this.reader.setLenient(true);
+    }
+
+    static CompiledDFA load(Reader json) throws IOException {
+        try {
+            return new StreamingJSONLoader(json).load();
+        } catch (MalformedJsonException | IllegalStateException e) {
+            throw new IllegalArgumentException("Malformed JSON representation of a DFA: " + e.getMessage(), e);
+        }
+    }
+
+    private CompiledDFA load() throws IOException {
+        this.reader.beginObject();
+        while (this.reader.hasNext()) {
+            String name = this.reader.nextName();
+            switch (name) {
+                case "states":
+                    this.checkFirst(this.stateNames == null, name);
+                    this.readStates();
+                    break;
+                case "alphabet":
+                    this.checkFirst(this.alphabet == null, name);
+                    this.readAlphabet();
+                    break;
+                case "delta":
+                    this.checkFirst(this.hasDelta == false, name);
+                    this.readDelta();
+                    break;
+                case "initialState":
+                    this.checkFirst(this.hasInitialState == false, name);
+                    this.hasInitialState = true;
+                    this.initialState = this.nextStringOrNull();
+                    break;
+                case "finalStates":
+                    this.checkFirst(this.finalStates == null, name);
+                    this.readFinalStates();
+                    break;
+                default:
+                    this.reader.skipValue();
+            }
+        }
+        this.reader.endObject();
+
+        this.checkPresent(this.stateNames != null, "states");
+        this.checkPresent(this.alphabet != null, "alphabet");
+        this.checkPresent(this.hasDelta, "delta");
+        this.checkPresent(this.finalStates != null, "finalStates");
+
+        if (this.delta == null) {
+            this.replayBufferedDelta();
+        }
+        this.checkDeltaComplete();
+
+        Integer initial = this.initialState == null ? null : this.stateIndices.get(this.initialState);
+        if (initial == null) {
+            throw new IllegalArgumentException("invalid initial state");
+        }
+
+        boolean[] finals = new boolean[this.stateNames.size()];
+        for (String finalState : this.finalStates) {
+            Integer index = finalState == null ? null : this.stateIndices.get(finalState);
+            if (index == null) {
+                throw new IllegalArgumentException("invalid final state");
+            }
+            finals[index] = true;
+        }
+
+        return new CompiledDFA(this.stateNames, this.alphabet, this.delta, initial, finals);
+    }
+
+    private void checkFirst(boolean first, String name) {
+        if (first == false) {
+            throw new IllegalArgumentException("Field \"" + name + "\" is defined more than once");
+        }
+    }
+
+    private void checkPresent(boolean present, String name) {
+        if (present == false) {
+            throw new IllegalArgumentException("Field \"" + name + "\" is missing");
+        }
+    }
+
+    private String nextStringOrNull() throws IOException {
+        if (this.reader.peek() == JsonToken.NULL) {
+            this.reader.nextNull();
+            return null;
+        }
+        return this.reader.nextString();
+    }
+
+    private void readStates() throws IOException {
+        ImmutableList.Builder<String> stateNames = ImmutableList.builder();
+        Map<String, Integer> stateIndices = new HashMap<>();
+        this.reader.beginArray();
+        while (this.reader.hasNext()) {
+            String state = this.reader.nextString();
+            if (state.equals("")) {
+                throw new IllegalArgumentException("Having empty state disallowed");
+            }
+            // Duplicate states are silently ignored.
+            if (stateIndices.containsKey(state) == false) {
+                stateIndices.put(state, stateIndices.size());
+                stateNames.add(state);
+            }
+        }
+        this.reader.endArray();
+        this.stateNames = stateNames.build();
+        this.stateIndices = stateIndices;
+    }
+
+    private void readAlphabet() throws IOException {
+        Set<String> symbols = new LinkedHashSet<>();
+        this.reader.beginArray();
+        while (this.reader.hasNext()) {
+            symbols.add(this.reader.nextString());
+        }
+        this.reader.endArray();
+        this.alphabet = new StringAlphabet(symbols);
+    }
+
+    private void readFinalStates() throws IOException {
+        List<String> finalStates = new ArrayList<>();
+        this.reader.beginArray();
+        while (this.reader.hasNext()) {
+            finalStates.add(this.nextStringOrNull());
+        }
+        this.reader.endArray();
+        this.finalStates = finalStates;
+    }
+
+    private void readDelta() throws IOException {
+        this.hasDelta = true;
+        if (this.stateNames != null && this.alphabet != null) {
+            this.readDeltaDirectly();
+        } else {
+            this.bufferDelta();
+        }
+    }
+
+    private void allocateDelta() {
+        this.delta = new int[this.stateNames.size() * this.alphabet.size()];
+        Arrays.fill(this.delta, UNSET);
+        this.definedRows = new boolean[this.stateNames.size()];
+    }
+
+    private void readDeltaDirectly() throws IOException {
+        this.allocateDelta();
+        this.reader.beginObject();
+        while (this.reader.hasNext()) {
+            int state = this.defineRow(this.stateIndices.get(this.reader.nextName()));
+            this.reader.beginObject();
+            while (this.reader.hasNext()) {
+                int symbol = this.alphabet.encode(this.reader.nextName());
+                String target = this.nextStringOrNull();
+                this.defineTransition(state, symbol, target == null ? CompiledDFA.DEAD_STATE : this.targetIndex(this.stateIndices.get(target)));
+            }
+            this.reader.endObject();
+        }
+        this.reader.endObject();
+    }
+
+    private void bufferDelta() throws IOException {
+        this.nameIds = new HashMap<>();
+        this.names = new ArrayList<>();
+        this.bufferedRows = new int[16];
+        this.bufferedTransitions = new int[48];
+
+        this.reader.beginObject();
+        while (this.reader.hasNext()) {
+            int row = this.nameId(this.reader.nextName());
+            if (this.bufferedRowCount == this.bufferedRows.length) {
+                this.bufferedRows = Arrays.copyOf(this.bufferedRows, this.bufferedRows.length * 2);
+            }
+            this.bufferedRows[this.bufferedRowCount++] = row;
+
+            this.reader.beginObject();
+            while (this.reader.hasNext()) {
+                int symbol = this.nameId(this.reader.nextName());
+                String target = this.nextStringOrNull();
+                if (this.bufferedTransitionCount + 3 > this.bufferedTransitions.length) {
+                    this.bufferedTransitions = Arrays.copyOf(this.bufferedTransitions, this.bufferedTransitions.length * 2);
+                }
+                this.bufferedTransitions[this.bufferedTransitionCount++] = row;
+                this.bufferedTransitions[this.bufferedTransitionCount++] = symbol;
+                this.bufferedTransitions[this.bufferedTransitionCount++] = target == null ? -1 : this.nameId(target);
+            }
+            this.reader.endObject();
+        }
+        this.reader.endObject();
+    }
+
+    private int nameId(String name) {
+        Integer id = this.nameIds.get(name);
+        if (id == null) {
+            id = this.names.size();
+            this.nameIds.put(name, id);
+            this.names.add(name);
+        }
+        return id;
+    }
+
+    private void replayBufferedDelta() {
+        this.allocateDelta();
+
+        // Resolve every distinct name once, instead of once per transition.
+        Integer[] states = new Integer[this.names.size()];
+        int[] symbols = new int[this.names.size()];
+        for (int id = 0; id < this.names.size(); id++) {
+            states[id] = this.stateIndices.get(this.names.get(id));
+            symbols[id] = this.alphabet.encode(this.names.get(id));
+        }
+
+        for (int i = 0; i < this.bufferedRowCount; i++) {
+            this.defineRow(states[this.bufferedRows[i]]);
+        }
+        for (int i = 0; i < this.bufferedTransitionCount; i += 3) {
+            int target = this.bufferedTransitions[i + 2];
+            int targetIndex = target == -1 ? CompiledDFA.DEAD_STATE : this.targetIndex(states[target]);
+            this.defineTransition(states[this.bufferedTransitions[i]], symbols[this.bufferedTransitions[i + 1]], targetIndex);
+        }
+    }
+
+    private int defineRow(Integer state) {
+        if (state == null || this.definedRows[state]) {
+            throw new IllegalArgumentException("delta not defined for exactly all states");
+        }
+        this.definedRows[state] = true;
+        return state;
+    }
+
+    private int targetIndex(Integer state) {
+        if (state == null) {
+            throw new IllegalArgumentException("invalid target state");
+        }
+        return state;
+    }
+
+    private void defineTransition(int state, int symbol, int target) {
+        int index = state * this.alphabet.size() + symbol;
+        if (symbol == -1 || this.delta[index] != UNSET) {
+            throw new IllegalArgumentException("Transition definition not defined for exactly all symbols in alphabet");
+        }
+        this.delta[index] = target;
+    }
+
+    private void checkDeltaComplete() {
+        for (int state = 0; state < this.stateNames.size(); state++) {
+            if (this.definedRows[state] == false) {
+                throw new IllegalArgumentException("delta not defined for exactly all states");
+            }
+        }
+        for (int entry : this.delta) {
+            if (entry == UNSET) {
+                throw new IllegalArgumentException("Transition definition not defined for exactly all symbols in alphabet");
+            }
+        }
+    }
+}
@@ -0,0 +1,230 @@
+package me.saser.libinftom.dfa;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A partition of the symbols of an alphabet into classes of symbols that lead to the same state from every state of a
+ * DFA, so that the DFA cannot tell the symbols of a class apart. A {@link CompiledDFA} stores one column of its
+ * transition table per class rather than per symbol, which shrinks the table a lot for DFAs where large groups of
+ * symbols behave the same, such as DFAs over characters that only care about a few of them.
+ * <p>
+ * Classes are numbered from 0 in the order of the lowest symbol code in them, so the same partition always gets the
+ * same numbers. Instances of this class are immutable.
+ */
+public final class SymbolClasses {
+
+    private final int[] classes;
+    private final int[] representatives;
+    private final int[] sizes;
+
+    /**
+     * Creates the partition where symbol <code>s</code> is in class <code>classes[s]</code>, renumbering the classes in
+     * the order of their lowest symbol.
+     */
+    private SymbolClasses(int[] classes) {
+        int[] renumbered = new int[classes.length];
+        Map<Integer, Integer> numbers = new HashMap<>();
+        List<Integer> representatives = new ArrayList<>();
+        for (int symbol = 0; symbol < classes.length; symbol++) {
+            Integer number = numbers.get(classes[symbol]);
+            if (number == null) {
+                number = numbers.size();
+                numbers.put(classes[symbol], number);
+                representatives.add(symbol);
+            }
+            renumbered[symbol] = number;
+        }
+
+        this.classes = renumbered;
+        this.representatives = new int[representatives.size()];
+        for (int i = 0; i < this.representatives.length; i++) {
+            this.representatives[i] = representatives.get(i);
+        }
+        this.sizes = new int[this.representatives.length];
+        for (int number : renumbered) {
+            this.sizes[number]++;
+        }
+    }
+
+    /**
+     * Creates the partition where every symbol is a class of its own.
+     */
+    static SymbolClasses identity(int symbolCount) {
+        int[] classes = new int[symbolCount];
+        for (int symbol = 0; symbol < symbolCount; symbol++) {
+            classes[symbol] = symbol;
+        }
+        return new SymbolClasses(classes);
+    }
+
+    /**
+     * Finds the classes of identical columns of the given table, which has <code>width</code> entries per row.
+     * Columns are grouped by a hash of all their entries first, and then compared entry by entry, so this takes
+     * <code>O(rows * width)</code> unless many columns are almost but not quite equal.
+     */
+    static SymbolClasses of(int[] table, int rows, int width) {
+        long[] hashes = new long[width];
+        for (int row = 0; row < rows; row++) {
+            for (int column = 0; column < width; column++) {
+                hashes[column] = 31 * hashes[column] + table[row * width + column];
+            }
+        }
+
+        // The columns starting every class found so far, by hash.
+        Map<Long, List<Integer>> candidates = new HashMap<>();
+        int[] classes = new int[width];
+        for (int column = 0; column < width; column++) {
+            List<Integer> sameHash = candidates.computeIfAbsent(hashes[column], hash -> new ArrayList<>(1));
+            classes[column] = column;
+            for (int candidate : sameHash) {
+                if (sameColumn(table, rows, width, candidate, column)) {
+                    classes[column] = candidate;
+                    break;
+                }
+            }
+            if (classes[column] == column) {
+                sameHash.add(column);
+            }
+        }
+        return new SymbolClasses(classes);
+    }
+
+    private static boolean sameColumn(int[] table, int rows, int width, int first, int second) {
+        for (int row = 0; row < rows; row++) {
+            if (table[row * width + first] != table[row * width + second]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Gets the partition whose classes are the non-empty intersections of the classes of this partition and the
+     * given one. Two symbols are in the same class of the result if they are in the same class in both partitions,
+     * so the result can be used for any DFA either of the partitions can be used for, such as a product of the two
+     * DFAs they were found for.
+     *
+     * @param other a partition of the same symbols
+     * @return the common refinement of the two partitions
+     * @throws IllegalArgumentException if the partitions are not of the same number of symbols
+     */
+    public SymbolClasses refine(SymbolClasses other) {
+        if (this.classes.length != other.classes.length) {
+            throw new IllegalArgumentException("The partitions must be of the same number of symbols");
+        }
+
+        Map<Long, Integer> pairs = new HashMap<>();
+        int[] classes = new int[this.classes.length];
+        for (int symbol = 0; symbol < classes.length; symbol++) {
+            long pair = ((long) this.classes[symbol] << 32) | other.classes[symbol];
+            classes[symbol] = pairs.computeIfAbsent(pair, key -> pairs.size());
+        }
+        return new SymbolClasses(classes);
+    }
+
+    /**
+     * Gets the partition where the classes of this partition are merged as given by a partition of the classes.
+     */
+    SymbolClasses merge(SymbolClasses classesOfClasses) {
+        int[] classes = new int[this.classes.length];
+        for (int symbol = 0; symbol < classes.length; symbol++) {
+            classes[symbol] = classesOfClasses.classes[this.classes[symbol]];
+        }
+        return new SymbolClasses(classes);
+    }
+
+    /**
+     * Keeps one column of the given table per class of this partition, the column of the lowest symbol in it.
+     */
+    int[] narrow(int[] table, int rows) {
+        int width = this.classes.length;
+        int classCount = this.representatives.length;
+        int[] narrowed = new int[rows * classCount];
+        for (int row = 0; row < rows; row++) {
+            for (int c = 0; c < classCount; c++) {
+                narrowed[row * classCount + c] = table[row * width + this.representatives[c]];
+            }
+        }
+        return narrowed;
+    }
+
+    /**
+     * Gets the class of every symbol, without copying.
+     */
+    int[] classes() {
+        return this.classes;
+    }
+
+    /**
+     * @return the number of symbols in the partition
+     */
+    public int getSymbolCount() {
+        return this.classes.length;
+    }
+
+    /**
+     * @return the number of classes, which is at most the number of symbols
+     */
+    public int getClassCount() {
+        return this.representatives.length;
+    }
+
+    /**
+     * Gets the class of the given symbol.
+     *
+     * @param symbol the code of a symbol
+     * @return the class of the symbol, in the range <code>[0, getClassCount())</code>
+     * @throws IllegalArgumentException if there is no symbol with the given code
+     */
+    public int classOf(int symbol) {
+        if (symbol < 0 || symbol >= this.classes.length) {
+            throw new IllegalArgumentException("Trying to look up an invalid symbol code");
+        }
+        return this.classes[symbol];
+    }
+
+    /**
+     * Gets the lowest symbol code in the given class, which behaves like every other symbol in it.
+     *
+     * @param symbolClass a class
+     * @return the code of the lowest symbol in the class
+     * @throws IllegalArgumentException if there is no such class
+     */
+    public int getRepresentative(int symbolClass) {
+        if (symbolClass < 0 || symbolClass >= this.representatives.length) {
+            throw new IllegalArgumentException("Trying to look up an invalid symbol class");
+        }
+        return this.representatives[symbolClass];
+    }
+
+    /**
+     * Gets the number of symbols in the given class.
+     *
+     * @param symbolClass a class
+     * @return the number of symbols in the class, which is at least 1
+     * @throws IllegalArgumentException if there is no such class
+     */
+    public int getClassSize(int symbolClass) {
+        if (symbolClass < 0 || symbolClass >= this.sizes.length) {
+            throw new IllegalArgumentException("Trying to look up an invalid symbol class");
+        }
+        return this.sizes[symbolClass];
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        return Arrays.equals(this.classes, ((SymbolClasses) o).classes);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(this.classes);
+    }
+}
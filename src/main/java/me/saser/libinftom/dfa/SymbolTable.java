@@ -0,0 +1,94 @@
+package me.saser.libinftom.dfa;
+
+import java.util.List;
+
+/**
+ * An open addressing hash table from symbols to symbol indices, that can look up symbols directly from a range of
+ * characters in a CharSequence. This makes it possible to resolve the symbols of a comma separated word without
+ * creating a substring for every symbol.
+ * <p>
+ * The hash of a range is computed the same way as <code>String.hashCode()</code>, so that callers scanning a word can
+ * compute it incrementally with <code>hash = 31 * hash + c</code> while looking for the next comma.
+ * <p>
+ * The table is used by the DFAs in this package, and by {@link me.saser.libinftom.nfa.ImmutableNFA}. Instances of
+ * this class are immutable.
+ */
+public final class SymbolTable {
+
+    private final char[][] keys;
+    private final int[] hashes;
+    private final int[] values;
+    private final int mask;
+    private final int maxLength;
+
+    /**
+     * Creates a table mapping every symbol to its index in the given list.
+     *
+     * @param symbols the symbols, without duplicates
+     */
+    public SymbolTable(List<String> symbols) {
+        int capacity = Integer.highestOneBit(Math.max(2, symbols.size() * 2 - 1)) << 1;
+        this.keys = new char[capacity][];
+        this.hashes = new int[capacity];
+        this.values = new int[capacity];
+        this.mask = capacity - 1;
+
+        int maxLength = 0;
+        for (int i = 0; i < symbols.size(); i++) {
+            String symbol = symbols.get(i);
+            int slot = spread(symbol.hashCode()) & this.mask;
+            while (this.keys[slot] != null) {
+                slot = (slot + 1) & this.mask;
+            }
+            this.keys[slot] = symbol.toCharArray();
+            this.hashes[slot] = symbol.hashCode();
+            this.values[slot] = i;
+            maxLength = Math.max(maxLength, symbol.length());
+        }
+        this.maxLength = maxLength;
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * Gets the length of the longest symbol in the table.
+     */
+    public int getMaxLength() {
+        return this.maxLength;
+    }
+
+    /**
+     * Looks up the symbol made up of the characters in <code>[start, end)</code> of the given sequence.
+     *
+     * @param seq   the sequence containing the symbol
+     * @param start the index of the first character of the symbol
+     * @param end   the index after the last character of the symbol
+     * @param hash  the hash of the range, computed like <code>String.hashCode()</code>
+     * @return the index of the symbol, or -1 if the range is not a symbol
+     */
+    public int lookup(CharSequence seq, int start, int end, int hash) {
+        int slot = spread(hash) & this.mask;
+        char[] key;
+        while ((key = this.keys[slot]) != null) {
+            if (this.hashes[slot] == hash && matches(key, seq, start, end)) {
+                return this.values[slot];
+            }
+            slot = (slot + 1) & this.mask;
+        }
+        return -1;
+    }
+
+    private static boolean matches(char[] key, CharSequence seq, int start, int end) {
+        if (key.length != end - start) {
+            return false;
+        }
+        for (int i = 0; i < key.length; i++) {
+            if (key[i] != seq.charAt(start + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,260 @@
+package me.saser.libinftom.dfa;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+
+/**
+ * Counts the words of given lengths accepted by a DFA, without enumerating them.
+ * <p>
+ * Counts for all lengths up to <code>n</code> are computed by dynamic programming over the transition table in
+ * <code>O(n * states * symbols)</code>. For a single, very large length, the count is instead computed by raising the
+ * transition matrix of the DFA to the <code>n</code>:th power by repeated squaring, in
+ * <code>O(states^3 * log n)</code>, either exactly with <code>BigInteger</code>s or modulo a given number. Only states
+ * that are reachable from the initial state and can reach a final state are part of the matrix.
+ * <p>
+ * Instances of this class are safe to share between threads.
+ */
+public class WordCounter {
+
+    private final CompiledDFA dfa;
+    // The states in the transition matrix, and the index of every state in it, or -1 if the state is not in it.
+    private final int[] matrixStates;
+    private final int[] matrixIndices;
+
+    /**
+     * Creates a <code>WordCounter</code> for the given DFA.
+     *
+     * @param dfa the DFA to count the words of
+     */
+    public WordCounter(DFA dfa) {
+        this.dfa = CompiledDFA.compile(dfa);
+
+        // Find the states that are reachable from the initial state, and can reach a final state.
+        boolean[] reachable = new boolean[this.dfa.getStateCount()];
+        int[] queue = new int[this.dfa.getStateCount()];
+        int queueSize = 0;
+        reachable[this.dfa.getInitialStateIndex()] = true;
+        queue[queueSize++] = this.dfa.getInitialStateIndex();
+        for (int i = 0; i < queueSize; i++) {
+            for (int symbol = 0; symbol < this.dfa.getSymbolCount(); symbol++) {
+                int target = this.dfa.transition(queue[i], symbol);
+                if (target != CompiledDFA.DEAD_STATE && reachable[target] == false) {
+                    reachable[target] = true;
+                    queue[queueSize++] = target;
+                }
+            }
+        }
+
+        this.matrixIndices = new int[this.dfa.getStateCount()];
+        Arrays.fill(this.matrixIndices, -1);
+        int size = 0;
+        for (int i = 0; i < queueSize; i++) {
+            if (this.dfa.isLiveState(queue[i])) {
+                this.matrixIndices[queue[i]] = size;
+                queue[size++] = queue[i];
+            }
+        }
+        this.matrixStates = Arrays.copyOf(queue, size);
+    }
+
+    /**
+     * Counts the accepted words of every length from 0 to <code>n</code>, inclusive.
+     *
+     * @param n the largest length to count words of
+     * @return an array where element <code>k</code> is the number of accepted words of length <code>k</code>
+     * @throws IllegalArgumentException if <code>n</code> is negative
+     */
+    public BigInteger[] countUpTo(int n) {
+        if (n < 0) {
+            throw new IllegalArgumentException("Cannot count words of negative length");
+        }
+
+        int initial = this.dfa.getInitialStateIndex();
+        BigInteger[] counts = new BigInteger[n + 1];
+        BigInteger[] layer = PathCounts.first(this.dfa);
+        counts[0] = layer[initial];
+        for (int k = 1; k <= n; k++) {
+            layer = PathCounts.next(this.dfa, layer);
+            counts[k] = layer[initial];
+        }
+        return counts;
+    }
+
+    /**
+     * Counts the accepted words of length <code>n</code>. Depending on the size of the DFA and <code>n</code>, this
+     * either uses dynamic programming or matrix exponentiation, whichever is expected to be faster.
+     *
+     * @param n the length to count words of
+     * @return the number of accepted words of length <code>n</code>
+     * @throws IllegalArgumentException if <code>n</code> is negative
+     */
+    public BigInteger count(long n) {
+        if (n < 0) {
+            throw new IllegalArgumentException("Cannot count words of negative length");
+        }
+
+        int size = this.matrixStates.length;
+        if (size == 0) {
+            return BigInteger.ZERO;
+        }
+        double programming = (double) n * size * this.dfa.getSymbolCount();
+        double exponentiation = (double) size * size * size * (64 - Long.numberOfLeadingZeros(n));
+        if (n <= Integer.MAX_VALUE && programming <= exponentiation) {
+            return this.countUpTo((int) n)[(int) n];
+        }
+
+        // Multiply the row vector of the initial state with the matrix powers for the set bits of n.
+        BigInteger[] vector = new BigInteger[size];
+        Arrays.fill(vector, BigInteger.ZERO);
+        vector[this.matrixIndices[this.dfa.getInitialStateIndex()]] = BigInteger.ONE;
+        BigInteger[][] power = this.bigMatrix();
+        for (long remaining = n; remaining > 0; remaining >>= 1) {
+            if ((remaining & 1) == 1) {
+                vector = multiply(vector, power);
+            }
+            if (remaining > 1) {
+                power = multiply(power, power);
+            }
+        }
+        return this.sumFinal(vector);
+    }
+
+    /**
+     * Counts the accepted words of length <code>n</code>, modulo <code>modulus</code>, using matrix exponentiation
+     * with <code>long</code> arithmetic.
+     *
+     * @param n       the length to count words of
+     * @param modulus the modulus, between 1 and 2^31 inclusive
+     * @return the number of accepted words of length <code>n</code>, modulo <code>modulus</code>
+     * @throws IllegalArgumentException if <code>n</code> is negative, or the modulus is out of range
+     */
+    public long count(long n, long modulus) {
+        if (n < 0) {
+            throw new IllegalArgumentException("Cannot count words of negative length");
+        }
+        // Keeps every product of two residues below 2^62, so that sums of two products cannot overflow.
+        if (modulus < 1 || modulus > 1L << 31) {
+            throw new IllegalArgumentException("The modulus must be between 1 and 2^31");
+        }
+
+        int size = this.matrixStates.length;
+        if (size == 0) {
+            return 0;
+        }
+
+        long[] vector = new long[size];
+        vector[this.matrixIndices[this.dfa.getInitialStateIndex()]] = 1 % modulus;
+        long[][] power = this.modularMatrix(modulus);
+        for (long remaining = n; remaining > 0; remaining >>= 1) {
+            if ((remaining & 1) == 1) {
+                vector = multiply(vector, power, modulus);
+            }
+            if (remaining > 1) {
+                power = multiply(power, power, modulus);
+            }
+        }
+
+        long sum = 0;
+        for (int i = 0; i < size; i++) {
+            if (this.dfa.isFinalState(this.matrixStates[i])) {
+                sum = (sum + vector[i]) % modulus;
+            }
+        }
+        return sum;
+    }
+
+    private BigInteger sumFinal(BigInteger[] vector) {
+        BigInteger sum = BigInteger.ZERO;
+        for (int i = 0; i < vector.length; i++) {
+            if (this.dfa.isFinalState(this.matrixStates[i])) {
+                sum = sum.add(vector[i]);
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * Gets the number of symbols leading from state <code>i</code> to state <code>j</code> of the matrix, for every
+     * <code>i</code> and <code>j</code>.
+     */
+    private long[][] transitionCounts() {
+        int size = this.matrixStates.length;
+        long[][] counts = new long[size][size];
+        for (int i = 0; i < size; i++) {
+            for (int symbol = 0; symbol < this.dfa.getSymbolCount(); symbol++) {
+                int target = this.dfa.transition(this.matrixStates[i], symbol);
+                if (target != CompiledDFA.DEAD_STATE && this.matrixIndices[target] != -1) {
+                    counts[i][this.matrixIndices[target]]++;
+                }
+            }
+        }
+        return counts;
+    }
+
+    private BigInteger[][] bigMatrix() {
+        long[][] counts = this.transitionCounts();
+        BigInteger[][] matrix = new BigInteger[counts.length][counts.length];
+        for (int i = 0; i < counts.length; i++) {
+            for (int j = 0; j < counts.length; j++) {
+                matrix[i][j] = BigInteger.valueOf(counts[i][j]);
+            }
+        }
+        return matrix;
+    }
+
+    private long[][] modularMatrix(long modulus) {
+        long[][] matrix = this.transitionCounts();
+        for (long[] row : matrix) {
+            for (int j = 0; j < row.length; j++) {
+                row[j] %= modulus;
+            }
+        }
+        return matrix;
+    }
+
+    private static BigInteger[] multiply(BigInteger[] vector, BigInteger[][] matrix) {
+        BigInteger[] result = new BigInteger[vector.length];
+        Arrays.fill(result, BigInteger.ZERO);
+        for (int i = 0; i < vector.length; i++) {
+            if (vector[i].signum() == 0) {
+                continue;
+            }
+            for (int j = 0; j < vector.length; j++) {
+                if (matrix[i][j].signum() != 0) {
+                    result[j] = result[j].add(vector[i].multiply(matrix[i][j]));
+                }
+            }
+        }
+        return result;
+    }
+
+    private static BigInteger[][] multiply(BigInteger[][] a, BigInteger[][] b) {
+        int size = a.length;
+        BigInteger[][] result = new BigInteger[size][];
+        for (int i = 0; i < size; i++) {
+            result[i] = multiply(a[i], b);
+        }
+        return result;
+    }
+
+    private static long[] multiply(long[] vector, long[][] matrix, long modulus) {
+        long[] result = new long[vector.length];
+        for (int i = 0; i < vector.length; i++) {
+            if (vector[i] == 0) {
+                continue;
+            }
+            for (int j = 0; j < vector.length; j++) {
+                result[j] = (result[j] + vector[i] * matrix[i][j]) % modulus;
+            }
+        }
+        return result;
+    }
+
+    private static long[][] multiply(long[][] a, long[][] b, long modulus) {
+        long[][] result = new long[a.length][];
+        for (int i = 0; i < a.length; i++) {
+            result[i] = multiply(a[i], b, modulus);
+        }
+        return result;
+    }
+}
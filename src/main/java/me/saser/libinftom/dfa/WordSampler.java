@@ -0,0 +1,291 @@
+package me.saser.libinftom.dfa;
+
+import java.math.BigInteger;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/**
+ * Draws words of a fixed length uniformly at random from the words accepted, or the words rejected, by a DFA.
+ * <p>
+ * The number of words of every length up to the target length leading from every state to a final state is computed
+ * once, when the sampler is created. A word is then sampled by drawing a single random number below the total number
+ * of candidate words, and walking from the initial state while picking the symbol whose words contain that number.
+ * Symbols that the DFA cannot tell apart, as given by its {@link SymbolClasses}, lead to the same number of words, so
+ * every step only goes over the classes, weighted by their size, and then picks the symbol within the class directly.
+ * Sampling a word therefore takes <code>O(length * classes)</code>, which is <code>O(length)</code> for a DFA with a
+ * fixed number of classes, but <code>O(length * symbols)</code> if every symbol is a class of its own.
+ * <p>
+ * The counts are kept as <code>long</code>s, taking <code>(length + 1) * states</code> longs, whenever they all fit.
+ * Only if they do not are they kept as <code>BigInteger</code>s instead, whose size grows with the length, so that
+ * they take <code>O(length * length * states)</code> bits, and words are sampled with <code>BigInteger</code>
+ * arithmetic.
+ * <p>
+ * Instances of this class are safe to share between threads, as long as the given <code>Random</code> is.
+ */
+public class WordSampler {
+
+    private final CompiledDFA dfa;
+    private final int length;
+    private final SymbolClasses classes;
+    // The symbols of class c, in increasing order, are members[memberStart[c]] up to members[memberStart[c + 1]].
+    private final int[] members;
+    private final int[] memberStart;
+
+    // longPaths[k][state] is the number of words of length k leading from the state to a final state. If any of them
+    // does not fit in a long, longPaths is null, and paths holds them as BigIntegers instead.
+    private final long[][] longPaths;
+    private final BigInteger[][] paths;
+    // longPowers[k] is the number of all words of length k, or null if the number of words of the sampled length does
+    // not fit in a long.
+    private final long[] longPowers;
+    private final BigInteger acceptedCount;
+    private final BigInteger rejectedCount;
+
+    /**
+     * Creates a <code>WordSampler</code> for words of the given length.
+     *
+     * @param dfa    the DFA to sample words for
+     * @param length the length of the words to sample
+     * @throws IllegalArgumentException if the length is negative
+     */
+    public WordSampler(DFA dfa, int length) {
+        if (length < 0) {
+            throw new IllegalArgumentException("Cannot sample words of negative length");
+        }
+
+        this.dfa = CompiledDFA.compile(dfa);
+        this.length = length;
+        this.classes = this.dfa.getSymbolClasses();
+
+        // Group the symbols by class, keeping them in increasing order within every class.
+        this.memberStart = new int[this.classes.getClassCount() + 1];
+        for (int c = 0; c < this.classes.getClassCount(); c++) {
+            this.memberStart[c + 1] = this.memberStart[c] + this.classes.getClassSize(c);
+        }
+        this.members = new int[this.classes.getSymbolCount()];
+        int[] fill = this.memberStart.clone();
+        for (int symbol = 0; symbol < this.members.length; symbol++) {
+            this.members[fill[this.classes.classOf(symbol)]++] = symbol;
+        }
+
+        this.longPaths = PathCounts.longLayers(this.dfa, length);
+        this.paths = this.longPaths == null ? PathCounts.layers(this.dfa, length) : null;
+        this.acceptedCount = this.pathCount(length, this.dfa.getInitialStateIndex());
+        BigInteger allWords = BigInteger.valueOf(this.dfa.getSymbolCount()).pow(length);
+        this.rejectedCount = allWords.subtract(this.acceptedCount);
+
+        if (allWords.bitLength() < Long.SIZE) {
+            this.longPowers = new long[length + 1];
+            for (int k = 0; k <= length; k++) {
+                this.longPowers[k] = k == 0 ? 1 : this.longPowers[k - 1] * this.dfa.getSymbolCount();
+            }
+        } else {
+            this.longPowers = null;
+        }
+    }
+
+    private BigInteger pathCount(int k, int state) {
+        if (state == CompiledDFA.DEAD_STATE) {
+            return BigInteger.ZERO;
+        }
+        return this.longPaths != null ? BigInteger.valueOf(this.longPaths[k][state]) : this.paths[k][state];
+    }
+
+    /**
+     * @return the length of the sampled words
+     */
+    public int getLength() {
+        return this.length;
+    }
+
+    /**
+     * @return the number of accepted words of the sampled length
+     */
+    public BigInteger getAcceptedCount() {
+        return this.acceptedCount;
+    }
+
+    /**
+     * @return the number of rejected words of the sampled length
+     */
+    public BigInteger getRejectedCount() {
+        return this.rejectedCount;
+    }
+
+    /**
+     * Draws an accepted word uniformly at random.
+     *
+     * @param random the source of randomness
+     * @return a comma separated String of symbols
+     * @throws IllegalStateException if no word of the sampled length is accepted
+     */
+    public String sampleAccepted(Random random) {
+        return this.decode(this.sampleAcceptedCodes(random));
+    }
+
+    /**
+     * Draws a rejected word uniformly at random.
+     *
+     * @param random the source of randomness
+     * @return a comma separated String of symbols
+     * @throws IllegalStateException if every word of the sampled length is accepted
+     */
+    public String sampleRejected(Random random) {
+        return this.decode(this.sampleRejectedCodes(random));
+    }
+
+    /**
+     * Draws an accepted word uniformly at random, as symbol codes of the alphabet of the DFA.
+     *
+     * @param random the source of randomness
+     * @return an array of symbol codes
+     * @throws IllegalStateException if no word of the sampled length is accepted
+     */
+    public int[] sampleAcceptedCodes(Random random) {
+        return this.sample(true, random);
+    }
+
+    /**
+     * Draws a rejected word uniformly at random, as symbol codes of the alphabet of the DFA.
+     *
+     * @param random the source of randomness
+     * @return an array of symbol codes
+     * @throws IllegalStateException if every word of the sampled length is accepted
+     */
+    public int[] sampleRejectedCodes(Random random) {
+        return this.sample(false, random);
+    }
+
+    /**
+     * Gets an infinite Stream of accepted words, each drawn independently and uniformly at random.
+     *
+     * @param random the source of randomness
+     * @return an infinite Stream of comma separated Strings of symbols
+     * @throws IllegalStateException if no word of the sampled length is accepted
+     */
+    public Stream<String> accepted(Random random) {
+        this.checkCandidates(true);
+        return Stream.generate(() -> this.sampleAccepted(random));
+    }
+
+    /**
+     * Gets an infinite Stream of rejected words, each drawn independently and uniformly at random.
+     *
+     * @param random the source of randomness
+     * @return an infinite Stream of comma separated Strings of symbols
+     * @throws IllegalStateException if every word of the sampled length is accepted
+     */
+    public Stream<String> rejected(Random random) {
+        this.checkCandidates(false);
+        return Stream.generate(() -> this.sampleRejected(random));
+    }
+
+    private BigInteger checkCandidates(boolean accepted) {
+        BigInteger total = accepted ? this.getAcceptedCount() : this.getRejectedCount();
+        if (total.signum() == 0) {
+            throw new IllegalStateException("No words of length " + this.length + " are " + (accepted ? "accepted" : "rejected"));
+        }
+        return total;
+    }
+
+    private int[] sample(boolean accepted, Random random) {
+        BigInteger total = this.checkCandidates(accepted);
+        // The number of rejected words is computed from the number of all words, which then has to fit as well.
+        if (this.longPaths != null && (accepted || this.longPowers != null)) {
+            return this.unrank(accepted, nextLong(random, total.longValue()));
+        }
+        return this.unrank(accepted, nextBigInteger(random, total));
+    }
+
+    /**
+     * Gets the word at position <code>rank</code> among the candidate words, ordered by the class of every symbol and
+     * then by the symbol within the class.
+     */
+    private int[] unrank(boolean accepted, long rank) {
+        int[] word = new int[this.length];
+        int state = this.dfa.getInitialStateIndex();
+        for (int i = 0; i < this.length; i++) {
+            int remaining = this.length - i - 1;
+            for (int c = 0; c < this.classes.getClassCount(); c++) {
+                // Rejected words may enter the dead state, after which every word is rejected.
+                int symbol = this.classes.getRepresentative(c);
+                int target = state == CompiledDFA.DEAD_STATE ? state : this.dfa.transition(state, symbol);
+                long paths = target == CompiledDFA.DEAD_STATE ? 0 : this.longPaths[remaining][target];
+                // The words following every symbol of the class, which all lead to the same state.
+                long each = accepted ? paths : this.longPowers[remaining] - paths;
+                long words = each * this.classes.getClassSize(c);
+                if (rank < words) {
+                    word[i] = this.members[this.memberStart[c] + (int) (rank / each)];
+                    rank %= each;
+                    state = target;
+                    break;
+                }
+                rank -= words;
+            }
+        }
+        return word;
+    }
+
+    private int[] unrank(boolean accepted, BigInteger rank) {
+        int[] word = new int[this.length];
+        int state = this.dfa.getInitialStateIndex();
+        BigInteger symbols = BigInteger.valueOf(this.dfa.getSymbolCount());
+        // The number of all words of the remaining length, which is only needed for rejected words.
+        BigInteger power = accepted || this.length == 0 ? BigInteger.ZERO : symbols.pow(this.length - 1);
+        for (int i = 0; i < this.length; i++) {
+            int remaining = this.length - i - 1;
+            for (int c = 0; c < this.classes.getClassCount(); c++) {
+                int symbol = this.classes.getRepresentative(c);
+                int target = state == CompiledDFA.DEAD_STATE ? state : this.dfa.transition(state, symbol);
+                BigInteger paths = this.pathCount(remaining, target);
+                BigInteger each = accepted ? paths : power.subtract(paths);
+                BigInteger words = each.multiply(BigInteger.valueOf(this.classes.getClassSize(c)));
+                if (rank.compareTo(words) < 0) {
+                    BigInteger[] position = rank.divideAndRemainder(each);
+                    word[i] = this.members[this.memberStart[c] + position[0].intValue()];
+                    rank = position[1];
+                    state = target;
+                    break;
+                }
+                rank = rank.subtract(words);
+            }
+            if (accepted == false && remaining > 0) {
+                power = power.divide(symbols);
+            }
+        }
+        return word;
+    }
+
+    private String decode(int[] word) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < word.length; i++) {
+            if (i > 0) {
+                builder.append(',');
+            }
+            builder.append(this.dfa.getAlphabet().decode(word[i]));
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Draws a long uniformly at random from <code>[0, bound)</code>, rejecting the draws that would make lower values
+     * more likely.
+     */
+    private static long nextLong(Random random, long bound) {
+        long bits;
+        long value;
+        do {
+            bits = random.nextLong() >>> 1;
+            value = bits % bound;
+        } while (bits - value + (bound - 1) < 0);
+        return value;
+    }
+
+    private static BigInteger nextBigInteger(Random random, BigInteger bound) {
+        BigInteger value;
+        do {
+            value = new BigInteger(bound.bitLength(), random);
+        } while (value.compareTo(bound) >= 0);
+        return value;
+    }
+}
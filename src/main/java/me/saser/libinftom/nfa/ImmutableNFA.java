@@ -0,0 +1,501 @@
+package me.saser.libinftom.nfa;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.gson.Gson;
+import me.saser.libinftom.Alphabet;
+import me.saser.libinftom.StringAlphabet;
+import me.saser.libinftom.dfa.SymbolTable;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A class representing an NFA, which is defined at creation time and thereafter never changed, thus being immutable.
+ * <p>
+ * Instances of this class are created by calling the <code>fromJSON(String)</code> class method. Internally, all
+ * states are indexed and all ε-closures are computed up front, so that runners can step through sets of states
+ * without looking at any Strings.
+ */
+public class ImmutableNFA implements NFA {
+
+    private static final int[] NO_STATES = new int[0];
+
+    private final ImmutableList<String> stateNames;
+    private final ImmutableMap<String, Integer> stateIndices;
+    private final Set<String> states;
+    private final Alphabet alphabet;
+    private final int symbolCount;
+    private final SymbolTable symbolTable;
+    private final int initialState;
+    private final Set<String> finalStateNames;
+    private final boolean[] finalStates;
+    private final boolean[] liveStates;
+
+    // The direct targets of every state and symbol, at index state * symbolCount + symbol, sorted by state index.
+    private final int[][] targets;
+    // The direct targets of the ε-transitions of every state, sorted by state index.
+    private final int[][] epsilonTargets;
+    // The ε-closure of every state, sorted by state index.
+    private final int[][] closures;
+
+    private ImmutableNFA(Set<String> states, Set<String> alphabet, Map<String, Map<String, Set<String>>> delta, String initialState, Set<String> finalStates) {
+        // Disallow empty states in set of states.
+        for (String state : states) {
+            if (state.equals("")) {
+                throw new IllegalArgumentException("Having empty state disallowed");
+            }
+        }
+        this.stateNames = ImmutableList.copyOf(ImmutableSet.copyOf(states));
+        ImmutableMap.Builder<String, Integer> stateIndices = ImmutableMap.builder();
+        for (int i = 0; i < this.stateNames.size(); i++) {
+            stateIndices.put(this.stateNames.get(i), i);
+        }
+        this.stateIndices = stateIndices.build();
+        this.states = ImmutableSet.copyOf(this.stateNames);
+
+        this.alphabet = new StringAlphabet(alphabet);
+        this.symbolCount = this.alphabet.size();
+        ImmutableList.Builder<String> symbols = ImmutableList.builder();
+        for (int code = 0; code < this.symbolCount; code++) {
+            symbols.add(this.alphabet.decode(code));
+        }
+        this.symbolTable = new SymbolTable(symbols.build());
+
+        // Unlike for DFAs, missing states and symbols in delta simply have no transitions.
+        int stateCount = this.stateNames.size();
+        this.targets = new int[stateCount * this.symbolCount][];
+        Arrays.fill(this.targets, NO_STATES);
+        this.epsilonTargets = new int[stateCount][];
+        Arrays.fill(this.epsilonTargets, NO_STATES);
+        for (Map.Entry<String, Map<String, Set<String>>> row : delta.entrySet()) {
+            Integer state = this.stateIndices.get(row.getKey());
+            if (state == null) {
+                throw new IllegalArgumentException("delta defined for invalid state");
+            }
+            for (Map.Entry<String, Set<String>> transition : row.getValue().entrySet()) {
+                int[] indices = this.indicesOf(transition.getValue(), "invalid target state");
+                if (transition.getKey().equals("")) {
+                    this.epsilonTargets[state] = indices;
+                } else {
+                    int symbol = this.alphabet.encode(transition.getKey());
+                    if (symbol == -1) {
+                        throw new IllegalArgumentException("Transition defined for symbol not in alphabet");
+                    }
+                    this.targets[state * this.symbolCount + symbol] = indices;
+                }
+            }
+        }
+        this.closures = closures(this.epsilonTargets);
+
+        // Verify that the initial state is a valid state.
+        if (this.states.contains(initialState) == false) {
+            throw new IllegalArgumentException("invalid initial state");
+        }
+        this.initialState = this.stateIndices.get(initialState);
+
+        // Verify that all elements in the set of final states are valid states.
+        if (this.states.containsAll(finalStates) == false) {
+            throw new IllegalArgumentException("invalid final state");
+        }
+        this.finalStateNames = ImmutableSet.copyOf(finalStates);
+        this.finalStates = new boolean[stateCount];
+        for (String finalState : finalStates) {
+            this.finalStates[this.stateIndices.get(finalState)] = true;
+        }
+
+        this.liveStates = this.findLiveStates();
+    }
+
+    private int[] indicesOf(Set<String> states, String message) {
+        int[] indices = new int[states.size()];
+        int i = 0;
+        for (String state : states) {
+            Integer index = state == null ? null : this.stateIndices.get(state);
+            if (index == null) {
+                throw new IllegalArgumentException(message);
+            }
+            indices[i++] = index;
+        }
+        Arrays.sort(indices);
+        return indices;
+    }
+
+    /**
+     * Computes the ε-closure of every state, by searching from every state along ε-transitions.
+     */
+    private static int[][] closures(int[][] epsilonTargets) {
+        int stateCount = epsilonTargets.length;
+        int[][] closures = new int[stateCount][];
+        int[] visitedBy = new int[stateCount];
+        Arrays.fill(visitedBy, -1);
+        int[] queue = new int[stateCount];
+        for (int state = 0; state < stateCount; state++) {
+            int queueSize = 0;
+            queue[queueSize++] = state;
+            visitedBy[state] = state;
+            for (int i = 0; i < queueSize; i++) {
+                for (int target : epsilonTargets[queue[i]]) {
+                    if (visitedBy[target] != state) {
+                        visitedBy[target] = state;
+                        queue[queueSize++] = target;
+                    }
+                }
+            }
+            closures[state] = Arrays.copyOf(queue, queueSize);
+            Arrays.sort(closures[state]);
+        }
+        return closures;
+    }
+
+    /**
+     * Finds all states from which some final state can be reached using any transitions, by searching backwards from
+     * the final states.
+     */
+    private boolean[] findLiveStates() {
+        int stateCount = this.stateNames.size();
+
+        // Group the sources of all transitions, including ε-transitions, by their target.
+        int[] predecessorStart = new int[stateCount + 1];
+        for (int source = 0; source < stateCount; source++) {
+            for (int target : this.epsilonTargets[source]) {
+                predecessorStart[target + 1]++;
+            }
+            for (int symbol = 0; symbol < this.symbolCount; symbol++) {
+                for (int target : this.targets[source * this.symbolCount + symbol]) {
+                    predecessorStart[target + 1]++;
+                }
+            }
+        }
+        for (int state = 0; state < stateCount; state++) {
+            predecessorStart[state + 1] += predecessorStart[state];
+        }
+        int[] predecessors = new int[predecessorStart[stateCount]];
+        int[] fill = predecessorStart.clone();
+        for (int source = 0; source < stateCount; source++) {
+            for (int target : this.epsilonTargets[source]) {
+                predecessors[fill[target]++] = source;
+            }
+            for (int symbol = 0; symbol < this.symbolCount; symbol++) {
+                for (int target : this.targets[source * this.symbolCount + symbol]) {
+                    predecessors[fill[target]++] = source;
+                }
+            }
+        }
+
+        boolean[] live = this.finalStates.clone();
+        int[] queue = new int[stateCount];
+        int queueSize = 0;
+        for (int state = 0; state < stateCount; state++) {
+            if (live[state]) {
+                queue[queueSize++] = state;
+            }
+        }
+        for (int i = 0; i < queueSize; i++) {
+            for (int j = predecessorStart[queue[i]]; j < predecessorStart[queue[i] + 1]; j++) {
+                if (live[predecessors[j]] == false) {
+                    live[predecessors[j]] = true;
+                    queue[queueSize++] = predecessors[j];
+                }
+            }
+        }
+        return live;
+    }
+
+    /**
+     * Parses the given String as a JSON representation of an NFA and returns a new instance of
+     * <code>ImmutableNFA</code> upon success, or throws <code>IllegalArgumentException</code>s upon parsing failure.
+     *
+     * The accepted JSON format is the same as for {@link me.saser.libinftom.dfa.ImmutableDFA#fromJSON(String)}, except
+     * for <code>delta</code>:
+     *
+     * <ul>
+     *     <li>the value for every symbol is a JSON list of the states to transition to, rather than a single
+     *     state;</li>
+     *     <li>the key <code>""</code> gives the targets of the ε-transitions from the state;</li>
+     *     <li>states and symbols without any transitions may be left out.</li>
+     * </ul>
+     *
+     * An example of a valid JSON representation, accepting all words of the form <code>a*b*</code>, is given below.
+     * <p>
+     * <code>
+     *    {
+     *       "alphabet": ["a", "b"],
+     *       "states": ["q0", "q1"],
+     *       "delta": {
+     *           "q0": {
+     *               "a": ["q0"],
+     *               "": ["q1"]
+     *           },
+     *           "q1": {
+     *               "b": ["q1"]
+     *           }
+     *       },
+     *       "initialState": "q0",
+     *       "finalStates": ["q1"]
+     *   }
+     * </code>
+     *
+     * @param json a JSON representation of the NFA, according to the above format
+     * @return an instance of <code>ImmutableNFA</code>
+     * @throws IllegalArgumentException if the parsing fails in any way or not enough information is provided
+     */
+    public static ImmutableNFA fromJSON(String json) {
+        Gson gson = new Gson();
+        NFAData data = gson.fromJson(json, NFAData.class);
+        return new ImmutableNFA(data.states, data.alphabet, data.delta, data.initialState, data.finalStates);
+    }
+
+    @Override
+    public Set<String> getStates() {
+        return this.states;
+    }
+
+    @Override
+    public Alphabet getAlphabet() {
+        return this.alphabet;
+    }
+
+    @Override
+    public String getInitialState() {
+        return this.stateNames.get(this.initialState);
+    }
+
+    @Override
+    public Set<String> getFinalStates() {
+        return this.finalStateNames;
+    }
+
+    @Override
+    public Set<String> nextStates(String state, String symbol) {
+        // Special case for null symbol.
+        if (symbol == null) {
+            throw new IllegalArgumentException("Cannot transition, null is an invalid symbol");
+        }
+
+        int code = symbol.equals("") ? -1 : this.checkSymbol(symbol);
+
+        // Any transition from the dead state ends up in the dead state itself.
+        if (state == null) {
+            return ImmutableSet.of();
+        }
+
+        Integer index = this.stateIndices.get(state);
+        if (index == null) {
+            throw new IllegalArgumentException("Trying to transition from invalid starting state");
+        }
+
+        if (code == -1) {
+            return this.namesOf(this.epsilonTargets[index]);
+        }
+        return this.namesOf(this.targets[index * this.symbolCount + code]);
+    }
+
+    @Override
+    public Set<String> epsilonClosure(String state) {
+        Integer index = state == null ? null : this.stateIndices.get(state);
+        if (index == null) {
+            throw new IllegalArgumentException("Trying to look up an invalid state");
+        }
+        return this.namesOf(this.closures[index]);
+    }
+
+    private Set<String> namesOf(int[] states) {
+        ImmutableSet.Builder<String> names = ImmutableSet.builder();
+        for (int state : states) {
+            names.add(this.stateNames.get(state));
+        }
+        return names.build();
+    }
+
+    /**
+     * Returns a new {@link LazyDFARunner} for this NFA, caching at most
+     * {@link LazyDFARunner#DEFAULT_MAX_CACHED_STATES} DFA states.
+     */
+    @Override
+    public LazyDFARunner runner() {
+        return new LazyDFARunner(this);
+    }
+
+    /**
+     * Returns a new {@link LazyDFARunner} for this NFA, caching at most the given number of DFA states.
+     *
+     * @param maxCachedStates the maximum number of DFA states to cache, at least 2
+     * @return a new runner in the initial state
+     */
+    public LazyDFARunner runner(int maxCachedStates) {
+        return new LazyDFARunner(this, maxCachedStates);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * This simulates the NFA directly on sets of states, which only takes scratch space proportional to the number of
+     * states, but looks at every state in the current set for every symbol. To check many words, consume them with a
+     * single runner instead, resetting it between the words, so that the sets of states it has found are reused.
+     */
+    @Override
+    public boolean accepts(CharSequence word) {
+        int stateCount = this.stateNames.size();
+        int[] current = new int[stateCount];
+        int[] next = new int[stateCount];
+        boolean[] marked = new boolean[stateCount];
+
+        int[] initial = this.closures[this.initialState];
+        System.arraycopy(initial, 0, current, 0, initial.length);
+        int count = initial.length;
+        if (word.length() == 0) {
+            return this.anyFinal(current, count);
+        }
+
+        int start = 0;
+        while (this.anyLive(current, count)) {
+            long nextSymbol = this.nextSymbol(word, start);
+            int symbol = (int) nextSymbol;
+            int end = (int) (nextSymbol >>> 32);
+
+            int nextCount = 0;
+            for (int i = 0; i < count; i++) {
+                for (int target : this.targets[current[i] * this.symbolCount + symbol]) {
+                    for (int closed : this.closures[target]) {
+                        if (marked[closed] == false) {
+                            marked[closed] = true;
+                            next[nextCount++] = closed;
+                        }
+                    }
+                }
+            }
+            for (int i = 0; i < nextCount; i++) {
+                marked[next[i]] = false;
+            }
+            int[] swap = current;
+            current = next;
+            next = swap;
+            count = nextCount;
+
+            if (end == word.length()) {
+                return this.anyFinal(current, count);
+            }
+            start = end + 1;
+        }
+        return false;
+    }
+
+    /**
+     * Reads the symbol starting at <code>start</code> of a comma separated word, which ends at the next comma or at
+     * the end of the word. The symbol is resolved while looking for its end, without creating a substring.
+     *
+     * @return the code of the symbol in the low 32 bits, and the index where it ends in the high 32 bits, which is the
+     * index of the comma after it or the length of the word
+     * @throws IllegalArgumentException if the symbol is not in the alphabet, or is empty
+     */
+    long nextSymbol(CharSequence word, int start) {
+        int length = word.length();
+        int end = start;
+        int hash = 0;
+        char c;
+        while (end < length && (c = word.charAt(end)) != ',') {
+            hash = 31 * hash + c;
+            end++;
+        }
+
+        // Empty symbols are never in the table, so they are caught here as well.
+        int symbol = this.symbolTable.lookup(word, start, end, hash);
+        if (symbol < 0) {
+            throw new IllegalArgumentException("Word contains at least one invalid or empty symbol");
+        }
+        return (long) end << 32 | symbol;
+    }
+
+    private boolean anyFinal(int[] states, int count) {
+        for (int i = 0; i < count; i++) {
+            if (this.finalStates[states[i]]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean anyLive(int[] states, int count) {
+        for (int i = 0; i < count; i++) {
+            if (this.liveStates[states[i]]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    int getStateCount() {
+        return this.stateNames.size();
+    }
+
+    int getSymbolCount() {
+        return this.symbolCount;
+    }
+
+    int getInitialStateIndex() {
+        return this.initialState;
+    }
+
+    String stateAt(int state) {
+        return this.stateNames.get(state);
+    }
+
+    int[] targets(int state, int symbol) {
+        return this.targets[state * this.symbolCount + symbol];
+    }
+
+    int[] closure(int state) {
+        return this.closures[state];
+    }
+
+    boolean isFinalState(int state) {
+        return this.finalStates[state];
+    }
+
+    boolean isLiveState(int state) {
+        return this.liveStates[state];
+    }
+
+    /**
+     * Validates the given non-empty symbol the same way a DFA does, and returns its code.
+     */
+    int checkSymbol(String symbol) {
+        if (symbol == null) {
+            throw new IllegalArgumentException("Cannot transition, null is an invalid symbol");
+        }
+
+        // The empty symbol is only used for ε-transitions, which cannot be consumed.
+        if (symbol.equals("")) {
+            throw new IllegalArgumentException("Cannot transition using the empty symbol");
+        }
+
+        int code = this.alphabet.encode(symbol);
+        if (code == -1) {
+            throw new IllegalArgumentException("Trying to transition using an invalid symbol");
+        }
+        return code;
+    }
+
+    /**
+     * Validates the given symbol code, and returns it.
+     */
+    int checkSymbol(int symbol) {
+        if (symbol < 0 || symbol >= this.symbolCount) {
+            throw new IllegalArgumentException("Trying to transition using an invalid symbol code");
+        }
+        return symbol;
+    }
+
+    private static class NFAData {
+
+        private Set<String> states;
+        private Set<String> alphabet;
+        private Map<String, Map<String, Set<String>>> delta;
+        private String initialState;
+        private Set<String> finalStates;
+
+    }
+}
@@ -0,0 +1,372 @@
+package me.saser.libinftom.nfa;
+
+import com.google.common.collect.ImmutableSet;
+import me.saser.libinftom.dfa.DFARunner;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A {@link DFARunner} for an {@link ImmutableNFA}, which runs the DFA given by the subset construction without ever
+ * building it completely.
+ * <p>
+ * The states of the runner are ε-closed sets of NFA states. Every such set is created the first time it is reached,
+ * and kept in a cache of bounded size together with the transitions found from it, so that words following already
+ * seen paths only take a table lookup per symbol. When the cache is full, sets that have not been used recently are
+ * evicted using the clock algorithm. If more than half of the symbols in a window of {@link #THRASH_WINDOW} symbols
+ * require an eviction, the cache is not helping, and the runner falls back to simulating the NFA directly on sets of
+ * states until it is reset.
+ * <p>
+ * The empty set of states is the dead state. Like other runners, instances of this class are not thread safe, but any
+ * number of runners may be used concurrently for the same NFA.
+ */
+public class LazyDFARunner implements DFARunner {
+
+    /**
+     * The number of DFA states cached by runners created with <code>runner()</code>.
+     */
+    public static final int DEFAULT_MAX_CACHED_STATES = 1024;
+
+    /**
+     * The number of consumed symbols over which cache evictions are counted to detect thrashing.
+     */
+    public static final int THRASH_WINDOW = 256;
+
+    private static final int UNKNOWN = -1;
+
+    private final ImmutableNFA nfa;
+    private final int symbolCount;
+    private final int maxCachedStates;
+
+    // The cache of DFA states, and the transitions found between them. A cached transition is only valid if the
+    // generation of its target slot has not changed since it was cached, that is if the target was not evicted.
+    private final Map<StateSet, Integer> slots = new HashMap<>();
+    private final StateSet[] sets;
+    private final int[] generations;
+    private final boolean[] referenced;
+    private final int[] transitions;
+    private final int[] transitionGenerations;
+    private int slotCount;
+    private int clockHand;
+
+    // Scratch space for computing the next set of states.
+    private final int[] buffer;
+    private final boolean[] marked;
+
+    private StateSet current;
+    private int currentSlot;
+    private boolean simulating;
+    private int windowSymbols;
+    private int windowEvictions;
+    private long evictions;
+
+    LazyDFARunner(ImmutableNFA nfa) {
+        this(nfa, DEFAULT_MAX_CACHED_STATES);
+    }
+
+    LazyDFARunner(ImmutableNFA nfa, int maxCachedStates) {
+        // The current state always has to stay cached while the next one is added.
+        if (maxCachedStates < 2) {
+            throw new IllegalArgumentException("The cache must be able to hold at least 2 states");
+        }
+
+        this.nfa = nfa;
+        this.symbolCount = nfa.getSymbolCount();
+        this.maxCachedStates = maxCachedStates;
+        this.sets = new StateSet[maxCachedStates];
+        this.generations = new int[maxCachedStates];
+        this.referenced = new boolean[maxCachedStates];
+        this.transitions = new int[maxCachedStates * this.symbolCount];
+        this.transitionGenerations = new int[maxCachedStates * this.symbolCount];
+        Arrays.fill(this.transitions, UNKNOWN);
+        this.buffer = new int[nfa.getStateCount()];
+        this.marked = new boolean[nfa.getStateCount()];
+
+        this.reset();
+    }
+
+    /**
+     * Gets the set of NFA states the runner is currently in.
+     *
+     * @return a Set of String representations of states, which is empty if in the dead state
+     */
+    public Set<String> getStates() {
+        ImmutableSet.Builder<String> states = ImmutableSet.builder();
+        for (int state : this.current.states) {
+            states.add(this.nfa.stateAt(state));
+        }
+        return states.build();
+    }
+
+    /**
+     * Gets a String representation of the current set of NFA states, such as <code>"{q0,q2}"</code>. Unlike for DFA
+     * runners, this is not an element of the states of the NFA.
+     *
+     * @return a String representation of the current state, or <code>null</code> if in the dead state
+     */
+    @Override
+    public String getState() {
+        return this.nameOf(this.current);
+    }
+
+    private String nameOf(StateSet set) {
+        if (set.states.length == 0) {
+            return null;
+        }
+        StringBuilder name = new StringBuilder("{");
+        for (int i = 0; i < set.states.length; i++) {
+            if (i > 0) {
+                name.append(',');
+            }
+            name.append(this.nfa.stateAt(set.states[i]));
+        }
+        return name.append('}').toString();
+    }
+
+    @Override
+    public String peek(String symbol) {
+        return this.nameOf(this.next(this.nfa.checkSymbol(symbol), false));
+    }
+
+    @Override
+    public String consume(String symbol) {
+        this.next(this.nfa.checkSymbol(symbol), true);
+        return this.getState();
+    }
+
+    @Override
+    public String consume(int symbol) {
+        this.next(this.nfa.checkSymbol(symbol), true);
+        return this.getState();
+    }
+
+    /**
+     * Resets the runner to the initial state. The cache is kept, and the runner goes back to using it if it had
+     * fallen back to simulating the NFA.
+     */
+    @Override
+    public void reset() {
+        this.simulating = false;
+        this.windowSymbols = 0;
+        this.windowEvictions = 0;
+        this.current = this.setOf(this.nfa.closure(this.nfa.getInitialStateIndex()));
+        this.currentSlot = this.slotOf(this.current, UNKNOWN);
+    }
+
+    @Override
+    public boolean canAccept() {
+        return this.current.live;
+    }
+
+    @Override
+    public boolean isInFinalState() {
+        return this.current.isFinal;
+    }
+
+    /**
+     * Tells whether the given word is accepted, starting from the initial state. The runner is reset before the word
+     * is consumed, and is left in the state it ended up in. Consuming stops as soon as no final state can be reached.
+     *
+     * @param word a comma separated String of symbols
+     * @return true if the word is accepted; false otherwise
+     * @throws IllegalArgumentException if the word contains invalid or empty symbols
+     */
+    public boolean accepts(CharSequence word) {
+        this.reset();
+        if (word.length() == 0) {
+            return this.isInFinalState();
+        }
+
+        int start = 0;
+        while (this.canAccept()) {
+            long next = this.nfa.nextSymbol(word, start);
+            int end = (int) (next >>> 32);
+            this.next((int) next, true);
+            if (end == word.length()) {
+                return this.isInFinalState();
+            }
+            start = end + 1;
+        }
+        return false;
+    }
+
+    /**
+     * Tells whether the runner has fallen back to simulating the NFA because the cache was thrashing.
+     */
+    boolean isSimulating() {
+        return this.simulating;
+    }
+
+    /**
+     * Gets the total number of DFA states that have been evicted from the cache.
+     */
+    long getEvictions() {
+        return this.evictions;
+    }
+
+    /**
+     * Finds the set of states reached from the current one by reading <code>symbol</code>, and moves there if
+     * <code>move</code> is true.
+     */
+    private StateSet next(int symbol, boolean move) {
+        if (this.simulating) {
+            StateSet next = this.step(this.current, symbol);
+            if (move) {
+                this.current = next;
+            }
+            return next;
+        }
+
+        int index = this.currentSlot * this.symbolCount + symbol;
+        int target = this.transitions[index];
+        boolean evicted = false;
+        if (target == UNKNOWN || this.generations[target] != this.transitionGenerations[index]) {
+            StateSet next = this.step(this.current, symbol);
+            long evictionsBefore = this.evictions;
+            target = this.slotOf(next, this.currentSlot);
+            evicted = this.evictions != evictionsBefore;
+            this.transitions[index] = target;
+            this.transitionGenerations[index] = this.generations[target];
+        }
+        this.referenced[target] = true;
+        StateSet next = this.sets[target];
+
+        if (move) {
+            this.current = next;
+            this.currentSlot = target;
+            this.countSymbol(evicted);
+        }
+        return next;
+    }
+
+    private void countSymbol(boolean evicted) {
+        this.windowSymbols++;
+        if (evicted) {
+            this.windowEvictions++;
+        }
+        if (this.windowSymbols == THRASH_WINDOW) {
+            if (this.windowEvictions > THRASH_WINDOW / 2) {
+                this.simulating = true;
+            }
+            this.windowSymbols = 0;
+            this.windowEvictions = 0;
+        }
+    }
+
+    /**
+     * Gets the slot of the given set in the cache, adding it if it is not there. When the cache is full, some other
+     * slot than <code>pinned</code> is evicted to make room.
+     */
+    private int slotOf(StateSet set, int pinned) {
+        Integer slot = this.slots.get(set);
+        if (slot != null) {
+            return slot;
+        }
+
+        int free;
+        if (this.slotCount < this.maxCachedStates) {
+            free = this.slotCount++;
+        } else {
+            free = this.evict(pinned);
+        }
+        this.sets[free] = set;
+        this.referenced[free] = true;
+        this.slots.put(set, free);
+        return free;
+    }
+
+    /**
+     * Evicts a slot that has not been referenced since the clock hand last passed it, and returns it.
+     */
+    private int evict(int pinned) {
+        while (true) {
+            int slot = this.clockHand;
+            this.clockHand = (this.clockHand + 1) % this.maxCachedStates;
+            if (slot == pinned) {
+                continue;
+            }
+            if (this.referenced[slot]) {
+                this.referenced[slot] = false;
+                continue;
+            }
+
+            this.slots.remove(this.sets[slot]);
+            this.sets[slot] = null;
+            // Invalidates all cached transitions into this slot, and forgets the ones out of it.
+            this.generations[slot]++;
+            Arrays.fill(this.transitions, slot * this.symbolCount, (slot + 1) * this.symbolCount, UNKNOWN);
+            this.evictions++;
+            return slot;
+        }
+    }
+
+    /**
+     * Computes the ε-closed set of states reached from the states in <code>from</code> by reading
+     * <code>symbol</code>.
+     */
+    private StateSet step(StateSet from, int symbol) {
+        int count = 0;
+        for (int state : from.states) {
+            for (int target : this.nfa.targets(state, symbol)) {
+                for (int closed : this.nfa.closure(target)) {
+                    if (this.marked[closed] == false) {
+                        this.marked[closed] = true;
+                        this.buffer[count++] = closed;
+                    }
+                }
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            this.marked[this.buffer[i]] = false;
+        }
+
+        int[] states = Arrays.copyOf(this.buffer, count);
+        Arrays.sort(states);
+        return this.setOf(states);
+    }
+
+    private StateSet setOf(int[] sortedStates) {
+        boolean isFinal = false;
+        boolean live = false;
+        for (int state : sortedStates) {
+            isFinal |= this.nfa.isFinalState(state);
+            live |= this.nfa.isLiveState(state);
+        }
+        return new StateSet(sortedStates, isFinal, live);
+    }
+
+    /**
+     * A sorted set of NFA state indices, which is one state of the DFA given by the subset construction.
+     */
+    private static final class StateSet {
+
+        private final int[] states;
+        private final int hash;
+        private final boolean isFinal;
+        private final boolean live;
+
+        private StateSet(int[] states, boolean isFinal, boolean live) {
+            this.states = states;
+            this.hash = Arrays.hashCode(states);
+            this.isFinal = isFinal;
+            this.live = live;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+
+            StateSet that = (StateSet) o;
+
+            return this.hash == that.hash && Arrays.equals(this.states, that.states);
+        }
+
+        @Override
+        public int hashCode() {
+            return this.hash;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package me.saser.libinftom.nfa;
+
+import me.saser.libinftom.Alphabet;
+import me.saser.libinftom.dfa.DFARunner;
+
+import java.util.Set;
+
+/**
+ * A nondeterministic finite automaton, possibly with ε-transitions. Like for DFAs, states and symbols are represented
+ * as Strings. The empty String, which is never a valid symbol, is used as the symbol of ε-transitions.
+ */
+public interface NFA {
+
+    /**
+     * Returns a set of all states in this NFA.
+     *
+     * @return a Set containing String representations of all states
+     */
+    Set<String> getStates();
+
+    /**
+     * Returns the alphabet of this NFA. The alphabet never contains the empty symbol used for ε-transitions.
+     *
+     * @return an Alphabet containing the alphabet
+     */
+    Alphabet getAlphabet();
+
+    /**
+     * Returns the initial state of this NFA.
+     *
+     * @return a String representation of the initial state
+     */
+    String getInitialState();
+
+    /**
+     * Returns a set of all final states in this NFA.
+     *
+     * @return a Set containing String representations of all final states
+     */
+    Set<String> getFinalStates();
+
+    /**
+     * Returns the states this NFA can transition to directly from <code>state</code> when reading <code>symbol</code>,
+     * without following any ε-transitions afterwards. Passing the empty String as the symbol gives the targets of the
+     * ε-transitions from the state.
+     *
+     * @param state  a String representation of a state, or <code>null</code> for the dead state
+     * @param symbol a String containing a symbol from this NFAs language, or the empty String for ε
+     * @return a Set of String representations of states, which is empty if there are no such transitions
+     * @throws IllegalArgumentException if the state or the symbol is invalid
+     */
+    Set<String> nextStates(String state, String symbol);
+
+    /**
+     * Returns all states that can be reached from <code>state</code> using only ε-transitions, including the state
+     * itself.
+     *
+     * @param state a String representation of a state
+     * @return a Set of String representations of states
+     * @throws IllegalArgumentException if the state is invalid
+     */
+    Set<String> epsilonClosure(String state);
+
+    /**
+     * Returns a new runner for this NFA, which behaves like a runner for the equivalent DFA. The states of the runner
+     * are sets of states of this NFA.
+     *
+     * @return a new runner in the initial state
+     */
+    DFARunner runner();
+
+    /**
+     * Tells whether the given word is accepted by this NFA, that is whether some path through the NFA reading the
+     * word ends in a final state. The word has the same format as for
+     * {@link me.saser.libinftom.dfa.DFA#accepts(CharSequence)}.
+     *
+     * @param word a comma separated String of symbols
+     * @return true if the word is accepted; false otherwise
+     * @throws IllegalArgumentException if the word contains invalid or empty symbols
+     */
+    boolean accepts(CharSequence word);
+}
@@ -55,6 +55,96 @@ public class AlphabetTest {
         assertFalse("\"a,b,a,\" is an invalid word since it ends with an empty symbol", alphabet.isValidWord("a,b,a,"));
     }
 
+    @Test
+    public void encodeAndDecode() throws Exception {
+        assertEquals("The alphabet should have 4 symbols", 4, alphabet.size());
+
+        Set<Integer> codes = new HashSet<>();
+        for (String symbol : alphabet.getSymbols()) {
+            int code = alphabet.encode(symbol);
+            assertTrue(String.format("The code of \"%s\" should be in [0, 4)", symbol), code >= 0 && code < 4);
+            assertEquals(String.format("Decoding the code of \"%s\" should give back the symbol", symbol), symbol, alphabet.decode(code));
+            codes.add(code);
+        }
+        assertEquals("All symbols should have different codes", 4, codes.size());
+
+        assertEquals("\"q\" is not a symbol, so it should have code -1", -1, alphabet.encode("q"));
+        assertEquals("\"\" is not a symbol, so it should have code -1", -1, alphabet.encode(""));
+
+        try {
+            alphabet.decode(4);
+
+            fail("An IllegalArgumentException should have been thrown");
+        } catch (IllegalArgumentException e) {
+            assertTrue("Exception message should contain \"invalid symbol code\"", e.getMessage().contains("invalid symbol code"));
+        }
+    }
+
+    @Test
+    public void equalAlphabetsHaveEqualCodes() throws Exception {
+        Alphabet a1 = new StringAlphabet("a,b,c,d,e");
+        Alphabet a2 = new StringAlphabet(ImmutableSet.of("b", "e", "a", "d", "c"));
+
+        for (String symbol : a1.getSymbols()) {
+            assertEquals(String.format("\"%s\" should have the same code in both alphabets", symbol), a1.encode(symbol), a2.encode(symbol));
+        }
+    }
+
+    @Test
+    public void defaultCodes() throws Exception {
+        // Only the abstract methods are implemented, so the codes come from the default methods.
+        Alphabet plain = new Alphabet() {
+            @Override
+            public Set<String> getSymbols() {
+                return alphabet.getSymbols();
+            }
+
+            @Override
+            public boolean isValidSymbol(String symbol) {
+                return alphabet.isValidSymbol(symbol);
+            }
+
+            @Override
+            public boolean isValidWord(String word) {
+                return alphabet.isValidWord(word);
+            }
+        };
+
+        assertEquals("The default size should be the number of symbols", alphabet.size(), plain.size());
+        for (String symbol : alphabet.getSymbols()) {
+            assertEquals(String.format("\"%s\" should have the same code as in a StringAlphabet", symbol), alphabet.encode(symbol), plain.encode(symbol));
+            assertEquals(String.format("Decoding the code of \"%s\" should give back the symbol", symbol), symbol, plain.decode(plain.encode(symbol)));
+        }
+        assertEquals("\"q\" is not a symbol, so it should have code -1", -1, plain.encode("q"));
+        assertArrayEquals("Words should be encoded the same way", alphabet.encodeWord("a,hello world,cde"), plain.encodeWord("a,hello world,cde"));
+
+        try {
+            plain.decode(4);
+
+            fail("An IllegalArgumentException should have been thrown");
+        } catch (IllegalArgumentException e) {
+            assertTrue("Exception message should contain \"invalid symbol code\"", e.getMessage().contains("invalid symbol code"));
+        }
+    }
+
+    @Test
+    public void encodeWord() throws Exception {
+        int[] expected = {alphabet.encode("a"), alphabet.encode("hello world"), alphabet.encode("a")};
+        assertArrayEquals("\"a,hello world,a\" should be encoded symbol by symbol", expected, alphabet.encodeWord("a,hello world,a"));
+        assertArrayEquals("The empty word should be encoded as an empty array", new int[0], alphabet.encodeWord(""));
+
+        String[] invalidWords = {"a,q", "a,,b", ",a", "a,"};
+        for (String word : invalidWords) {
+            try {
+                alphabet.encodeWord(word);
+
+                fail("An IllegalArgumentException should have been thrown for \"" + word + "\"");
+            } catch (IllegalArgumentException e) {
+                assertTrue("Exception message should contain \"invalid or empty symbol\"", e.getMessage().contains("invalid or empty symbol"));
+            }
+        }
+    }
+
     @Test
     public void disallowEmptyAlphabet() throws Exception {
         try {
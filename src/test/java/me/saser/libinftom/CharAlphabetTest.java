@@ -0,0 +1,96 @@
+package me.saser.libinftom;
+
+import com.google.common.collect.ImmutableSet;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class CharAlphabetTest {
+
+    private static CharAlphabet alphabet;
+
+    @BeforeClass
+    public static void setUp() throws Exception {
+        alphabet = new CharAlphabet("cab");
+    }
+
+    @Test
+    public void getSymbols() throws Exception {
+        assertEquals("The returned set should contain \"a\", \"b\" and \"c\"", ImmutableSet.of("a", "b", "c"), alphabet.getSymbols());
+        assertEquals("Duplicates should be removed", 3, new CharAlphabet("abcabc").size());
+    }
+
+    @Test
+    public void isValidSymbolAndWord() throws Exception {
+        assertTrue("\"a\" is a valid symbol", alphabet.isValidSymbol("a"));
+        assertFalse("\"ab\" is not a single symbol", alphabet.isValidSymbol("ab"));
+        assertFalse("\"d\" is not a valid symbol", alphabet.isValidSymbol("d"));
+
+        assertTrue("\"\" (the empty word) is a valid word", alphabet.isValidWord(""));
+        assertTrue("\"a,b,c,a,b\" is a valid word", alphabet.isValidWord("a,b,c,a,b"));
+        assertFalse("\"abcab\" is not a valid word, since its symbols are not separated", alphabet.isValidWord("abcab"));
+        assertFalse("\"a,b,\" is not a valid word, since it ends with an empty symbol", alphabet.isValidWord("a,b,"));
+        assertFalse("\"a,d\" is not a valid word", alphabet.isValidWord("a,d"));
+        assertTrue("\",,a\" is a valid word if the comma is a symbol", new CharAlphabet("a,").isValidWord(",,a"));
+
+        assertTrue("\"\" (the empty text) is valid text", alphabet.isValidText(""));
+        assertTrue("\"abcab\" is valid text", alphabet.isValidText("abcab"));
+        assertFalse("\"a,b\" is not valid text, since commas are not symbols", alphabet.isValidText("a,b"));
+    }
+
+    @Test
+    public void codesMatchStringAlphabet() throws Exception {
+        Alphabet strings = new StringAlphabet("c,a,b");
+
+        for (String symbol : alphabet.getSymbols()) {
+            assertEquals(String.format("\"%s\" should have the same code as in a StringAlphabet", symbol), strings.encode(symbol), alphabet.encode(symbol));
+            assertEquals(String.format("Decoding the code of \"%s\" should give back the symbol", symbol), symbol, alphabet.decode(alphabet.encode(symbol)));
+        }
+        assertEquals("'d' is not a symbol", -1, alphabet.encode('d'));
+        assertArrayEquals("\"c,a,b\" should be encoded like in a StringAlphabet", strings.encodeWord("c,a,b"), alphabet.encodeWord("c,a,b"));
+        assertArrayEquals("\"cab\" should be encoded character by character", new int[]{2, 0, 1}, alphabet.encodeText("cab"));
+        assertArrayEquals("The empty word should have no symbols", new int[0], alphabet.encodeWord(""));
+
+        try {
+            alphabet.encodeWord("cab");
+
+            fail("An IllegalArgumentException should have been thrown");
+        } catch (IllegalArgumentException e) {
+            assertTrue("Exception message should contain \"invalid\"", e.getMessage().contains("invalid"));
+        }
+    }
+
+    @Test
+    public void ofOtherAlphabet() throws Exception {
+        assertEquals("Copying a StringAlphabet of single characters should work", alphabet, CharAlphabet.of(new StringAlphabet("a,b,c")));
+
+        try {
+            CharAlphabet.of(new StringAlphabet("a,bc"));
+
+            fail("An IllegalArgumentException should have been thrown");
+        } catch (IllegalArgumentException e) {
+            assertTrue("Exception message should contain \"single character\"", e.getMessage().contains("single character"));
+        }
+    }
+
+    @Test
+    public void equalsAndHashCode() throws Exception {
+        CharAlphabet same = new CharAlphabet("abcba");
+
+        assertEquals("Alphabets with the same symbols should be equal", alphabet, same);
+        assertEquals("Equal alphabets should have the same hash code", alphabet.hashCode(), same.hashCode());
+        assertNotEquals("Alphabets with different symbols should not be equal", alphabet, new CharAlphabet("abd"));
+    }
+
+    @Test
+    public void disallowEmptyAlphabet() throws Exception {
+        try {
+            new CharAlphabet("");
+
+            fail("An IllegalArgumentException should have been thrown");
+        } catch (IllegalArgumentException e) {
+            assertTrue("Exception message should contain \"empty alphabet\"", e.getMessage().contains("empty alphabet"));
+        }
+    }
+}
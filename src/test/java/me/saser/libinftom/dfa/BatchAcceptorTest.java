@@ -0,0 +1,122 @@
+package me.saser.libinftom.dfa;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+public class BatchAcceptorTest {
+
+    private static DFA dfa;
+    private static List<String> words;
+    private static final DFATestUtils utils = new DFATestUtils();
+
+    @BeforeClass
+    public static void setUp() throws Exception {
+        dfa = utils.parseJSONFile("dfa/valid/begin_with_0_end_with_1.json");
+        words = utils.randomWords(dfa.getAlphabet(), 100000, 10, new Random(42));
+    }
+
+    @Test
+    public void acceptsAllMatchesAccepts() throws Exception {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        BitSet result = new BatchAcceptor(dfa, pool).acceptsAll(words);
+        pool.shutdown();
+
+        for (int i = 0; i < words.size(); i++) {
+            assertEquals(String.format("Result for \"%s\" should match accepts", words.get(i)), dfa.accepts(words.get(i)), result.get(i));
+        }
+    }
+
+    @Test
+    public void acceptsAllOnSmallAndUnindexedLists() throws Exception {
+        BatchAcceptor acceptor = new BatchAcceptor(dfa);
+
+        assertTrue("An empty batch should give an empty result", acceptor.acceptsAll(new ArrayList<String>()).isEmpty());
+
+        List<String> linked = new LinkedList<>(words.subList(0, 100));
+        BitSet result = acceptor.acceptsAll(linked);
+        for (int i = 0; i < linked.size(); i++) {
+            assertEquals(String.format("Result for \"%s\" should match accepts", linked.get(i)), dfa.accepts(linked.get(i)), result.get(i));
+        }
+    }
+
+    @Test
+    public void streamVariants() throws Exception {
+        BatchAcceptor acceptor = new BatchAcceptor(dfa);
+        long expected = words.stream().filter(dfa::accepts).count();
+
+        assertEquals("countAccepted should count the accepted words", expected, acceptor.countAccepted(words.stream()));
+
+        List<String> accepted = acceptor.filterAccepted(words.stream()).collect(Collectors.toList());
+        assertEquals("filterAccepted should keep exactly the accepted words", expected, accepted.size());
+        for (String word : accepted) {
+            assertTrue(String.format("\"%s\" should be accepted", word), dfa.accepts(word));
+        }
+    }
+
+    @Test
+    public void acceptsAllSharingPrefixesMatchesAccepts() throws Exception {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        BitSet result = new BatchAcceptor(dfa, pool).acceptsAllSharingPrefixes(words);
+        pool.shutdown();
+
+        for (int i = 0; i < words.size(); i++) {
+            assertEquals(String.format("Result for \"%s\" should match accepts", words.get(i)), dfa.accepts(words.get(i)), result.get(i));
+        }
+    }
+
+    @Test
+    public void acceptsAllSharingPrefixesOnRandomDFAs() throws Exception {
+        Random random = new Random(7);
+        for (int i = 0; i < 20; i++) {
+            DFA randomDFA = utils.randomDFA(1 + random.nextInt(8), 1 + random.nextInt(4), 0.1, random);
+
+            // Words made from a few shared prefixes, with duplicates and the empty word.
+            List<String> prefixes = utils.randomWords(randomDFA.getAlphabet(), 10, 6, random);
+            List<String> batch = new ArrayList<>();
+            batch.add("");
+            for (int j = 0; j < 2000; j++) {
+                String prefix = prefixes.get(random.nextInt(prefixes.size()));
+                String suffix = utils.randomWords(randomDFA.getAlphabet(), 1, 4, random).get(0);
+                batch.add(prefix.isEmpty() || suffix.isEmpty() ? prefix + suffix : prefix + "," + suffix);
+            }
+            batch.add(batch.get(1));
+
+            BitSet result = new BatchAcceptor(randomDFA).acceptsAllSharingPrefixes(batch);
+            for (int j = 0; j < batch.size(); j++) {
+                assertEquals(String.format("Result for \"%s\" should match accepts", batch.get(j)), randomDFA.accepts(batch.get(j)), result.get(j));
+            }
+        }
+    }
+
+    @Test
+    public void exceptionOnInvalidWordInBatch() throws Exception {
+        List<String> batch = new ArrayList<>(words);
+        batch.set(batch.size() / 2, "0,2,1");
+
+        try {
+            new BatchAcceptor(dfa).acceptsAll(batch);
+
+            fail("An exception should have been thrown");
+        } catch (IllegalArgumentException e) {
+            assertTrue("Exception message should contain \"invalid or empty symbol\"", e.getMessage().contains("invalid or empty symbol"));
+        }
+
+        try {
+            new BatchAcceptor(dfa).acceptsAllSharingPrefixes(batch);
+
+            fail("An exception should have been thrown");
+        } catch (IllegalArgumentException e) {
+            assertTrue("Exception message should contain \"invalid or empty symbol\"", e.getMessage().contains("invalid or empty symbol"));
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package me.saser.libinftom.dfa;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class BinaryDFAFormatTest {
+
+    private static final DFATestUtils utils = new DFATestUtils();
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static byte[] write(DFA dfa) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BinaryDFAFormat.write(dfa, out);
+        return out.toByteArray();
+    }
+
+    @Test
+    public void roundTrip() throws Exception {
+        DFA dfa = utils.parseJSONFile("dfa/valid/begin_with_0_end_with_1.json");
+        DFA read = BinaryDFAFormat.read(new ByteArrayInputStream(write(dfa)));
+
+        utils.assertSameDFA(dfa, read);
+        assertTrue("The read DFA should accept 0,1", read.accepts("0,1"));
+        assertFalse("The read DFA should reject 1,0", read.accepts("1,0"));
+    }
+
+    @Test
+    public void roundTripAllWidths() throws Exception {
+        Random random = new Random(11);
+        // One, two and four bytes per transition respectively.
+        for (int states : new int[]{200, 300, 70000}) {
+            DFA dfa = CompiledDFA.compile(utils.randomDFA(states, 3, 0.1, random));
+            utils.assertSameDFA(dfa, BinaryDFAFormat.read(ByteBuffer.wrap(write(dfa))));
+        }
+    }
+
+    @Test
+    public void namesAreInterned() throws Exception {
+        DFA dfa = ImmutableDFA.of(
+                ImmutableSet.of("a", "b"),
+                ImmutableSet.of("a", "b"),
+                ImmutableMap.of(
+                        "a", ImmutableMap.of("a", "b", "b", "a"),
+                        "b", ImmutableMap.of("a", "a", "b", "b")),
+                "a",
+                ImmutableSet.of("b"));
+        byte[] bytes = write(dfa);
+
+        // The string table should contain "a" and "b" once each.
+        assertEquals("There should be two strings", 2, ByteBuffer.wrap(bytes).getInt(20));
+        utils.assertSameDFA(dfa, BinaryDFAFormat.read(ByteBuffer.wrap(bytes)));
+    }
+
+    @Test
+    public void readMappedFile() throws Exception {
+        DFA dfa = utils.parseJSONFile("dfa/valid/redundant_begin_with_0_end_with_1.json");
+        Path file = folder.newFile().toPath();
+        BinaryDFAFormat.write(dfa, file);
+
+        utils.assertSameDFA(dfa, BinaryDFAFormat.read(file));
+    }
+
+    @Test
+    public void convertJSON() throws Exception {
+        String jsonPath = getClass().getClassLoader().getResource("dfa/valid/begin_with_0_end_with_1.json").getFile();
+        Path binary = folder.newFile().toPath();
+        BinaryDFAFormat.convertJSON(Paths.get(jsonPath), binary);
+
+        String json = new String(Files.readAllBytes(Paths.get(jsonPath)), StandardCharsets.UTF_8);
+        utils.assertSameDFA(ImmutableDFA.fromJSON(json), BinaryDFAFormat.read(binary));
+    }
+
+    @Test(expected = IOException.class)
+    public void invalidMagic() throws Exception {
+        byte[] bytes = write(utils.parseJSONFile("dfa/valid/begin_with_0_end_with_1.json"));
+        bytes[0] = 'X';
+        BinaryDFAFormat.read(ByteBuffer.wrap(bytes));
+    }
+
+    @Test
+    public void unsupportedVersion() throws Exception {
+        byte[] bytes = write(utils.parseJSONFile("dfa/valid/begin_with_0_end_with_1.json"));
+        ByteBuffer.wrap(bytes).putInt(4, BinaryDFAFormat.VERSION + 1);
+        try {
+            BinaryDFAFormat.read(ByteBuffer.wrap(bytes));
+            fail("Reading a newer version should fail");
+        } catch (IOException e) {
+            assertTrue("The error should mention the version", e.getMessage().contains("version"));
+        }
+    }
+
+    @Test
+    public void readVersion1() throws Exception {
+        DFA dfa = utils.parseJSONFile("dfa/valid/begin_with_0_end_with_1.json");
+        byte[] bytes = write(dfa);
+        // Version 1 files are the same, except for the live state bitmap at the end.
+        byte[] version1 = Arrays.copyOf(bytes, bytes.length - 8);
+        ByteBuffer.wrap(version1).putInt(4, 1);
+
+        utils.assertSameDFA(dfa, BinaryDFAFormat.read(ByteBuffer.wrap(version1)));
+    }
+
+    @Test
+    public void truncated() throws Exception {
+        byte[] bytes = write(utils.parseJSONFile("dfa/valid/begin_with_0_end_with_1.json"));
+        for (int length = 0; length < bytes.length; length++) {
+            try {
+                BinaryDFAFormat.read(ByteBuffer.wrap(Arrays.copyOf(bytes, length)));
+                fail("Reading a file truncated to " + length + " bytes should fail");
+            } catch (IOException e) {
+                // Expected.
+            }
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void invalidTransition() throws Exception {
+        byte[] bytes = write(utils.parseJSONFile("dfa/valid/begin_with_0_end_with_1.json"));
+        // The bitmaps are the last two longs, and the transition table with one byte per entry comes right before them.
+        bytes[bytes.length - 17] = 42;
+        BinaryDFAFormat.read(ByteBuffer.wrap(bytes));
+    }
+}
@@ -0,0 +1,84 @@
+package me.saser.libinftom.dfa;
+
+import com.google.common.cache.CacheStats;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class CachingDFATest {
+
+    private static DFA dfa;
+    private static List<String> words;
+    private static final DFATestUtils utils = new DFATestUtils();
+
+    @BeforeClass
+    public static void setUp() throws Exception {
+        dfa = utils.parseJSONFile("dfa/valid/begin_with_0_end_with_1.json");
+        words = utils.randomWords(dfa.getAlphabet(), 1000, 10, new Random(42));
+    }
+
+    @Test
+    public void acceptsMatchesWrappedDFA() throws Exception {
+        CachingDFA caching = new CachingDFA(dfa, 100);
+        for (int round = 0; round < 2; round++) {
+            for (String word : words) {
+                assertEquals(String.format("Result for \"%s\" should match the wrapped DFA", word), dfa.accepts(word), caching.accepts(word));
+                assertEquals(String.format("Result for encoded \"%s\" should match the wrapped DFA", word), dfa.accepts(word), caching.accepts(dfa.getAlphabet().encodeWord(word)));
+            }
+        }
+        assertTrue("The cache should not grow past its maximum size", caching.getCacheSize() <= 100);
+    }
+
+    @Test
+    public void repeatedWordsHitTheCache() throws Exception {
+        CachingDFA caching = new CachingDFA(dfa, 100);
+        for (int i = 0; i < 10; i++) {
+            caching.accepts("0,1");
+            caching.accepts(new StringBuilder("0,0"));
+        }
+
+        CacheStats stats = caching.getStats();
+        assertEquals("Only the first check of each word should miss", 2, stats.missCount());
+        assertEquals("All other checks should hit", 18, stats.hitCount());
+        assertEquals("Both words should be cached", 2, caching.getCacheSize());
+
+        caching.invalidateAll();
+        assertEquals("The cache should be empty after invalidating it", 0, caching.getCacheSize());
+        assertTrue("Words should still be checked after invalidating the cache", caching.accepts("0,1"));
+    }
+
+    @Test
+    public void invalidWordsAreNotCached() throws Exception {
+        CachingDFA caching = new CachingDFA(dfa, 100);
+        for (int i = 0; i < 2; i++) {
+            try {
+                caching.accepts("0,2,1");
+
+                fail("An exception should have been thrown");
+            } catch (IllegalArgumentException e) {
+                assertTrue("Exception message should contain \"invalid or empty symbol\"", e.getMessage().contains("invalid or empty symbol"));
+            }
+        }
+        assertEquals("Invalid words should not be cached", 0, caching.getCacheSize());
+    }
+
+    @Test
+    public void delegatesToWrappedDFA() throws Exception {
+        CachingDFA caching = new CachingDFA(dfa, 100);
+        assertSame("The wrapped DFA should be returned", dfa, caching.getDFA());
+        assertEquals("The states should be those of the wrapped DFA", dfa.getStates(), caching.getStates());
+        assertEquals("The alphabet should be that of the wrapped DFA", dfa.getAlphabet(), caching.getAlphabet());
+        assertEquals("The initial state should be that of the wrapped DFA", dfa.getInitialState(), caching.getInitialState());
+        assertEquals("The final states should be those of the wrapped DFA", dfa.getFinalStates(), caching.getFinalStates());
+        assertEquals("Transitions should be those of the wrapped DFA", dfa.nextState("q0", "0"), caching.nextState("q0", "0"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void exceptionOnNegativeSize() throws Exception {
+        new CachingDFA(dfa, -1);
+    }
+}
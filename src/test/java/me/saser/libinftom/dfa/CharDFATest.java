@@ -0,0 +1,106 @@
+package me.saser.libinftom.dfa;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import me.saser.libinftom.CharAlphabet;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class CharDFATest {
+
+    private static DFA source;
+    private static CharDFA dfa;
+    private static final DFATestUtils utils = new DFATestUtils();
+
+    @BeforeClass
+    public static void setUp() throws Exception {
+        source = utils.parseJSONFile("dfa/valid/begin_with_0_end_with_1.json");
+        dfa = CharDFA.compile(source);
+    }
+
+    @Test
+    public void getAlphabet() throws Exception {
+        assertEquals("The alphabet should be the same as for the source DFA", source.getAlphabet(), dfa.getAlphabet());
+        assertEquals("The character alphabet should be the characters 0 and 1", new CharAlphabet("01"), dfa.getCharAlphabet());
+    }
+
+    @Test
+    public void acceptsPlainWords() throws Exception {
+        for (String word : utils.randomWords(source.getAlphabet(), 1000, 20, new Random(9))) {
+            String plain = word.replace(",", "");
+            boolean expected = source.accepts(word);
+            assertEquals(String.format("\"%s\" should be treated like the source DFA does", plain), expected, dfa.acceptsText(plain));
+            assertEquals(String.format("\"%s\" as bytes should be treated like the source DFA does", plain), expected, dfa.acceptsText(plain.getBytes(StandardCharsets.US_ASCII)));
+        }
+    }
+
+    @Test
+    public void acceptsCommaSeparatedWords() throws Exception {
+        for (String word : utils.randomWords(source.getAlphabet(), 1000, 20, new Random(10))) {
+            assertEquals(String.format("\"%s\" should be treated like the source DFA does", word), source.accepts(word), dfa.accepts(word));
+        }
+        try {
+            dfa.accepts("011");
+
+            fail("An exception should have been thrown, since words are comma separated");
+        } catch (IllegalArgumentException e) {
+            assertTrue("Exception message should contain \"invalid\"", e.getMessage().contains("invalid"));
+        }
+    }
+
+    @Test
+    public void exceptionOnInvalidSymbol() throws Exception {
+        String[] words = {"0,1", "0121", "02", "0€"};
+
+        for (String word : words) {
+            try {
+                dfa.acceptsText(word);
+
+                fail("An exception should have been thrown for \"" + word + "\"");
+            } catch (IllegalArgumentException e) {
+                assertTrue("Exception message should contain \"invalid symbol\"", e.getMessage().contains("invalid symbol"));
+            }
+        }
+
+        assertFalse("\"12\" should be rejected as soon as \"1\" is read", dfa.acceptsText("12"));
+    }
+
+    @Test
+    public void largeCharacters() throws Exception {
+        // An alphabet with characters above 255 cannot be indexed directly.
+        DFA euros = ImmutableDFA.of(ImmutableSet.of("q0", "q1"), ImmutableSet.of("a", "€"), ImmutableMap.<String, Map<String, String>>of(
+                "q0", ImmutableMap.of("a", "q0", "€", "q1"),
+                "q1", ImmutableMap.of("a", "q0", "€", "q1")), "q0", ImmutableSet.of("q1"));
+        CharDFA compiled = CharDFA.compile(euros);
+
+        assertTrue("\"a€\" should be accepted", compiled.acceptsText("a€"));
+        assertFalse("\"€a\" should be rejected", compiled.acceptsText("€a"));
+    }
+
+    @Test
+    public void exceptionOnMultiCharacterSymbols() throws Exception {
+        DFA multi = ImmutableDFA.of(ImmutableSet.of("q0"), ImmutableSet.of("ab"), ImmutableMap.<String, Map<String, String>>of(
+                "q0", ImmutableMap.of("ab", "q0")), "q0", ImmutableSet.of("q0"));
+
+        try {
+            CharDFA.compile(multi);
+
+            fail("An exception should have been thrown");
+        } catch (IllegalArgumentException e) {
+            assertTrue("Exception message should contain \"single character\"", e.getMessage().contains("single character"));
+        }
+    }
+
+    @Test
+    public void otherMethodsMatchSource() throws Exception {
+        assertEquals("The states should be the same", source.getStates(), dfa.getStates());
+        assertEquals("delta(q1, 1) should be q2", "q2", dfa.nextState("q1", "1"));
+        assertTrue("Encoded words should work like in the source DFA", dfa.accepts(dfa.getCharAlphabet().encodeText("011")));
+    }
+}
@@ -0,0 +1,174 @@
+package me.saser.libinftom.dfa;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import org.junit.Test;
+
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class CompiledDFAParsingTest {
+
+    private static final DFATestUtils utils = new DFATestUtils();
+
+    private static CompiledDFA parseJSONFile(String fileName) throws Exception {
+        try (Reader reader = new InputStreamReader(CompiledDFAParsingTest.class.getClassLoader().getResourceAsStream(fileName), StandardCharsets.UTF_8)) {
+            return CompiledDFA.fromJSON(reader);
+        }
+    }
+
+    private static void assertInvalid(String fileName, String expectedMessage) throws Exception {
+        try {
+            parseJSONFile(fileName);
+
+            fail("An exception should have been thrown");
+        } catch (IllegalArgumentException e) {
+            assertTrue(String.format("Exception message should contain \"%s\"", expectedMessage), e.getMessage().contains(expectedMessage));
+        }
+    }
+
+    /**
+     * Creates a JSON representation of the given DFA, with <code>delta</code> either first or last.
+     */
+    private static String toJSON(DFA dfa, boolean deltaFirst) {
+        JsonObject delta = new JsonObject();
+        for (String state : dfa.getStates()) {
+            JsonObject row = new JsonObject();
+            for (String symbol : dfa.getAlphabet().getSymbols()) {
+                row.addProperty(symbol, dfa.nextState(state, symbol));
+            }
+            delta.add(state, row);
+        }
+
+        JsonObject json = new JsonObject();
+        if (deltaFirst) {
+            json.add("delta", delta);
+        }
+        JsonArray states = new JsonArray();
+        for (String state : dfa.getStates()) {
+            states.add(state);
+        }
+        json.add("states", states);
+        JsonArray alphabet = new JsonArray();
+        for (String symbol : dfa.getAlphabet().getSymbols()) {
+            alphabet.add(symbol);
+        }
+        json.add("alphabet", alphabet);
+        json.addProperty("initialState", dfa.getInitialState());
+        JsonArray finalStates = new JsonArray();
+        for (String state : dfa.getFinalStates()) {
+            finalStates.add(state);
+        }
+        json.add("finalStates", finalStates);
+        if (deltaFirst == false) {
+            json.add("delta", delta);
+        }
+        return json.toString();
+    }
+
+    @Test
+    public void validFiles() throws Exception {
+        for (String fileName : new String[]{"dfa/valid/begin_with_0_end_with_1.json", "dfa/valid/redundant_begin_with_0_end_with_1.json"}) {
+            DFA expected = utils.parseJSONFile(fileName);
+            CompiledDFA actual = parseJSONFile(fileName);
+            utils.assertSameDFA(expected, actual);
+            assertEquals("States should be indexed in the same order as when compiling", CompiledDFA.compile(expected).stateAt(0), actual.stateAt(0));
+        }
+    }
+
+    @Test
+    public void randomDFAsInEitherOrder() throws Exception {
+        Random random = new Random(12);
+        for (int i = 0; i < 5; i++) {
+            DFA expected = utils.randomDFA(1 + random.nextInt(200), 1 + random.nextInt(6), 0.2, random);
+            utils.assertSameDFA(expected, CompiledDFA.fromJSON(new StringReader(toJSON(expected, false))));
+            utils.assertSameDFA(expected, CompiledDFA.fromJSON(new StringReader(toJSON(expected, true))));
+        }
+    }
+
+    @Test
+    public void unknownFieldsAreIgnored() throws Exception {
+        String json = "{\"name\": {\"nested\": [1, 2]}, \"alphabet\": [\"a\"], \"states\": [\"q0\", \"q0\"], " +
+                "\"delta\": {\"q0\": {\"a\": null}}, \"initialState\": \"q0\", \"finalStates\": [\"q0\"]}";
+        CompiledDFA dfa = CompiledDFA.fromJSON(new StringReader(json));
+
+        assertEquals("Duplicate states should be ignored", 1, dfa.getStateCount());
+        assertTrue("The empty word should be accepted", dfa.accepts(""));
+        assertFalse("The word a should be rejected", dfa.accepts("a"));
+    }
+
+    @Test
+    public void emptyStringInStates() throws Exception {
+        assertInvalid("dfa/invalid/empty_string_in_states.json", "empty state disallowed");
+    }
+
+    @Test
+    public void oneMissingSymbolInDelta() throws Exception {
+        assertInvalid("dfa/invalid/one_missing_symbol_in_delta_q0.json", "exactly all symbols");
+    }
+
+    @Test
+    public void oneExtraSymbolInDelta() throws Exception {
+        assertInvalid("dfa/invalid/one_extra_symbol_in_delta_q0.json", "exactly all symbols");
+    }
+
+    @Test
+    public void oneMissingStateInDelta() throws Exception {
+        assertInvalid("dfa/invalid/one_missing_state_in_delta.json", "exactly all states");
+    }
+
+    @Test
+    public void oneExtraStateInDelta() throws Exception {
+        assertInvalid("dfa/invalid/one_extra_state_in_delta.json", "exactly all states");
+    }
+
+    @Test
+    public void invalidTargetStateInTransition() throws Exception {
+        assertInvalid("dfa/invalid/invalid_target_state_in_delta.json", "invalid target state");
+    }
+
+    @Test
+    public void invalidInitialState() throws Exception {
+        assertInvalid("dfa/invalid/invalid_initial_state.json", "invalid initial state");
+    }
+
+    @Test
+    public void invalidFinalState() throws Exception {
+        assertInvalid("dfa/invalid/invalid_final_states.json", "invalid final state");
+    }
+
+    @Test
+    public void invalidTargetStateWhenBuffered() throws Exception {
+        String json = "{\"delta\": {\"q0\": {\"a\": \"q1\"}}, \"alphabet\": [\"a\"], \"states\": [\"q0\"], " +
+                "\"initialState\": \"q0\", \"finalStates\": []}";
+        try {
+            CompiledDFA.fromJSON(new StringReader(json));
+
+            fail("An exception should have been thrown");
+        } catch (IllegalArgumentException e) {
+            assertTrue("Exception message should contain \"invalid target state\"", e.getMessage().contains("invalid target state"));
+        }
+    }
+
+    @Test
+    public void missingField() throws Exception {
+        String json = "{\"alphabet\": [\"a\"], \"states\": [\"q0\"], \"initialState\": \"q0\", \"finalStates\": []}";
+        try {
+            CompiledDFA.fromJSON(new StringReader(json));
+
+            fail("An exception should have been thrown");
+        } catch (IllegalArgumentException e) {
+            assertTrue("Exception message should mention the missing field", e.getMessage().contains("delta"));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void malformedJSON() throws Exception {
+        CompiledDFA.fromJSON(new StringReader("{\"alphabet\": {}}"));
+    }
+}
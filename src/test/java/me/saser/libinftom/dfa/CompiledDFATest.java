@@ -0,0 +1,302 @@
+package me.saser.libinftom.dfa;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import me.saser.libinftom.Alphabet;
+import me.saser.libinftom.StringAlphabet;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class CompiledDFATest {
+
+    private static DFA source;
+    private static CompiledDFA dfa;
+    private static final DFATestUtils utils = new DFATestUtils();
+
+    @BeforeClass
+    public static void setUp() throws Exception {
+        source = utils.parseJSONFile("dfa/valid/begin_with_0_end_with_1.json");
+        dfa = CompiledDFA.compile(source);
+    }
+
+    @Test
+    public void getStates() throws Exception {
+        Set<String> expected = ImmutableSet.of("q0", "q1", "q2");
+        assertEquals("The valid states should consist of \"q0\", \"q1\", and \"q2\"", expected, dfa.getStates());
+        assertEquals("There should be 3 states", 3, dfa.getStateCount());
+    }
+
+    @Test
+    public void getAlphabet() throws Exception {
+        Alphabet expected = new StringAlphabet("0,1");
+        assertEquals("The alphabet should consist of \"0\" and \"1\"", expected, dfa.getAlphabet());
+        assertEquals("There should be 2 symbols", 2, dfa.getSymbolCount());
+    }
+
+    @Test
+    public void getInitialAndFinalStates() throws Exception {
+        assertEquals("The initial state should be \"q0\"", "q0", dfa.getInitialState());
+        assertEquals("The initial state index should map back to \"q0\"", "q0", dfa.stateAt(dfa.getInitialStateIndex()));
+        assertEquals("The only final state should be \"q2\"", ImmutableSet.of("q2"), dfa.getFinalStates());
+        assertTrue("q2 should be final", dfa.isFinalState(dfa.indexOfState("q2")));
+        assertFalse("q1 should not be final", dfa.isFinalState(dfa.indexOfState("q1")));
+        assertFalse("The dead state should not be final", dfa.isFinalState(CompiledDFA.DEAD_STATE));
+    }
+
+    @Test
+    public void transitionsMatchSource() throws Exception {
+        for (String state : source.getStates()) {
+            for (String symbol : source.getAlphabet().getSymbols()) {
+                String expected = source.nextState(state, symbol);
+                assertEquals(String.format("delta(%s, %s) should match the source DFA", state, symbol), expected, dfa.nextState(state, symbol));
+
+                int next = dfa.transition(dfa.indexOfState(state), dfa.getAlphabet().encode(symbol));
+                assertEquals(String.format("Indexed delta(%s, %s) should match the source DFA", state, symbol), expected, dfa.stateAt(next));
+            }
+        }
+
+        assertNull("delta(null, 0) should be null", dfa.nextState(null, "0"));
+        assertEquals("Transitions from the dead state should stay in the dead state", CompiledDFA.DEAD_STATE, dfa.transition(CompiledDFA.DEAD_STATE, 0));
+    }
+
+    @Test
+    public void exceptionOnInvalidTransition() throws Exception {
+        try {
+            dfa.nextState("q0", "2");
+
+            fail("An exception should have been thrown");
+        } catch (IllegalArgumentException e) {
+            assertTrue("Exception message should contain \"invalid symbol\"", e.getMessage().contains("invalid symbol"));
+        }
+
+        try {
+            dfa.nextState("q3", "0");
+
+            fail("An exception should have been thrown");
+        } catch (IllegalArgumentException e) {
+            assertTrue("Exception message should contain \"invalid starting state\"", e.getMessage().contains("invalid starting state"));
+        }
+    }
+
+    @Test
+    public void acceptsSameWordsAsSource() throws Exception {
+        String[] words = {"0,1", "0,0,0,0,1,1,1,1", "0,1,0,1,0,1", "0,1,1,1", "1,0", "0,1,0", "0,1,0,1,1,1,0", "0", ""};
+
+        for (String word : words) {
+            assertEquals(String.format("\"%s\" should be treated like the source DFA does", word), acceptedBySource(word), dfa.accepts(word));
+        }
+    }
+
+    @Test
+    public void exceptionOnAcceptInvalidWord() throws Exception {
+        String[] words = {"0,1,2,1", "0,1,,1", ",0,1,1", "0,1,1,"};
+
+        for (String word : words) {
+            try {
+                dfa.accepts(word);
+
+                fail("An exception should have been thrown for \"" + word + "\"");
+            } catch (IllegalArgumentException e) {
+                assertTrue("Exception message should contain \"invalid or empty symbol\"", e.getMessage().contains("invalid or empty symbol"));
+            }
+        }
+    }
+
+    @Test
+    public void acceptsStopsOnceRejectionIsCertain() throws Exception {
+        // Starting with "1" leads to the dead state, so the invalid symbols later on are never looked at.
+        assertFalse("\"1,0,2\" should be rejected as soon as \"1\" is read", dfa.accepts("1,0,2"));
+        assertFalse("\"1,0,2\" should be rejected as soon as \"1\" is read", dfa.accepts(new int[]{dfa.getAlphabet().encode("1"), 0, 2}));
+
+        CompiledDFA redundant = CompiledDFA.compile(utils.parseJSONFile("dfa/valid/redundant_begin_with_0_end_with_1.json"));
+        assertFalse("The trap state is not live", redundant.isLiveState(redundant.indexOfState("trap")));
+        assertTrue("q1 is live", redundant.isLiveState(redundant.indexOfState("q1")));
+        assertFalse("\"1,0,x\" should be rejected as soon as the trap state is entered", redundant.accepts("1,0,x"));
+    }
+
+    @Test
+    public void acceptsAnyCharSequence() throws Exception {
+        assertTrue("A StringBuilder containing \"0,1,1\" should be accepted", dfa.accepts(new StringBuilder("0,1,1")));
+        assertFalse("A StringBuilder containing \"0,1,0\" should be rejected", dfa.accepts(new StringBuilder("0,1,0")));
+    }
+
+    @Test
+    public void acceptsDoesNotAllocate() throws Exception {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+        String[] words = {"0,1", "0,0,0,0,1,1,1,1", "0,1,0,1,0,1", "1,0"};
+
+        // Warm up, so that any lazy initialization has already happened.
+        int accepted = 0;
+        for (int i = 0; i < 10000; i++) {
+            accepted += dfa.accepts(words[i % words.length]) ? 1 : 0;
+        }
+
+        // The first call to the allocation counter may itself allocate, so make it before measuring.
+        threads.getThreadAllocatedBytes(thread);
+        int calls = 100000;
+        long before = threads.getThreadAllocatedBytes(thread);
+        for (int i = 0; i < calls; i++) {
+            accepted += dfa.accepts(words[i % words.length]) ? 1 : 0;
+        }
+        long allocated = threads.getThreadAllocatedBytes(thread) - before;
+
+        assertTrue("Some words should have been accepted", accepted > 0);
+        // Allow for some constant overhead from the JVM itself, but even the smallest object per call would exceed this.
+        assertTrue("accepts should not allocate, but allocated " + allocated + " bytes", allocated < calls);
+    }
+
+    @Test
+    public void runnerWorksOnCompiledDFA() throws Exception {
+        DFARunner runner = dfa.runner();
+
+        runner.consume("0");
+        runner.consume("1");
+        assertEquals("Should be in q2 after consuming \"0\" and \"1\"", "q2", runner.getState());
+        assertTrue("q2 is a final state", runner.isInFinalState());
+    }
+
+    @Test
+    public void snapshotAndRestore() throws Exception {
+        CompiledDFARunner runner = dfa.runner();
+        runner.consume("0");
+        int snapshot = runner.snapshot();
+
+        runner.consume("1");
+        assertEquals("Should be in q2 after consuming \"0\" and \"1\"", "q2", runner.getState());
+        runner.restore(snapshot);
+        assertEquals("Should be back in q1 after restoring", "q1", runner.getState());
+
+        runner.reset();
+        runner.consume("1");
+        int dead = runner.snapshot();
+        runner.reset();
+        runner.restore(dead);
+        assertNull("Should be back in the dead state after restoring", runner.getState());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void exceptionOnRestoringInvalidToken() throws Exception {
+        dfa.runner().restore(dfa.getStateCount());
+    }
+
+    @Test
+    public void consumeAll() throws Exception {
+        CompiledDFARunner runner = dfa.runner();
+        assertEquals("Consuming nothing should stay in the initial state", dfa.getInitialStateIndex(), runner.consumeAll(""));
+        assertEquals("Should be in q2 after consuming \"0,1,1\"", dfa.indexOfState("q2"), runner.consumeAll("0,1,1"));
+        assertEquals("Should be in q1 after consuming \"0\" more", "q1", dfa.stateAt(runner.consumeAll(new int[]{dfa.getAlphabet().encode("0")})));
+        assertEquals("Consumed symbols should continue from the current state", "q2", dfa.stateAt(runner.consumeAll("0,1")));
+
+        runner.reset();
+        assertEquals("Should be in the dead state after consuming \"1\"", CompiledDFA.DEAD_STATE, runner.consumeAll("1,0"));
+        assertEquals("Symbols after entering the dead state should be skipped", CompiledDFA.DEAD_STATE, runner.consumeAll("x,,y"));
+    }
+
+    @Test
+    public void consumeAllLeavesStateOnInvalidSymbol() throws Exception {
+        CompiledDFARunner runner = dfa.runner();
+        runner.consume("0");
+        for (String symbols : new String[]{"1,x", "1,,0", "1,", ","}) {
+            try {
+                runner.consumeAll(symbols);
+                fail("Consuming \"" + symbols + "\" should throw");
+            } catch (IllegalArgumentException e) {
+                assertEquals("The state should not change when consuming \"" + symbols + "\" fails", "q1", runner.getState());
+            }
+        }
+        try {
+            runner.consumeAll(new int[]{1, 2});
+            fail("Consuming an invalid symbol code should throw");
+        } catch (IllegalArgumentException e) {
+            assertEquals("The state should not change when consuming fails", "q1", runner.getState());
+        }
+    }
+
+    @Test
+    public void renumberBreadthFirst() throws Exception {
+        CompiledDFA renumbered = dfa.renumberBreadthFirst();
+        utils.assertSameDFA(dfa, renumbered);
+        assertEquals("The initial state should come first", 0, renumbered.getInitialStateIndex());
+        assertEquals("q1 should come second", 1, renumbered.indexOfState("q1"));
+        assertEquals("q2 should come last", 2, renumbered.indexOfState("q2"));
+
+        Random random = new Random(42);
+        for (int i = 0; i < 20; i++) {
+            CompiledDFA randomDFA = CompiledDFA.compile(utils.randomDFA(1 + random.nextInt(20), 1 + random.nextInt(4), 0.2, random));
+            utils.assertSameDFA(randomDFA, randomDFA.renumberBreadthFirst());
+        }
+    }
+
+    @Test
+    public void renumberByVisits() throws Exception {
+        CompiledDFA renumbered = dfa.renumberByVisits(ImmutableMap.of("q2", 10L, "q1", 5L));
+        utils.assertSameDFA(dfa, renumbered);
+        assertEquals("The most visited state should come first", 0, renumbered.indexOfState("q2"));
+        assertEquals("The second most visited state should come second", 1, renumbered.indexOfState("q1"));
+        assertEquals("The unvisited state should come last", 2, renumbered.indexOfState("q0"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void exceptionOnRenumberingByInvalidState() throws Exception {
+        dfa.renumberByVisits(ImmutableMap.of("q3", 10L));
+    }
+
+    @Test
+    public void exceptionOnRenumberingByNulls() throws Exception {
+        Map<String, Long> nullState = new HashMap<>();
+        nullState.put(null, 10L);
+        Map<String, Long> nullCount = new HashMap<>();
+        nullCount.put("q1", null);
+
+        for (Map<String, Long> visits : ImmutableList.of(nullState, nullCount)) {
+            try {
+                dfa.renumberByVisits(visits);
+
+                fail("An IllegalArgumentException should have been thrown for " + visits);
+            } catch (IllegalArgumentException e) {
+                assertNotNull("The exception should have a message", e.getMessage());
+            }
+        }
+    }
+
+    @Test
+    public void renumberByWorkload() throws Exception {
+        CompiledDFA renumbered = dfa.renumberByWorkload(ImmutableList.of("0,0,0,0", "0,0,1", "1,1,1", ""));
+        utils.assertSameDFA(dfa, renumbered);
+        assertEquals("q1 should be visited most", 0, renumbered.indexOfState("q1"));
+        assertEquals("q0 should be visited second most", 1, renumbered.indexOfState("q0"));
+        assertEquals("q2 should be visited least", 2, renumbered.indexOfState("q2"));
+
+        Random random = new Random(42);
+        CompiledDFA randomDFA = CompiledDFA.compile(utils.randomDFA(50, 3, 0.1, random));
+        List<String> words = utils.randomWords(randomDFA.getAlphabet(), 1000, 10, random);
+        renumbered = randomDFA.renumberByWorkload(words);
+        utils.assertSameDFA(randomDFA, renumbered);
+
+        InstrumentedDFA instrumented = new InstrumentedDFA(randomDFA);
+        words.forEach(instrumented::accepts);
+        assertEquals("Visits counted by an InstrumentedDFA should give the same order", renumbered.stateAt(0),
+                     randomDFA.renumberByVisits(instrumented.getMetrics().getStateVisits()).stateAt(0));
+    }
+
+    private static boolean acceptedBySource(String word) {
+        DFARunner runner = source.runner();
+        if (word.equals("") == false) {
+            for (String symbol : word.split(",")) {
+                runner.consume(symbol);
+            }
+        }
+        return runner.isInFinalState();
+    }
+}
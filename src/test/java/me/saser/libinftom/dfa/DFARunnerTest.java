@@ -80,6 +80,27 @@ public class DFARunnerTest {
         assertEquals("Should be in q1 after consuming another \"0\"", "q1", runner.getState());
     }
 
+    @Test
+    public void testConsumeEncoded() throws Exception {
+        DFARunner[] runners = {dfa.runner(), new SimpleDFARunner(dfa)};
+
+        for (DFARunner runner : runners) {
+            runner.consume(dfa.getAlphabet().encode("0"));
+            assertEquals("Should be in q1 after consuming the code of \"0\"", "q1", runner.getState());
+
+            runner.consume(dfa.getAlphabet().encode("1"));
+            assertEquals("Should be in q2 after consuming the code of \"1\"", "q2", runner.getState());
+
+            try {
+                runner.consume(2);
+
+                fail("An exception should have been thrown");
+            } catch (IllegalArgumentException e) {
+                assertTrue("Exception message should contain \"invalid symbol code\"", e.getMessage().contains("invalid symbol code"));
+            }
+        }
+    }
+
     @Test
     public void goToDeadState() throws Exception {
         DFARunner runner = dfa.runner();
@@ -303,6 +324,72 @@ public class DFARunnerTest {
         }
     }
 
+    @Test
+    public void canAccept() throws Exception {
+        DFARunner runner = dfa.runner();
+
+        assertTrue("A final state can be reached from q0", runner.canAccept());
+        runner.consume("0");
+        assertTrue("A final state can be reached from q1", runner.canAccept());
+
+        // Put us in the dead state.
+        runner.reset();
+        runner.consume("1");
+        assertFalse("No final state can be reached from the dead state", runner.canAccept());
+    }
+
+    @Test
+    public void canAcceptByDefault() throws Exception {
+        DFARunner wrapped = dfa.runner();
+        DFARunner runner = new DFARunner() {
+            @Override
+            public String getState() {
+                return wrapped.getState();
+            }
+
+            @Override
+            public String peek(String symbol) {
+                return wrapped.peek(symbol);
+            }
+
+            @Override
+            public String consume(String symbol) {
+                return wrapped.consume(symbol);
+            }
+
+            @Override
+            public String consume(int symbol) {
+                return wrapped.consume(symbol);
+            }
+
+            @Override
+            public void reset() {
+                wrapped.reset();
+            }
+
+            @Override
+            public boolean isInFinalState() {
+                return wrapped.isInFinalState();
+            }
+        };
+
+        assertTrue("A final state can be reached from q0", runner.canAccept());
+        runner.consume("1");
+        assertFalse("No final state can be reached from the dead state", runner.canAccept());
+    }
+
+    @Test
+    public void canAcceptFromTrapState() throws Exception {
+        DFA redundant = utils.parseJSONFile("dfa/valid/redundant_begin_with_0_end_with_1.json");
+        DFARunner[] runners = {redundant.runner(), new SimpleDFARunner(redundant)};
+
+        for (DFARunner runner : runners) {
+            runner.consume("1");
+            assertEquals("Should be in the trap state after consuming \"1\"", "trap", runner.getState());
+            assertFalse("No final state can be reached from the trap state", runner.canAccept());
+        }
+    }
+
     @Test
     public void inFinalState() throws Exception {
         DFARunner runner = dfa.runner();
@@ -6,6 +6,7 @@ import me.saser.libinftom.StringAlphabet;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
+import java.util.Random;
 import java.util.Set;
 
 import static org.junit.Assert.*;
@@ -84,6 +85,104 @@ public class DFATest {
         }
     }
 
+    @Test
+    public void canReachFinalState() throws Exception {
+        DFA redundant = utils.parseJSONFile("dfa/valid/redundant_begin_with_0_end_with_1.json");
+
+        for (String state : ImmutableSet.of("q0", "q1", "q1b", "q2", "q2b", "unreachable")) {
+            assertTrue(String.format("A final state can be reached from %s", state), redundant.canReachFinalState(state));
+        }
+        assertFalse("No final state can be reached from the trap state", redundant.canReachFinalState("trap"));
+        assertFalse("No final state can be reached from the dead state", redundant.canReachFinalState(null));
+    }
+
+    /**
+     * Wraps the given DFA in one that only implements the abstract methods of {@link DFA}, so that the default
+     * implementations of all other methods are used.
+     */
+    private static DFA plain(DFA dfa) {
+        return new DFA() {
+            @Override
+            public Set<String> getStates() {
+                return dfa.getStates();
+            }
+
+            @Override
+            public Alphabet getAlphabet() {
+                return dfa.getAlphabet();
+            }
+
+            @Override
+            public String getInitialState() {
+                return dfa.getInitialState();
+            }
+
+            @Override
+            public Set<String> getFinalStates() {
+                return dfa.getFinalStates();
+            }
+
+            @Override
+            public DFARunner runner() {
+                return new SimpleDFARunner(this);
+            }
+
+            @Override
+            public String nextState(String state, String symbol) {
+                return dfa.nextState(state, symbol);
+            }
+
+            @Override
+            public boolean accepts(CharSequence word) {
+                return dfa.accepts(word);
+            }
+        };
+    }
+
+    @Test
+    public void canReachFinalStateByDefault() throws Exception {
+        DFA redundant = utils.parseJSONFile("dfa/valid/redundant_begin_with_0_end_with_1.json");
+        DFA plain = plain(redundant);
+
+        for (String state : redundant.getStates()) {
+            assertEquals(String.format("Reachability from %s should be the same", state), redundant.canReachFinalState(state), plain.canReachFinalState(state));
+        }
+        assertFalse("No final state can be reached from the dead state", plain.canReachFinalState(null));
+        try {
+            plain.canReachFinalState("q3");
+            fail("An exception should have been thrown");
+        } catch (IllegalArgumentException e) {
+            assertTrue("Exception message should contain \"invalid state\"", e.getMessage().contains("invalid state"));
+        }
+    }
+
+    @Test
+    public void acceptsEncodedByDefault() throws Exception {
+        DFA plain = plain(dfa);
+        for (String word : utils.randomWords(dfa.getAlphabet(), 200, 8, new Random(3))) {
+            int[] encoded = dfa.getAlphabet().encodeWord(word);
+            assertEquals(String.format("Result for encoded \"%s\" should be the same", word), dfa.accepts(encoded), plain.accepts(encoded));
+        }
+        try {
+            plain.accepts(new int[]{0, 2});
+            fail("An exception should have been thrown");
+        } catch (IllegalArgumentException e) {
+            assertTrue("Exception message should contain \"invalid symbol code\"", e.getMessage().contains("invalid symbol code"));
+        }
+    }
+
+    @Test
+    public void minimizeByDefault() throws Exception {
+        DFA redundant = utils.parseJSONFile("dfa/valid/redundant_begin_with_0_end_with_1.json");
+        Minimization expected = redundant.minimize();
+        Minimization actual = plain(redundant).minimize();
+
+        assertEquals("The minimal DFA should have the same number of states", expected.getDFA().getStates().size(), actual.getDFA().getStates().size());
+        for (String word : utils.randomWords(redundant.getAlphabet(), 200, 8, new Random(5))) {
+            assertEquals(String.format("Result for \"%s\" should be the same", word), redundant.accepts(word), actual.getDFA().accepts(word));
+        }
+    }
+
     @Test
     public void getInitialState() throws Exception {
         assertEquals("The initial state should be \"q0\"", "q0", dfa.getInitialState());
@@ -117,6 +216,23 @@ public class DFATest {
         }
     }
 
+    @Test
+    public void acceptsEncodedWord() throws Exception {
+        Alphabet alphabet = dfa.getAlphabet();
+
+        assertTrue("\"0,1,1\" should be accepted when encoded", dfa.accepts(alphabet.encodeWord("0,1,1")));
+        assertFalse("\"0,1,0\" should be rejected when encoded", dfa.accepts(alphabet.encodeWord("0,1,0")));
+        assertFalse("The empty word should be rejected", dfa.accepts(new int[0]));
+
+        try {
+            dfa.accepts(new int[]{alphabet.encode("0"), 2});
+
+            fail("An exception should have been thrown");
+        } catch (IllegalArgumentException e) {
+            assertTrue("Exception message should contain \"invalid symbol code\"", e.getMessage().contains("invalid symbol code"));
+        }
+    }
+
     @Test
     public void exceptionOnAcceptInvalidSymbol() throws Exception {
         // A word containing a non-empty invalid symbol.
@@ -1,9 +1,21 @@
 package me.saser.libinftom.dfa;
 
+import com.google.common.base.Joiner;
+import com.google.common.collect.ImmutableList;
+import me.saser.libinftom.Alphabet;
 import org.apache.commons.io.FileUtils;
 
 import java.io.File;
 import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
 
 class DFATestUtils {
 
@@ -14,4 +26,79 @@ class DFATestUtils {
         return ImmutableDFA.fromJSON(json);
     }
 
+    List<String> randomWords(Alphabet alphabet, int count, int maxLength, Random random) {
+        List<String> symbols = ImmutableList.copyOf(alphabet.getSymbols());
+        List<String> words = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            List<String> word = new ArrayList<>();
+            int length = random.nextInt(maxLength + 1);
+            for (int j = 0; j < length; j++) {
+                word.add(symbols.get(random.nextInt(symbols.size())));
+            }
+            words.add(Joiner.on(',').join(word));
+        }
+        return words;
+    }
+
+    /**
+     * Creates a random DFA with the given number of states and symbols. Every transition goes to the dead state with
+     * probability <code>deadRatio</code>, and to a uniformly chosen state otherwise.
+     */
+    DFA randomDFA(int stateCount, int symbolCount, double deadRatio, Random random) {
+        Set<String> states = new HashSet<>();
+        for (int i = 0; i < stateCount; i++) {
+            states.add("q" + i);
+        }
+        Set<String> alphabet = new HashSet<>();
+        for (int i = 0; i < symbolCount; i++) {
+            alphabet.add("s" + i);
+        }
+
+        Map<String, Map<String, String>> delta = new HashMap<>();
+        Set<String> finalStates = new HashSet<>();
+        for (String state : states) {
+            Map<String, String> row = new HashMap<>();
+            for (String symbol : alphabet) {
+                row.put(symbol, random.nextDouble() < deadRatio ? null : "q" + random.nextInt(stateCount));
+            }
+            delta.put(state, row);
+            if (random.nextBoolean()) {
+                finalStates.add(state);
+            }
+        }
+
+        return ImmutableDFA.of(states, alphabet, delta, "q0", finalStates);
+    }
+
+    /**
+     * Asserts that two DFAs are the same DFA: the same states, symbol codes, initial state, final states, live states
+     * and transitions, by name. A few random words are checked as well, both as Strings and encoded.
+     */
+    void assertSameDFA(DFA expected, DFA actual) {
+        this.assertSameDFA(expected, actual, this.randomWords(expected.getAlphabet(), 100, 10, new Random(0)));
+    }
+
+    /**
+     * Asserts that two DFAs are the same DFA like <code>assertSameDFA(DFA, DFA)</code>, checking the given words.
+     */
+    void assertSameDFA(DFA expected, DFA actual, List<String> words) {
+        assertEquals("The states should be the same", expected.getStates(), actual.getStates());
+        assertEquals("The alphabets should be the same", expected.getAlphabet().getSymbols(), actual.getAlphabet().getSymbols());
+        for (String symbol : expected.getAlphabet().getSymbols()) {
+            assertEquals("The code of " + symbol + " should be the same", expected.getAlphabet().encode(symbol), actual.getAlphabet().encode(symbol));
+        }
+        assertEquals("The initial states should be the same", expected.getInitialState(), actual.getInitialState());
+        assertEquals("The final states should be the same", expected.getFinalStates(), actual.getFinalStates());
+        for (String state : expected.getStates()) {
+            assertEquals(String.format("Reachability of final states from %s should be the same", state), expected.canReachFinalState(state), actual.canReachFinalState(state));
+            for (String symbol : expected.getAlphabet().getSymbols()) {
+                assertEquals(String.format("delta(%s, %s) should be the same", state, symbol), expected.nextState(state, symbol), actual.nextState(state, symbol));
+            }
+        }
+        for (String word : words) {
+            assertEquals(String.format("Result for \"%s\" should be the same", word), expected.accepts(word), actual.accepts(word));
+            int[] encoded = expected.getAlphabet().encodeWord(word);
+            assertEquals(String.format("Result for encoded \"%s\" should be the same", word), expected.accepts(encoded), actual.accepts(encoded));
+        }
+    }
 }
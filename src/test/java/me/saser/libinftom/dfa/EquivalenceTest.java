@@ -0,0 +1,91 @@
+package me.saser.libinftom.dfa;
+
+import com.google.common.base.Joiner;
+import com.google.common.collect.ImmutableList;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class EquivalenceTest {
+
+    private static DFA beginWith0EndWith1;
+    private static DFA redundant;
+    private static DFA evenNumberOf1;
+    private static final DFATestUtils utils = new DFATestUtils();
+
+    @BeforeClass
+    public static void setUp() throws Exception {
+        beginWith0EndWith1 = utils.parseJSONFile("dfa/valid/begin_with_0_end_with_1.json");
+        redundant = utils.parseJSONFile("dfa/valid/redundant_begin_with_0_end_with_1.json");
+        evenNumberOf1 = utils.parseJSONFile("dfa/valid/even_number_of_1.json");
+    }
+
+    /**
+     * Finds a shortest word, coming first in symbol code order, that is accepted by exactly one of the DFAs by trying
+     * all words in order of length.
+     */
+    private static String bruteForceCounterexample(DFA first, DFA second, int maxLength) {
+        List<String> words = ImmutableList.of("");
+        for (int length = 0; length <= maxLength; length++) {
+            for (String word : words) {
+                if (first.accepts(word) != second.accepts(word)) {
+                    return word;
+                }
+            }
+            List<String> longer = new ArrayList<>();
+            for (String word : words) {
+                for (int code = 0; code < first.getAlphabet().size(); code++) {
+                    String symbol = first.getAlphabet().decode(code);
+                    longer.add(word.isEmpty() ? symbol : Joiner.on(',').join(word, symbol));
+                }
+            }
+            words = longer;
+        }
+        return null;
+    }
+
+    @Test
+    public void sameLanguageDifferentStates() throws Exception {
+        Equivalence result = Equivalence.check(beginWith0EndWith1, redundant);
+        assertTrue("The DFAs should be equivalent", result.isEquivalent());
+        assertNull("There should be no counterexample", result.getCounterexample());
+        assertTrue("A DFA should be equivalent to itself", Equivalence.equivalent(evenNumberOf1, evenNumberOf1));
+        assertTrue("A DFA should be equivalent to its minimization", Equivalence.equivalent(redundant, redundant.minimize().getDFA()));
+    }
+
+    @Test
+    public void differentLanguages() throws Exception {
+        Equivalence result = Equivalence.check(beginWith0EndWith1, evenNumberOf1);
+        assertFalse("The DFAs should not be equivalent", result.isEquivalent());
+        assertEquals("The empty word should tell them apart", "", result.getCounterexample());
+        assertEquals("The counterexample should have no symbols", ImmutableList.of(), result.getCounterexampleSymbols());
+
+        result = Equivalence.check(beginWith0EndWith1, ProductDFA.difference(beginWith0EndWith1, evenNumberOf1));
+        assertEquals("0,1,1 is the shortest word accepted by only one of them", "0,1,1", result.getCounterexample());
+    }
+
+    @Test
+    public void randomDFAs() throws Exception {
+        Random random = new Random(19);
+        for (int i = 0; i < 300; i++) {
+            DFA first = utils.randomDFA(1 + random.nextInt(4), 2, 0.2, random);
+            DFA second = utils.randomDFA(1 + random.nextInt(4), 2, 0.2, random);
+            // A shortest counterexample is shorter than the total number of states, including the dead states.
+            String expected = bruteForceCounterexample(first, second, 10);
+
+            Equivalence result = Equivalence.check(first, second);
+            assertEquals("The DFAs should be equivalent exactly when no counterexample exists", expected == null, result.isEquivalent());
+            assertEquals("The counterexample should be the first shortest one", expected, result.getCounterexample());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void differentAlphabets() throws Exception {
+        Equivalence.check(beginWith0EndWith1, utils.randomDFA(2, 3, 0, new Random(20)));
+    }
+}
@@ -0,0 +1,91 @@
+package me.saser.libinftom.dfa;
+
+import com.google.common.base.Joiner;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.*;
+
+public class FileScannerTest {
+
+    private static DFA dfa;
+    private static final DFATestUtils utils = new DFATestUtils();
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @BeforeClass
+    public static void setUp() throws Exception {
+        dfa = utils.parseJSONFile("dfa/valid/begin_with_0_end_with_1.json");
+    }
+
+    private Path write(String contents) throws Exception {
+        Path file = folder.newFile().toPath();
+        Files.write(file, contents.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    @Test
+    public void countsAndOffsetsMatchAccepts() throws Exception {
+        List<String> words = utils.randomWords(dfa.getAlphabet(), 5000, 30, new Random(5));
+        Path file = this.write(Joiner.on('\n').join(words) + "\n");
+
+        List<Long> expectedOffsets = new ArrayList<>();
+        long offset = 0;
+        for (String word : words) {
+            if (dfa.accepts(word)) {
+                expectedOffsets.add(offset);
+            }
+            offset += word.length() + 1;
+        }
+
+        // Use tiny chunks, so that the file is split into many of them.
+        FileScanner.Result result = new FileScanner(dfa, ForkJoinPool.commonPool(), 100).scan(file, true);
+
+        assertEquals("Every line should be counted", words.size(), result.getLines());
+        assertEquals("The accepted lines should be counted", expectedOffsets.size(), result.getAccepted());
+        assertEquals("No lines should be invalid", 0, result.getInvalid());
+        long[] offsets = result.getAcceptedOffsets();
+        assertEquals("There should be one offset per accepted line", expectedOffsets.size(), offsets.length);
+        for (int i = 0; i < offsets.length; i++) {
+            assertEquals("Offsets should point at the start of the accepted lines", (long) expectedOffsets.get(i), offsets[i]);
+        }
+    }
+
+    @Test
+    public void defaultChunkingWithoutOffsets() throws Exception {
+        FileScanner.Result result = new FileScanner(dfa).scan(this.write("0,1\n1,0\n0,0,1"));
+
+        assertEquals("There should be three lines, the last one without a newline", 3, result.getLines());
+        assertEquals("Two lines should be accepted", 2, result.getAccepted());
+        assertEquals("One line should be rejected", 1, result.getRejected());
+        assertEquals("No offsets should be collected", 0, result.getAcceptedOffsets().length);
+    }
+
+    @Test
+    public void emptyAndInvalidLines() throws Exception {
+        FileScanner.Result result = new FileScanner(dfa).scan(this.write("0,1\n\n0,2,1\n0,,1\n0,1,\n1,2\n"));
+
+        assertEquals("There should be six lines", 6, result.getLines());
+        assertEquals("Only the first line should be accepted", 1, result.getAccepted());
+        // "1,2" is rejected as soon as "1" is read, so its invalid symbol is never looked at.
+        assertEquals("Three lines should be invalid", 3, result.getInvalid());
+    }
+
+    @Test
+    public void emptyFile() throws Exception {
+        FileScanner.Result result = new FileScanner(dfa).scan(this.write(""));
+
+        assertEquals("An empty file has no lines", 0, result.getLines());
+    }
+}
@@ -0,0 +1,124 @@
+package me.saser.libinftom.dfa;
+
+import com.google.common.collect.ImmutableMap;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class InstrumentedDFATest {
+
+    private static DFA dfa;
+    private static final DFATestUtils utils = new DFATestUtils();
+
+    @BeforeClass
+    public static void setUp() throws Exception {
+        dfa = utils.parseJSONFile("dfa/valid/begin_with_0_end_with_1.json");
+    }
+
+    private static void checkWords(DFA instrumented) {
+        assertTrue("\"0,1\" should be accepted", instrumented.accepts("0,1"));
+        assertFalse("\"1,0\" should be rejected", instrumented.accepts("1,0"));
+        assertFalse("\"0,0\" should be rejected", instrumented.accepts(new int[]{0, 0}));
+        try {
+            instrumented.accepts("0,2");
+
+            fail("An exception should have been thrown");
+        } catch (IllegalArgumentException e) {
+            assertTrue("Exception message should contain \"invalid or empty symbol\"", e.getMessage().contains("invalid or empty symbol"));
+        }
+    }
+
+    @Test
+    public void recordsAccepts() throws Exception {
+        InstrumentedDFA instrumented = new InstrumentedDFA(dfa);
+        checkWords(instrumented);
+
+        DFAMetrics metrics = instrumented.getMetrics();
+        assertEquals("4 words should have been checked", 4, metrics.getWords());
+        assertEquals("1 word should have been accepted", 1, metrics.getAcceptedWords());
+        assertEquals("2 words should have been rejected", 2, metrics.getRejectedWords());
+        assertEquals("1 word should have been invalid", 1, metrics.getInvalidWords());
+        assertEquals("6 symbols should have been consumed", 6, metrics.getSymbols());
+        assertEquals("Rejected words should have been read for 1.5 symbols on average", 1.5, metrics.getAverageSymbolsBeforeRejection(), 1e-9);
+        assertEquals("The dead state should have been entered once", 1, metrics.getDeadStateEntries());
+        assertEquals("Every visit should be counted", ImmutableMap.of("q0", 4L, "q1", 4L, "q2", 1L), metrics.getStateVisits());
+        assertEquals("q2 should be the least visited state", "q2", metrics.getHottestStates(3).get(2));
+        assertEquals("Every word should be in the latency histogram", 4, Arrays.stream(metrics.getLatencyHistogram()).sum());
+        assertTrue("The median latency should be positive", metrics.getLatencyPercentile(50) > 0);
+        assertTrue("Words per second should be positive", metrics.getWordsPerSecond() > 0);
+    }
+
+    @Test
+    public void recordsRunners() throws Exception {
+        InstrumentedDFA instrumented = new InstrumentedDFA(dfa);
+        DFARunner runner = instrumented.runner();
+        runner.consume("1");
+        runner.consume(0);
+        assertNull("The runner should be in the dead state", runner.getState());
+
+        DFAMetrics metrics = instrumented.getMetrics();
+        assertEquals("Runners should not count words", 0, metrics.getWords());
+        assertEquals("2 symbols should have been consumed", 2, metrics.getSymbols());
+        assertEquals("The dead state should have been entered once", 1, metrics.getDeadStateEntries());
+    }
+
+    @Test
+    public void disabledRecordsNothing() throws Exception {
+        InstrumentedDFA instrumented = new InstrumentedDFA(dfa);
+        instrumented.setEnabled(false);
+        assertFalse("Recording should be disabled", instrumented.isEnabled());
+        checkWords(instrumented);
+        instrumented.runner().consume("0");
+
+        DFAMetrics metrics = instrumented.getMetrics();
+        assertEquals("No words should have been counted", 0, metrics.getWords());
+        assertEquals("No symbols should have been counted", 0, metrics.getSymbols());
+        assertTrue("No states should have been counted", metrics.getStateVisits().isEmpty());
+        assertEquals("No percentile should be given without words", 0, metrics.getLatencyPercentile(99));
+    }
+
+    @Test
+    public void reset() throws Exception {
+        InstrumentedDFA instrumented = new InstrumentedDFA(dfa);
+        checkWords(instrumented);
+        instrumented.reset();
+
+        DFAMetrics metrics = instrumented.getMetrics();
+        assertEquals("No words should be left after resetting", 0, metrics.getWords());
+        assertEquals("No dead state entries should be left after resetting", 0, metrics.getDeadStateEntries());
+        assertEquals("The latency histogram should be empty after resetting", 0, Arrays.stream(metrics.getLatencyHistogram()).sum());
+        assertTrue("No states should be left after resetting", metrics.getStateVisits().isEmpty());
+    }
+
+    @Test
+    public void acceptsMatchesWrappedDFA() throws Exception {
+        InstrumentedDFA instrumented = new InstrumentedDFA(dfa);
+        List<String> words = utils.randomWords(dfa.getAlphabet(), 1000, 10, new Random(42));
+        for (String word : words) {
+            assertEquals(String.format("Result for \"%s\" should match the wrapped DFA", word), dfa.accepts(word), instrumented.accepts(word));
+            assertEquals(String.format("Result for encoded \"%s\" should match the wrapped DFA", word), dfa.accepts(word), instrumented.accepts(dfa.getAlphabet().encodeWord(word)));
+        }
+        assertEquals("Every word should have been counted", 2000, instrumented.getMetrics().getWords());
+        assertEquals("Every word should start in the initial state", Long.valueOf(2000), instrumented.getMetrics().getStateVisits().get("q0"));
+    }
+
+    @Test
+    public void enablingDoesNotChangeResults() throws Exception {
+        CharDFA chars = CharDFA.compile(dfa);
+        InstrumentedDFA instrumented = new InstrumentedDFA(chars);
+        for (String word : utils.randomWords(dfa.getAlphabet(), 200, 10, new Random(43))) {
+            instrumented.setEnabled(true);
+            boolean enabled = instrumented.accepts(word);
+            instrumented.setEnabled(false);
+            boolean disabled = instrumented.accepts(word);
+
+            assertEquals(String.format("Result for \"%s\" should not depend on recording", word), enabled, disabled);
+            assertEquals(String.format("Result for \"%s\" should match the wrapped DFA", word), chars.accepts(word), enabled);
+        }
+    }
+}
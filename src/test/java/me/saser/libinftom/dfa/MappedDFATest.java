@@ -0,0 +1,133 @@
+package me.saser.libinftom.dfa;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class MappedDFATest {
+
+    private static final DFATestUtils utils = new DFATestUtils();
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static byte[] write(DFA dfa) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BinaryDFAFormat.write(dfa, out);
+        return out.toByteArray();
+    }
+
+    @Test
+    public void openFile() throws Exception {
+        DFA dfa = utils.parseJSONFile("dfa/valid/begin_with_0_end_with_1.json");
+        Path file = folder.newFile().toPath();
+        BinaryDFAFormat.write(dfa, file);
+        MappedDFA mapped = MappedDFA.open(file);
+
+        utils.assertSameDFA(dfa, mapped);
+        assertTrue("The mapped DFA should accept 0,1", mapped.accepts("0,1"));
+        assertFalse("The mapped DFA should reject 1,0", mapped.accepts("1,0"));
+    }
+
+    @Test
+    public void allWidths() throws Exception {
+        Random random = new Random(5);
+        int[] states = {200, 300, 70000};
+        int[] widths = {1, 2, 4};
+        for (int i = 0; i < states.length; i++) {
+            CompiledDFA dfa = CompiledDFA.compile(utils.randomDFA(states[i], 3, 0.1, random));
+            MappedDFA mapped = MappedDFA.copyOf(dfa);
+
+            assertEquals("The entry width should depend on the number of states", widths[i], mapped.getEntryWidth());
+            utils.assertSameDFA(dfa, mapped, utils.randomWords(dfa.getAlphabet(), 200, 20, random));
+        }
+    }
+
+    @Test
+    public void smallSegments() throws Exception {
+        // Segments of 64 bytes put numbers, strings and bitmaps across segment boundaries.
+        Random random = new Random(11);
+        CompiledDFA dfa = CompiledDFA.compile(utils.randomDFA(300, 7, 0.2, random));
+        Path file = folder.newFile().toPath();
+        BinaryDFAFormat.write(dfa, file);
+        MappedDFA mapped = MappedDFA.open(file, 6);
+
+        utils.assertSameDFA(dfa, mapped, utils.randomWords(dfa.getAlphabet(), 200, 20, random));
+        utils.assertSameDFA(dfa, mapped.toCompiledDFA());
+        utils.assertSameDFA(dfa, BinaryDFAFormat.read(file));
+    }
+
+    @Test
+    public void bufferWithOffset() throws Exception {
+        DFA dfa = utils.parseJSONFile("dfa/valid/begin_with_0_end_with_1.json");
+        byte[] bytes = write(dfa);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length + 3);
+        buffer.position(3);
+        buffer.put(bytes);
+        buffer.position(3);
+        MappedDFA mapped = MappedDFA.of(buffer);
+
+        assertEquals("The position of the buffer should not change", 3, buffer.position());
+        utils.assertSameDFA(CompiledDFA.compile(dfa), mapped, utils.randomWords(dfa.getAlphabet(), 100, 10, new Random(3)));
+    }
+
+    @Test
+    public void runner() throws Exception {
+        DFA dfa = utils.parseJSONFile("dfa/valid/begin_with_0_end_with_1.json");
+        DFARunner expected = dfa.runner();
+        DFARunner actual = MappedDFA.copyOf(dfa).runner();
+        for (String symbol : new String[]{"0", "1", "0", "1", "1"}) {
+            assertEquals("Peeking should give the same state", expected.peek(symbol), actual.peek(symbol));
+            assertEquals("Consuming should give the same state", expected.consume(symbol), actual.consume(symbol));
+            assertEquals("Both runners should agree on final states", expected.isInFinalState(), actual.isInFinalState());
+            assertEquals("Both runners should agree on live states", expected.canAccept(), actual.canAccept());
+        }
+
+        actual.reset();
+        assertEquals("Resetting should return to the initial state", dfa.getInitialState(), actual.getState());
+        assertNull("Starting with 1 should enter the dead state", actual.consume(dfa.getAlphabet().encode("1")));
+        assertFalse("The dead state cannot accept", actual.canAccept());
+    }
+
+    @Test
+    public void compileCopiesOntoHeap() throws Exception {
+        DFA dfa = utils.parseJSONFile("dfa/valid/begin_with_0_end_with_1.json");
+        MappedDFA mapped = MappedDFA.copyOf(dfa);
+        CompiledDFA compiled = CompiledDFA.compile(mapped);
+
+        utils.assertSameDFA(compiled, mapped, utils.randomWords(dfa.getAlphabet(), 100, 10, new Random(7)));
+        assertTrue("Minimizing should work through the copy", mapped.minimize().getDFA().accepts("0,1"));
+    }
+
+    @Test
+    public void version1CannotBeMapped() throws Exception {
+        byte[] bytes = write(utils.parseJSONFile("dfa/valid/begin_with_0_end_with_1.json"));
+        byte[] version1 = Arrays.copyOf(bytes, bytes.length - 8);
+        ByteBuffer.wrap(version1).putInt(4, 1);
+        try {
+            MappedDFA.of(ByteBuffer.wrap(version1));
+            fail("Mapping a file without live states should fail");
+        } catch (IOException e) {
+            assertTrue("The error should mention the version", e.getMessage().contains("version"));
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void invalidTransition() throws Exception {
+        DFA dfa = utils.parseJSONFile("dfa/valid/begin_with_0_end_with_1.json");
+        byte[] bytes = write(dfa);
+        // The first entry of the transition table comes right before the two bitmaps and the other five entries.
+        bytes[bytes.length - 22] = 42;
+        MappedDFA mapped = MappedDFA.of(ByteBuffer.wrap(bytes));
+        mapped.transition(0, 0);
+    }
+}
@@ -0,0 +1,136 @@
+package me.saser.libinftom.dfa;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class MinimizationTest {
+
+    private static DFA dfa;
+    private static final DFATestUtils utils = new DFATestUtils();
+
+    @BeforeClass
+    public static void setUp() throws Exception {
+        dfa = utils.parseJSONFile("dfa/valid/redundant_begin_with_0_end_with_1.json");
+    }
+
+    @Test
+    public void mergesEquivalentStates() throws Exception {
+        Minimization minimization = dfa.minimize();
+        DFA minimal = minimization.getDFA();
+
+        assertEquals("The minimal DFA should have the states q0, q1 and q2", ImmutableSet.of("q0", "q1", "q2"), minimal.getStates());
+        assertEquals("The initial state should still be q0", "q0", minimal.getInitialState());
+        assertEquals("The only final state should be q2", ImmutableSet.of("q2"), minimal.getFinalStates());
+        assertNull("The trap state should have been replaced by the dead state", minimal.nextState("q0", "1"));
+
+        Map<String, String> expected = ImmutableMap.of("q0", "q0", "q1", "q1", "q1b", "q1", "q2", "q2", "q2b", "q2");
+        assertEquals("Unreachable and trap states should not be mapped", expected, minimization.getStateMapping());
+    }
+
+    @Test
+    public void acceptsSameLanguage() throws Exception {
+        DFA minimal = dfa.minimize().getDFA();
+
+        for (String word : utils.randomWords(dfa.getAlphabet(), 1000, 12, new Random(1))) {
+            assertEquals(String.format("\"%s\" should be treated the same by the minimal DFA", word), dfa.accepts(word), minimal.accepts(word));
+        }
+    }
+
+    @Test
+    public void emptyLanguage() throws Exception {
+        DFA empty = ImmutableDFA.of(ImmutableSet.of("a", "b"), ImmutableSet.of("x"), ImmutableMap.<String, Map<String, String>>of(
+                "a", ImmutableMap.of("x", "b"),
+                "b", ImmutableMap.of("x", "a")), "a", ImmutableSet.<String>of());
+
+        Minimization minimization = empty.minimize();
+
+        assertEquals("A DFA accepting nothing should be minimized to its initial state only", ImmutableSet.of("a"), minimization.getDFA().getStates());
+        assertNull("The only transition should go to the dead state", minimization.getDFA().nextState("a", "x"));
+        assertEquals("Only the initial state should be mapped", ImmutableMap.of("a", "a"), minimization.getStateMapping());
+    }
+
+    @Test
+    public void randomDFAsAreMinimal() throws Exception {
+        Random random = new Random(7);
+        for (int i = 0; i < 50; i++) {
+            DFA original = utils.randomDFA(1 + random.nextInt(40), 1 + random.nextInt(4), 0.1, random);
+            DFA minimal = original.minimize().getDFA();
+
+            assertEquals("The minimal DFA should have one state per equivalence class", Math.max(1, countClasses(CompiledDFA.compile(original))), minimal.getStates().size());
+            for (String word : utils.randomWords(original.getAlphabet(), 200, 15, random)) {
+                assertEquals(String.format("\"%s\" should be treated the same by the minimal DFA", word), original.accepts(word), minimal.accepts(word));
+            }
+        }
+    }
+
+    /**
+     * Counts the equivalence classes of reachable states that can lead to a final state, using naive Moore style
+     * refinement.
+     */
+    private static int countClasses(CompiledDFA dfa) {
+        int n = dfa.getStateCount();
+        boolean[] reachable = new boolean[n];
+        List<Integer> queue = new ArrayList<>();
+        queue.add(dfa.getInitialStateIndex());
+        reachable[dfa.getInitialStateIndex()] = true;
+        for (int i = 0; i < queue.size(); i++) {
+            for (int symbol = 0; symbol < dfa.getSymbolCount(); symbol++) {
+                int next = dfa.transition(queue.get(i), symbol);
+                if (next != CompiledDFA.DEAD_STATE && reachable[next] == false) {
+                    reachable[next] = true;
+                    queue.add(next);
+                }
+            }
+        }
+
+        // Class n is the dead state.
+        int[] classes = new int[n + 1];
+        for (int state = 0; state < n; state++) {
+            classes[state] = dfa.isFinalState(state) ? 1 : 0;
+        }
+        int count = -1;
+        while (true) {
+            Map<List<Integer>, Integer> signatures = new HashMap<>();
+            int[] refined = new int[n + 1];
+            for (int state = 0; state <= n; state++) {
+                List<Integer> signature = new ArrayList<>();
+                signature.add(classes[state]);
+                for (int symbol = 0; symbol < dfa.getSymbolCount(); symbol++) {
+                    int next = state == n ? n : dfa.transition(state, symbol);
+                    signature.add(classes[next == CompiledDFA.DEAD_STATE ? n : next]);
+                }
+                Integer existing = signatures.get(signature);
+                if (existing == null) {
+                    existing = signatures.size();
+                    signatures.put(signature, existing);
+                }
+                refined[state] = existing;
+            }
+            if (signatures.size() == count) {
+                break;
+            }
+            count = signatures.size();
+            classes = refined;
+        }
+
+        boolean[] seen = new boolean[n + 1];
+        int result = 0;
+        for (int state = 0; state < n; state++) {
+            if (reachable[state] && classes[state] != classes[n] && seen[classes[state]] == false) {
+                seen[classes[state]] = true;
+                result++;
+            }
+        }
+        return result;
+    }
+}
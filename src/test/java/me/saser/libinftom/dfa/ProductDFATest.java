@@ -0,0 +1,184 @@
+package me.saser.libinftom.dfa;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import me.saser.libinftom.StringAlphabet;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class ProductDFATest {
+
+    private static DFA beginWith0EndWith1;
+    private static DFA evenNumberOf1;
+    private static final DFATestUtils utils = new DFATestUtils();
+
+    @BeforeClass
+    public static void setUp() throws Exception {
+        beginWith0EndWith1 = utils.parseJSONFile("dfa/valid/begin_with_0_end_with_1.json");
+        evenNumberOf1 = utils.parseJSONFile("dfa/valid/even_number_of_1.json");
+    }
+
+    private static boolean expected(ProductDFA.Operation operation, boolean first, boolean second) {
+        switch (operation) {
+            case INTERSECTION:
+                return first && second;
+            case UNION:
+                return first || second;
+            default:
+                return first && second == false;
+        }
+    }
+
+    /**
+     * Checks the product, its materialization and a runner against running the two DFAs separately.
+     */
+    private static void assertProduct(DFA first, DFA second, List<String> words) {
+        for (ProductDFA.Operation operation : ProductDFA.Operation.values()) {
+            ProductDFA product = ProductDFA.of(first, second, operation);
+            CompiledDFA materialized = product.materialize();
+            DFARunner runner = product.runner();
+            for (String word : words) {
+                boolean expected = expected(operation, first.accepts(word), second.accepts(word));
+                assertEquals(String.format("%s should give the right answer for %s", operation, word), expected, product.accepts(word));
+                assertEquals(String.format("The materialized %s should give the right answer for %s", operation, word), expected, materialized.accepts(word));
+                int[] encoded = product.getAlphabet().encodeWord(word);
+                assertEquals(String.format("%s should give the right answer for encoded %s", operation, word), expected, product.accepts(encoded));
+
+                runner.reset();
+                String state = product.getInitialState();
+                for (int symbol : encoded) {
+                    String next = product.nextState(state, product.getAlphabet().decode(symbol));
+                    assertEquals("The runner should agree with nextState", next, runner.consume(symbol));
+                    state = next;
+                }
+                assertEquals(String.format("The runner for %s should give the right answer for %s", operation, word), expected, runner.isInFinalState());
+            }
+            for (String state : materialized.getStates()) {
+                assertTrue(String.format("%s should be a state of the %s", state, operation), product.getStates().contains(state));
+                assertEquals(String.format("%s should agree with its materialization on whether %s is live", operation, state),
+                             materialized.canReachFinalState(state), product.canReachFinalState(state));
+            }
+        }
+    }
+
+    @Test
+    public void smallProducts() throws Exception {
+        assertProduct(beginWith0EndWith1, evenNumberOf1, utils.randomWords(beginWith0EndWith1.getAlphabet(), 500, 12, new Random(16)));
+    }
+
+    @Test
+    public void randomProducts() throws Exception {
+        Random random = new Random(17);
+        for (int i = 0; i < 10; i++) {
+            DFA first = utils.randomDFA(1 + random.nextInt(30), 3, 0.2, random);
+            DFA second = utils.randomDFA(1 + random.nextInt(30), 3, 0.2, random);
+            assertProduct(first, second, utils.randomWords(first.getAlphabet(), 200, 15, random));
+        }
+    }
+
+    @Test
+    public void onlyReachablePairsAreMaterialized() throws Exception {
+        ProductDFA product = ProductDFA.union(beginWith0EndWith1, evenNumberOf1);
+        // (q0,even) can reach (q1,even), (q1,odd), (q2,odd), (q2,even), (∅,odd) and (∅,even), but not (q0,odd).
+        assertEquals("There should be 7 reachable pairs", 7, product.materialize().getStates().size());
+        assertFalse("(q0,odd) should not be reachable", product.materialize().getStates().contains("(q0,odd)"));
+        assertTrue("(∅,odd) should be reachable for a union", product.materialize().getStates().contains("(∅,odd)"));
+        assertEquals("The initial state should be (q0,even)", "(q0,even)", product.getInitialState());
+        assertTrue("(q0,even) should be final", product.getFinalStates().contains("(q0,even)"));
+    }
+
+    @Test
+    public void pairsThatCannotAcceptAreDead() throws Exception {
+        ProductDFA product = ProductDFA.intersection(beginWith0EndWith1, evenNumberOf1);
+        assertNull("Reading 1 first should lead to the dead state", product.nextState("(q0,even)", "1"));
+        assertFalse("The dead state should not be a state", product.getStates().contains("(∅,odd)"));
+
+        ProductDFA empty = ProductDFA.difference(beginWith0EndWith1, beginWith0EndWith1);
+        // The pairs of equal states can never be final, but that only follows from looking at both DFAs at once.
+        assertEquals("Only the pairs of equal states should be reachable", 3, empty.materialize().getStates().size());
+        assertFalse("No final state should be reachable", empty.canReachFinalState(empty.getInitialState()));
+        assertFalse("0,1 should be rejected", empty.accepts("0,1"));
+        assertEquals("The minimal DFA should have a single state", 1, empty.minimize().getDFA().getStates().size());
+    }
+
+    @Test
+    public void compileMaterializes() throws Exception {
+        ProductDFA product = ProductDFA.intersection(beginWith0EndWith1, evenNumberOf1);
+        assertSame("Compiling a product should give its materialization", product.materialize(), CompiledDFA.compile(product));
+    }
+
+    @Test
+    public void namesAreUnambiguous() throws Exception {
+        // Both DFAs alternate between their two states on 0, so the pairs (a,b ; c) and (a ; b,c) are both reachable.
+        DFA first = ImmutableDFA.of(ImmutableSet.of("a", "a,b"), ImmutableSet.of("0"), ImmutableMap.<String, Map<String, String>>of(
+                "a", ImmutableMap.of("0", "a,b"),
+                "a,b", ImmutableMap.of("0", "a")), "a", ImmutableSet.of("a"));
+        DFA second = ImmutableDFA.of(ImmutableSet.of("b,c", "c", "∅", "\\"), ImmutableSet.of("0"), ImmutableMap.<String, Map<String, String>>of(
+                "b,c", ImmutableMap.of("0", "c"),
+                "c", ImmutableMap.of("0", "b,c"),
+                "∅", ImmutableMap.of("0", "∅"),
+                "\\", ImmutableMap.of("0", "\\")), "b,c", ImmutableSet.of("c", "∅", "\\"));
+        ProductDFA product = ProductDFA.union(first, second);
+
+        String initial = product.getInitialState();
+        String next = product.nextState(initial, "0");
+        assertNotEquals("The two pairs should have different names", initial, next);
+        assertEquals("Reading 0 twice should lead back to the initial pair", initial, product.nextState(next, "0"));
+        assertEquals("Both pairs should be materialized", ImmutableSet.of(initial, next), product.materialize().getStates());
+
+        // Pairs that are not reachable can still be named, and a state named like the dead state is not the dead state.
+        assertEquals("A state named ∅ should be told apart from the dead state", "(a\\,b,\\∅)", product.nextState("(a,\\∅)", "0"));
+        assertEquals("Backslashes should be escaped", "(a,\\\\)", product.nextState("(a\\,b,\\\\)", "0"));
+        assertEquals("The dead state of a single DFA is part of the name", "(a\\,b,∅)", product.nextState("(a,∅)", "0"));
+    }
+
+    @Test
+    public void statesAreAllPairsThatCanAccept() throws Exception {
+        ProductDFA product = ProductDFA.union(beginWith0EndWith1, evenNumberOf1);
+        // Every pair of the 3 + 1 and 2 + 1 states is live for a union, except for the pair of dead states.
+        assertEquals("There should be 11 pairs", 11, product.getStates().size());
+        assertEquals("Iterating should give every pair once", 11, ImmutableSet.copyOf(product.getStates()).size());
+        for (String state : product.getStates()) {
+            assertTrue(String.format("%s should be live", state), product.canReachFinalState(state));
+            assertNotNull(String.format("%s should have transitions", state), product.nextState(state, "0"));
+            assertEquals(String.format("%s should be final if either state is", state), state.contains("q2") || state.contains("even"),
+                         product.getFinalStates().contains(state));
+        }
+        assertTrue("(q0,odd) should be a state, even though it is not reachable", product.getStates().contains("(q0,odd)"));
+        assertFalse("(∅,∅) should not be a state", product.getStates().contains("(∅,∅)"));
+        assertFalse("(q0,q0) should not be a state", product.getStates().contains("(q0,q0)"));
+
+        ProductDFA intersection = ProductDFA.intersection(beginWith0EndWith1, evenNumberOf1);
+        assertEquals("Only pairs of live states should be states of an intersection", 6, intersection.getStates().size());
+        assertEquals("Only (q2,even) should be final", ImmutableSet.of("(q2,even)"), ImmutableSet.copyOf(intersection.getFinalStates()));
+        assertFalse("The dead state should not be live", intersection.canReachFinalState(null));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidLiveState() throws Exception {
+        ProductDFA.union(beginWith0EndWith1, evenNumberOf1).canReachFinalState("(q0,q0)");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidEscape() throws Exception {
+        ProductDFA.union(beginWith0EndWith1, evenNumberOf1).nextState("(q0,even\\)", "0");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidState() throws Exception {
+        ProductDFA.union(beginWith0EndWith1, evenNumberOf1).nextState("(q0,q0)", "0");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void differentAlphabets() throws Exception {
+        DFA other = utils.randomDFA(3, 3, 0, new Random(18));
+        assertNotEquals("The alphabets should differ", new StringAlphabet("0,1"), other.getAlphabet());
+        ProductDFA.intersection(beginWith0EndWith1, other);
+    }
+}
@@ -0,0 +1,89 @@
+package me.saser.libinftom.dfa;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class SparseDFATest {
+
+    private static final DFATestUtils utils = new DFATestUtils();
+
+    @Test
+    public void sameBehaviorAsCompiled() throws Exception {
+        Random random = new Random(17);
+        for (double deadRatio : new double[]{0, 0.5, 0.95}) {
+            DFA dfa = utils.randomDFA(300, 20, deadRatio, random);
+            CompiledDFA compiled = CompiledDFA.compile(dfa);
+            List<String> words = utils.randomWords(dfa.getAlphabet(), 300, 6, random);
+
+            utils.assertSameDFA(compiled, SparseDFA.compile(dfa), words);
+            utils.assertSameDFA(compiled, SparseDFA.compile(compiled), words);
+        }
+    }
+
+    @Test
+    public void compiledStateIndicesAreKept() throws Exception {
+        CompiledDFA compiled = CompiledDFA.compile(utils.randomDFA(50, 5, 0.5, new Random(2)));
+        SparseDFA sparse = SparseDFA.compile(compiled);
+        for (int state = 0; state < compiled.getStateCount(); state++) {
+            assertEquals("State indices should be the same", compiled.stateAt(state), sparse.stateAt(state));
+        }
+        assertEquals("The initial state index should be the same", compiled.getInitialStateIndex(), sparse.getInitialStateIndex());
+    }
+
+    @Test
+    public void sparseTablesCompress() throws Exception {
+        SparseDFA sparse = SparseDFA.compile(utils.randomDFA(1000, 100, 0.98, new Random(23)));
+
+        assertTrue("Few transitions should be stored", sparse.getExceptionCount() < 1000 * 100 / 10);
+        assertTrue("The compressed table should be much smaller, but the ratio was " + sparse.getCompressionRatio(),
+                   sparse.getCompressionRatio() > 5);
+    }
+
+    @Test
+    public void defaultTargetsNeedNoExceptions() throws Exception {
+        // Every state goes to b, except a on 0.
+        DFA dfa = ImmutableDFA.of(
+                ImmutableSet.of("a", "b"),
+                ImmutableSet.of("0", "1", "2"),
+                ImmutableMap.of(
+                        "a", ImmutableMap.of("0", "a", "1", "b", "2", "b"),
+                        "b", ImmutableMap.of("0", "b", "1", "b", "2", "b")),
+                "a",
+                ImmutableSet.of("b"));
+        SparseDFA sparse = SparseDFA.compile(dfa);
+
+        assertEquals("Only a on 0 should be stored", 1, sparse.getExceptionCount());
+        assertEquals("a on 0 should stay in a", "a", sparse.nextState("a", "0"));
+        assertEquals("a on 2 should go to b", "b", sparse.nextState("a", "2"));
+        assertTrue("0,0,1 should be accepted", sparse.accepts("0,0,1"));
+        assertFalse("0,0 should be rejected", sparse.accepts("0,0"));
+    }
+
+    @Test
+    public void runner() throws Exception {
+        DFA dfa = utils.parseJSONFile("dfa/valid/begin_with_0_end_with_1.json");
+        DFARunner expected = dfa.runner();
+        DFARunner actual = SparseDFA.compile(dfa).runner();
+        for (String symbol : new String[]{"0", "1", "0", "1", "1"}) {
+            assertEquals("Peeking should give the same state", expected.peek(symbol), actual.peek(symbol));
+            assertEquals("Consuming should give the same state", expected.consume(symbol), actual.consume(symbol));
+            assertEquals("Both runners should agree on final states", expected.isInFinalState(), actual.isInFinalState());
+            assertEquals("Both runners should agree on live states", expected.canAccept(), actual.canAccept());
+        }
+
+        actual.reset();
+        assertNull("Starting with 1 should enter the dead state", actual.consume(dfa.getAlphabet().encode("1")));
+        assertFalse("The dead state cannot accept", actual.canAccept());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidSymbol() throws Exception {
+        SparseDFA.compile(utils.parseJSONFile("dfa/valid/begin_with_0_end_with_1.json")).accepts("0,2,1");
+    }
+}
@@ -0,0 +1,115 @@
+package me.saser.libinftom.dfa;
+
+import com.google.common.base.Joiner;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.StringReader;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class StreamMatcherTest {
+
+    private static DFA dfa;
+    private static final DFATestUtils utils = new DFATestUtils();
+
+    @BeforeClass
+    public static void setUp() throws Exception {
+        dfa = utils.parseJSONFile("dfa/valid/begin_with_0_end_with_1.json");
+    }
+
+    @Test
+    public void matchesEveryRecord() throws Exception {
+        List<String> words = utils.randomWords(dfa.getAlphabet(), 10000, 20, new Random(3));
+        String input = Joiner.on('\n').join(words);
+
+        final List<Boolean> results = new ArrayList<>();
+        StreamMatcher.Result result = new StreamMatcher(dfa).match(new StringReader(input), (record, accepted) -> {
+            assertEquals("Records should be reported in order", results.size(), record);
+            results.add(accepted);
+        });
+
+        assertEquals("Every word should be reported", words.size(), results.size());
+        long expectedAccepted = 0;
+        for (int i = 0; i < words.size(); i++) {
+            boolean expected = dfa.accepts(words.get(i));
+            assertEquals(String.format("Result for \"%s\" should match accepts", words.get(i)), expected, results.get(i));
+            expectedAccepted += expected ? 1 : 0;
+        }
+        assertEquals("The summary should count all records", words.size(), result.getRecords());
+        assertEquals("The summary should count the accepted records", expectedAccepted, result.getAccepted());
+        assertEquals("The summary should count the rejected records", words.size() - expectedAccepted, result.getRejected());
+        assertEquals("No records should be invalid", 0, result.getInvalid());
+    }
+
+    @Test
+    public void trailingDelimiterAndEmptyRecords() throws Exception {
+        StreamMatcher.Result result = new StreamMatcher(dfa).match(new StringReader("0,1\n\n0,1\n"), null);
+
+        assertEquals("There should be three records, the middle one empty", 3, result.getRecords());
+        assertEquals("Both non-empty records should be accepted", 2, result.getAccepted());
+    }
+
+    @Test
+    public void invalidRecords() throws Exception {
+        final List<Boolean> results = new ArrayList<>();
+        StreamMatcher.Result result = new StreamMatcher(dfa).match(new StringReader("0,1\n0,2,1\n0,,1\n0,11\n0,1,"), (record, accepted) -> results.add(accepted));
+
+        assertEquals("There should be five records", 5, result.getRecords());
+        assertEquals("Only the first record should be accepted", 1, result.getAccepted());
+        assertEquals("All records but the first should be invalid", 4, result.getInvalid());
+        assertTrue("The first record should be accepted", results.get(0));
+    }
+
+    @Test
+    public void invalidSymbolsAfterRejection() throws Exception {
+        // Words starting with 1 can never be accepted, but the invalid symbols after it should still be found.
+        StreamMatcher.Result result = new StreamMatcher(dfa).match(new StringReader("1,0,1\n1,2\n1,0,,1\n1,0,11"), null);
+
+        assertEquals("There should be four records", 4, result.getRecords());
+        assertEquals("No record should be accepted", 0, result.getAccepted());
+        assertEquals("All records but the first should be invalid", 3, result.getInvalid());
+    }
+
+    @Test
+    public void streamsAndChannels() throws Exception {
+        byte[] input = "0,1\n1,0\n0,0,1".getBytes(StandardCharsets.UTF_8);
+        StreamMatcher matcher = new StreamMatcher(dfa);
+
+        StreamMatcher.Result fromStream = matcher.match(new ByteArrayInputStream(input), StandardCharsets.UTF_8, null);
+        assertEquals("Two records in the stream should be accepted", 2, fromStream.getAccepted());
+
+        StreamMatcher.Result fromChannel = matcher.match(Channels.newChannel(new ByteArrayInputStream(input)), StandardCharsets.UTF_8, null);
+        assertEquals("Two records in the channel should be accepted", 2, fromChannel.getAccepted());
+    }
+
+    @Test
+    public void customDelimiters() throws Exception {
+        StreamMatcher.Result result = new StreamMatcher(dfa, ';', ' ').match(new StringReader("0 1;1 0;0 0 1"), null);
+
+        assertEquals("There should be three records", 3, result.getRecords());
+        assertEquals("Two records should be accepted", 2, result.getAccepted());
+
+        try {
+            new StreamMatcher(dfa, ';', ';');
+
+            fail("An exception should have been thrown");
+        } catch (IllegalArgumentException e) {
+            assertTrue("Exception message should contain \"must be different\"", e.getMessage().contains("must be different"));
+        }
+
+        try {
+            new StreamMatcher(dfa, '\n', '0');
+
+            fail("An exception should have been thrown");
+        } catch (IllegalArgumentException e) {
+            assertTrue("Exception message should contain \"delimiter\"", e.getMessage().contains("delimiter"));
+        }
+    }
+}
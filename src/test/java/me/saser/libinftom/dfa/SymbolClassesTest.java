@@ -0,0 +1,158 @@
+package me.saser.libinftom.dfa;
+
+import com.google.common.collect.ImmutableSet;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class SymbolClassesTest {
+
+    private static final DFATestUtils utils = new DFATestUtils();
+
+    /**
+     * Creates a random DFA over the given number of symbols, where symbol <code>i</code> behaves like symbol
+     * <code>i % classCount</code> from every state.
+     */
+    private static DFA classedDFA(int stateCount, int symbolCount, int classCount, Random random) {
+        Set<String> states = new HashSet<>();
+        for (int i = 0; i < stateCount; i++) {
+            states.add("q" + i);
+        }
+        Set<String> alphabet = new HashSet<>();
+        for (int i = 0; i < symbolCount; i++) {
+            alphabet.add("s" + i);
+        }
+
+        Map<String, Map<String, String>> delta = new HashMap<>();
+        Set<String> finalStates = new HashSet<>();
+        for (String state : states) {
+            String[] targets = new String[classCount];
+            for (int c = 0; c < classCount; c++) {
+                targets[c] = random.nextInt(4) == 0 ? null : "q" + random.nextInt(stateCount);
+            }
+            Map<String, String> row = new HashMap<>();
+            for (int i = 0; i < symbolCount; i++) {
+                row.put("s" + i, targets[i % classCount]);
+            }
+            delta.put(state, row);
+            if (random.nextBoolean()) {
+                finalStates.add(state);
+            }
+        }
+        return ImmutableDFA.of(states, alphabet, delta, "q0", finalStates);
+    }
+
+    @Test
+    public void identicalColumnsShareAClass() throws Exception {
+        DFA dfa = classedDFA(50, 40, 3, new Random(1));
+        CompiledDFA compiled = CompiledDFA.compile(dfa);
+        SymbolClasses classes = compiled.getSymbolClasses();
+
+        assertEquals("There should be one class per group of symbols", 3, classes.getClassCount());
+        assertEquals("Every symbol should be in the partition", 40, classes.getSymbolCount());
+        for (int i = 0; i < 40; i++) {
+            int code = dfa.getAlphabet().encode("s" + i);
+            int other = dfa.getAlphabet().encode("s" + (i % 3));
+            assertEquals(String.format("s%d should be in the class of s%d", i, i % 3), classes.classOf(other), classes.classOf(code));
+        }
+        assertEquals("Class 0 should start at the lowest symbol", 0, classes.getRepresentative(0));
+        assertEquals("s0 should share its class with 13 other symbols", 14, classes.getClassSize(classes.classOf(dfa.getAlphabet().encode("s0"))));
+    }
+
+    @Test
+    public void classesAreTransparent() throws Exception {
+        Random random = new Random(2);
+        DFA dfa = classedDFA(100, 30, 5, random);
+        CompiledDFA compiled = CompiledDFA.compile(dfa);
+
+        for (String state : dfa.getStates()) {
+            for (String symbol : dfa.getAlphabet().getSymbols()) {
+                assertEquals(String.format("delta(%s, %s) should be the same", state, symbol), dfa.nextState(state, symbol), compiled.nextState(state, symbol));
+            }
+        }
+        for (String word : utils.randomWords(dfa.getAlphabet(), 500, 8, random)) {
+            assertEquals(String.format("Result for \"%s\" should be the same", word), dfa.accepts(word), compiled.accepts(word));
+            assertEquals(String.format("Result for encoded \"%s\" should be the same", word), dfa.accepts(word), compiled.accepts(dfa.getAlphabet().encodeWord(word)));
+        }
+    }
+
+    @Test
+    public void classesSurviveRenumbering() throws Exception {
+        CompiledDFA compiled = CompiledDFA.compile(classedDFA(60, 20, 4, new Random(3)));
+        CompiledDFA renumbered = compiled.renumberBreadthFirst();
+
+        assertEquals("Renumbering should keep the classes", compiled.getSymbolClasses(), renumbered.getSymbolClasses());
+        for (String state : compiled.getStates()) {
+            for (String symbol : compiled.getAlphabet().getSymbols()) {
+                assertEquals("Renumbering should keep the transitions", compiled.nextState(state, symbol), renumbered.nextState(state, symbol));
+            }
+        }
+    }
+
+    @Test
+    public void distinctColumnsAreKept() throws Exception {
+        // Random DFAs with many states almost surely treat every symbol differently.
+        CompiledDFA compiled = CompiledDFA.compile(utils.randomDFA(200, 10, 0.1, new Random(4)));
+        assertEquals("Every symbol should be a class of its own", 10, compiled.getSymbolClasses().getClassCount());
+    }
+
+    @Test
+    public void refine() throws Exception {
+        // Symbols are grouped by i % 2 in one DFA and by i % 3 in the other, so i % 6 tells them apart in both.
+        SymbolClasses halves = CompiledDFA.compile(classedDFA(40, 12, 2, new Random(5))).getSymbolClasses();
+        SymbolClasses thirds = CompiledDFA.compile(classedDFA(40, 12, 3, new Random(6))).getSymbolClasses();
+        SymbolClasses common = halves.refine(thirds);
+
+        assertEquals("The common refinement should have six classes", 6, common.getClassCount());
+        for (int a = 0; a < 12; a++) {
+            for (int b = 0; b < 12; b++) {
+                boolean together = halves.classOf(a) == halves.classOf(b) && thirds.classOf(a) == thirds.classOf(b);
+                assertEquals("Symbols should share a class exactly when they do in both", together, common.classOf(a) == common.classOf(b));
+            }
+        }
+        assertEquals("Refining is symmetric", common, thirds.refine(halves));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void refineDifferentSizes() throws Exception {
+        SymbolClasses.identity(3).refine(SymbolClasses.identity(4));
+    }
+
+    @Test
+    public void productsUseCommonClasses() throws Exception {
+        Random random = new Random(7);
+        DFA first = classedDFA(30, 24, 2, random);
+        DFA second = classedDFA(30, 24, 3, random);
+        ProductDFA product = ProductDFA.intersection(first, second);
+        CompiledDFA materialized = product.materialize();
+
+        assertTrue("The product should not tell apart more classes than the common refinement",
+                   materialized.getSymbolClasses().getClassCount() <= 6);
+        List<String> words = utils.randomWords(first.getAlphabet(), 500, 8, random);
+        for (String word : words) {
+            boolean expected = first.accepts(word) && second.accepts(word);
+            assertEquals(String.format("Result for \"%s\" should be the intersection", word), expected, materialized.accepts(word));
+            assertEquals(String.format("Lazy result for \"%s\" should be the intersection", word), expected, product.accepts(word));
+        }
+    }
+
+    @Test
+    public void binaryRoundTrip() throws Exception {
+        CompiledDFA compiled = CompiledDFA.compile(classedDFA(50, 16, 2, new Random(8)));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BinaryDFAFormat.write(compiled, out);
+        CompiledDFA read = BinaryDFAFormat.read(ByteBuffer.wrap(out.toByteArray()));
+
+        assertEquals("Reading should find the same classes", compiled.getSymbolClasses(), read.getSymbolClasses());
+        assertEquals("The states should be the same", ImmutableSet.copyOf(compiled.getStates()), ImmutableSet.copyOf(read.getStates()));
+    }
+}
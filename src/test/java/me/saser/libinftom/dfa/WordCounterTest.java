@@ -0,0 +1,97 @@
+package me.saser.libinftom.dfa;
+
+import com.google.common.base.Joiner;
+import com.google.common.collect.ImmutableList;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class WordCounterTest {
+
+    private static DFA beginWith0EndWith1;
+    private static DFA evenNumberOf1;
+    private static final DFATestUtils utils = new DFATestUtils();
+
+    @BeforeClass
+    public static void setUp() throws Exception {
+        beginWith0EndWith1 = utils.parseJSONFile("dfa/valid/begin_with_0_end_with_1.json");
+        evenNumberOf1 = utils.parseJSONFile("dfa/valid/even_number_of_1.json");
+    }
+
+    private static long bruteForceCount(DFA dfa, int length) {
+        List<String> words = ImmutableList.of("");
+        for (int k = 0; k < length; k++) {
+            List<String> longer = new ArrayList<>();
+            for (String word : words) {
+                for (String symbol : dfa.getAlphabet().getSymbols()) {
+                    longer.add(word.isEmpty() ? symbol : Joiner.on(',').join(word, symbol));
+                }
+            }
+            words = longer;
+        }
+
+        long count = 0;
+        for (String word : words) {
+            if (dfa.accepts(word)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Test
+    public void countUpTo() throws Exception {
+        BigInteger[] counts = new WordCounter(beginWith0EndWith1).countUpTo(10);
+        assertEquals("There should be counts for lengths 0 to 10", 11, counts.length);
+        assertEquals("No word of length 0 should be accepted", BigInteger.ZERO, counts[0]);
+        assertEquals("No word of length 1 should be accepted", BigInteger.ZERO, counts[1]);
+        for (int k = 2; k <= 10; k++) {
+            assertEquals("2^(k-2) words of length k should be accepted", BigInteger.ONE.shiftLeft(k - 2), counts[k]);
+        }
+    }
+
+    @Test
+    public void countLargeLengths() throws Exception {
+        WordCounter counter = new WordCounter(evenNumberOf1);
+        assertEquals("The empty word should be accepted", BigInteger.ONE, counter.count(0));
+        assertEquals("Half of all words of length 1000 should be accepted", BigInteger.ONE.shiftLeft(999), counter.count(1000));
+
+        long n = 1000000000000000000L;
+        long modulus = 1000000007;
+        long expected = BigInteger.valueOf(2).modPow(BigInteger.valueOf(n - 1), BigInteger.valueOf(modulus)).longValue();
+        assertEquals("The count modulo a prime should match modular exponentiation", expected, counter.count(n, modulus));
+    }
+
+    @Test
+    public void randomDFAs() throws Exception {
+        Random random = new Random(21);
+        for (int i = 0; i < 50; i++) {
+            DFA dfa = utils.randomDFA(1 + random.nextInt(6), 1 + random.nextInt(3), 0.2, random);
+            WordCounter counter = new WordCounter(dfa);
+            BigInteger[] counts = counter.countUpTo(60);
+            for (int k = 0; k <= 6; k++) {
+                assertEquals("The count should match enumerating all words of length " + k, BigInteger.valueOf(bruteForceCount(dfa, k)), counts[k]);
+            }
+            for (int k = 0; k <= 60; k++) {
+                assertEquals("Matrix exponentiation should match dynamic programming for length " + k, counts[k], counter.count(k));
+                assertEquals("Modular counts should match exact counts for length " + k, counts[k].mod(BigInteger.valueOf(1009)).longValue(), counter.count(k, 1009));
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negativeLength() throws Exception {
+        new WordCounter(evenNumberOf1).count(-1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidModulus() throws Exception {
+        new WordCounter(evenNumberOf1).count(10, 0);
+    }
+}
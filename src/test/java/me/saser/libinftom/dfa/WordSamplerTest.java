@@ -0,0 +1,169 @@
+package me.saser.libinftom.dfa;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+public class WordSamplerTest {
+
+    private static DFA beginWith0EndWith1;
+    private static DFA evenNumberOf1;
+    private static final DFATestUtils utils = new DFATestUtils();
+
+    @BeforeClass
+    public static void setUp() throws Exception {
+        beginWith0EndWith1 = utils.parseJSONFile("dfa/valid/begin_with_0_end_with_1.json");
+        evenNumberOf1 = utils.parseJSONFile("dfa/valid/even_number_of_1.json");
+    }
+
+    @Test
+    public void counts() throws Exception {
+        WordSampler sampler = new WordSampler(beginWith0EndWith1, 6);
+        assertEquals("The length should be the one given", 6, sampler.getLength());
+        assertEquals("2^4 words of length 6 should be accepted", BigInteger.valueOf(16), sampler.getAcceptedCount());
+        assertEquals("The remaining words of length 6 should be rejected", BigInteger.valueOf(48), sampler.getRejectedCount());
+    }
+
+    @Test
+    public void sampleAcceptedUniformly() throws Exception {
+        WordSampler sampler = new WordSampler(beginWith0EndWith1, 4);
+        Random random = new Random(17);
+        Map<String, Integer> counts = new HashMap<>();
+        for (int i = 0; i < 4000; i++) {
+            String word = sampler.sampleAccepted(random);
+            assertTrue("Sampled word " + word + " should be accepted", beginWith0EndWith1.accepts(word));
+            counts.merge(word, 1, Integer::sum);
+        }
+
+        assertEquals("All 4 accepted words should be sampled", 4, counts.size());
+        for (Map.Entry<String, Integer> count : counts.entrySet()) {
+            assertTrue("Word " + count.getKey() + " should be sampled about 1000 times", count.getValue() > 850 && count.getValue() < 1150);
+        }
+    }
+
+    @Test
+    public void sampleRejectedUniformly() throws Exception {
+        WordSampler sampler = new WordSampler(beginWith0EndWith1, 3);
+        Random random = new Random(17);
+        Map<String, Integer> counts = new HashMap<>();
+        for (int i = 0; i < 6000; i++) {
+            String word = sampler.sampleRejected(random);
+            assertFalse("Sampled word " + word + " should be rejected", beginWith0EndWith1.accepts(word));
+            counts.merge(word, 1, Integer::sum);
+        }
+
+        assertEquals("All 6 rejected words should be sampled", 6, counts.size());
+        for (Map.Entry<String, Integer> count : counts.entrySet()) {
+            assertTrue("Word " + count.getKey() + " should be sampled about 1000 times", count.getValue() > 850 && count.getValue() < 1150);
+        }
+    }
+
+    @Test
+    public void sampleLongWords() throws Exception {
+        // More words than fit in a long.
+        WordSampler sampler = new WordSampler(evenNumberOf1, 200);
+        Random random = new Random(17);
+        for (int i = 0; i < 100; i++) {
+            int[] accepted = sampler.sampleAcceptedCodes(random);
+            assertEquals("Sampled words should have the given length", 200, accepted.length);
+            assertTrue("Sampled word should be accepted", evenNumberOf1.accepts(accepted));
+            assertFalse("Sampled word should be rejected", evenNumberOf1.accepts(sampler.sampleRejectedCodes(random)));
+        }
+    }
+
+    @Test
+    public void sampleSymbolClassesUniformly() throws Exception {
+        // Words with exactly one a, where b and c behave the same and therefore share a class.
+        DFA oneA = ImmutableDFA.of(ImmutableSet.of("none", "one", "many"), ImmutableSet.of("a", "b", "c"), ImmutableMap.<String, Map<String, String>>of(
+                "none", ImmutableMap.of("a", "one", "b", "none", "c", "none"),
+                "one", ImmutableMap.of("a", "many", "b", "one", "c", "one"),
+                "many", ImmutableMap.of("a", "many", "b", "many", "c", "many")), "none", ImmutableSet.of("one"));
+        assertEquals("b and c should share a class", 2, CompiledDFA.compile(oneA).getSymbolClasses().getClassCount());
+
+        WordSampler sampler = new WordSampler(oneA, 3);
+        Random random = new Random(17);
+        Map<String, Integer> accepted = new HashMap<>();
+        Map<String, Integer> rejected = new HashMap<>();
+        for (int i = 0; i < 12000; i++) {
+            accepted.merge(sampler.sampleAccepted(random), 1, Integer::sum);
+        }
+        for (int i = 0; i < 15000; i++) {
+            rejected.merge(sampler.sampleRejected(random), 1, Integer::sum);
+        }
+
+        assertEquals("All 12 accepted words should be sampled", 12, accepted.size());
+        assertEquals("All 15 rejected words should be sampled", 15, rejected.size());
+        for (Map.Entry<String, Integer> count : accepted.entrySet()) {
+            assertTrue("Sampled word " + count.getKey() + " should be accepted", oneA.accepts(count.getKey()));
+            assertTrue("Word " + count.getKey() + " should be sampled about 1000 times", count.getValue() > 850 && count.getValue() < 1150);
+        }
+        for (Map.Entry<String, Integer> count : rejected.entrySet()) {
+            assertFalse("Sampled word " + count.getKey() + " should be rejected", oneA.accepts(count.getKey()));
+            assertTrue("Word " + count.getKey() + " should be sampled about 1000 times", count.getValue() > 850 && count.getValue() < 1150);
+        }
+
+        // The accepted words fit in a long, but not all words.
+        WordSampler mixedSampler = new WordSampler(oneA, 40);
+        for (int i = 0; i < 100; i++) {
+            assertTrue("Sampled word should be accepted", oneA.accepts(mixedSampler.sampleAcceptedCodes(random)));
+            assertFalse("Sampled word should be rejected", oneA.accepts(mixedSampler.sampleRejectedCodes(random)));
+        }
+
+        // More words than fit in a long.
+        WordSampler longSampler = new WordSampler(oneA, 100);
+        assertEquals("100 * 2^99 words of length 100 should be accepted", BigInteger.valueOf(100).shiftLeft(99), longSampler.getAcceptedCount());
+        for (int i = 0; i < 100; i++) {
+            assertTrue("Sampled word should be accepted", oneA.accepts(longSampler.sampleAcceptedCodes(random)));
+            assertFalse("Sampled word should be rejected", oneA.accepts(longSampler.sampleRejectedCodes(random)));
+        }
+    }
+
+    @Test
+    public void randomDFAs() throws Exception {
+        Random random = new Random(42);
+        for (int i = 0; i < 50; i++) {
+            DFA dfa = utils.randomDFA(1 + random.nextInt(8), 1 + random.nextInt(4), 0.2, random);
+            int length = random.nextInt(12);
+            WordSampler sampler = new WordSampler(dfa, length);
+            for (int j = 0; j < 20; j++) {
+                if (sampler.getAcceptedCount().signum() > 0) {
+                    assertTrue("Sampled word should be accepted", dfa.accepts(sampler.sampleAcceptedCodes(random)));
+                }
+                if (sampler.getRejectedCount().signum() > 0) {
+                    int[] word = sampler.sampleRejectedCodes(random);
+                    assertEquals("Sampled words should have the given length", length, word.length);
+                    assertFalse("Sampled word should be rejected", dfa.accepts(word));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void streams() throws Exception {
+        WordSampler sampler = new WordSampler(beginWith0EndWith1, 10);
+        List<String> accepted = sampler.accepted(new Random(17)).limit(1000).collect(Collectors.toList());
+        assertEquals("The Stream should give as many words as asked for", 1000, accepted.size());
+        assertTrue("All words should be accepted", accepted.stream().allMatch(beginWith0EndWith1::accepts));
+        assertTrue("No words should be accepted", sampler.rejected(new Random(17)).limit(1000).noneMatch(beginWith0EndWith1::accepts));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void noAcceptedWords() throws Exception {
+        new WordSampler(beginWith0EndWith1, 1).sampleAccepted(new Random());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negativeLength() throws Exception {
+        new WordSampler(beginWith0EndWith1, -1);
+    }
+}
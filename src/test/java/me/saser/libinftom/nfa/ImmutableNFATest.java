@@ -0,0 +1,102 @@
+package me.saser.libinftom.nfa;
+
+import com.google.common.collect.ImmutableSet;
+import me.saser.libinftom.StringAlphabet;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ImmutableNFATest {
+
+    private static ImmutableNFA contains01;
+    private static ImmutableNFA aStarBStar;
+    private static final NFATestUtils utils = new NFATestUtils();
+
+    @BeforeClass
+    public static void setUp() throws Exception {
+        contains01 = utils.parseJSONFile("nfa/valid/contains_01.json");
+        aStarBStar = utils.parseJSONFile("nfa/valid/a_star_b_star.json");
+    }
+
+    @Test
+    public void getters() throws Exception {
+        assertEquals("The valid states should consist of \"q0\", \"q1\", and \"q2\"", ImmutableSet.of("q0", "q1", "q2"), contains01.getStates());
+        assertEquals("The alphabet should consist of \"0\" and \"1\"", new StringAlphabet("0,1"), contains01.getAlphabet());
+        assertEquals("The initial state should be \"q0\"", "q0", contains01.getInitialState());
+        assertEquals("The only final state should be \"q2\"", ImmutableSet.of("q2"), contains01.getFinalStates());
+    }
+
+    @Test
+    public void nextStates() throws Exception {
+        assertEquals("delta(q0, 0) should be {q0, q1}", ImmutableSet.of("q0", "q1"), contains01.nextStates("q0", "0"));
+        assertEquals("delta(q1, 0) should be empty", ImmutableSet.of(), contains01.nextStates("q1", "0"));
+        assertEquals("delta(null, 0) should be empty", ImmutableSet.of(), contains01.nextStates(null, "0"));
+        assertEquals("The ε-transitions of q0 should go to q1", ImmutableSet.of("q1"), aStarBStar.nextStates("q0", ""));
+        assertEquals("q1 should have no ε-transitions", ImmutableSet.of(), aStarBStar.nextStates("q1", ""));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void nextStatesInvalidSymbol() throws Exception {
+        contains01.nextStates("q0", "2");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void nextStatesInvalidState() throws Exception {
+        contains01.nextStates("q3", "0");
+    }
+
+    @Test
+    public void epsilonClosure() throws Exception {
+        assertEquals("The ε-closure of q0 should be {q0, q1}", ImmutableSet.of("q0", "q1"), aStarBStar.epsilonClosure("q0"));
+        assertEquals("The ε-closure of q1 should be {q1}", ImmutableSet.of("q1"), aStarBStar.epsilonClosure("q1"));
+    }
+
+    @Test
+    public void accepts() throws Exception {
+        assertTrue("0,1 should be accepted", contains01.accepts("0,1"));
+        assertTrue("1,1,0,0,1,0 should be accepted", contains01.accepts("1,1,0,0,1,0"));
+        assertFalse("1,1,1,0,0 should be rejected", contains01.accepts("1,1,1,0,0"));
+        assertFalse("The empty word should be rejected", contains01.accepts(""));
+    }
+
+    @Test
+    public void acceptsWithEpsilonTransitions() throws Exception {
+        assertTrue("The empty word should be accepted", aStarBStar.accepts(""));
+        assertTrue("a,a,b should be accepted", aStarBStar.accepts("a,a,b"));
+        assertTrue("b,b should be accepted", aStarBStar.accepts("b,b"));
+        assertFalse("a,b,a should be rejected", aStarBStar.accepts("a,b,a"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void acceptsInvalidSymbol() throws Exception {
+        contains01.accepts("0,2,1");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void acceptsEmptySymbol() throws Exception {
+        contains01.runner().accepts("1,,0,1");
+    }
+
+    @Test
+    public void invalidTargetStateInTransition() throws Exception {
+        try {
+            utils.parseJSONFile("nfa/invalid/invalid_target_state_in_delta.json");
+
+            fail("An exception should have been thrown");
+        } catch (IllegalArgumentException e) {
+            assertTrue("Exception message should contain \"invalid target state\"", e.getMessage().contains("invalid target state"));
+        }
+    }
+
+    @Test
+    public void invalidSymbolInTransition() throws Exception {
+        try {
+            utils.parseJSONFile("nfa/invalid/invalid_symbol_in_delta.json");
+
+            fail("An exception should have been thrown");
+        } catch (IllegalArgumentException e) {
+            assertTrue("Exception message should contain \"symbol not in alphabet\"", e.getMessage().contains("symbol not in alphabet"));
+        }
+    }
+}
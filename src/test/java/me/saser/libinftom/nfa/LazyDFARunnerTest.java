@@ -0,0 +1,116 @@
+package me.saser.libinftom.nfa;
+
+import com.google.common.collect.ImmutableSet;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class LazyDFARunnerTest {
+
+    private static ImmutableNFA contains01;
+    private static final NFATestUtils utils = new NFATestUtils();
+
+    @BeforeClass
+    public static void setUp() throws Exception {
+        contains01 = utils.parseJSONFile("nfa/valid/contains_01.json");
+    }
+
+    private static String randomWord(int length, Random random) {
+        StringBuilder word = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            if (i > 0) {
+                word.append(',');
+            }
+            word.append(random.nextBoolean() ? '1' : '0');
+        }
+        return word.toString();
+    }
+
+    private static boolean nthFromLastIsOne(String word, int n) {
+        return word.length() >= 2 * n - 1 && word.charAt(word.length() - 2 * n + 1) == '1';
+    }
+
+    @Test
+    public void consume() throws Exception {
+        LazyDFARunner runner = contains01.runner();
+        assertEquals("The runner should start in {q0}", "{q0}", runner.getState());
+        assertEquals("Peeking 0 should give {q0,q1}", "{q0,q1}", runner.peek("0"));
+        assertEquals("Peeking should not change the state", "{q0}", runner.getState());
+
+        assertEquals("Consuming 0 should give {q0,q1}", "{q0,q1}", runner.consume("0"));
+        assertEquals("The states should be q0 and q1", ImmutableSet.of("q0", "q1"), runner.getStates());
+        assertFalse("{q0,q1} should not be final", runner.isInFinalState());
+        assertEquals("Consuming 1 should give {q0,q2}", "{q0,q2}", runner.consume(1));
+        assertTrue("{q0,q2} should be final", runner.isInFinalState());
+
+        runner.reset();
+        assertEquals("Resetting should go back to {q0}", "{q0}", runner.getState());
+    }
+
+    @Test
+    public void deadState() throws Exception {
+        ImmutableNFA dfaLike = ImmutableNFA.fromJSON("{\"alphabet\": [\"a\", \"b\"], \"states\": [\"q0\", \"q1\"], " +
+                "\"delta\": {\"q0\": {\"a\": [\"q1\"]}}, \"initialState\": \"q0\", \"finalStates\": [\"q1\"]}");
+        LazyDFARunner runner = dfaLike.runner();
+
+        assertTrue("A final state should be reachable initially", runner.canAccept());
+        assertNull("Consuming b should end up in the dead state", runner.consume("b"));
+        assertFalse("No final state should be reachable from the dead state", runner.canAccept());
+        assertNull("The dead state should stay dead", runner.consume("a"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void tooSmallCache() throws Exception {
+        contains01.runner(1);
+    }
+
+    @Test
+    public void smallCacheGivesSameResults() throws Exception {
+        int n = 8;
+        ImmutableNFA nfa = utils.nthFromLastIsOne(n);
+        LazyDFARunner large = nfa.runner();
+        // Far fewer than the 2^8 DFA states, so that states are evicted all the time.
+        LazyDFARunner small = nfa.runner(16);
+
+        Random random = new Random(13);
+        for (int i = 0; i < 500; i++) {
+            String word = randomWord(random.nextInt(40), random);
+            boolean expected = nthFromLastIsOne(word, n);
+            assertEquals("The large cache should give the right answer for " + word, expected, large.accepts(word));
+            assertEquals("The small cache should give the right answer for " + word, expected, small.accepts(word));
+        }
+        assertEquals("No states should be evicted from the large cache", 0, large.getEvictions());
+        assertTrue("States should be evicted from the small cache", small.getEvictions() > 0);
+    }
+
+    @Test
+    public void fallsBackToSimulationWhenThrashing() throws Exception {
+        int n = 12;
+        ImmutableNFA nfa = utils.nthFromLastIsOne(n);
+        LazyDFARunner runner = nfa.runner(4);
+
+        // A long random word visits a new DFA state for almost every symbol.
+        String word = randomWord(4 * LazyDFARunner.THRASH_WINDOW, new Random(14));
+        assertEquals("The word should be checked correctly", nthFromLastIsOne(word, n), runner.accepts(word));
+        assertTrue("The runner should have fallen back to simulation", runner.isSimulating());
+
+        runner.reset();
+        assertFalse("Resetting should go back to using the cache", runner.isSimulating());
+    }
+
+    @Test
+    public void cacheIsReusedAcrossWords() throws Exception {
+        LazyDFARunner runner = contains01.runner(4);
+        Random random = new Random(15);
+        for (int i = 0; i < 200; i++) {
+            String word = randomWord(random.nextInt(20), random);
+            assertEquals("The runner should agree with the NFA for " + word, contains01.accepts(word), runner.accepts(word));
+        }
+        // The subset construction of this NFA only has three reachable states.
+        assertEquals("No states should be evicted", 0, runner.getEvictions());
+        assertFalse("The runner should not fall back to simulation", runner.isSimulating());
+    }
+}
@@ -0,0 +1,34 @@
+package me.saser.libinftom.nfa;
+
+import org.apache.commons.io.FileUtils;
+
+import java.io.File;
+import java.nio.charset.Charset;
+
+class NFATestUtils {
+
+    ImmutableNFA parseJSONFile(String fileName) throws Exception {
+        String filePath = getClass().getClassLoader().getResource(fileName).getFile();
+        File jsonFile = new File(filePath);
+        String json = FileUtils.readFileToString(jsonFile, Charset.defaultCharset());
+        return ImmutableNFA.fromJSON(json);
+    }
+
+    /**
+     * Creates an NFA over "0" and "1" accepting all words where the n:th symbol from the end is "1". The smallest DFA
+     * accepting the same language has 2^n states.
+     */
+    ImmutableNFA nthFromLastIsOne(int n) {
+        StringBuilder states = new StringBuilder("\"q0\"");
+        StringBuilder delta = new StringBuilder("\"q0\": {\"0\": [\"q0\"], \"1\": [\"q0\", \"q1\"]}");
+        for (int i = 1; i <= n; i++) {
+            states.append(", \"q").append(i).append('"');
+            if (i < n) {
+                delta.append(String.format(", \"q%d\": {\"0\": [\"q%d\"], \"1\": [\"q%d\"]}", i, i + 1, i + 1));
+            }
+        }
+        return ImmutableNFA.fromJSON(String.format(
+                "{\"alphabet\": [\"0\", \"1\"], \"states\": [%s], \"delta\": {%s}, \"initialState\": \"q0\", \"finalStates\": [\"q%d\"]}",
+                states, delta, n));
+    }
+}